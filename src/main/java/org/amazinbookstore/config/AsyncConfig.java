@@ -0,0 +1,18 @@
+package org.amazinbookstore.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/**
+ * Enables {@code @Async} methods. They run on the executor that Spring Boot
+ * auto-configures, and are used for startup work that should not delay the
+ * application (or fail it) when MongoDB is slow to become reachable.
+ *
+ * Proxies are class-based, as for the rest of Spring Boot's AOP, so a bean
+ * with {@code @Async} methods can still be injected by its class when it also
+ * implements an interface.
+ */
+@Configuration
+@EnableAsync(proxyTargetClass = true)
+public class AsyncConfig {
+}
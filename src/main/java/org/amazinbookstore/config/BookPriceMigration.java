@@ -0,0 +1,66 @@
+package org.amazinbookstore.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.amazinbookstore.model.Book;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rewrites book prices stored as strings as Decimal128.
+ *
+ * Books saved before prices were mapped to Decimal128 hold them as strings,
+ * which sort after every number and are skipped by numeric price filters and
+ * price range facets. One update converts them all in MongoDB; running it
+ * again finds nothing to do. Like {@link MongoIndexConfig} it runs in the
+ * background once the application is up, and a failure is only logged.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookPriceMigration {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        try {
+            migrate();
+        } catch (DataAccessException e) {
+            log.warn("Could not convert string book prices: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Converts every string price. A string that is not a number is left as it is.
+     *
+     * @return the number of books whose price was converted
+     */
+    public long migrate() {
+        Query stringPrices = new Query(Criteria.where("price").type(JsonSchemaObject.Type.STRING));
+        AggregationUpdate toDecimal = AggregationUpdate.update()
+                .set("price").toValue(ConvertOperators.Convert.convertValueOf("price")
+                        .to("decimal")
+                        .onErrorReturnValueOf("price"));
+
+        long converted = mongoTemplate.updateMulti(stringPrices, toDecimal, Book.class).getModifiedCount();
+        long unconvertible = mongoTemplate.count(stringPrices, Book.class);
+        if (converted > 0) {
+            log.info("Converted the string prices of {} books to Decimal128", converted);
+        }
+        if (unconvertible > 0) {
+            log.warn("{} books have a string price that is not a number", unconvertible);
+        }
+        return converted;
+    }
+}
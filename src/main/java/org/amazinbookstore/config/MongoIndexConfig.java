@@ -0,0 +1,58 @@
+package org.amazinbookstore.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the indexes declared on the {@link Document} classes with
+ * {@code @Indexed} / {@code @CompoundIndex}.
+ *
+ * This replaces Spring Data's auto-index-creation, which creates indexes while
+ * the repositories are being built and so stops the application from starting
+ * at all when MongoDB is unreachable. Here index creation runs in the background
+ * once the application is up, and a failure is only logged.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MongoIndexConfig {
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoMappingContext mongoMappingContext;
+
+    /**
+     * Ensures every declared index exists. Ensuring an index that already exists is a no-op.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoMappingContext);
+        for (MongoPersistentEntity<?> entity : mongoMappingContext.getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(Document.class)) {
+                continue;
+            }
+            try {
+                IndexOperations indexOps = mongoTemplate.indexOps(entity.getType());
+                resolver.resolveIndexFor(entity.getType()).forEach(indexOps::ensureIndex);
+            } catch (DataAccessResourceFailureException e) {
+                // Every other collection would wait out the same server selection timeout
+                log.warn("Could not create indexes, MongoDB is unreachable: {}", e.getMessage());
+                return;
+            } catch (DataAccessException e) {
+                log.warn("Could not create indexes for {}: {}", entity.getCollection(), e.getMessage());
+            }
+        }
+    }
+}
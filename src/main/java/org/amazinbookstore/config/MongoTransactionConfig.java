@@ -0,0 +1,26 @@
+package org.amazinbookstore.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+
+/**
+ * Enables MongoDB multi-document transactions, used by checkout.
+ *
+ * Transactions need a replica set; a single local node works once started
+ * with {@code --replSet rs0} and initiated with {@code rs.initiate()}. They
+ * are off by default so a plain standalone {@code mongod} keeps working, and
+ * are switched on with {@code amazin.mongodb.transactions=true} (or the
+ * {@code MONGODB_TRANSACTIONS} environment variable).
+ */
+@Configuration
+@ConditionalOnProperty(name = "amazin.mongodb.transactions", havingValue = "true")
+public class MongoTransactionConfig {
+
+    @Bean
+    public MongoTransactionManager transactionManager(MongoDatabaseFactory databaseFactory) {
+        return new MongoTransactionManager(databaseFactory);
+    }
+}
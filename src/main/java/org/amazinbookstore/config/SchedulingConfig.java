@@ -0,0 +1,14 @@
+package org.amazinbookstore.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables {@code @Scheduled} methods, such as the sweep that reclaims expired
+ * inventory holds. Scheduled work that talks to MongoDB logs failures rather
+ * than throwing, so an unreachable database only delays it.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
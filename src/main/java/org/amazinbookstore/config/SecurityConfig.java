@@ -45,8 +45,9 @@ public class SecurityConfig {
      * Defines the main HTTP security rules for the application.
      *     Publicly accessible pages such as login, registration, CSS, and JS.
      *     Public GET access for browsing available books.
-     *     Restricted POST/PUT/DELETE operations on books to users with the OWNER role.
-     *     Role-based access to admin views.
+     *     Restricted POST/PUT/PATCH/DELETE operations on books to users with the OWNER role.
+     *     Role-based access to admin views and to the listing and export of all orders.
+     *     Open actuator health checks; every other actuator endpoint for OWNER only.
      *     Form login and logout behavior.
      *     CSRF disabled for API routes to allow non-browser clients.
      *
@@ -66,8 +67,15 @@ public class SecurityConfig {
                         // admin/owner only endpoints for managing books
                         .requestMatchers(HttpMethod.POST, "/api/books/**").hasRole("OWNER")
                         .requestMatchers(HttpMethod.PUT, "/api/books/**").hasRole("OWNER")
+                        .requestMatchers(HttpMethod.PATCH, "/api/books/**").hasRole("OWNER")
                         .requestMatchers(HttpMethod.DELETE, "/api/books/**").hasRole("OWNER")
                         .requestMatchers("/admin/**").hasRole("OWNER")
+                        // every customer's orders, listed, paged, scrolled or exported
+                        .requestMatchers(HttpMethod.GET, "/api/orders", "/api/orders/export").hasRole("OWNER")
+
+                        // health stays open for load balancers; metrics expose internals, so owners only
+                        .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("OWNER")
 
                         .anyRequest().authenticated()
                 )
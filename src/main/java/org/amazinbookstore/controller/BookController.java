@@ -1,7 +1,16 @@
 package org.amazinbookstore.controller;
 
+import org.amazinbookstore.dto.BookBatchResult;
+import org.amazinbookstore.dto.BookFacets;
+import org.amazinbookstore.dto.BookScrollResponse;
+import org.amazinbookstore.dto.BookSearchCriteria;
+import org.amazinbookstore.dto.BookSearchResult;
 import org.amazinbookstore.model.Book;
+import org.amazinbookstore.model.HotSku;
+import org.amazinbookstore.search.Suggestion;
+import org.amazinbookstore.service.BookFacetService;
 import org.amazinbookstore.service.BookService;
+import org.amazinbookstore.service.CatalogSearchService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -14,38 +23,143 @@ import java.util.List;
 @CrossOrigin(origins = "*")
 public class BookController {
 
+    private static final int MAX_SCROLL_LIMIT = 100;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int MAX_SUGGEST_LIMIT = 20;
+
     private final BookService bookService;
+    private final CatalogSearchService catalogSearchService;
+    private final BookFacetService bookFacetService;
 
-    public BookController(BookService bookService) {
+    public BookController(BookService bookService, CatalogSearchService catalogSearchService,
+                          BookFacetService bookFacetService) {
         this.bookService = bookService;
+        this.catalogSearchService = catalogSearchService;
+        this.bookFacetService = bookFacetService;
     }
 
     /**
      * GET /books - Search, filter, and sort books
-     * Query parameters:
+     * Query parameters (any combination, applied together):
      *   - author: Filter by author name (case-insensitive, partial match)
      *   - publisher: Filter by publisher name (case-insensitive, partial match)
      *   - genre: Filter by genre (case-insensitive, partial match)
      *   - title: Filter by title (case-insensitive, partial match)
+     *   - minPrice, maxPrice: Inclusive price range
+     *   - minYear, maxYear: Inclusive publication year range
      *   - sort: Sort results (price, price_desc, title, author, year, year_desc)
      *
      * Examples:
      *   GET /books?author=Rowling
      *   GET /books?publisher=Penguin&sort=price
-     *   GET /books?genre=Fiction&sort=title
+     *   GET /books?genre=Fiction&title=war&maxPrice=20&sort=title
      */
     @GetMapping
     public ResponseEntity<List<Book>> searchBooks(
-            @RequestParam(required = false) String author,
-            @RequestParam(required = false) String publisher,
-            @RequestParam(required = false) String genre,
-            @RequestParam(required = false) String title,
+            BookSearchCriteria criteria,
             @RequestParam(required = false) String sort) {
 
-        List<Book> books = bookService.searchBooks(author, publisher, genre, title, sort);
+        List<Book> books = bookService.searchBooks(criteria, sort);
         return ResponseEntity.ok(books);
     }
 
+    /**
+     * GET /books?limit=N - Cursor-based scrolling through the catalog
+     * Selected instead of the plain search whenever a limit is given.
+     * Query parameters:
+     *   - the same filters and sort as the plain search
+     *   - after: nextCursor from the previous response (omit for the first page)
+     *   - limit: books per page, at most 100
+     *
+     * Examples:
+     *   GET /books?sort=price&limit=20
+     *   GET /books?sort=price&limit=20&after=eyJzIjoiUFJJQ0UiLC4uLn0
+     */
+    @GetMapping(params = "limit")
+    public ResponseEntity<BookScrollResponse> scrollBooks(
+            BookSearchCriteria criteria,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String after,
+            @RequestParam int limit) {
+
+        int boundedLimit = Math.max(1, Math.min(limit, MAX_SCROLL_LIMIT));
+        BookScrollResponse response = bookService.scrollBooks(criteria, sort, after, boundedLimit);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * GET /books?ids=... - Get many books by ID in one request
+     * Books are returned in the requested order; ids with no book are listed in missingIds.
+     *
+     * Example:
+     *   GET /books?ids=64a1f,64a20,64a21
+     */
+    @GetMapping(params = {"ids", "!limit"})
+    public ResponseEntity<BookBatchResult> getBooksByIds(@RequestParam List<String> ids) {
+        return ResponseEntity.ok(bookService.getBooksByIds(ids));
+    }
+
+    /**
+     * GET /books/facets - Book counts per genre, publisher, price range and decade
+     * Accepts the same filters as GET /books and counts only the matching books.
+     *
+     * Examples:
+     *   GET /books/facets
+     *   GET /books/facets?genre=Fiction&maxPrice=20
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<BookFacets> getFacets(BookSearchCriteria criteria) {
+        return ResponseEntity.ok(bookFacetService.getFacets(criteria));
+    }
+
+    /**
+     * GET /books/search - Full-text search ranked by relevance
+     * Matches any word of the query against title, author, publisher, genre
+     * and description, best match first.
+     * With fuzzy=true, instead finds titles and authors similar to the query,
+     * tolerating typos; each result's matchedText is the "did you mean" text.
+     * Query parameters:
+     *   - q: the search text
+     *   - fuzzy: typo-tolerant title/author lookup (default false)
+     *   - limit: maximum number of results (default 10, at most 100)
+     *
+     * Examples:
+     *   GET /books/search?q=orwell animal farm
+     *   GET /books/search?q=georg orwel&fuzzy=true
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<BookSearchResult>> fullTextSearch(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "false") boolean fuzzy,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        int boundedLimit = Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT));
+        List<BookSearchResult> results = fuzzy
+                ? catalogSearchService.fuzzySearch(q, boundedLimit)
+                : catalogSearchService.search(q, boundedLimit);
+        return ResponseEntity.ok(results);
+    }
+
+    /**
+     * GET /books/suggest - Autocomplete titles, authors and publishers
+     * Answered from memory so it can be called on every keystroke.
+     * Completions match from the start of any word, e.g. "orw" -> "George Orwell".
+     * Query parameters:
+     *   - q: the text typed so far
+     *   - limit: maximum number of completions (default 8, at most 20)
+     *
+     * Example:
+     *   GET /books/suggest?q=harr
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<Suggestion>> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "8") int limit) {
+
+        int boundedLimit = Math.max(1, Math.min(limit, MAX_SUGGEST_LIMIT));
+        return ResponseEntity.ok(catalogSearchService.suggest(q, boundedLimit));
+    }
+
     /**
      * GET /books/{id} - Get a specific book by ID
      */
@@ -93,4 +207,31 @@ public class BookController {
         bookService.deleteBook(id);
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * PATCH /books/{id}/inventory?delta={n} - Add copies to a book's inventory, or remove them if n is negative
+     * Saving a hot book leaves its inventory alone, so this is how its count is changed
+     */
+    @PatchMapping("/{id}/inventory")
+    public ResponseEntity<Book> adjustInventory(@PathVariable String id, @RequestParam int delta) {
+        return ResponseEntity.ok(bookService.adjustInventory(id, delta));
+    }
+
+    /**
+     * PUT /books/{id}/hot - Count a book's inventory in memory for a flash sale
+     * Its count is written back to the book every flush interval
+     */
+    @PutMapping("/{id}/hot")
+    public ResponseEntity<HotSku> markHotSku(@PathVariable String id) {
+        return ResponseEntity.ok(bookService.markHotSku(id));
+    }
+
+    /**
+     * DELETE /books/{id}/hot - End a flash sale, writing the in-memory count back to the book
+     */
+    @DeleteMapping("/{id}/hot")
+    public ResponseEntity<Void> unmarkHotSku(@PathVariable String id) {
+        bookService.unmarkHotSku(id);
+        return ResponseEntity.noContent().build();
+    }
 }
@@ -1,12 +1,23 @@
 package org.amazinbookstore.controller;
 
+import org.amazinbookstore.dto.CheckoutQueueStatus;
+import org.amazinbookstore.dto.CheckoutResult;
+import org.amazinbookstore.dto.OrderScrollResponse;
+import org.amazinbookstore.dto.OrderSearchCriteria;
 import org.amazinbookstore.model.Order;
+import org.amazinbookstore.service.CheckoutAdmissionService;
+import org.amazinbookstore.service.CheckoutIdempotencyService;
+import org.amazinbookstore.service.OrderExportService;
 import org.amazinbookstore.service.OrderService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -19,18 +30,60 @@ import java.util.List;
  */
 public class OrderController {
 
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final OrderService orderService;
+    private final CheckoutAdmissionService checkoutAdmissionService;
+    private final CheckoutIdempotencyService checkoutIdempotencyService;
+    private final OrderExportService orderExportService;
 
     /**
      * Creates a new order for the specified user by converting the user's cart into an order.
+     * With an {@code Idempotency-Key} header, a retried request returns the order created by
+     * the first one, marked with an {@code Idempotent-Replayed: true} header.
+     *
+     * With {@code async=true} the checkout runs on a checkout worker instead: a {@code PENDING}
+     * order is returned straight away with HTTP 202 (Accepted), and its {@code Location} can be
+     * polled until the order is {@code CONFIRMED}, {@code CANCELLED} or {@code FAILED}.
      *
-     * @param userId the ID of the user checking out
-     * @return the created {@link Order} with HTTP 201 (Created)
+     * @param userId         the ID of the user checking out
+     * @param idempotencyKey optional client-chosen key identifying this checkout
+     * @param async          whether to check out asynchronously
+     * @return the created {@link Order} with HTTP 201 (Created), or the pending order with HTTP 202
      */
     @PostMapping("/checkout/{userId}")
-    public ResponseEntity<Order> checkout(@PathVariable String userId) {
-        Order order = orderService.createOrderFromCart(userId);
-        return new ResponseEntity<>(order, HttpStatus.CREATED);
+    public ResponseEntity<Order> checkout(
+            @PathVariable String userId,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestParam(defaultValue = "false") boolean async) {
+        Order order;
+        ResponseEntity.BodyBuilder response;
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            order = async ? orderService.submitOrder(userId) : orderService.createOrderFromCart(userId);
+            response = ResponseEntity.status(async ? HttpStatus.ACCEPTED : HttpStatus.CREATED);
+        } else {
+            CheckoutResult result = checkoutIdempotencyService.checkout(userId, idempotencyKey, async);
+            order = result.getOrder();
+            response = ResponseEntity.status(async ? HttpStatus.ACCEPTED : HttpStatus.CREATED)
+                    .header("Idempotent-Replayed", String.valueOf(result.isReplayed()));
+        }
+
+        if (async) {
+            response.location(URI.create("/api/orders/" + order.getId()));
+        }
+        return response.body(order);
+    }
+
+    /**
+     * Reports how busy the checkout queue of a flash-sale book is.
+     *
+     * @param bookId the ID of the book
+     * @return the queue's status with HTTP 200 (OK)
+     */
+    @GetMapping("/checkout/queue/{bookId}")
+    public ResponseEntity<CheckoutQueueStatus> getCheckoutQueueStatus(@PathVariable String bookId) {
+        return ResponseEntity.ok(checkoutAdmissionService.getStatus(bookId));
     }
 
     /**
@@ -57,6 +110,54 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    /**
+     * Retrieves one page of a user's orders, most recent first.
+     * Query parameters:
+     *   - status: only orders in this status
+     *   - from, to: inclusive order date range, ISO format (e.g. 2024-11-01T00:00)
+     *   - page: zero-based page number
+     *   - size: orders per page (default 20, at most 100)
+     *
+     * @param userId   the ID of the user
+     * @param criteria status and date filters
+     * @param page     the page number
+     * @param size     the page size
+     * @return the page of orders with HTTP 200 (OK)
+     */
+    @GetMapping(value = "/user/{userId}", params = {"page", "!limit"})
+    public ResponseEntity<Page<Order>> getUserOrdersPage(
+            @PathVariable String userId,
+            OrderSearchCriteria criteria,
+            @RequestParam int page,
+            @RequestParam(defaultValue = "20") int size) {
+        criteria.setUserId(userId);
+        return ResponseEntity.ok(orderService.getOrdersPaginated(criteria, Math.max(0, page), boundedLimit(size)));
+    }
+
+    /**
+     * Cursor-based scrolling through a user's orders, most recent first.
+     * Selected instead of the full list whenever a limit is given.
+     * Query parameters:
+     *   - the same filters as the paged variant
+     *   - after: nextCursor from the previous response (omit for the first page)
+     *   - limit: orders per page, at most 100
+     *
+     * @param userId   the ID of the user
+     * @param criteria status and date filters
+     * @param after    the cursor to resume from
+     * @param limit    the page size
+     * @return the orders and the next cursor with HTTP 200 (OK)
+     */
+    @GetMapping(value = "/user/{userId}", params = "limit")
+    public ResponseEntity<OrderScrollResponse> scrollUserOrders(
+            @PathVariable String userId,
+            OrderSearchCriteria criteria,
+            @RequestParam(required = false) String after,
+            @RequestParam int limit) {
+        criteria.setUserId(userId);
+        return ResponseEntity.ok(orderService.scrollOrders(criteria, after, boundedLimit(limit)));
+    }
+
     /**
      * Retrieves all orders in the system.
      * Typically used by administrators to monitor purchase activity.
@@ -69,6 +170,68 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    /**
+     * Retrieves one page of all orders, most recent first.
+     * Accepts the same parameters as the paged user variant, plus userId.
+     *
+     * @param criteria user, status and date filters
+     * @param page     the page number
+     * @param size     the page size
+     * @return the page of orders with HTTP 200 (OK)
+     */
+    @GetMapping(params = {"page", "!limit"})
+    public ResponseEntity<Page<Order>> getAllOrdersPage(
+            OrderSearchCriteria criteria,
+            @RequestParam int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(orderService.getOrdersPaginated(criteria, Math.max(0, page), boundedLimit(size)));
+    }
+
+    /**
+     * Cursor-based scrolling through all orders, most recent first.
+     * Accepts the same parameters as the user variant, plus userId.
+     *
+     * @param criteria user, status and date filters
+     * @param after    the cursor to resume from
+     * @param limit    the page size
+     * @return the orders and the next cursor with HTTP 200 (OK)
+     */
+    @GetMapping(params = "limit")
+    public ResponseEntity<OrderScrollResponse> scrollAllOrders(
+            OrderSearchCriteria criteria,
+            @RequestParam(required = false) String after,
+            @RequestParam int limit) {
+        return ResponseEntity.ok(orderService.scrollOrders(criteria, after, boundedLimit(limit)));
+    }
+
+    /**
+     * Exports orders for reporting, oldest first, written out as they are read
+     * from the database so exports of any size use constant memory.
+     * Query parameters:
+     *   - format: ndjson (one JSON order per line, the default) or csv (one row per order item)
+     *   - the same userId, status, from and to filters as the paged variant
+     *
+     * Examples:
+     *   GET /api/orders/export?from=2024-01-01T00:00&to=2024-12-31T23:59:59
+     *   GET /api/orders/export?format=csv&status=CONFIRMED
+     *
+     * @param criteria user, status and date filters
+     * @param format   the export format
+     * @return the export as an attachment with HTTP 200 (OK)
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            OrderSearchCriteria criteria,
+            @RequestParam(required = false) String format) {
+        OrderExportService.Format exportFormat = OrderExportService.Format.fromKey(format);
+        StreamingResponseBody body = out -> orderExportService.export(criteria, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"orders." + exportFormat.getExtension() + "\"")
+                .body(body);
+    }
+
     /**
      * Updates the status of an existing order.
      *
@@ -84,4 +247,8 @@ public class OrderController {
         Order order = orderService.updateOrderStatus(orderId, status);
         return ResponseEntity.ok(order);
     }
-}
\ No newline at end of file
+
+    private static int boundedLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+}
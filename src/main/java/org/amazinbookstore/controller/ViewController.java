@@ -1,10 +1,12 @@
 package org.amazinbookstore.controller;
 
-import org.amazinbookstore.exception.ResourceNotFoundException;
+import org.amazinbookstore.dto.BookSearchCriteria;
 import org.amazinbookstore.model.Book;
+import org.amazinbookstore.model.CartItem;
 import org.amazinbookstore.model.Order;
 import org.amazinbookstore.model.ShoppingCart;
 import org.amazinbookstore.model.User;
+import org.amazinbookstore.service.BookFacetService;
 import org.amazinbookstore.service.BookService;
 import org.amazinbookstore.service.OrderService;
 import org.amazinbookstore.service.RecommendationService;
@@ -19,12 +21,15 @@ import org.springframework.data.domain.Page;
 
 import java.security.Principal;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Controller
 @RequiredArgsConstructor
 public class ViewController {
     private final BookService bookService;
+    private final BookFacetService bookFacetService;
     private final ShoppingCartService shoppingCartService;
     private final UserService userService;
     private final OrderService orderService;
@@ -61,15 +66,19 @@ public class ViewController {
             sortParam = sortBy + "_desc";
         }
 
-        Page<Book> bookPage;
+        BookSearchCriteria criteria = new BookSearchCriteria();
         if (search != null && !search.trim().isEmpty()) {
-            bookPage = bookService.searchBooksPaginated(null, null, null, search, sortParam, page, size);
-        } else if (genre != null && !genre.trim().isEmpty()) {
-            bookPage = bookService.searchBooksPaginated(null, null, genre, null, sortParam, page, size);
-        } else {
-            bookPage = bookService.searchBooksPaginated(null, null, null, null, sortParam, page, size);
+            criteria.setTitle(search);
         }
 
+        // Genre counts ignore the selected genre so the other genres stay selectable
+        model.addAttribute("genreCounts", bookFacetService.getFacets(criteria).getGenres());
+
+        if (genre != null && !genre.trim().isEmpty()) {
+            criteria.setGenre(genre);
+        }
+        Page<Book> bookPage = bookService.searchBooksPaginated(criteria, sortParam, page, size);
+
         model.addAttribute("books", bookPage.getContent());
         model.addAttribute("currentPage", page);
         model.addAttribute("totalPages", bookPage.getTotalPages());
@@ -136,17 +145,21 @@ public class ViewController {
         String userId = user.getId();
         ShoppingCart cart = shoppingCartService.getCartByUserId(userId);
 
-        // Get full book details for each cart item, skip if book was deleted
+        // Get full book details for every cart item in one lookup, skip books that were deleted
+        List<String> bookIds = cart.getItems().stream().map(CartItem::getBookId).toList();
+        Map<String, Book> booksById = new HashMap<>();
+        for (Book book : bookService.getBooksByIds(bookIds).getBooks()) {
+            booksById.put(book.getId(), book);
+        }
+
         List<Book> books = new ArrayList<>();
         List<Integer> validIndices = new ArrayList<>();
 
         for (int i = 0; i < cart.getItems().size(); i++) {
-            try {
-                Book book = bookService.getBookById(cart.getItems().get(i).getBookId());
+            Book book = booksById.get(cart.getItems().get(i).getBookId());
+            if (book != null) {
                 books.add(book);
                 validIndices.add(i);
-            } catch (ResourceNotFoundException e) {
-                // Book was deleted, skip it
             }
         }
 
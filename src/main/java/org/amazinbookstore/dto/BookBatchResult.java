@@ -0,0 +1,20 @@
+package org.amazinbookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.amazinbookstore.model.Book;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookBatchResult {
+
+    // the books found, in the order their ids were requested
+    private List<Book> books;
+
+    // requested ids with no matching book, e.g. books deleted since they were added to a cart
+    private List<String> missingIds;
+}
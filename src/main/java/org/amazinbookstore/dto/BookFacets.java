@@ -0,0 +1,29 @@
+package org.amazinbookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Book counts for a set of search filters, broken down by facet.
+ * Genres and publishers are listed most common first, price ranges and
+ * decades in ascending order. Values with no matching books are left out.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookFacets {
+
+    private Map<String, Long> genres = new LinkedHashMap<>();
+
+    private Map<String, Long> publishers = new LinkedHashMap<>();
+
+    // keyed by range, e.g. "10-20" or "100+"
+    private Map<String, Long> priceRanges = new LinkedHashMap<>();
+
+    // keyed by decade, e.g. "1990s"
+    private Map<String, Long> decades = new LinkedHashMap<>();
+}
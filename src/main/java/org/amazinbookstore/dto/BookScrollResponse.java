@@ -0,0 +1,19 @@
+package org.amazinbookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.amazinbookstore.model.Book;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookScrollResponse {
+
+    private List<Book> books;
+
+    // opaque token to pass back as "after" for the next page, null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,43 @@
+package org.amazinbookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Catalog filters, any subset of which may be combined in a single query.
+ *
+ * Text filters are case-insensitive partial matches. Range bounds are
+ * inclusive, and either end may be left open. Blank text and null bounds
+ * are ignored. Bound directly from request parameters of the same name.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSearchCriteria {
+
+    private String author;
+
+    private String publisher;
+
+    private String genre;
+
+    private String title;
+
+    private BigDecimal minPrice;
+
+    private BigDecimal maxPrice;
+
+    private Integer minYear;
+
+    private Integer maxYear;
+
+    /**
+     * Creates criteria with only text filters set.
+     */
+    public static BookSearchCriteria of(String author, String publisher, String genre, String title) {
+        return new BookSearchCriteria(author, publisher, genre, title, null, null, null, null);
+    }
+}
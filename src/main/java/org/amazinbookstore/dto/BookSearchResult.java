@@ -0,0 +1,20 @@
+package org.amazinbookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.amazinbookstore.model.Book;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSearchResult {
+
+    private Book book;
+
+    // relevance score from the search index, higher is better
+    private double score;
+
+    // for fuzzy searches, the title or author that matched the query ("did you mean")
+    private String matchedText;
+}
@@ -0,0 +1,25 @@
+package org.amazinbookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * How busy the checkout queue of a flash-sale book is.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutQueueStatus {
+
+    private String bookId;
+
+    // checkouts of the book currently running
+    private int active;
+
+    // checkouts waiting for a turn
+    private int waiting;
+
+    // copies of the book left
+    private int remainingInventory;
+}
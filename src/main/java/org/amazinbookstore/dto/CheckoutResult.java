@@ -0,0 +1,17 @@
+package org.amazinbookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.amazinbookstore.model.Order;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutResult {
+
+    private Order order;
+
+    // true if the order was created by an earlier request with the same idempotency key
+    private boolean replayed;
+}
@@ -0,0 +1,32 @@
+package org.amazinbookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.amazinbookstore.model.Order;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * Order history filters, any subset of which may be combined in a single query.
+ *
+ * The date range is inclusive, and either end may be left open. Null fields
+ * are ignored. Bound directly from request parameters of the same name, with
+ * dates in ISO format (e.g. {@code 2024-11-01T00:00}).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSearchCriteria {
+
+    private String userId;
+
+    private Order.OrderStatus status;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+}
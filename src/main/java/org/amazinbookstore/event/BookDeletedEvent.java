@@ -0,0 +1,15 @@
+package org.amazinbookstore.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Published by {@link org.amazinbookstore.service.BookService} after a book has
+ * been deleted, so in-memory views of the catalog can drop it.
+ */
+@Data
+@AllArgsConstructor
+public class BookDeletedEvent {
+
+    private String bookId;
+}
@@ -0,0 +1,18 @@
+package org.amazinbookstore.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.amazinbookstore.model.Book;
+
+/**
+ * Published by {@link org.amazinbookstore.service.BookService} after a book has
+ * been created or updated, so in-memory views of the catalog can refresh that
+ * one book instead of reloading everything.
+ */
+@Data
+@AllArgsConstructor
+public class BookSavedEvent {
+
+    // the book as it was saved, including its generated id
+    private Book book;
+}
@@ -0,0 +1,26 @@
+package org.amazinbookstore.event;
+
+import org.amazinbookstore.model.OrderEvent;
+
+import java.util.List;
+
+/**
+ * Receives order events from the outbox, for keeping something derived from
+ * orders (analytics, recommendations) up to date without rescanning every order.
+ *
+ * Any bean implementing this interface is picked up by
+ * {@link org.amazinbookstore.service.OrderEventPublisher}. Events arrive in
+ * batches, oldest first. Delivery is at least once: if a listener throws, the
+ * batch is split and delivered to that listener again in parts, so listeners
+ * must tolerate seeing an event twice. Listeners are told apart by simple class
+ * name, which must therefore be unique among them.
+ */
+public interface OrderEventListener {
+
+    /**
+     * Handles a batch of order events.
+     *
+     * @param events the events, oldest first
+     */
+    void onOrderEvents(List<OrderEvent> events);
+}
@@ -0,0 +1,17 @@
+package org.amazinbookstore.exception;
+
+/**
+ * Exception thrown when a checkout is retried with the same idempotency key
+ * while the first attempt is still running.
+ */
+public class CheckoutInProgressException extends RuntimeException {
+
+    /**
+     * Creates a new exception with the specified detail message.
+     *
+     * @param message explanation of the conflict
+     */
+    public CheckoutInProgressException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,29 @@
+package org.amazinbookstore.exception;
+
+/**
+ * Exception thrown when a checkout cannot be admitted to a flash-sale title's
+ * checkout queue, either because the queue is full or because the checkout
+ * waited in it for too long.
+ *
+ * Carries the position the checkout had (or would have had) in the queue, so
+ * the client can tell the customer how busy the sale is.
+ */
+public class CheckoutQueueFullException extends RuntimeException {
+
+    private final int queuePosition;
+
+    /**
+     * Creates a new exception with the specified detail message.
+     *
+     * @param message       explanation of why the checkout was turned away
+     * @param queuePosition the checkout's position in the queue, starting at 1
+     */
+    public CheckoutQueueFullException(String message, int queuePosition) {
+        super(message);
+        this.queuePosition = queuePosition;
+    }
+
+    public int getQueuePosition() {
+        return queuePosition;
+    }
+}
@@ -0,0 +1,29 @@
+package org.amazinbookstore.exception;
+
+/**
+ * Exception thrown when a checkout is turned down before it writes anything,
+ * e.g. because the cart is empty, a book is missing or sold out, or the
+ * checkout queue is full.
+ *
+ * Wraps the exception describing why, which decides the response the client
+ * gets. Since no order can exist, an idempotent checkout may forget its key
+ * and let the client try again.
+ */
+public class CheckoutRejectedException extends RuntimeException {
+
+    /**
+     * Creates a new exception for the given reason.
+     *
+     * @param reason why the checkout was turned down
+     */
+    public CheckoutRejectedException(RuntimeException reason) {
+        super(reason.getMessage(), reason);
+    }
+
+    /**
+     * Why the checkout was turned down.
+     */
+    public RuntimeException getReason() {
+        return (RuntimeException) getCause();
+    }
+}
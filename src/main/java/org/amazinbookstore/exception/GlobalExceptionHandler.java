@@ -1,5 +1,6 @@
 package org.amazinbookstore.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -52,6 +53,78 @@ public class GlobalExceptionHandler {
    * @param ex InsufficientInventoryException thrown by services
    * @return JSON response with 400 Bad Request
    */
+  @ExceptionHandler(InvalidCursorException.class)
+  public ResponseEntity<Map<String, Object>> handleInvalidCursorException(InvalidCursorException ex) {
+    Map<String, Object> error = new HashMap<>();
+    error.put("timestamp", LocalDateTime.now());
+    error.put("message", ex.getMessage());
+    error.put("status", HttpStatus.BAD_REQUEST.value());
+    return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+  }
+
+  /**
+   * Handles pagination cursors that are malformed or were issued
+   * for a different sort order.
+   *
+   * @param ex InvalidCursorException thrown by services
+   * @return JSON response with 400 Bad Request
+   */
+  @ExceptionHandler(CheckoutQueueFullException.class)
+  public ResponseEntity<Map<String, Object>> handleCheckoutQueueFullException(CheckoutQueueFullException ex) {
+    Map<String, Object> error = new HashMap<>();
+    error.put("timestamp", LocalDateTime.now());
+    error.put("message", ex.getMessage());
+    error.put("queuePosition", ex.getQueuePosition());
+    error.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(error);
+  }
+
+  /**
+   * Handles checkouts turned away by a flash-sale checkout queue.
+   *
+   * @param ex CheckoutQueueFullException thrown by the checkout admission queue
+   * @return JSON response with the queue position, 503 Service Unavailable and Retry-After
+   */
+  @ExceptionHandler(CheckoutInProgressException.class)
+  public ResponseEntity<Map<String, Object>> handleCheckoutInProgressException(CheckoutInProgressException ex) {
+    Map<String, Object> error = new HashMap<>();
+    error.put("timestamp", LocalDateTime.now());
+    error.put("message", ex.getMessage());
+    error.put("status", HttpStatus.CONFLICT.value());
+    return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+  }
+
+  /**
+   * Handles a checkout retried while the first attempt with the same
+   * idempotency key is still running.
+   *
+   * @param ex CheckoutInProgressException thrown by the idempotent checkout
+   * @return JSON response with 409 Conflict
+   */
+  @ExceptionHandler(CheckoutRejectedException.class)
+  public ResponseEntity<Map<String, Object>> handleCheckoutRejectedException(CheckoutRejectedException ex) {
+    RuntimeException reason = ex.getReason();
+    if (reason instanceof ResourceNotFoundException notFound) {
+      return handleResourceNotFoundException(notFound);
+    }
+    if (reason instanceof InsufficientInventoryException insufficient) {
+      return handleInsufficientInventoryException(insufficient);
+    }
+    if (reason instanceof CheckoutQueueFullException queueFull) {
+      return handleCheckoutQueueFullException(queueFull);
+    }
+    return handleGenericException(reason);
+  }
+
+  /**
+   * Handles a checkout turned down before it wrote anything, answering as
+   * for the reason it wraps.
+   *
+   * @param ex CheckoutRejectedException thrown by checkout
+   * @return the response for the wrapped reason
+   */
   @ExceptionHandler(MethodArgumentNotValidException.class)
   public ResponseEntity<Map<String, Object>> handleValidationExceptions(MethodArgumentNotValidException ex) {
     Map<String, String> errors = new HashMap<>();
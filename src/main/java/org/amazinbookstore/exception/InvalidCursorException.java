@@ -0,0 +1,17 @@
+package org.amazinbookstore.exception;
+
+/**
+ * Exception thrown when a pagination cursor supplied by a client cannot be
+ * decoded, or was issued for a different sort order than the one requested.
+ */
+public class InvalidCursorException extends RuntimeException {
+
+    /**
+     * Creates a new exception with the specified detail message.
+     *
+     * @param message explanation of why the cursor was rejected
+     */
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -4,7 +4,11 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
 
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
@@ -16,7 +20,14 @@ import java.math.BigDecimal;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Document(collection = "books")
+@Document(collection = "books", collation = "{ 'locale' : 'en', 'strength' : 2 }")
+@CompoundIndexes({
+        @CompoundIndex(name = "price_id", def = "{ 'price' : 1, '_id' : 1 }"),
+        @CompoundIndex(name = "title_id", def = "{ 'title' : 1, '_id' : 1 }"),
+        @CompoundIndex(name = "author_id", def = "{ 'author' : 1, '_id' : 1 }"),
+        @CompoundIndex(name = "publicationYear_id", def = "{ 'publicationYear' : 1, '_id' : 1 }"),
+        @CompoundIndex(name = "publicationYear_price", def = "{ 'publicationYear' : 1, 'price' : 1 }")
+})
 
 /**
  * Represents a book in the Amazin Bookstore catalog.
@@ -24,6 +35,13 @@ import java.math.BigDecimal;
  * This entity is stored in the MongoDB books collection and contains
  * basic metadata such as title, author, pricing, inventory, and optional fields like
  * genre, publication year, and picture URL.
+ *
+ * Queries run with a case-insensitive English collation so that sorting by
+ * title or author in MongoDB matches the case-insensitive ordering the store
+ * has always used. There is one (field, _id) index per catalog sort option;
+ * MongoDB walks it backwards for the descending variants. Those indexes also
+ * bound price and year range filters, and (publicationYear, price) covers
+ * queries that combine both ranges.
  */
 public class Book {
 
@@ -61,7 +79,9 @@ public class Book {
     /**
      * Price of the book.
      * Must be a positive decimal value.
+     * Stored as Decimal128 so MongoDB sorts it numerically.
      */
+    @Field(targetType = FieldType.DECIMAL128)
     @NotNull(message = "Price is required")
     @Positive(message = "Price must be positive")
     private BigDecimal price;
@@ -0,0 +1,46 @@
+package org.amazinbookstore.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * A book whose inventory is counted in memory for a flash sale.
+ *
+ * The live count is held by the application; this document records the count
+ * as of the last write-behind flush and when that flush happened. After a
+ * restart the count is rebuilt from it, less every order whose copies were
+ * taken after the flush read it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "hot_skus")
+public class HotSku {
+
+    /**
+     * ID of the book.
+     */
+    @Id
+    private String bookId;
+
+    /**
+     * Copies left as of the last flush.
+     */
+    private Integer inventory;
+
+    /**
+     * When the last flush read the count.
+     */
+    private Instant flushedAt;
+
+    /**
+     * Flush sequence of the last takes the count includes. Order items taken
+     * from the in-memory count with a higher one are not included.
+     */
+    private Long flushSequence;
+}
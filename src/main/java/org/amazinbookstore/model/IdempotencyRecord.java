@@ -0,0 +1,48 @@
+package org.amazinbookstore.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Records a checkout made under a client-supplied {@code Idempotency-Key}, so a
+ * retried request gets the order the first one created instead of a second order.
+ *
+ * Records expire a day after the checkout started, through a TTL index on
+ * {@code createdAt}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "idempotency_keys")
+public class IdempotencyRecord {
+
+    /**
+     * The user ID and the idempotency key, joined by a colon, so keys from different users never collide.
+     */
+    @Id
+    private String id;
+
+    private Status status;
+
+    /**
+     * The ID the checkout gives its order, chosen before it starts, so a retry
+     * can tell whether the order was placed.
+     */
+    private String orderId;
+
+    @Indexed(expireAfter = "1d")
+    private Instant createdAt;
+
+    public enum Status {
+        IN_PROGRESS,
+        COMPLETED,
+        // the checkout failed after it may have started writing; a retry checks for the order first
+        FAILED
+    }
+}
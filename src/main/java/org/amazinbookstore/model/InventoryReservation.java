@@ -0,0 +1,51 @@
+package org.amazinbookstore.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * A time-limited hold on copies of a book for one user's cart.
+ *
+ * The held copies have already been taken out of {@link Book#getInventory()},
+ * so other shoppers see them as unavailable. A hold is either consumed by
+ * checkout or, once {@code expiresAt} has passed, reclaimed by the sweeper,
+ * which puts the copies back. While a checkout is confirming a hold,
+ * {@code claimedBy} carries that checkout's token and {@code claimedAt} when it
+ * was claimed, so the sweeper leaves it alone until the claim lease runs out;
+ * a checkout that died before consuming or restoring its holds cannot keep
+ * their copies forever.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "inventory_reservations")
+@CompoundIndex(name = "userId_bookId", def = "{ 'userId' : 1, 'bookId' : 1 }", unique = true)
+public class InventoryReservation {
+
+    @Id
+    private String id;
+
+    private String userId;
+
+    private String bookId;
+
+    private Integer quantity;
+
+    @Indexed
+    private Instant expiresAt;
+
+    private String claimedBy;
+
+    private Instant claimedAt;
+
+    @Version
+    private Long version;
+}
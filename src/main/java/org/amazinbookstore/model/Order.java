@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -13,11 +15,19 @@ import java.util.List;
 /**
  * Represents a completed purchase order within the Amazin Bookstore system.
  * This entity is stored in the MongoDB orders collection.
+ *
+ * Order history is always listed newest first, so each index ends in
+ * order date then id, descending, matching that sort.
  */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "orders")
+@CompoundIndexes({
+        @CompoundIndex(name = "userId_orderDate", def = "{ 'userId' : 1, 'orderDate' : -1, '_id' : -1 }"),
+        @CompoundIndex(name = "status_orderDate", def = "{ 'status' : 1, 'orderDate' : -1, '_id' : -1 }"),
+        @CompoundIndex(name = "orderDate_id", def = "{ 'orderDate' : -1, '_id' : -1 }")
+})
 public class Order {
 
     @Id
@@ -33,10 +43,15 @@ public class Order {
 
     private OrderStatus status;
 
+    // why an asynchronous checkout was cancelled or failed, e.g. a book selling out while the order was pending
+    private String failureReason;
+
     public enum OrderStatus {
         PENDING,
         CONFIRMED,
         COMPLETED,
-        CANCELLED
+        CANCELLED,
+        // an asynchronous checkout kept failing on the database and was given up
+        FAILED
     }
 }
\ No newline at end of file
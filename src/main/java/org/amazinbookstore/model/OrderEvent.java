@@ -0,0 +1,73 @@
+package org.amazinbookstore.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Something that happened to an order, waiting in the outbox to be delivered to
+ * {@link org.amazinbookstore.event.OrderEventListener}s.
+ *
+ * Events are written together with the order change they describe, in the same
+ * transaction when transactions are enabled, and published later in batches.
+ * Published events expire a week after publishing, through a TTL index on
+ * {@code publishedAt}; parked events are kept until someone looks at them.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "order_outbox")
+@CompoundIndex(name = "unpublished", def = "{'publishedAt': 1, 'parkedAt': 1, 'createdAt': 1}")
+public class OrderEvent {
+
+    @Id
+    private String id;
+
+    private Type type;
+
+    private String orderId;
+
+    private String userId;
+
+    // the order's status once the change was made
+    private Order.OrderStatus status;
+
+    // the ordered items; only filled in for ORDER_CREATED
+    private List<OrderItem> items = new ArrayList<>();
+
+    private Instant createdAt;
+
+    @Indexed(expireAfter = "7d")
+    private Instant publishedAt;
+
+    // listeners that have handled the event, by simple class name
+    private Set<String> deliveredTo = new HashSet<>();
+
+    // failed deliveries so far, per listener
+    private Map<String, Integer> failedAttempts = new HashMap<>();
+
+    // not retried before this time after a failed delivery; unset until one fails
+    private Instant nextAttemptAt;
+
+    // set when a listener has failed max-attempts times; a parked event is kept but no longer delivered
+    private Instant parkedAt;
+
+    public enum Type {
+        // an order was confirmed, taking its items out of inventory
+        ORDER_CREATED,
+        // an existing order moved to another status, or a pending order was cancelled
+        ORDER_STATUS_CHANGED
+    }
+}
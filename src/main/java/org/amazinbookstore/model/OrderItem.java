@@ -10,7 +10,8 @@ import java.math.BigDecimal;
  * Represents a single line item within an {@link Order}.
  *
  * Each item stores the book ID, title, purchased quantity,
- * and the price at the time the order was created.
+ * and the price at the time the order was created. Items of a hot book also
+ * record the flush sequence their copies were taken in.
  */
 @Data
 @NoArgsConstructor
@@ -21,4 +22,11 @@ public class OrderItem {
     private String bookTitle;
     private Integer quantity;
     private BigDecimal priceAtPurchase;
+
+    // set only when the copies came from a hot book's in-memory count
+    private Long hotFlushSequence;
+
+    public OrderItem(String bookId, String bookTitle, Integer quantity, BigDecimal priceAtPurchase) {
+        this(bookId, bookTitle, quantity, priceAtPurchase, null);
+    }
 }
@@ -0,0 +1,210 @@
+package org.amazinbookstore.recommendation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index from each book to the users who bought it, for finding
+ * readers with similar taste.
+ *
+ * Only users who share at least one book with the reader are ever looked at:
+ * the union of the buyers of the reader's books gives the candidates, and the
+ * Jaccard similarity of each follows from the size of the intersection of the
+ * two purchase sets, since |A ∪ B| = |A| + |B| - |A ∩ B|. The work therefore
+ * grows with the number of co-purchases, not with the number of users.
+ *
+ * Users and books are given dense ints by an {@link IdDictionary}, and both
+ * each user's books and each book's buyers are {@link CompressedBitmap}s, so
+ * a purchase costs a few bytes rather than a hash set entry per side, and
+ * unions and intersections run over packed words instead of strings.
+ *
+ * Updates take a write lock and lookups share a read lock. A user's set of
+ * books is never changed once published: a purchase replaces it with an
+ * updated copy. Lookups therefore only pick up references under the lock and
+ * score them after releasing it, without copying anything, and the fork/join
+ * threads never read the index itself.
+ */
+public class BuyerIndex implements SimilarityModel {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final IdDictionary users = new IdDictionary();
+    private final IdDictionary books = new IdDictionary();
+    // By dense user id; each set is replaced, never changed, once published
+    private final List<CompressedBitmap> booksByUser = new ArrayList<>();
+    private final List<CompressedBitmap> buyersByBook = new ArrayList<>();
+
+    @Override
+    public boolean addPurchases(String userId, Collection<String> bookIds) {
+        lock.writeLock().lock();
+        try {
+            int user = users.intern(userId);
+            if (user == booksByUser.size()) {
+                booksByUser.add(new CompressedBitmap());
+            }
+            CompressedBitmap current = booksByUser.get(user);
+            CompressedBitmap added = new CompressedBitmap();
+            for (String bookId : bookIds) {
+                int book = books.intern(bookId);
+                if (book == buyersByBook.size()) {
+                    buyersByBook.add(new CompressedBitmap());
+                }
+                if (!current.contains(book)) {
+                    added.add(book);
+                }
+            }
+            if (added.isEmpty()) {
+                return false;
+            }
+            // Publish a new set of books rather than changing the one lookups may be scoring
+            CompressedBitmap owned = current.copy();
+            owned.or(added);
+            booksByUser.set(user, owned);
+            added.forEach(book -> buyersByBook.get(book).add(user));
+            purchased(user, added);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Scores every user who bought at least one of the same books, with a {@link NeighbourScorer}.
+     */
+    @Override
+    public Map<String, Double> mostSimilar(String userId, Collection<String> bookIds, int limit) {
+        Reader reader;
+        int[] candidates;
+        CompressedBitmap[] owned;
+        String[] userIds;
+
+        lock.readLock().lock();
+        try {
+            reader = reader(userId, bookIds);
+            candidates = candidates(reader.books).toArray();
+            owned = new CompressedBitmap[candidates.length];
+            userIds = new String[candidates.length];
+            for (int i = 0; i < candidates.length; i++) {
+                owned[i] = booksByUser.get(candidates[i]);
+                userIds[i] = users.valueOf(candidates[i]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return NeighbourScorer.top(candidates.length, i -> similarity(reader, candidates[i], owned[i]),
+                i -> userIds[i], limit);
+    }
+
+    /**
+     * Books are returned in the order the index first saw them, which for a
+     * single reader need not be the order they were bought.
+     */
+    @Override
+    public List<String> booksOf(String userId) {
+        lock.readLock().lock();
+        try {
+            int user = users.find(userId);
+            if (user == IdDictionary.ABSENT) {
+                return List.of();
+            }
+            CompressedBitmap owned = booksByUser.get(user);
+            List<String> bookIds = new ArrayList<>(owned.cardinality());
+            owned.forEach(book -> bookIds.add(books.valueOf(book)));
+            return bookIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> popular(Collection<String> exclude, int limit) {
+        Set<String> excluded = new HashSet<>(exclude);
+        Map<String, Integer> counts = new HashMap<>();
+
+        lock.readLock().lock();
+        try {
+            for (int book = 0; book < buyersByBook.size(); book++) {
+                String bookId = books.valueOf(book);
+                if (!excluded.contains(bookId)) {
+                    counts.put(bookId, buyersByBook.get(book).cardinality());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return TopK.top(counts, limit);
+    }
+
+    private Reader reader(String userId, Collection<String> bookIds) {
+        CompressedBitmap owned = new CompressedBitmap();
+        // Books nobody in the index has bought still count towards the reader's total
+        Set<String> unseen = new HashSet<>();
+        for (String bookId : bookIds) {
+            int book = books.find(bookId);
+            if (book == IdDictionary.ABSENT) {
+                unseen.add(bookId);
+            } else {
+                owned.add(book);
+            }
+        }
+        return new Reader(users.find(userId), owned, owned.cardinality() + unseen.size());
+    }
+
+    /**
+     * @param user  the user's dense id
+     * @param owned the user's books
+     * @return the Jaccard similarity of the reader and the user, zero for the reader themselves
+     */
+    private static double similarity(Reader reader, int user, CompressedBitmap owned) {
+        if (user == reader.user) {
+            return 0;
+        }
+        int overlap = reader.books.andCardinality(owned);
+        // Candidates from a coarser search may share nothing at all
+        return overlap == 0 ? 0 : (double) overlap / (reader.size + owned.cardinality() - overlap);
+    }
+
+    /**
+     * Called with the write lock held after a user buys books they did not have.
+     *
+     * @param user  the buyer's dense id
+     * @param added the dense ids of the new books
+     */
+    void purchased(int user, CompressedBitmap added) {
+    }
+
+    /**
+     * Picks the users worth scoring against a reader; called with the read lock held.
+     * Here that is everyone who bought one of the reader's books.
+     *
+     * @param reader the dense ids of the reader's books
+     * @return dense user ids, which may include the reader
+     */
+    CompressedBitmap candidates(CompressedBitmap reader) {
+        CompressedBitmap candidates = new CompressedBitmap();
+        reader.forEach(book -> candidates.or(buyersByBook.get(book)));
+        return candidates;
+    }
+
+    /**
+     * The reader being matched: their dense id, if indexed, and their books.
+     */
+    private static final class Reader {
+
+        private final int user;
+        private final CompressedBitmap books;
+        private final int size;
+
+        private Reader(int user, CompressedBitmap books, int size) {
+            this.user = user;
+            this.books = books;
+            this.size = size;
+        }
+    }
+}
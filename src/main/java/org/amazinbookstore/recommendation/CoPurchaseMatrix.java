@@ -0,0 +1,109 @@
+package org.amazinbookstore.recommendation;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Sparse book-by-book co-purchase counts: for each pair of books, how many
+ * users have bought both. Only pairs that have actually been bought together
+ * are stored.
+ *
+ * The matrix also remembers which books each user owns, so adding a purchase
+ * only counts the books that are new to the user. Adding the same purchase
+ * twice changes nothing, and adding a book to a user who owns k books costs
+ * O(k).
+ *
+ * Recommending for a reader sums the rows of the books they own, so it costs
+ * the size of those rows, however many users there are.
+ *
+ * Updates take a write lock and lookups share a read lock.
+ */
+public class CoPurchaseMatrix implements PurchaseModel {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Set<String>> booksByUser = new HashMap<>();
+    private final Map<String, Map<String, Integer>> countsByBook = new HashMap<>();
+    private final Map<String, Integer> owners = new HashMap<>();
+
+    @Override
+    public boolean addPurchases(String userId, Collection<String> bookIds) {
+        lock.writeLock().lock();
+        try {
+            Set<String> owned = booksByUser.computeIfAbsent(userId, id -> new HashSet<>());
+            boolean changed = false;
+            for (String bookId : bookIds) {
+                if (!owned.add(bookId)) {
+                    continue;
+                }
+                changed = true;
+                owners.merge(bookId, 1, Integer::sum);
+                Map<String, Integer> row = countsByBook.computeIfAbsent(bookId, id -> new HashMap<>());
+                for (String other : owned) {
+                    if (!other.equals(bookId)) {
+                        row.merge(other, 1, Integer::sum);
+                        countsByBook.computeIfAbsent(other, id -> new HashMap<>()).merge(bookId, 1, Integer::sum);
+                    }
+                }
+            }
+            return changed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the books most often bought together with the given books.
+     * Each candidate scores the number of times it was bought with any of
+     * them; ties go to the lower book id.
+     *
+     * @param bookIds the reader's books, which are never recommended
+     * @param limit   the maximum number of books to return
+     * @return book ids, best first
+     */
+    public List<String> recommend(Collection<String> bookIds, int limit) {
+        Set<String> exclude = new HashSet<>(bookIds);
+        Map<String, Integer> scores = new HashMap<>();
+
+        lock.readLock().lock();
+        try {
+            for (String bookId : exclude) {
+                Map<String, Integer> row = countsByBook.get(bookId);
+                if (row == null) {
+                    continue;
+                }
+                row.forEach((other, count) -> {
+                    if (!exclude.contains(other)) {
+                        scores.merge(other, count, Integer::sum);
+                    }
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return TopK.top(scores, limit);
+    }
+
+    @Override
+    public List<String> popular(Collection<String> exclude, int limit) {
+        Set<String> excluded = new HashSet<>(exclude);
+        Map<String, Integer> counts = new HashMap<>();
+
+        lock.readLock().lock();
+        try {
+            owners.forEach((bookId, count) -> {
+                if (!excluded.contains(bookId)) {
+                    counts.put(bookId, count);
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return TopK.top(counts, limit);
+    }
+}
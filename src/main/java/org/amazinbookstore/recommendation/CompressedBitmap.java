@@ -0,0 +1,407 @@
+package org.amazinbookstore.recommendation;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A set of non-negative ints stored the way Roaring bitmaps store them.
+ *
+ * Values are split by their high 16 bits into chunks of up to 65536. A chunk
+ * holding at most 4096 values is a sorted {@code char[]}, two bytes a value;
+ * a fuller chunk is a 65536-bit {@code long[]}, which is then never more than
+ * 8 KB. Sparse sets such as one reader's books cost about two bytes a value,
+ * and intersections and unions work a chunk at a time, on whole 64-bit words
+ * where both sides are dense.
+ *
+ * Not thread-safe; the indexes using it guard it with their own locks.
+ */
+final class CompressedBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1024;
+
+    private char[] keys = new char[0];
+    private Chunk[] chunks = new Chunk[0];
+    private int size;
+    private int cardinality;
+
+    /**
+     * @return whether the value was not already in the set
+     */
+    boolean add(int value) {
+        char key = (char) (value >>> 16);
+        int index = indexOf(key);
+        if (index < 0) {
+            index = -index - 1;
+            insert(index, key, new ArrayChunk());
+        }
+        Chunk chunk = chunks[index];
+        if (chunk instanceof ArrayChunk array && array.cardinality == ARRAY_MAX && !array.contains((char) value)) {
+            chunk = chunks[index] = array.toBitmap();
+        }
+        if (chunk.add((char) value)) {
+            cardinality++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return whether the value was in the set
+     */
+    boolean remove(int value) {
+        int index = indexOf((char) (value >>> 16));
+        if (index < 0 || !chunks[index].remove((char) value)) {
+            return false;
+        }
+        cardinality--;
+        Chunk chunk = chunks[index];
+        if (chunk.cardinality() == 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(chunks, index + 1, chunks, index, size - index - 1);
+            chunks[--size] = null;
+        } else if (chunk instanceof BitmapChunk bitmap && bitmap.cardinality <= ARRAY_MAX) {
+            chunks[index] = bitmap.toArray();
+        }
+        return true;
+    }
+
+    boolean contains(int value) {
+        int index = indexOf((char) (value >>> 16));
+        return index >= 0 && chunks[index].contains((char) value);
+    }
+
+    int cardinality() {
+        return cardinality;
+    }
+
+    boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * @return the number of values in both this set and the other, without building the intersection
+     */
+    int andCardinality(CompressedBitmap other) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                count += chunks[i++].andCardinality(other.chunks[j++]);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds every value of the other set to this one.
+     */
+    void or(CompressedBitmap other) {
+        for (int j = 0; j < other.size; j++) {
+            int index = indexOf(other.keys[j]);
+            if (index < 0) {
+                Chunk copy = other.chunks[j].copy();
+                insert(-index - 1, other.keys[j], copy);
+                cardinality += copy.cardinality();
+            } else {
+                int before = chunks[index].cardinality();
+                chunks[index] = chunks[index].or(other.chunks[j]);
+                cardinality += chunks[index].cardinality() - before;
+            }
+        }
+    }
+
+    /**
+     * @return an independent copy, which later changes to this set leave alone
+     */
+    CompressedBitmap copy() {
+        CompressedBitmap copy = new CompressedBitmap();
+        copy.keys = Arrays.copyOf(keys, size);
+        copy.chunks = new Chunk[size];
+        for (int i = 0; i < size; i++) {
+            copy.chunks[i] = chunks[i].copy();
+        }
+        copy.size = size;
+        copy.cardinality = cardinality;
+        return copy;
+    }
+
+    /**
+     * Passes every value to the action, in ascending order.
+     */
+    void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            chunks[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    /**
+     * @return every value, in ascending order
+     */
+    int[] toArray() {
+        int[] values = new int[cardinality];
+        int[] next = {0};
+        forEach(value -> values[next[0]++] = value);
+        return values;
+    }
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insert(int index, char key, Chunk chunk) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            chunks = Arrays.copyOf(chunks, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(chunks, index, chunks, index + 1, size - index);
+        keys[index] = key;
+        chunks[index] = chunk;
+        size++;
+    }
+
+    /**
+     * The low 16 bits of the values sharing one high 16 bits.
+     */
+    private sealed interface Chunk permits ArrayChunk, BitmapChunk {
+
+        boolean add(char value);
+
+        boolean remove(char value);
+
+        boolean contains(char value);
+
+        int cardinality();
+
+        int andCardinality(Chunk other);
+
+        /**
+         * @return the union, which may be this chunk updated in place or a new one
+         */
+        Chunk or(Chunk other);
+
+        Chunk copy();
+
+        void forEach(int high, IntConsumer action);
+    }
+
+    private static final class ArrayChunk implements Chunk {
+
+        private char[] values = new char[4];
+        private int cardinality;
+
+        @Override
+        public boolean add(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return false;
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return true;
+        }
+
+        @Override
+        public boolean remove(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+            cardinality--;
+            return true;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public int andCardinality(Chunk other) {
+            if (other instanceof BitmapChunk bitmap) {
+                return bitmap.andCardinality(this);
+            }
+            ArrayChunk array = (ArrayChunk) other;
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality && j < array.cardinality) {
+                if (values[i] < array.values[j]) {
+                    i++;
+                } else if (values[i] > array.values[j]) {
+                    j++;
+                } else {
+                    count++;
+                    i++;
+                    j++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public Chunk or(Chunk other) {
+            if (other instanceof BitmapChunk bitmap) {
+                return toBitmap().or(bitmap);
+            }
+            ArrayChunk array = (ArrayChunk) other;
+            char[] merged = new char[cardinality + array.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < array.cardinality) {
+                if (j == array.cardinality || (i < cardinality && values[i] < array.values[j])) {
+                    merged[count++] = values[i++];
+                } else if (i == cardinality || values[i] > array.values[j]) {
+                    merged[count++] = array.values[j++];
+                } else {
+                    merged[count++] = values[i++];
+                    j++;
+                }
+            }
+            values = merged;
+            cardinality = count;
+            return cardinality > ARRAY_MAX ? toBitmap() : this;
+        }
+
+        @Override
+        public Chunk copy() {
+            ArrayChunk copy = new ArrayChunk();
+            copy.values = Arrays.copyOf(values, Math.max(4, cardinality));
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        @Override
+        public void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < cardinality; i++) {
+                action.accept(high | values[i]);
+            }
+        }
+
+        BitmapChunk toBitmap() {
+            BitmapChunk bitmap = new BitmapChunk();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapChunk implements Chunk {
+
+        private final long[] words = new long[WORDS];
+        private int cardinality;
+
+        @Override
+        public boolean add(char value) {
+            long before = words[value >>> 6];
+            words[value >>> 6] = before | (1L << value);
+            if (before == words[value >>> 6]) {
+                return false;
+            }
+            cardinality++;
+            return true;
+        }
+
+        @Override
+        public boolean remove(char value) {
+            if (!contains(value)) {
+                return false;
+            }
+            words[value >>> 6] &= ~(1L << value);
+            cardinality--;
+            return true;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public int andCardinality(Chunk other) {
+            int count = 0;
+            if (other instanceof BitmapChunk bitmap) {
+                for (int i = 0; i < WORDS; i++) {
+                    count += Long.bitCount(words[i] & bitmap.words[i]);
+                }
+            } else {
+                ArrayChunk array = (ArrayChunk) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    if (contains(array.values[i])) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public Chunk or(Chunk other) {
+            if (other instanceof BitmapChunk bitmap) {
+                int count = 0;
+                for (int i = 0; i < WORDS; i++) {
+                    words[i] |= bitmap.words[i];
+                    count += Long.bitCount(words[i]);
+                }
+                cardinality = count;
+            } else {
+                ArrayChunk array = (ArrayChunk) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    add(array.values[i]);
+                }
+            }
+            return this;
+        }
+
+        @Override
+        public Chunk copy() {
+            BitmapChunk copy = new BitmapChunk();
+            System.arraycopy(words, 0, copy.words, 0, WORDS);
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        @Override
+        public void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    action.accept(high | (i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        ArrayChunk toArray() {
+            ArrayChunk array = new ArrayChunk();
+            array.values = new char[Math.max(4, cardinality)];
+            forEach(0, value -> array.values[array.cardinality++] = (char) value);
+            return array;
+        }
+    }
+}
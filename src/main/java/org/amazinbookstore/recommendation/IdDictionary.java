@@ -0,0 +1,50 @@
+package org.amazinbookstore.recommendation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gives each distinct string id, such as a MongoDB ObjectId, a dense int
+ * starting from 0, in the order the ids are first seen. Dense ints index
+ * plain lists and pack tightly into a {@link CompressedBitmap}.
+ *
+ * Not thread-safe; the indexes using it guard it with their own locks.
+ */
+final class IdDictionary {
+
+    static final int ABSENT = -1;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * @return the int for the id, giving it the next one if it is new
+     */
+    int intern(String id) {
+        Integer existing = ids.get(id);
+        if (existing != null) {
+            return existing;
+        }
+        int next = values.size();
+        ids.put(id, next);
+        values.add(id);
+        return next;
+    }
+
+    /**
+     * @return the int for the id, or {@link #ABSENT} if it has never been seen
+     */
+    int find(String id) {
+        return ids.getOrDefault(id, ABSENT);
+    }
+
+    String valueOf(int dense) {
+        return values.get(dense);
+    }
+
+    int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,143 @@
+package org.amazinbookstore.recommendation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Approximate similar-user search with MinHash signatures and LSH banding.
+ *
+ * Each user's books are summarised by {@code bands * rows} min-hashes; two
+ * users agree on any one of them with probability equal to their Jaccard
+ * similarity. The signature is cut into bands of {@code rows} min-hashes and
+ * users are bucketed by each band, so a pair with similarity s shares at least
+ * one bucket, and is looked at, with probability 1 - (1 - s^rows)^bands. More
+ * bands or fewer rows find more of the similar users at the cost of more
+ * candidates to check. Purchases are stored, and each candidate's similarity
+ * computed exactly, as in {@link BuyerIndex}, so only recall is approximate.
+ *
+ * Since a min-hash can only go down as books are added, a purchase updates the
+ * signature in place and moves the user only in the bands that changed.
+ */
+public class MinHashIndex extends BuyerIndex {
+
+    private static final long SEED = 0x5EEDL;
+
+    private final int bands;
+    private final int rows;
+    private final long[] hashSeeds;
+
+    // By dense user id; null for a user who has bought nothing
+    private final List<int[]> signatures = new ArrayList<>();
+    private final List<Map<Long, CompressedBitmap>> buckets;
+
+    /**
+     * @param bands the number of bands a signature is cut into
+     * @param rows  the number of min-hashes in each band
+     */
+    public MinHashIndex(int bands, int rows) {
+        if (bands < 1 || rows < 1) {
+            throw new IllegalArgumentException("bands and rows must be at least 1");
+        }
+        this.bands = bands;
+        this.rows = rows;
+        this.hashSeeds = new SplittableRandom(SEED).longs(bands * rows).toArray();
+        this.buckets = new ArrayList<>(bands);
+        for (int band = 0; band < bands; band++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    @Override
+    void purchased(int user, CompressedBitmap added) {
+        while (signatures.size() <= user) {
+            signatures.add(null);
+        }
+        int[] signature = signatures.get(user);
+        int[] previous = signature == null ? null : signature.clone();
+        if (signature == null) {
+            signature = emptySignature();
+            signatures.set(user, signature);
+        }
+        int[] updated = signature;
+        added.forEach(book -> addToSignature(updated, book));
+
+        for (int band = 0; band < bands; band++) {
+            long key = bandKey(signature, band);
+            if (previous != null) {
+                long previousKey = bandKey(previous, band);
+                if (previousKey == key) {
+                    continue;
+                }
+                removeFromBucket(band, previousKey, user);
+            }
+            buckets.get(band).computeIfAbsent(key, k -> new CompressedBitmap()).add(user);
+        }
+    }
+
+    /**
+     * Only the users sharing an LSH bucket with the reader; users less similar
+     * than the bands and rows aim for are likely to be missed.
+     */
+    @Override
+    CompressedBitmap candidates(CompressedBitmap reader) {
+        CompressedBitmap candidates = new CompressedBitmap();
+        if (reader.isEmpty()) {
+            return candidates;
+        }
+        int[] signature = emptySignature();
+        reader.forEach(book -> addToSignature(signature, book));
+        for (int band = 0; band < bands; band++) {
+            CompressedBitmap bucket = buckets.get(band).get(bandKey(signature, band));
+            if (bucket != null) {
+                candidates.or(bucket);
+            }
+        }
+        return candidates;
+    }
+
+    private int[] emptySignature() {
+        int[] signature = new int[hashSeeds.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        return signature;
+    }
+
+    private void addToSignature(int[] signature, int book) {
+        long base = mix(book);
+        for (int i = 0; i < signature.length; i++) {
+            int hash = (int) (mix(base ^ hashSeeds[i]) >>> 32);
+            if (hash < signature[i]) {
+                signature[i] = hash;
+            }
+        }
+    }
+
+    private long bandKey(int[] signature, int band) {
+        long key = 0xCBF29CE484222325L;
+        for (int i = band * rows; i < (band + 1) * rows; i++) {
+            key = (key ^ signature[i]) * 0x100000001B3L;
+        }
+        return key;
+    }
+
+    private void removeFromBucket(int band, long key, int user) {
+        Map<Long, CompressedBitmap> bandBuckets = buckets.get(band);
+        CompressedBitmap bucket = bandBuckets.get(key);
+        if (bucket != null) {
+            bucket.remove(user);
+            if (bucket.isEmpty()) {
+                bandBuckets.remove(key);
+            }
+        }
+    }
+
+    // SplitMix64 finaliser: spreads the bits so each seed gives an independent-looking hash
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
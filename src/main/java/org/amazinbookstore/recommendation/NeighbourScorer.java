@@ -0,0 +1,120 @@
+package org.amazinbookstore.recommendation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntFunction;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Scores candidate neighbours across the common fork/join pool and keeps only
+ * the best k.
+ *
+ * The candidates are split in halves until a part is small enough to score on
+ * one thread. Each part keeps the best k it has seen in a min-heap, and the
+ * heaps are merged as the parts join, so neither the scores of every candidate
+ * nor a sort of all of them is ever held. Small inputs are scored on the
+ * calling thread.
+ */
+public final class NeighbourScorer {
+
+    // Below this many candidates a task scores them itself rather than splitting
+    static final int LEAF_SIZE = 1024;
+
+    // Lowest score first; on equal scores the higher index is the worse, so ties go to the lower index
+    private static final Comparator<Scored> WORST_FIRST = Comparator.comparingDouble((Scored scored) -> scored.score)
+            .thenComparing(Comparator.comparingInt((Scored scored) -> scored.index).reversed());
+
+    private NeighbourScorer() {
+    }
+
+    /**
+     * @param count the number of candidates, numbered from 0
+     * @param score the score of a candidate; called from several threads at once, and
+     *              candidates scoring zero or less are left out
+     * @param key   what to return for a candidate
+     * @param k     the maximum number of candidates to keep
+     * @return the best candidates with their scores, best first
+     */
+    public static <T> LinkedHashMap<T, Double> top(int count, IntToDoubleFunction score, IntFunction<T> key, int k) {
+        LinkedHashMap<T, Double> top = new LinkedHashMap<>();
+        if (count <= 0 || k <= 0) {
+            return top;
+        }
+        ScoreTask task = new ScoreTask(0, count, score, k);
+        PriorityQueue<Scored> heap = count <= LEAF_SIZE ? task.scoreAll() : ForkJoinPool.commonPool().invoke(task);
+
+        List<Scored> best = new ArrayList<>(heap);
+        best.sort(WORST_FIRST.reversed());
+        for (Scored scored : best) {
+            top.put(key.apply(scored.index), scored.score);
+        }
+        return top;
+    }
+
+    private static void offer(PriorityQueue<Scored> heap, Scored scored, int k) {
+        if (heap.size() < k) {
+            heap.add(scored);
+        } else if (WORST_FIRST.compare(scored, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(scored);
+        }
+    }
+
+    private static final class Scored {
+
+        private final int index;
+        private final double score;
+
+        private Scored(int index, double score) {
+            this.index = index;
+            this.score = score;
+        }
+    }
+
+    private static final class ScoreTask extends RecursiveTask<PriorityQueue<Scored>> {
+
+        private final int from;
+        private final int to;
+        private final IntToDoubleFunction score;
+        private final int k;
+
+        private ScoreTask(int from, int to, IntToDoubleFunction score, int k) {
+            this.from = from;
+            this.to = to;
+            this.score = score;
+            this.k = k;
+        }
+
+        @Override
+        protected PriorityQueue<Scored> compute() {
+            if (to - from <= LEAF_SIZE) {
+                return scoreAll();
+            }
+            int middle = (from + to) >>> 1;
+            ScoreTask left = new ScoreTask(from, middle, score, k);
+            left.fork();
+            PriorityQueue<Scored> best = new ScoreTask(middle, to, score, k).compute();
+            for (Scored scored : left.join()) {
+                offer(best, scored, k);
+            }
+            return best;
+        }
+
+        private PriorityQueue<Scored> scoreAll() {
+            PriorityQueue<Scored> best = new PriorityQueue<>(Math.min(k, to - from) + 1, WORST_FIRST);
+            for (int index = from; index < to; index++) {
+                double value = score.applyAsDouble(index);
+                // A full heap only takes a strictly better score, since a later index loses ties
+                if (value > 0 && (best.size() < k || value > best.peek().score)) {
+                    offer(best, new Scored(index, value), k);
+                }
+            }
+            return best;
+        }
+    }
+}
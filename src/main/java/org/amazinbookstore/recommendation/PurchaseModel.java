@@ -0,0 +1,29 @@
+package org.amazinbookstore.recommendation;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * An in-memory model of who bought which books, built up one purchase at a time.
+ */
+public interface PurchaseModel {
+
+    /**
+     * Records that a user has bought some books. Books the user already owns
+     * are ignored, so recording the same purchase twice changes nothing.
+     *
+     * @param userId  the buyer
+     * @param bookIds the books bought
+     * @return whether any book was new to the user
+     */
+    boolean addPurchases(String userId, Collection<String> bookIds);
+
+    /**
+     * Finds the books bought by the most users, ties going to the lower book id.
+     *
+     * @param exclude books to leave out
+     * @param limit   the maximum number of books to return
+     * @return book ids, most bought first
+     */
+    List<String> popular(Collection<String> exclude, int limit);
+}
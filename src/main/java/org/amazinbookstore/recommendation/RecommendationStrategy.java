@@ -0,0 +1,35 @@
+package org.amazinbookstore.recommendation;
+
+/**
+ * How personalised recommendations are computed, keyed by the values accepted
+ * by the {@code amazin.recommendations.strategy} property.
+ */
+public enum RecommendationStrategy {
+    // books bought by the users whose purchases overlap most with the reader's (Jaccard similarity)
+    SIMILAR_USERS("similar-users"),
+    // books most often bought by the same users as the reader's books, from a co-purchase matrix
+    CO_PURCHASE("co-purchase");
+
+    private final String key;
+
+    RecommendationStrategy(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Looks up a strategy by its key, ignoring case.
+     * Unknown or missing keys fall back to {@link #SIMILAR_USERS}.
+     */
+    public static RecommendationStrategy fromKey(String key) {
+        for (RecommendationStrategy strategy : values()) {
+            if (strategy.key.equalsIgnoreCase(key)) {
+                return strategy;
+            }
+        }
+        return SIMILAR_USERS;
+    }
+
+    public String getKey() {
+        return key;
+    }
+}
@@ -0,0 +1,29 @@
+package org.amazinbookstore.recommendation;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link PurchaseModel} that can also find the readers whose purchases are
+ * most like a given reader's.
+ */
+public interface SimilarityModel extends PurchaseModel {
+
+    /**
+     * Finds the users most similar to a reader by the Jaccard similarity of
+     * their purchases, scoring candidates in parallel and keeping only the
+     * best rather than sorting them all. Users sharing no book are left out.
+     *
+     * @param userId  the reader, who is left out of the result
+     * @param bookIds the reader's books
+     * @param limit   the maximum number of users to return
+     * @return similarity by user id, most similar first, ties going to the user indexed first
+     */
+    Map<String, Double> mostSimilar(String userId, Collection<String> bookIds, int limit);
+
+    /**
+     * @return the books the user has bought, in the order the index first saw each book; empty for an unknown user
+     */
+    List<String> booksOf(String userId);
+}
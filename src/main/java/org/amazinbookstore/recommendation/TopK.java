@@ -0,0 +1,42 @@
+package org.amazinbookstore.recommendation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Picks the highest-counted keys with a bounded heap, in O(n log k), without
+ * sorting every candidate. Ties go to the lower key.
+ */
+final class TopK {
+
+    private static final Comparator<Map.Entry<String, Integer>> BY_COUNT_THEN_KEY =
+            Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey());
+
+    private TopK() {
+    }
+
+    /**
+     * @param counts the count of each key
+     * @param limit  the maximum number of keys to return
+     * @return the keys with the highest counts, highest first
+     */
+    static List<String> top(Map<String, Integer> counts, int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        PriorityQueue<Map.Entry<String, Integer>> best = new PriorityQueue<>(BY_COUNT_THEN_KEY.reversed());
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            best.add(entry);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<Map.Entry<String, Integer>> sorted = new ArrayList<>(best);
+        sorted.sort(BY_COUNT_THEN_KEY);
+        return sorted.stream().map(Map.Entry::getKey).toList();
+    }
+}
@@ -0,0 +1,114 @@
+package org.amazinbookstore.repository;
+
+import org.amazinbookstore.dto.BookFacets;
+import org.amazinbookstore.dto.BookSearchCriteria;
+import org.amazinbookstore.model.Book;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Custom query fragment for {@link BookRepository}, for queries that cannot be
+ * expressed as derived finder methods.
+ *
+ * All methods turn a {@link BookSearchCriteria} into one MongoDB filter, so any
+ * combination of author, publisher, genre, title, price range and publication
+ * year range is answered by a single query.
+ */
+public interface BookRepositoryCustom {
+
+    /**
+     * Finds every book matching the criteria, sorted by MongoDB.
+     *
+     * @param criteria the filters to apply
+     * @param sort     the sort order
+     * @return matching books
+     */
+    List<Book> searchBooks(BookSearchCriteria criteria, Sort sort);
+
+    /**
+     * Finds one page of books matching the criteria. Skip, limit, sort and the
+     * count query all run in MongoDB; the count is skipped when the page
+     * size already tells us the total.
+     *
+     * @param criteria the filters to apply
+     * @param pageable page number, page size and sort
+     * @return one page of matching books
+     */
+    Page<Book> searchBooks(BookSearchCriteria criteria, Pageable pageable);
+
+    /**
+     * Keyset scroll over the catalog: returns up to {@code limit} books that match
+     * the criteria and sort strictly after the given position.
+     *
+     * The sort is on {@code property} (or on the id alone when it is null) with the
+     * id as a tie-breaker in the same direction. Because the position is a
+     * predicate rather than an offset, every page costs the same however deep the
+     * client has scrolled.
+     *
+     * @param criteria  the filters to apply
+     * @param property  the sort field, or null to sort on id only
+     * @param direction the sort direction
+     * @param lastValue sort value of the last book already returned (may be null)
+     * @param lastId    id of the last book already returned, or null for the first page
+     * @param limit     the maximum number of books to return
+     * @return the next books in sort order
+     */
+    List<Book> findBooksAfter(BookSearchCriteria criteria, String property, Sort.Direction direction,
+                              Object lastValue, String lastId, int limit);
+
+    /**
+     * Counts the books matching the criteria by genre, publisher, price range and
+     * publication decade, in a single aggregation.
+     *
+     * @param criteria the active filters; null or empty counts the whole catalog
+     * @return the facet counts
+     */
+    BookFacets countFacets(BookSearchCriteria criteria);
+
+    /**
+     * Atomically decreases a book's inventory, but only if at least
+     * {@code quantity} copies are in stock. Concurrent calls cannot oversell
+     * or overwrite each other, and only the inventory field is written.
+     *
+     * @param bookId   the book ID
+     * @param quantity the number of copies to take
+     * @return the updated book, or null if the book does not exist or has too few copies
+     */
+    Book decrementInventory(String bookId, int quantity);
+
+    /**
+     * Decreases the inventory of several books, one conditional update per book,
+     * each only applying if its book exists and has enough copies in stock.
+     *
+     * The first line that cannot be applied stops the rest, and every line
+     * applied before it is undone, or left to the surrounding transaction's
+     * rollback, so either all decrements happen or none do. No documents are
+     * ever inserted.
+     *
+     * @param quantitiesByBookId copies to take per book ID
+     * @return null if every decrement was applied, otherwise the ID of the book
+     *         that was missing or had too few copies
+     */
+    String decrementInventories(Map<String, Integer> quantitiesByBookId);
+
+    /**
+     * Atomically increases a book's inventory, e.g. to return stock taken by a
+     * checkout that failed part way.
+     *
+     * @param bookId   the book ID
+     * @param quantity the number of copies to return
+     */
+    void incrementInventory(String bookId, int quantity);
+
+    /**
+     * Overwrites a book's inventory, e.g. to write back a count kept in memory.
+     *
+     * @param bookId    the book ID
+     * @param inventory the number of copies in stock
+     */
+    void setInventory(String bookId, int inventory);
+}
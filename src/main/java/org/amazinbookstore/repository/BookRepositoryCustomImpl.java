@@ -0,0 +1,304 @@
+package org.amazinbookstore.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.amazinbookstore.dto.BookFacets;
+import org.amazinbookstore.dto.BookSearchCriteria;
+import org.amazinbookstore.model.Book;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * {@link MongoTemplate} backed implementation of {@link BookRepositoryCustom}.
+ */
+@RequiredArgsConstructor
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+    // Lower bounds of the price facet buckets; the last bound only caps the "100+" bucket
+    private static final Integer[] PRICE_BOUNDARIES = {0, 10, 20, 30, 50, 100, Integer.MAX_VALUE};
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public List<Book> searchBooks(BookSearchCriteria criteria, Sort sort) {
+        Query query = toQuery(criteria, new ArrayList<>());
+        query.with(sort);
+        return mongoTemplate.find(query, Book.class);
+    }
+
+    @Override
+    public Page<Book> searchBooks(BookSearchCriteria criteria, Pageable pageable) {
+        Query query = toQuery(criteria, new ArrayList<>());
+        query.with(pageable);
+        List<Book> books = mongoTemplate.find(query, Book.class);
+        return PageableExecutionUtils.getPage(books, pageable,
+                () -> mongoTemplate.count(Query.of(query).limit(-1).skip(-1), Book.class));
+    }
+
+    @Override
+    public List<Book> findBooksAfter(BookSearchCriteria criteria, String property, Sort.Direction direction,
+                                     Object lastValue, String lastId, int limit) {
+        List<Criteria> position = new ArrayList<>();
+        if (lastId != null) {
+            position.add(property == null
+                    ? idAfter(direction, lastId)
+                    : positionAfter(property, direction, lastValue, lastId));
+        }
+
+        Query query = toQuery(criteria, position);
+        Sort.Order idOrder = new Sort.Order(direction, "id");
+        query.with(property == null ? Sort.by(idOrder) : Sort.by(new Sort.Order(direction, property), idOrder));
+        query.limit(limit);
+
+        return mongoTemplate.find(query, Book.class);
+    }
+
+    @Override
+    public Book decrementInventory(String bookId, int quantity) {
+        Query query = new Query(Criteria.where("id").is(bookId).and("inventory").gte(quantity));
+        Update update = new Update().inc("inventory", -quantity);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Book.class);
+    }
+
+    /**
+     * Each line is a conditional updateOne filtered on {_id, inventory >= qty},
+     * never an upsert, so a sold-out or deleted book simply matches nothing and
+     * no document is ever created. The first line that matches nothing stops
+     * the loop, and the lines already applied are restored with one unordered
+     * bulk $inc.
+     *
+     * Inside a transaction nothing is undone here: the failed book is returned,
+     * the caller throws, and the abort reverts the applied lines.
+     */
+    @Override
+    public String decrementInventories(Map<String, Integer> quantitiesByBookId) {
+        // Lines in a fixed order, so concurrent checkouts touch shared books in the same order
+        List<Map.Entry<String, Integer>> lines = new ArrayList<>(new TreeMap<>(quantitiesByBookId).entrySet());
+        for (int i = 0; i < lines.size(); i++) {
+            Map.Entry<String, Integer> line = lines.get(i);
+            long matched;
+            try {
+                matched = mongoTemplate.updateFirst(
+                        new Query(Criteria.where("id").is(line.getKey()).and("inventory").gte(line.getValue())),
+                        new Update().inc("inventory", -line.getValue()), Book.class).getMatchedCount();
+            } catch (RuntimeException e) {
+                undo(lines, i);
+                throw e;
+            }
+            if (matched == 0) {
+                undo(lines, i);
+                return line.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the copies taken by the lines before {@code failedLine}. Inside a
+     * transaction nothing is done here: the caller fails the checkout and the
+     * abort rolls the lines back instead.
+     */
+    private void undo(List<Map.Entry<String, Integer>> lines, int failedLine) {
+        if (failedLine == 0 || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return;
+        }
+
+        BulkOperations restore = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Book.class);
+        for (int i = 0; i < failedLine; i++) {
+            Map.Entry<String, Integer> line = lines.get(i);
+            restore.updateOne(new Query(Criteria.where("id").is(line.getKey())),
+                    new Update().inc("inventory", line.getValue()));
+        }
+        restore.execute();
+    }
+
+    @Override
+    public void incrementInventory(String bookId, int quantity) {
+        mongoTemplate.updateFirst(new Query(Criteria.where("id").is(bookId)),
+                new Update().inc("inventory", quantity), Book.class);
+    }
+
+    @Override
+    public void setInventory(String bookId, int inventory) {
+        mongoTemplate.updateFirst(new Query(Criteria.where("id").is(bookId)),
+                new Update().set("inventory", inventory), Book.class);
+    }
+
+    @Override
+    public BookFacets countFacets(BookSearchCriteria criteria) {
+        List<Criteria> conditions = new ArrayList<>();
+        addConditions(criteria, conditions);
+
+        // One round trip: filter once, then count every facet from the same matched documents
+        List<AggregationOperation> stages = new ArrayList<>();
+        if (!conditions.isEmpty()) {
+            stages.add(Aggregation.match(new Criteria().andOperator(conditions)));
+        }
+        stages.add(Aggregation.facet(Aggregation.sortByCount("genre")).as("genres")
+                .and(Aggregation.sortByCount("publisher")).as("publishers")
+                .and(Aggregation.bucket("price")
+                        .withBoundaries((Object[]) PRICE_BOUNDARIES)
+                        .withDefaultBucket("other")).as("priceRanges")
+                .and(Aggregation.project().and(ArithmeticOperators.valueOf("publicationYear")
+                                .subtract(ArithmeticOperators.valueOf("publicationYear").mod(10))).as("decade"),
+                        Aggregation.sortByCount("decade")).as("decades"));
+
+        Document result = mongoTemplate.aggregate(Aggregation.newAggregation(Book.class, stages), Document.class)
+                .getUniqueMappedResult();
+
+        BookFacets facets = new BookFacets();
+        if (result == null) {
+            return facets;
+        }
+        readCounts(result, "genres", facets.getGenres(), Object::toString);
+        readCounts(result, "publishers", facets.getPublishers(), Object::toString);
+        readPriceRanges(result, facets.getPriceRanges());
+        readCounts(result, "decades", facets.getDecades(), decade -> ((Number) decade).intValue() + "s");
+
+        // sortByCount orders by count only; list decades chronologically
+        Map<String, Long> decades = new TreeMap<>(
+                Comparator.comparingInt((String decade) -> Integer.parseInt(decade.substring(0, decade.length() - 1))));
+        decades.putAll(facets.getDecades());
+        facets.getDecades().clear();
+        facets.getDecades().putAll(decades);
+        return facets;
+    }
+
+    private static void readCounts(Document result, String facet, Map<String, Long> counts,
+                                   Function<Object, String> label) {
+        for (Document bucket : result.getList(facet, Document.class, List.of())) {
+            Object value = bucket.get("_id");
+            // books without the field are grouped under null; they have no facet value to offer
+            if (value != null) {
+                counts.put(label.apply(value), ((Number) bucket.get("count")).longValue());
+            }
+        }
+    }
+
+    /**
+     * Labels each price bucket by its range, e.g. "10-20", with the last bounded
+     * bucket shown as open-ended ("100+").
+     */
+    private static void readPriceRanges(Document result, Map<String, Long> counts) {
+        for (Document bucket : result.getList("priceRanges", Document.class, List.of())) {
+            Object lower = bucket.get("_id");
+            if (!(lower instanceof Number)) {
+                continue;
+            }
+            int from = ((Number) lower).intValue();
+            int index = Arrays.asList(PRICE_BOUNDARIES).indexOf(from);
+            String label = index == PRICE_BOUNDARIES.length - 2
+                    ? from + "+"
+                    : from + "-" + PRICE_BOUNDARIES[index + 1];
+            counts.put(label, ((Number) bucket.get("count")).longValue());
+        }
+    }
+
+    /**
+     * Combines every filter present in the criteria, plus any extra conditions,
+     * into one query.
+     */
+    private static Query toQuery(BookSearchCriteria criteria, List<Criteria> conditions) {
+        addConditions(criteria, conditions);
+        return conditions.isEmpty()
+                ? new Query()
+                : new Query(new Criteria().andOperator(conditions));
+    }
+
+    private static void addConditions(BookSearchCriteria criteria, List<Criteria> conditions) {
+        if (criteria != null) {
+            addContains(conditions, "author", criteria.getAuthor());
+            addContains(conditions, "publisher", criteria.getPublisher());
+            addContains(conditions, "genre", criteria.getGenre());
+            addContains(conditions, "title", criteria.getTitle());
+
+            if (criteria.getMinPrice() != null || criteria.getMaxPrice() != null) {
+                Criteria price = Criteria.where("price");
+                if (criteria.getMinPrice() != null) {
+                    price.gte(new Decimal128(criteria.getMinPrice()));
+                }
+                if (criteria.getMaxPrice() != null) {
+                    price.lte(new Decimal128(criteria.getMaxPrice()));
+                }
+                conditions.add(price);
+            }
+
+            if (criteria.getMinYear() != null || criteria.getMaxYear() != null) {
+                Criteria year = Criteria.where("publicationYear");
+                if (criteria.getMinYear() != null) {
+                    year.gte(criteria.getMinYear());
+                }
+                if (criteria.getMaxYear() != null) {
+                    year.lte(criteria.getMaxYear());
+                }
+                conditions.add(year);
+            }
+        }
+    }
+
+    private static void addContains(List<Criteria> conditions, String field, String value) {
+        if (value != null && !value.isBlank()) {
+            conditions.add(containsIgnoreCase(field, value.trim()));
+        }
+    }
+
+    private static Criteria containsIgnoreCase(String field, String value) {
+        return Criteria.where(field).regex(Pattern.quote(value), "i");
+    }
+
+    private static Criteria idAfter(Sort.Direction direction, String lastId) {
+        return direction.isAscending()
+                ? Criteria.where("id").gt(lastId)
+                : Criteria.where("id").lt(lastId);
+    }
+
+    /**
+     * Builds the "comes after (lastValue, lastId)" predicate for a sort on
+     * {@code property} then id. MongoDB orders null and missing values before
+     * everything else, so they come first in ascending order and last in
+     * descending order.
+     */
+    private static Criteria positionAfter(String property, Sort.Direction direction,
+                                          Object lastValue, String lastId) {
+        if (direction.isAscending()) {
+            if (lastValue == null) {
+                return new Criteria().orOperator(
+                        new Criteria().andOperator(Criteria.where(property).is(null), idAfter(direction, lastId)),
+                        Criteria.where(property).ne(null));
+            }
+            return new Criteria().orOperator(
+                    Criteria.where(property).gt(lastValue),
+                    new Criteria().andOperator(Criteria.where(property).is(lastValue), idAfter(direction, lastId)));
+        }
+
+        if (lastValue == null) {
+            return new Criteria().andOperator(Criteria.where(property).is(null), idAfter(direction, lastId));
+        }
+        return new Criteria().orOperator(
+                Criteria.where(property).lt(lastValue),
+                new Criteria().andOperator(Criteria.where(property).is(lastValue), idAfter(direction, lastId)),
+                Criteria.where(property).is(null));
+    }
+}
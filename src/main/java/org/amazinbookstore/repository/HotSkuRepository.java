@@ -0,0 +1,12 @@
+package org.amazinbookstore.repository;
+
+import org.amazinbookstore.model.HotSku;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for {@link HotSku} documents, keyed by book ID.
+ */
+@Repository
+public interface HotSkuRepository extends MongoRepository<HotSku, String> {
+}
@@ -0,0 +1,29 @@
+package org.amazinbookstore.repository;
+
+import org.amazinbookstore.model.IdempotencyRecord;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+/**
+ * Repository for {@link IdempotencyRecord} documents.
+ */
+@Repository
+public interface IdempotencyRecordRepository extends MongoRepository<IdempotencyRecord, String> {
+
+    /**
+     * Restarts a checkout that failed, or that has been in progress since before
+     * the cutoff, e.g. because the instance running it stopped.
+     *
+     * @param id        the record ID
+     * @param cutoff    records started at or before this are considered abandoned
+     * @param startedAt the new start time
+     * @return 1 if the record was taken over, 0 if it completed, is still running, or was taken over by another request
+     */
+    @Query("{ '_id': ?0, $or: [ { 'status': 'FAILED' }, { 'status': 'IN_PROGRESS', 'createdAt': { $lte: ?1 } } ] }")
+    @Update("{ $set: { 'status': 'IN_PROGRESS', 'createdAt': ?2 } }")
+    long restart(String id, Instant cutoff, Instant startedAt);
+}
@@ -0,0 +1,48 @@
+package org.amazinbookstore.repository;
+
+import org.amazinbookstore.model.InventoryReservation;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for {@link InventoryReservation} documents.
+ */
+@Repository
+public interface InventoryReservationRepository
+        extends MongoRepository<InventoryReservation, String>, InventoryReservationRepositoryCustom {
+
+    /**
+     * Finds a user's hold on a book.
+     *
+     * @param userId the ID of the user
+     * @param bookId the ID of the book
+     * @return the hold, if there is one
+     */
+    Optional<InventoryReservation> findByUserIdAndBookId(String userId, String bookId);
+
+    /**
+     * Finds every hold a user has.
+     *
+     * @param userId the ID of the user
+     * @return the user's holds
+     */
+    List<InventoryReservation> findByUserId(String userId);
+
+    /**
+     * Finds the holds claimed by a checkout.
+     *
+     * @param claimedBy the checkout's claim token
+     * @return the claimed holds
+     */
+    List<InventoryReservation> findByClaimedBy(String claimedBy);
+
+    /**
+     * Deletes the holds claimed by a checkout.
+     *
+     * @param claimedBy the checkout's claim token
+     */
+    void deleteByClaimedBy(String claimedBy);
+}
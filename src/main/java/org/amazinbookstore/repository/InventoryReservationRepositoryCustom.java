@@ -0,0 +1,53 @@
+package org.amazinbookstore.repository;
+
+import org.amazinbookstore.model.InventoryReservation;
+
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * Atomic state changes on {@link InventoryReservation} documents that derived
+ * queries cannot express. Each one is a single conditional write, so the
+ * sweeper and a checkout can never both take the same hold.
+ */
+public interface InventoryReservationRepositoryCustom {
+
+    /**
+     * Marks a user's unexpired, unclaimed holds on the given books as claimed
+     * by a checkout, recording when.
+     *
+     * @param userId  the ID of the user checking out
+     * @param bookIds the books in the cart
+     * @param token   the checkout's claim token
+     * @param now     the current time
+     */
+    void claimActive(String userId, Collection<String> bookIds, String token, Instant now);
+
+    /**
+     * Hands the holds claimed by a checkout back, unclaimed.
+     *
+     * @param token the checkout's claim token
+     */
+    void unclaim(String token);
+
+    /**
+     * Removes one hold that is either unclaimed and expired, or claimed by a
+     * checkout whose claim lease has run out.
+     *
+     * @param now           the current time
+     * @param claimedBefore claims made at or before this time have run out
+     * @return the removed hold, or {@code null} if no hold has expired
+     */
+    InventoryReservation removeExpired(Instant now, Instant claimedBefore);
+
+    /**
+     * Removes the given hold if it is unclaimed and has expired, or its claim
+     * lease has run out.
+     *
+     * @param id            the ID of the hold
+     * @param now           the current time
+     * @param claimedBefore claims made at or before this time have run out
+     * @return the removed hold, or {@code null} if it was renewed, claimed or already removed
+     */
+    InventoryReservation removeIfExpired(String id, Instant now, Instant claimedBefore);
+}
@@ -0,0 +1,50 @@
+package org.amazinbookstore.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.amazinbookstore.model.InventoryReservation;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.Collection;
+
+@RequiredArgsConstructor
+public class InventoryReservationRepositoryCustomImpl implements InventoryReservationRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void claimActive(String userId, Collection<String> bookIds, String token, Instant now) {
+        Query query = new Query(Criteria.where("userId").is(userId)
+                .and("bookId").in(bookIds)
+                .and("claimedBy").is(null)
+                .and("expiresAt").gt(now));
+        mongoTemplate.updateMulti(query, new Update().set("claimedBy", token).set("claimedAt", now).inc("version", 1),
+                InventoryReservation.class);
+    }
+
+    @Override
+    public void unclaim(String token) {
+        mongoTemplate.updateMulti(new Query(Criteria.where("claimedBy").is(token)),
+                new Update().unset("claimedBy").unset("claimedAt").inc("version", 1), InventoryReservation.class);
+    }
+
+    @Override
+    public InventoryReservation removeExpired(Instant now, Instant claimedBefore) {
+        return mongoTemplate.findAndRemove(expired(new Criteria(), now, claimedBefore), InventoryReservation.class);
+    }
+
+    @Override
+    public InventoryReservation removeIfExpired(String id, Instant now, Instant claimedBefore) {
+        return mongoTemplate.findAndRemove(expired(Criteria.where("id").is(id), now, claimedBefore),
+                InventoryReservation.class);
+    }
+
+    private static Query expired(Criteria criteria, Instant now, Instant claimedBefore) {
+        return new Query(criteria.orOperator(
+                Criteria.where("claimedBy").is(null).and("expiresAt").lte(now),
+                Criteria.where("claimedAt").lte(claimedBefore)));
+    }
+}
@@ -0,0 +1,78 @@
+package org.amazinbookstore.repository;
+
+import org.amazinbookstore.model.OrderEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repository for the {@link OrderEvent} outbox.
+ */
+@Repository
+public interface OrderEventRepository extends MongoRepository<OrderEvent, String> {
+
+    /**
+     * Finds events not yet delivered to every listener, skipping parked ones
+     * and those still backing off from a failed delivery.
+     *
+     * @param now      the current time
+     * @param pageable the batch to read
+     * @return the deliverable events
+     */
+    @Query("{ 'publishedAt': null, 'parkedAt': null, "
+            + "$or: [ { 'nextAttemptAt': null }, { 'nextAttemptAt': { $lte: ?0 } } ] }")
+    List<OrderEvent> findDeliverable(Instant now, Pageable pageable);
+
+    /**
+     * Marks events as delivered, so they are not published again.
+     *
+     * @param ids         the event IDs
+     * @param publishedAt when they were delivered
+     * @return the number of events marked
+     */
+    @Query("{ '_id': { $in: ?0 } }")
+    @Update("{ $set: { 'publishedAt': ?1 } }")
+    long markPublished(Collection<String> ids, Instant publishedAt);
+
+    /**
+     * Records that one listener has handled events, so a retry skips it.
+     *
+     * @param ids      the event IDs
+     * @param listener the listener's name
+     * @return the number of events updated
+     */
+    @Query("{ '_id': { $in: ?0 } }")
+    @Update("{ $addToSet: { 'deliveredTo': ?1 } }")
+    long markDelivered(Collection<String> ids, String listener);
+
+    /**
+     * Records a failed delivery of an event and when to try it again.
+     *
+     * @param id             the event ID
+     * @param failedAttempts failed deliveries so far, per listener
+     * @param nextAttemptAt  the earliest time to deliver it again
+     * @return the number of events updated
+     */
+    @Query("{ '_id': ?0 }")
+    @Update("{ $set: { 'failedAttempts': ?1, 'nextAttemptAt': ?2 } }")
+    long recordFailedDelivery(String id, Map<String, Integer> failedAttempts, Instant nextAttemptAt);
+
+    /**
+     * Stops delivering an event that a listener keeps failing on.
+     *
+     * @param id             the event ID
+     * @param failedAttempts failed deliveries so far, per listener
+     * @param parkedAt       when it was parked
+     * @return the number of events updated
+     */
+    @Query("{ '_id': ?0 }")
+    @Update("{ $set: { 'failedAttempts': ?1, 'parkedAt': ?2 } }")
+    long park(String id, Map<String, Integer> failedAttempts, Instant parkedAt);
+}
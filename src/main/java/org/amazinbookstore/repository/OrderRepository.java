@@ -2,6 +2,7 @@ package org.amazinbookstore.repository;
 
 import org.amazinbookstore.model.Order;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,10 +10,11 @@ import java.util.List;
 /**
  * Repository interface for accessing and managing {@link Order} documents in MongoDB.
  *
- * Provides convenience query methods used for retrieving user-specific order history.
+ * Provides convenience query methods used for retrieving user-specific order history,
+ * plus paged and keyset-scrolled history from {@link OrderRepositoryCustom}.
  */
 @Repository
-public interface OrderRepository extends MongoRepository<Order, String> {
+public interface OrderRepository extends MongoRepository<Order, String>, OrderRepositoryCustom {
 
     /**
      * Retrieves all orders placed by a specific user.
@@ -29,4 +31,22 @@ public interface OrderRepository extends MongoRepository<Order, String> {
      * @return list of user's orders sorted by order date descending
      */
     List<Order> findByUserIdOrderByOrderDateDesc(String userId);
+
+    /**
+     * Retrieves every order with an item of a hot book taken after the given flush sequence.
+     *
+     * @param bookId        the ID of the book
+     * @param flushSequence the sequence of the last flush
+     * @return the matching orders
+     */
+    @Query("{ 'items': { $elemMatch: { 'bookId': ?0, 'hotFlushSequence': { $gt: ?1 } } } }")
+    List<Order> findHotItemsTakenAfter(String bookId, long flushSequence);
+
+    /**
+     * Retrieves every order in the given status.
+     *
+     * @param status the order status
+     * @return the matching orders
+     */
+    List<Order> findByStatus(Order.OrderStatus status);
 }
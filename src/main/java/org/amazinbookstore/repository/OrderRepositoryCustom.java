@@ -0,0 +1,48 @@
+package org.amazinbookstore.repository;
+
+import org.amazinbookstore.dto.OrderSearchCriteria;
+import org.amazinbookstore.model.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Order queries that go beyond derived query methods.
+ */
+public interface OrderRepositoryCustom {
+
+    /**
+     * Finds one page of the orders matching the criteria, most recent first.
+     *
+     * @param criteria the filters to apply
+     * @param pageable the page to fetch; its sort is ignored
+     * @return the page, with the total number of matching orders
+     */
+    Page<Order> searchOrders(OrderSearchCriteria criteria, Pageable pageable);
+
+    /**
+     * Keyset scroll over order history: returns up to {@code limit} orders that
+     * match the criteria and come strictly after the given position, most
+     * recent first, with the id breaking ties between orders placed at the
+     * same time. Every page costs the same however deep the client has scrolled.
+     *
+     * @param criteria  the filters to apply
+     * @param lastDate  order date of the last order already returned
+     * @param lastId    id of the last order already returned, or null for the first page
+     * @param limit     the maximum number of orders to return
+     * @return the next orders in order-date order
+     */
+    List<Order> findOrdersAfter(OrderSearchCriteria criteria, LocalDateTime lastDate, String lastId, int limit);
+
+    /**
+     * Streams the orders matching the criteria, oldest first, through a MongoDB
+     * cursor instead of loading them into a list. The stream must be closed after use.
+     *
+     * @param criteria the filters to apply
+     * @return the matching orders
+     */
+    Stream<Order> streamOrders(OrderSearchCriteria criteria);
+}
@@ -0,0 +1,93 @@
+package org.amazinbookstore.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.amazinbookstore.dto.OrderSearchCriteria;
+import org.amazinbookstore.model.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * {@link MongoTemplate} backed implementation of {@link OrderRepositoryCustom}.
+ *
+ * Orders are always sorted on order date then id, both descending, which the
+ * {@code userId_orderDate}, {@code status_orderDate} and {@code orderDate_id}
+ * indexes on {@link Order} serve directly whichever filters are set.
+ */
+@RequiredArgsConstructor
+public class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+
+    static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "orderDate", "id");
+    static final Sort OLDEST_FIRST = Sort.by(Sort.Direction.ASC, "orderDate", "id");
+
+    // orders fetched per round trip while streaming
+    private static final int STREAM_BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Page<Order> searchOrders(OrderSearchCriteria criteria, Pageable pageable) {
+        Pageable newestFirst = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), NEWEST_FIRST);
+        Query query = toQuery(criteria, new ArrayList<>());
+        query.with(newestFirst);
+        List<Order> orders = mongoTemplate.find(query, Order.class);
+        return PageableExecutionUtils.getPage(orders, newestFirst,
+                () -> mongoTemplate.count(Query.of(query).limit(-1).skip(-1), Order.class));
+    }
+
+    @Override
+    public List<Order> findOrdersAfter(OrderSearchCriteria criteria, LocalDateTime lastDate, String lastId, int limit) {
+        List<Criteria> position = new ArrayList<>();
+        if (lastId != null) {
+            position.add(new Criteria().orOperator(
+                    Criteria.where("orderDate").lt(lastDate),
+                    new Criteria().andOperator(Criteria.where("orderDate").is(lastDate), Criteria.where("id").lt(lastId))));
+        }
+
+        Query query = toQuery(criteria, position);
+        query.with(NEWEST_FIRST);
+        query.limit(limit);
+        return mongoTemplate.find(query, Order.class);
+    }
+
+    @Override
+    public Stream<Order> streamOrders(OrderSearchCriteria criteria) {
+        Query query = toQuery(criteria, new ArrayList<>());
+        query.with(OLDEST_FIRST);
+        query.cursorBatchSize(STREAM_BATCH_SIZE);
+        return mongoTemplate.stream(query, Order.class);
+    }
+
+    /**
+     * Builds the query for the criteria plus any extra conditions.
+     */
+    private static Query toQuery(OrderSearchCriteria criteria, List<Criteria> conditions) {
+        if (criteria.getUserId() != null) {
+            conditions.add(Criteria.where("userId").is(criteria.getUserId()));
+        }
+        if (criteria.getStatus() != null) {
+            conditions.add(Criteria.where("status").is(criteria.getStatus()));
+        }
+        if (criteria.getFrom() != null || criteria.getTo() != null) {
+            Criteria orderDate = Criteria.where("orderDate");
+            if (criteria.getFrom() != null) {
+                orderDate.gte(criteria.getFrom());
+            }
+            if (criteria.getTo() != null) {
+                orderDate.lte(criteria.getTo());
+            }
+            conditions.add(orderDate);
+        }
+        return conditions.isEmpty() ? new Query() : new Query(new Criteria().andOperator(conditions));
+    }
+}
@@ -2,9 +2,13 @@ package org.amazinbookstore.repository;
 
 import org.amazinbookstore.model.User;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for managing {@link User} documents in MongoDB.
@@ -46,4 +50,24 @@ public interface UserRepository extends MongoRepository<User, String> {
      * @return true if the email is already registered, otherwise false
      */
     boolean existsByEmail(String email);
+
+    /**
+     * Streams every user through a MongoDB cursor instead of loading the whole
+     * collection into a list. The stream must be closed after use.
+     *
+     * @return all users
+     */
+    Stream<User> streamAllBy();
+
+    /**
+     * Adds books to a user's purchase history, skipping any already in it. The
+     * update is atomic, and running it twice changes nothing.
+     *
+     * @param userId  the user's ID
+     * @param bookIds the purchased books' IDs
+     * @return the number of users updated
+     */
+    @Query("{ '_id': ?0 }")
+    @Update("{ $addToSet: { 'purchasedBookIds': { $each: ?1 } } }")
+    long addPurchasedBookIds(String userId, Collection<String> bookIds);
 }
@@ -0,0 +1,20 @@
+package org.amazinbookstore.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A document key found by {@link TrigramIndex}, with the indexed text that
+ * matched the query and its trigram similarity (0 to 1, higher is better).
+ */
+@Data
+@AllArgsConstructor
+public class FuzzyMatch {
+
+    private String key;
+
+    // the original, un-normalized text that matched, e.g. a title or author
+    private String text;
+
+    private double similarity;
+}
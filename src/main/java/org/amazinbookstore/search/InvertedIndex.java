@@ -0,0 +1,247 @@
+package org.amazinbookstore.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index ranked with Okapi BM25.
+ *
+ * Documents are identified by a string key (the book id) and are added as a
+ * map of term to frequency; callers may weight a field by counting its terms
+ * more than once. Internally each document gets a small int id, so a postings
+ * list is a pair of sorted int arrays instead of a map, and a query only
+ * touches the postings of its own terms.
+ *
+ * Updates take a write lock and searches share a read lock.
+ */
+public class InvertedIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> docIdsByKey = new HashMap<>();
+    private final Map<String, Postings> postingsByTerm = new HashMap<>();
+    private final Deque<Integer> freeDocIds = new ArrayDeque<>();
+
+    private String[] keys = new String[16];
+    private String[][] termsByDoc = new String[16][];
+    private int[] lengths = new int[16];
+    private int nextDocId;
+    private long totalLength;
+
+    /**
+     * Adds a document, replacing any previous version with the same key.
+     *
+     * @param key             the document key
+     * @param termFrequencies how often each term occurs in the document
+     */
+    public void put(String key, Map<String, Integer> termFrequencies) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(key);
+            if (termFrequencies.isEmpty()) {
+                return;
+            }
+
+            int docId = freeDocIds.isEmpty() ? nextDocId++ : freeDocIds.pop();
+            ensureCapacity(docId + 1);
+
+            String[] terms = new String[termFrequencies.size()];
+            int length = 0;
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : termFrequencies.entrySet()) {
+                Postings postings = postingsByTerm.computeIfAbsent(entry.getKey(), Postings::new);
+                postings.add(docId, entry.getValue());
+                // Share the postings' copy of the term instead of keeping one string per document
+                terms[i++] = postings.term;
+                length += entry.getValue();
+            }
+
+            keys[docId] = key;
+            termsByDoc[docId] = terms;
+            lengths[docId] = length;
+            totalLength += length;
+            docIdsByKey.put(key, docId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a document. Does nothing if the key is not indexed.
+     *
+     * @param key the document key
+     */
+    public void remove(String key) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of indexed documents
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docIdsByKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the documents containing any of the terms, best BM25 score first.
+     * Ties are broken consistently by internal document id.
+     *
+     * @param terms query terms (duplicates are ignored)
+     * @param limit the maximum number of results
+     * @return up to {@code limit} matching documents
+     */
+    public List<ScoredDocument> search(Collection<String> terms, int limit) {
+        if (limit <= 0 || terms.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int docCount = docIdsByKey.size();
+            if (docCount == 0) {
+                return List.of();
+            }
+            double averageLength = (double) totalLength / docCount;
+
+            List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(terms));
+            int touched = 0;
+            for (String term : queryTerms) {
+                Postings postings = postingsByTerm.get(term);
+                touched += postings == null ? 0 : postings.size;
+            }
+
+            // Sized by the postings this query visits, not by the whole catalog
+            SparseScores scores = new SparseScores(touched);
+            for (String term : queryTerms) {
+                Postings postings = postingsByTerm.get(term);
+                if (postings == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (docCount - postings.size + 0.5) / (postings.size + 0.5));
+                for (int i = 0; i < postings.size; i++) {
+                    int doc = postings.docs[i];
+                    int tf = postings.freqs[i];
+                    double norm = K1 * (1 - B + B * lengths[doc] / averageLength);
+                    scores.add(doc, idf * tf * (K1 + 1) / (tf + norm));
+                }
+            }
+
+            // Keep the best `limit` documents in a min-heap; the weakest is evicted first
+            int matchedCount = scores.size();
+            PriorityQueue<Integer> best = new PriorityQueue<>(Math.min(limit, matchedCount) + 1,
+                    (a, b) -> scores.value(a) != scores.value(b)
+                            ? Double.compare(scores.value(a), scores.value(b))
+                            : Integer.compare(scores.id(b), scores.id(a)));
+            for (int i = 0; i < matchedCount; i++) {
+                best.add(i);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+
+            List<ScoredDocument> results = new ArrayList<>(best.size());
+            while (!best.isEmpty()) {
+                int position = best.poll();
+                results.add(new ScoredDocument(keys[scores.id(position)], scores.value(position)));
+            }
+            Collections.reverse(results);
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeLocked(String key) {
+        Integer docId = docIdsByKey.remove(key);
+        if (docId == null) {
+            return;
+        }
+        for (String term : termsByDoc[docId]) {
+            Postings postings = postingsByTerm.get(term);
+            postings.remove(docId);
+            if (postings.size == 0) {
+                postingsByTerm.remove(term);
+            }
+        }
+        totalLength -= lengths[docId];
+        keys[docId] = null;
+        termsByDoc[docId] = null;
+        lengths[docId] = 0;
+        freeDocIds.push(docId);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > keys.length) {
+            int newLength = Math.max(capacity, keys.length * 2);
+            keys = Arrays.copyOf(keys, newLength);
+            termsByDoc = Arrays.copyOf(termsByDoc, newLength);
+            lengths = Arrays.copyOf(lengths, newLength);
+        }
+    }
+
+    /**
+     * Documents containing one term, as parallel arrays sorted by doc id.
+     */
+    private static final class Postings {
+
+        private final String term;
+        private int[] docs = new int[4];
+        private int[] freqs = new int[4];
+        private int size;
+
+        private Postings(String term) {
+            this.term = term;
+        }
+
+        private void add(int doc, int freq) {
+            int pos = Arrays.binarySearch(docs, 0, size, doc);
+            if (pos >= 0) {
+                freqs[pos] = freq;
+                return;
+            }
+            pos = -pos - 1;
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            System.arraycopy(docs, pos, docs, pos + 1, size - pos);
+            System.arraycopy(freqs, pos, freqs, pos + 1, size - pos);
+            docs[pos] = doc;
+            freqs[pos] = freq;
+            size++;
+        }
+
+        private void remove(int doc) {
+            int pos = Arrays.binarySearch(docs, 0, size, doc);
+            if (pos < 0) {
+                return;
+            }
+            System.arraycopy(docs, pos + 1, docs, pos, size - pos - 1);
+            System.arraycopy(freqs, pos + 1, freqs, pos, size - pos - 1);
+            size--;
+        }
+    }
+}
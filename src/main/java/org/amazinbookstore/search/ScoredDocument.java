@@ -0,0 +1,17 @@
+package org.amazinbookstore.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A document key returned by one of the in-memory search indexes, with its
+ * relevance score (higher is better).
+ */
+@Data
+@AllArgsConstructor
+public class ScoredDocument {
+
+    private String key;
+
+    private double score;
+}
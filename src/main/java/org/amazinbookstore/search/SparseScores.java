@@ -0,0 +1,65 @@
+package org.amazinbookstore.search;
+
+/**
+ * Per-query score accumulator keyed by small non-negative int ids.
+ *
+ * An open-addressing table sized from the number of postings the query will
+ * visit, so its cost follows the postings actually touched rather than the
+ * size of the index. Ids are remembered in the order they were first scored
+ * and are read back by position, from 0 to {@link #size()}.
+ *
+ * Not thread-safe; each query uses its own.
+ */
+final class SparseScores {
+
+    // Slots hold id + 1, so a fresh array is already all empty
+    private final int[] slots;
+    private final double[] values;
+    private final int[] order;
+    private final int mask;
+    private int size;
+
+    /**
+     * @param maxIds the most distinct ids that will be scored, e.g. the total length of the postings visited
+     */
+    SparseScores(int maxIds) {
+        int capacity = Integer.highestOneBit(Math.max(2, maxIds) * 2 - 1) << 1;
+        slots = new int[capacity];
+        values = new double[capacity];
+        order = new int[Math.max(1, maxIds)];
+        mask = capacity - 1;
+    }
+
+    void add(int id, double amount) {
+        int slot = (id * 0x9E3779B9) & mask;
+        while (slots[slot] != 0 && slots[slot] != id + 1) {
+            slot = (slot + 1) & mask;
+        }
+        if (slots[slot] == 0) {
+            slots[slot] = id + 1;
+            order[size++] = slot;
+        }
+        values[slot] += amount;
+    }
+
+    /**
+     * @return the number of distinct ids scored
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the id first scored in the given position
+     */
+    int id(int position) {
+        return slots[order[position]] - 1;
+    }
+
+    /**
+     * @return the total score of the id in the given position
+     */
+    double value(int position) {
+        return values[order[position]];
+    }
+}
@@ -0,0 +1,21 @@
+package org.amazinbookstore.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * An autocomplete completion from {@link SuggestionIndex}.
+ */
+@Data
+@AllArgsConstructor
+public class Suggestion {
+
+    // the completed text as it appears in the catalog, e.g. "George Orwell"
+    private String text;
+
+    // which field it comes from, e.g. "author"
+    private String field;
+
+    // how many books have this text in that field
+    private int bookCount;
+}
@@ -0,0 +1,435 @@
+package org.amazinbookstore.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Prefix autocomplete over short catalog texts such as titles, authors and
+ * publishers, backed by a radix trie.
+ *
+ * Each distinct text is stored once per field with the number of books that
+ * have it, and is reachable from the start of every word, so "orw" completes
+ * to "George Orwell". Runs of single-child nodes are collapsed into one edge
+ * label to keep the trie small.
+ *
+ * Every node also tracks the highest book count below it, so the most popular
+ * completions are found best-first without visiting the rest of the subtree.
+ *
+ * Updates take a write lock and lookups share a read lock.
+ */
+public class SuggestionIndex {
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Completion[] NO_COMPLETIONS = new Completion[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node("");
+    // field + '\0' + normalized text -> completion
+    private final Map<String, Completion> completions = new HashMap<>();
+    private final Map<String, Completion[]> completionsByKey = new HashMap<>();
+
+    /**
+     * Indexes a document's texts, replacing any previous version with the same key.
+     *
+     * @param key          the document key
+     * @param textsByField the texts to complete to, by field name; null texts are ignored
+     */
+    public void put(String key, Map<String, String> textsByField) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(key);
+
+            List<Completion> owned = new ArrayList<>();
+            for (Map.Entry<String, String> field : textsByField.entrySet()) {
+                String normalized = normalize(field.getValue());
+                if (normalized.isEmpty()) {
+                    continue;
+                }
+                Completion completion = completions.get(field.getKey() + '\0' + normalized);
+                if (completion == null) {
+                    completion = new Completion(field.getValue().trim(), field.getKey(), normalized);
+                    completions.put(field.getKey() + '\0' + normalized, completion);
+                    for (String path : paths(normalized)) {
+                        insert(path, completion);
+                    }
+                }
+                completion.bookCount++;
+                owned.add(completion);
+                refresh(completion);
+            }
+            if (!owned.isEmpty()) {
+                completionsByKey.put(key, owned.toArray(NO_COMPLETIONS));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a document. Does nothing if the key is not indexed.
+     *
+     * @param key the document key
+     */
+    public void remove(String key) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of distinct completions
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return completions.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Completes a prefix, the texts shared by the most books first.
+     *
+     * @param prefix the text typed so far
+     * @param limit  the maximum number of completions
+     * @return up to {@code limit} completions
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (limit <= 0 || normalized.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Node start = find(normalized);
+            if (start == null) {
+                return List.of();
+            }
+
+            // Best-first: a node's priority is the best count anywhere below it
+            PriorityQueue<Candidate> queue = new PriorityQueue<>(Candidate.ORDER);
+            queue.add(new Candidate(start.maxBookCount, start, null));
+            List<Suggestion> results = new ArrayList<>(limit);
+            Set<Completion> seen = new HashSet<>();
+            while (!queue.isEmpty() && results.size() < limit) {
+                Candidate candidate = queue.poll();
+                if (candidate.completion != null) {
+                    Completion c = candidate.completion;
+                    if (seen.add(c)) {
+                        results.add(new Suggestion(c.text, c.field, c.bookCount));
+                    }
+                    continue;
+                }
+                for (Completion c : candidate.node.completions) {
+                    queue.add(new Candidate(c.bookCount, null, c));
+                }
+                for (Node child : candidate.node.children) {
+                    queue.add(new Candidate(child.maxBookCount, child, null));
+                }
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lower-cases, strips accents and collapses punctuation and whitespace to single spaces.
+     */
+    static String normalize(String text) {
+        return String.join(" ", Tokenizer.tokenize(text));
+    }
+
+    /**
+     * The keys a completion is stored under: the text from the start of each word.
+     */
+    static List<String> paths(String normalized) {
+        List<String> paths = new ArrayList<>();
+        paths.add(normalized);
+        for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+            paths.add(normalized.substring(i + 1));
+        }
+        return paths;
+    }
+
+    private void removeLocked(String key) {
+        Completion[] owned = completionsByKey.remove(key);
+        if (owned == null) {
+            return;
+        }
+        for (Completion completion : owned) {
+            completion.bookCount--;
+            if (completion.bookCount == 0) {
+                completions.remove(completion.field + '\0' + completion.normalized);
+                for (String path : paths(completion.normalized)) {
+                    delete(path, completion);
+                }
+            } else {
+                refresh(completion);
+            }
+        }
+    }
+
+    private Node find(String prefix) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            Node child = node.child(prefix.charAt(i));
+            if (child == null) {
+                return null;
+            }
+            int common = commonPrefix(child.label, prefix, i);
+            if (i + common == prefix.length()) {
+                // The prefix ends here, possibly part-way along the edge
+                return child;
+            }
+            if (common < child.label.length()) {
+                return null;
+            }
+            i += common;
+            node = child;
+        }
+        return node;
+    }
+
+    private void insert(String path, Completion completion) {
+        List<Node> visited = new ArrayList<>();
+        Node node = root;
+        visited.add(node);
+        int i = 0;
+        while (i < path.length()) {
+            Node child = node.child(path.charAt(i));
+            if (child == null) {
+                child = new Node(path.substring(i));
+                node.addChild(child);
+                node = child;
+                visited.add(node);
+                break;
+            }
+            int common = commonPrefix(child.label, path, i);
+            if (common < child.label.length()) {
+                // Split the edge where the new path diverges
+                Node middle = new Node(child.label.substring(0, common));
+                node.replaceChild(middle);
+                child.label = child.label.substring(common);
+                middle.addChild(child);
+                middle.maxBookCount = child.maxBookCount;
+                child = middle;
+            }
+            i += common;
+            node = child;
+            visited.add(node);
+        }
+        node.addCompletion(completion);
+        recompute(visited);
+    }
+
+    private void delete(String path, Completion completion) {
+        List<Node> visited = walk(path);
+        if (visited == null) {
+            return;
+        }
+        Node node = visited.get(visited.size() - 1);
+        node.removeCompletion(completion);
+
+        // Prune empty leaves and merge nodes left with a single child back into one edge
+        for (int depth = visited.size() - 1; depth > 0; depth--) {
+            Node current = visited.get(depth);
+            Node parent = visited.get(depth - 1);
+            if (current.completions.length == 0 && current.children.length == 0) {
+                parent.removeChild(current);
+            } else if (current.completions.length == 0 && current.children.length == 1) {
+                Node only = current.children[0];
+                only.label = current.label + only.label;
+                parent.replaceChild(only);
+                visited.set(depth, only);
+            }
+        }
+        recompute(visited);
+    }
+
+    private void refresh(Completion completion) {
+        for (String path : paths(completion.normalized)) {
+            List<Node> visited = walk(path);
+            if (visited != null) {
+                recompute(visited);
+            }
+        }
+    }
+
+    /**
+     * The nodes from the root to the node exactly matching the path, or null if there is none.
+     */
+    private List<Node> walk(String path) {
+        List<Node> visited = new ArrayList<>();
+        Node node = root;
+        visited.add(node);
+        int i = 0;
+        while (i < path.length()) {
+            Node child = node.child(path.charAt(i));
+            if (child == null || !path.startsWith(child.label, i)) {
+                return null;
+            }
+            i += child.label.length();
+            node = child;
+            visited.add(node);
+        }
+        return visited;
+    }
+
+    private static void recompute(List<Node> visited) {
+        for (int depth = visited.size() - 1; depth >= 0; depth--) {
+            Node node = visited.get(depth);
+            int max = 0;
+            for (Completion c : node.completions) {
+                max = Math.max(max, c.bookCount);
+            }
+            for (Node child : node.children) {
+                max = Math.max(max, child.maxBookCount);
+            }
+            node.maxBookCount = max;
+        }
+    }
+
+    private static int commonPrefix(String label, String text, int offset) {
+        int max = Math.min(label.length(), text.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == text.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * A distinct text in one field and how many books have it.
+     */
+    private static final class Completion {
+
+        private final String text;
+        private final String field;
+        private final String normalized;
+        private int bookCount;
+
+        private Completion(String text, String field, String normalized) {
+            this.text = text;
+            this.field = field;
+            this.normalized = normalized;
+        }
+    }
+
+    /**
+     * A trie node; children are kept sorted by the first character of their label.
+     */
+    private static final class Node {
+
+        private String label;
+        private Node[] children = NO_CHILDREN;
+        private Completion[] completions = NO_COMPLETIONS;
+        private int maxBookCount;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        private Node child(char first) {
+            int pos = indexOf(first);
+            return pos >= 0 ? children[pos] : null;
+        }
+
+        private int indexOf(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char c = children[mid].label.charAt(0);
+                if (c < first) {
+                    low = mid + 1;
+                } else if (c > first) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private void addChild(Node child) {
+            int pos = -indexOf(child.label.charAt(0)) - 1;
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, pos);
+            grown[pos] = child;
+            System.arraycopy(children, pos, grown, pos + 1, children.length - pos);
+            children = grown;
+        }
+
+        private void replaceChild(Node child) {
+            children[indexOf(child.label.charAt(0))] = child;
+        }
+
+        private void removeChild(Node child) {
+            int pos = indexOf(child.label.charAt(0));
+            Node[] shrunk = new Node[children.length - 1];
+            System.arraycopy(children, 0, shrunk, 0, pos);
+            System.arraycopy(children, pos + 1, shrunk, pos, children.length - pos - 1);
+            children = shrunk.length == 0 ? NO_CHILDREN : shrunk;
+        }
+
+        private void addCompletion(Completion completion) {
+            for (Completion c : completions) {
+                if (c == completion) {
+                    return;
+                }
+            }
+            completions = Arrays.copyOf(completions, completions.length + 1);
+            completions[completions.length - 1] = completion;
+        }
+
+        private void removeCompletion(Completion completion) {
+            for (int i = 0; i < completions.length; i++) {
+                if (completions[i] == completion) {
+                    Completion[] shrunk = new Completion[completions.length - 1];
+                    System.arraycopy(completions, 0, shrunk, 0, i);
+                    System.arraycopy(completions, i + 1, shrunk, i, completions.length - i - 1);
+                    completions = shrunk.length == 0 ? NO_COMPLETIONS : shrunk;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * A queue entry for the best-first search: either a subtree or a single completion.
+     */
+    private static final class Candidate {
+
+        // Higher counts first; completions before subtrees of equal count, then alphabetical
+        private static final Comparator<Candidate> ORDER = Comparator
+                .comparingInt((Candidate c) -> -c.priority)
+                .thenComparing(c -> c.completion == null)
+                .thenComparing(c -> c.completion != null ? c.completion.text : "");
+
+        private final int priority;
+        private final Node node;
+        private final Completion completion;
+
+        private Candidate(int priority, Node node, Completion completion) {
+            this.priority = priority;
+            this.node = node;
+            this.completion = completion;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.amazinbookstore.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Splits catalog text into search terms.
+ *
+ * Text is lower-cased and accents are stripped ("Émile" and "emile" are the
+ * same term), then split on anything that is not a letter or digit.
+ */
+public final class Tokenizer {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private Tokenizer() {
+    }
+
+    /**
+     * Lower-cases the text and strips accents, without splitting it.
+     *
+     * @param text the text to normalize, may be null
+     * @return the normalized text, or an empty string for null
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Splits the text into normalized terms, in order and including duplicates.
+     *
+     * @param text the text to tokenize, may be null
+     * @return the terms, empty if the text has no letters or digits
+     */
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String term : NON_WORD.split(normalize(text))) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,282 @@
+package org.amazinbookstore.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index for typo-tolerant lookups of short texts such as
+ * titles and author names.
+ *
+ * Each text is indexed both as a whole and word by word, so "orwel" finds
+ * "George Orwell" through the word "orwell". Similarity is the Jaccard
+ * coefficient of the two trigram sets, with words padded the same way as
+ * PostgreSQL's pg_trgm ("  cat " gives "  c", " ca", "cat", "at ").
+ *
+ * Identical texts are stored once and shared by every key that has them, so
+ * an author with fifty books costs one entry. A query only counts the
+ * entries that share at least one trigram with it.
+ *
+ * Updates take a write lock and searches share a read lock.
+ */
+public class TrigramIndex {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> entryIdsByText = new HashMap<>();
+    private final Map<String, int[]> entryIdsByKey = new HashMap<>();
+    private final Map<String, IntSet> entriesByTrigram = new HashMap<>();
+    private final Deque<Integer> freeEntryIds = new ArrayDeque<>();
+
+    private Entry[] entries = new Entry[16];
+    private int nextEntryId;
+
+    /**
+     * Indexes the texts of a document, replacing any previous version with the same key.
+     *
+     * @param key   the document key
+     * @param texts the texts to match against, e.g. the title and author; nulls are ignored
+     */
+    public void put(String key, Collection<String> texts) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(key);
+
+            // normalized text -> the original text to report for it
+            Map<String, String> owned = new LinkedHashMap<>();
+            for (String text : texts) {
+                List<String> words = Tokenizer.tokenize(text);
+                if (words.isEmpty()) {
+                    continue;
+                }
+                owned.putIfAbsent(String.join(" ", words), text);
+                for (String word : words) {
+                    owned.putIfAbsent(word, text);
+                }
+            }
+            if (owned.isEmpty()) {
+                return;
+            }
+
+            int[] ids = new int[owned.size()];
+            int i = 0;
+            for (Map.Entry<String, String> text : owned.entrySet()) {
+                Entry entry = entryFor(text.getKey());
+                entry.owners.put(key, text.getValue());
+                ids[i++] = entry.id;
+            }
+            entryIdsByKey.put(key, ids);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a document. Does nothing if the key is not indexed.
+     *
+     * @param key the document key
+     */
+    public void remove(String key) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of indexed documents
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entryIdsByKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the documents with a text similar to the query, most similar first.
+     * Each document appears once, with its best matching text.
+     *
+     * @param query         the (possibly misspelled) query
+     * @param minSimilarity the lowest similarity to return, between 0 and 1
+     * @param limit         the maximum number of results
+     * @return up to {@code limit} matches
+     */
+    public List<FuzzyMatch> search(String query, double minSimilarity, int limit) {
+        Set<String> queryTrigrams = trigrams(String.join(" ", Tokenizer.tokenize(query)));
+        if (limit <= 0 || queryTrigrams.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<IntSet> matching = new ArrayList<>();
+            int touched = 0;
+            for (String trigram : queryTrigrams) {
+                IntSet ids = entriesByTrigram.get(trigram);
+                if (ids != null) {
+                    matching.add(ids);
+                    touched += ids.size;
+                }
+            }
+
+            // Counts only the entries sharing a trigram, rather than one slot per indexed entry
+            SparseScores shared = new SparseScores(touched);
+            for (IntSet ids : matching) {
+                for (int i = 0; i < ids.size; i++) {
+                    shared.add(ids.values[i], 1);
+                }
+            }
+
+            Map<String, FuzzyMatch> bestByKey = new HashMap<>();
+            for (int position = 0; position < shared.size(); position++) {
+                Entry entry = entries[shared.id(position)];
+                int count = (int) shared.value(position);
+                double similarity = (double) count / (queryTrigrams.size() + entry.trigramCount - count);
+                if (similarity < minSimilarity) {
+                    continue;
+                }
+                for (Map.Entry<String, String> owner : entry.owners.entrySet()) {
+                    FuzzyMatch best = bestByKey.get(owner.getKey());
+                    if (best == null || similarity > best.getSimilarity()) {
+                        bestByKey.put(owner.getKey(), new FuzzyMatch(owner.getKey(), owner.getValue(), similarity));
+                    }
+                }
+            }
+
+            return bestByKey.values().stream()
+                    .sorted(Comparator.comparingDouble(FuzzyMatch::getSimilarity).reversed()
+                            .thenComparing(FuzzyMatch::getText)
+                            .thenComparing(FuzzyMatch::getKey))
+                    .limit(limit)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Splits normalized text into its distinct padded trigrams.
+     */
+    static Set<String> trigrams(String text) {
+        Set<String> trigrams = new LinkedHashSet<>();
+        for (String word : text.split(" ")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                trigrams.add(padded.substring(i, i + 3));
+            }
+        }
+        return trigrams;
+    }
+
+    private Entry entryFor(String text) {
+        Integer existing = entryIdsByText.get(text);
+        if (existing != null) {
+            return entries[existing];
+        }
+
+        int id = freeEntryIds.isEmpty() ? nextEntryId++ : freeEntryIds.pop();
+        if (id >= entries.length) {
+            entries = Arrays.copyOf(entries, Math.max(id + 1, entries.length * 2));
+        }
+        Set<String> trigrams = trigrams(text);
+        for (String trigram : trigrams) {
+            entriesByTrigram.computeIfAbsent(trigram, t -> new IntSet()).add(id);
+        }
+        Entry entry = new Entry(id, text, trigrams.size());
+        entries[id] = entry;
+        entryIdsByText.put(text, id);
+        return entry;
+    }
+
+    private void removeLocked(String key) {
+        int[] ids = entryIdsByKey.remove(key);
+        if (ids == null) {
+            return;
+        }
+        for (int id : ids) {
+            Entry entry = entries[id];
+            entry.owners.remove(key);
+            if (!entry.owners.isEmpty()) {
+                continue;
+            }
+            // Last owner gone: drop the entry and its postings
+            for (String trigram : trigrams(entry.text)) {
+                IntSet postings = entriesByTrigram.get(trigram);
+                postings.remove(id);
+                if (postings.size == 0) {
+                    entriesByTrigram.remove(trigram);
+                }
+            }
+            entryIdsByText.remove(entry.text);
+            entries[id] = null;
+            freeEntryIds.push(id);
+        }
+    }
+
+    /**
+     * One distinct normalized text and the documents that contain it.
+     */
+    private static final class Entry {
+
+        private final int id;
+        private final String text;
+        private final int trigramCount;
+        // document key -> original text reported for it
+        private final Map<String, String> owners = new HashMap<>(2);
+
+        private Entry(int id, String text, int trigramCount) {
+            this.id = id;
+            this.text = text;
+            this.trigramCount = trigramCount;
+        }
+    }
+
+    /**
+     * A set of entry ids kept as a sorted int array.
+     */
+    private static final class IntSet {
+
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int value) {
+            int pos = Arrays.binarySearch(values, 0, size, value);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(values, pos, values, pos + 1, size - pos);
+            values[pos] = value;
+            size++;
+        }
+
+        private void remove(int value) {
+            int pos = Arrays.binarySearch(values, 0, size, value);
+            if (pos >= 0) {
+                System.arraycopy(values, pos + 1, values, pos, size - pos - 1);
+                size--;
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.amazinbookstore.service;
+
+import org.amazinbookstore.exception.CheckoutQueueFullException;
+import org.amazinbookstore.exception.InsufficientInventoryException;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A FIFO queue admitting a bounded number of checkouts of one book at a time.
+ *
+ * Checkouts are admitted strictly in arrival order. A checkout is turned away
+ * straight away if the queue is already full, if the wait slots shared by every
+ * queue are all taken, or if the copies wanted by the checkouts waiting ahead of
+ * it already use up the remaining inventory, and later if it is not admitted
+ * within the maximum wait. A waiting checkout parks its request thread, so the
+ * shared slots keep the queues from tying up the whole server.
+ */
+final class AdmissionQueue {
+
+    private final int maxConcurrent;
+    private final int maxWaiting;
+    private final Semaphore waitSlots;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Deque<Object> waiting = new ArrayDeque<>();
+    private int active;
+    private int waitingQuantity;
+
+    /**
+     * @param maxConcurrent checkouts admitted at once
+     * @param maxWaiting    checkouts allowed to wait in this queue
+     * @param waitSlots     permits for waiting, shared with the other queues
+     */
+    AdmissionQueue(int maxConcurrent, int maxWaiting, Semaphore waitSlots) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaiting = maxWaiting;
+        this.waitSlots = waitSlots;
+    }
+
+    /**
+     * Waits for a turn to check out.
+     *
+     * @param title     title of the book, for error messages
+     * @param quantity  copies of the book the checkout wants
+     * @param remaining copies of the book left
+     * @param maxWait   how long to wait for a turn
+     * @throws InsufficientInventoryException if the checkouts ahead already want every remaining copy
+     * @throws CheckoutQueueFullException if the queue is full or no turn came within maxWait
+     */
+    void acquire(String title, int quantity, int remaining, Duration maxWait) {
+        lock.lock();
+        try {
+            if (waiting.isEmpty() && active < maxConcurrent) {
+                active++;
+                return;
+            }
+            if (waitingQuantity + quantity > remaining) {
+                throw new InsufficientInventoryException("Insufficient inventory for book: " + title +
+                        ". Checkouts ahead of you have claimed the remaining " + remaining + " copies");
+            }
+            if (waiting.size() >= maxWaiting || !waitSlots.tryAcquire()) {
+                throw new CheckoutQueueFullException("The checkout queue for " + title + " is full (" +
+                        waiting.size() + " waiting). Please try again shortly.", waiting.size() + 1);
+            }
+
+            Object waiter = new Object();
+            waiting.addLast(waiter);
+            waitingQuantity += quantity;
+            boolean admitted = false;
+            try {
+                long nanos = maxWait.toNanos();
+                while (waiting.peekFirst() != waiter || active >= maxConcurrent) {
+                    if (nanos <= 0) {
+                        throw new CheckoutQueueFullException("The checkout queue for " + title +
+                                " is busy; you were number " + position(waiter) +
+                                " in line. Please try again shortly.", position(waiter));
+                    }
+                    nanos = changed.awaitNanos(nanos);
+                }
+                admitted = true;
+                active++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CheckoutQueueFullException("Interrupted while waiting in the checkout queue for " + title,
+                        position(waiter));
+            } finally {
+                waiting.remove(waiter);
+                waitingQuantity -= quantity;
+                waitSlots.release();
+                if (!admitted || active < maxConcurrent) {
+                    // Let the next checkout in line re-check its turn
+                    changed.signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ends an admitted checkout's turn.
+     */
+    void release() {
+        lock.lock();
+        try {
+            active--;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int active() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int waiting() {
+        lock.lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int position(Object waiter) {
+        int position = 1;
+        for (Iterator<Object> it = waiting.iterator(); it.hasNext(); position++) {
+            if (it.next() == waiter) {
+                return position;
+            }
+        }
+        return position;
+    }
+}
@@ -0,0 +1,141 @@
+package org.amazinbookstore.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.amazinbookstore.model.Book;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of books by id, used by {@link BookService}.
+ *
+ * The cache is bounded by an estimate of the memory its books take rather
+ * than by entry count, and Caffeine evicts by W-TinyLFU, so a burst of
+ * one-off lookups does not push out the popular titles. Ids that do not
+ * exist are cached too, for a shorter time, so repeated lookups of a stale
+ * cart item do not each hit the database.
+ *
+ * Callers get their own copy of a cached book, so changing it cannot
+ * corrupt the cache. Hit, miss and eviction counts are published to
+ * Micrometer as the "books" cache.
+ */
+@Component
+public class BookCache {
+
+    // Bounds staleness from writes made outside this application
+    static final Duration FOUND_EXPIRY = Duration.ofMinutes(10);
+    static final Duration MISSING_EXPIRY = Duration.ofMinutes(1);
+
+    private final Cache<String, Optional<Book>> cache;
+
+    public BookCache(@Value("${amazin.book-cache.max-size:32MB}") DataSize maxSize, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String id, Optional<Book> book) -> estimateSize(id, book))
+                .expireAfter(new FoundOrMissingExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "books");
+    }
+
+    /**
+     * Returns the cached book, loading and caching it on a miss.
+     *
+     * @param id     the book id
+     * @param loader looks the book up when it is not cached
+     * @return a copy of the book, or null if it does not exist
+     */
+    public Book get(String id, Function<String, Optional<Book>> loader) {
+        return cache.get(id, loader).map(BookCache::copy).orElse(null);
+    }
+
+    /**
+     * Returns the cached books, loading every missing one with a single call to the loader.
+     *
+     * @param ids    the book ids
+     * @param loader looks up the ids that are not cached; must return an entry for each,
+     *               empty for ids that do not exist
+     * @return copies of the books that exist, by id
+     */
+    public Map<String, Book> getAll(Collection<String> ids, Function<Set<String>, Map<String, Optional<Book>>> loader) {
+        Map<String, Book> books = new HashMap<>();
+        cache.getAll(ids, missing -> loader.apply(Collections.unmodifiableSet(missing)))
+                .forEach((id, book) -> book.ifPresent(b -> books.put(id, copy(b))));
+        return books;
+    }
+
+    /**
+     * Drops a book so the next lookup reads it from the database.
+     *
+     * @param id the book id
+     */
+    public void invalidate(String id) {
+        cache.invalidate(id);
+    }
+
+    /**
+     * @return hit, miss and eviction counts since startup
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Rough heap footprint of an entry: object overhead plus two bytes per character.
+     */
+    static int estimateSize(String id, Optional<Book> book) {
+        int size = 64 + chars(id) * 2;
+        if (book.isPresent()) {
+            Book b = book.get();
+            size += 256 + 2 * (chars(b.getTitle()) + chars(b.getAuthor()) + chars(b.getPublisher())
+                    + chars(b.getIsbn()) + chars(b.getGenre()) + chars(b.getDescription())
+                    + chars(b.getPictureUrl()));
+        }
+        return size;
+    }
+
+    private static int chars(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static Book copy(Book book) {
+        return new Book(book.getId(), book.getTitle(), book.getAuthor(), book.getPublisher(), book.getIsbn(),
+                book.getPrice(), book.getGenre(), book.getPublicationYear(), book.getDescription(),
+                book.getInventory(), book.getPictureUrl());
+    }
+
+    /**
+     * Keeps found books longer than ids that were not found.
+     */
+    private static final class FoundOrMissingExpiry implements Expiry<String, Optional<Book>> {
+
+        @Override
+        public long expireAfterCreate(String id, Optional<Book> book, long currentTime) {
+            return (book.isPresent() ? FOUND_EXPIRY : MISSING_EXPIRY).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String id, Optional<Book> book, long currentTime, long currentDuration) {
+            return expireAfterCreate(id, book, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String id, Optional<Book> book, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
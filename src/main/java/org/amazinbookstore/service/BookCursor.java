@@ -0,0 +1,74 @@
+package org.amazinbookstore.service;
+
+import org.amazinbookstore.exception.InvalidCursorException;
+import org.amazinbookstore.model.Book;
+import org.bson.Document;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for catalog scrolling.
+ *
+ * A cursor records the sort option it was issued for, plus the sort value
+ * and id of the last book on the page. Clients treat it as an opaque
+ * base64url token and pass it back unchanged as {@code after}.
+ */
+final class BookCursor {
+
+    private final BookSort sort;
+    private final String lastValue;
+    private final String lastId;
+
+    private BookCursor(BookSort sort, String lastValue, String lastId) {
+        this.sort = sort;
+        this.lastValue = lastValue;
+        this.lastId = lastId;
+    }
+
+    /**
+     * Builds the cursor that resumes right after the given book.
+     */
+    static BookCursor after(BookSort sort, Book book) {
+        return new BookCursor(sort, sort.extractValue(book), book.getId());
+    }
+
+    /**
+     * Decodes a token issued by {@link #encode()}.
+     *
+     * @throws InvalidCursorException if the token is malformed or was issued for a different sort
+     */
+    static BookCursor decode(String token, BookSort expectedSort) {
+        Document document;
+        try {
+            String json = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            document = Document.parse(json);
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+
+        if (!expectedSort.name().equals(document.getString("s")) || document.getString("id") == null) {
+            throw new InvalidCursorException("Cursor does not match the requested sort");
+        }
+        try {
+            BookCursor cursor = new BookCursor(expectedSort, document.getString("v"), document.getString("id"));
+            cursor.getTypedLastValue();
+            return cursor;
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+    }
+
+    String encode() {
+        String json = new Document("s", sort.name()).append("v", lastValue).append("id", lastId).toJson();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    Object getTypedLastValue() {
+        return sort.parseValue(lastValue);
+    }
+
+    String getLastId() {
+        return lastId;
+    }
+}
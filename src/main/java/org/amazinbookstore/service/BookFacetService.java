@@ -0,0 +1,77 @@
+package org.amazinbookstore.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.amazinbookstore.dto.BookFacets;
+import org.amazinbookstore.dto.BookSearchCriteria;
+import org.amazinbookstore.event.BookDeletedEvent;
+import org.amazinbookstore.event.BookSavedEvent;
+import org.amazinbookstore.repository.BookRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Facet counts (genre, publisher, price range, decade) for any combination of
+ * the catalog search filters.
+ *
+ * Counts come from one MongoDB aggregation per filter combination and are
+ * cached, so repeated requests such as the home page's genre list cost no
+ * database work. Any book change clears the cache; the expiry only bounds
+ * staleness from writes made outside this application.
+ */
+@Service
+public class BookFacetService {
+
+    static final int MAX_CACHED_FILTER_COMBINATIONS = 1_000;
+    static final Duration CACHE_EXPIRY = Duration.ofMinutes(10);
+
+    private final BookRepository bookRepository;
+    private final Cache<BookSearchCriteria, BookFacets> cache = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHED_FILTER_COMBINATIONS)
+            .expireAfterWrite(CACHE_EXPIRY)
+            .build();
+
+    public BookFacetService(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+    }
+
+    /**
+     * Get facet counts for the books matching the criteria
+     *
+     * @param criteria the active filters, may be null for the whole catalog
+     * @return counts per genre, publisher, price range and decade
+     */
+    public BookFacets getFacets(BookSearchCriteria criteria) {
+        BookSearchCriteria key = criteria != null ? normalize(criteria) : new BookSearchCriteria();
+        return cache.get(key, bookRepository::countFacets);
+    }
+
+    @EventListener({BookSavedEvent.class, BookDeletedEvent.class})
+    public void onCatalogChanged() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Copies the criteria with blank text filters dropped and the rest trimmed and
+     * lower-cased (they match case-insensitively), so requests that query the
+     * same books share one cache entry.
+     */
+    private static BookSearchCriteria normalize(BookSearchCriteria criteria) {
+        return new BookSearchCriteria(
+                trimToNull(criteria.getAuthor()),
+                trimToNull(criteria.getPublisher()),
+                trimToNull(criteria.getGenre()),
+                trimToNull(criteria.getTitle()),
+                criteria.getMinPrice() != null ? criteria.getMinPrice().stripTrailingZeros() : null,
+                criteria.getMaxPrice() != null ? criteria.getMaxPrice().stripTrailingZeros() : null,
+                criteria.getMinYear(),
+                criteria.getMaxYear());
+    }
+
+    private static String trimToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
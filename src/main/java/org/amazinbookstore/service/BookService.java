@@ -2,90 +2,58 @@ package org.amazinbookstore.service;
 
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
+import org.amazinbookstore.dto.BookBatchResult;
+import org.amazinbookstore.dto.BookScrollResponse;
+import org.amazinbookstore.dto.BookSearchCriteria;
+import org.amazinbookstore.event.BookDeletedEvent;
+import org.amazinbookstore.event.BookSavedEvent;
+import org.amazinbookstore.exception.InsufficientInventoryException;
+import org.amazinbookstore.exception.ResourceNotFoundException;
 import org.amazinbookstore.model.Book;
+import org.amazinbookstore.model.HotSku;
 import org.amazinbookstore.repository.BookRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class BookService {
 
     private final BookRepository bookRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BookCache bookCache;
+    private final HotSkuService hotSkuService;
 
-    public BookService(BookRepository bookRepository) {
+    public BookService(BookRepository bookRepository, ApplicationEventPublisher eventPublisher, BookCache bookCache,
+                       HotSkuService hotSkuService) {
         this.bookRepository = bookRepository;
+        this.eventPublisher = eventPublisher;
+        this.bookCache = bookCache;
+        this.hotSkuService = hotSkuService;
     }
 
     /**
      * Search and filter books based on provided criteria
-     * Supports filtering by author, publisher, genre, and title
+     * Any combination of author, publisher, genre, title, price range and
+     * publication year range is applied together in a single MongoDB query
      * Supports sorting by price, title, author, or publicationYear
      */
-    public List<Book> searchBooks(String author, String publisher, String genre, String title, String sortBy) {
-        List<Book> books;
-
-        // Apply filters
-        if (author != null && publisher != null) {
-            books = bookRepository.findByAuthorAndPublisher(author, publisher);
-        } else if (author != null) {
-            books = bookRepository.findByAuthorContainingIgnoreCase(author);
-        } else if (publisher != null) {
-            books = bookRepository.findByPublisherContainingIgnoreCase(publisher);
-        } else if (genre != null) {
-            books = bookRepository.findByGenreContainingIgnoreCase(genre);
-        } else if (title != null) {
-            books = bookRepository.findByTitleContainingIgnoreCase(title);
-        } else {
-            books = bookRepository.findAll();
-        }
-
-        // Apply sorting
-        if (sortBy != null && !books.isEmpty()) {
-            books = sortBooks(books, sortBy);
-        }
-
-        return books;
-    }
-
-    /**
-     * Sort books based on the specified field
-     */
-    private List<Book> sortBooks(List<Book> books, String sortBy) {
-        Comparator<Book> comparator;
-
-        switch (sortBy.toLowerCase()) {
-            case "price":
-                comparator = Comparator.comparing(Book::getPrice, Comparator.nullsLast(Comparator.naturalOrder()));
-                break;
-            case "price_desc":
-                comparator = Comparator.comparing(Book::getPrice, Comparator.nullsLast(Comparator.reverseOrder()));
-                break;
-            case "title":
-                comparator = Comparator.comparing(Book::getTitle, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
-                break;
-            case "author":
-                comparator = Comparator.comparing(Book::getAuthor, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
-                break;
-            case "year":
-                comparator = Comparator.comparing(Book::getPublicationYear, Comparator.nullsLast(Comparator.naturalOrder()));
-                break;
-            case "year_desc":
-                comparator = Comparator.comparing(Book::getPublicationYear, Comparator.nullsLast(Comparator.reverseOrder()));
-                break;
-            default:
-                return books; // No sorting if invalid sortBy parameter
-        }
-
-        return books.stream()
-                .sorted(comparator)
-                .collect(Collectors.toList());
+    public List<Book> searchBooks(BookSearchCriteria criteria, String sortBy) {
+        return bookRepository.searchBooks(criteria, BookSort.fromKey(sortBy).toSort());
     }
 
     /**
@@ -97,54 +65,304 @@ public class BookService {
 
     /**
      * Get book by ID
+     * Served from the book cache when possible; returns null if the book does not exist
+     * A hot book's inventory is its live in-memory count
      */
     public Book getBookById(String id) {
-        return bookRepository.findById(id).orElse(null);
+        return withLiveInventory(bookCache.get(id, bookRepository::findById));
+    }
+
+    /**
+     * Get many books by ID at once
+     * Books not already cached are loaded with a single $in query instead of one query per id
+     * Books are returned in the order their ids were given, with duplicates removed;
+     * ids with no matching book are reported as missing
+     */
+    public BookBatchResult getBooksByIds(Collection<String> ids) {
+        Set<String> uniqueIds = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (id != null) {
+                uniqueIds.add(id);
+            }
+        }
+
+        Map<String, Book> found = uniqueIds.isEmpty() ? Map.of() : bookCache.getAll(uniqueIds, this::loadBooks);
+
+        List<Book> books = new ArrayList<>(found.size());
+        List<String> missingIds = new ArrayList<>();
+        for (String id : uniqueIds) {
+            Book book = found.get(id);
+            if (book != null) {
+                books.add(withLiveInventory(book));
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new BookBatchResult(books, missingIds);
+    }
+
+    private Book withLiveInventory(Book book) {
+        if (book != null) {
+            Integer available = hotSkuService.available(book.getId());
+            if (available != null) {
+                book.setInventory(available);
+            }
+        }
+        return book;
+    }
+
+    private Map<String, Optional<Book>> loadBooks(Set<String> ids) {
+        Map<String, Optional<Book>> loaded = new HashMap<>();
+        for (String id : ids) {
+            loaded.put(id, Optional.empty());
+        }
+        for (Book book : bookRepository.findAllById(ids)) {
+            loaded.put(book.getId(), Optional.of(book));
+        }
+        return loaded;
     }
 
     /**
      * Save a new book or update existing one
+     * Publishes a {@link BookSavedEvent} so in-memory catalog views can update
+     * A hot book keeps its in-memory count: the inventory sent with it was read
+     * before copies sold since, so it is replaced with the live count, and only
+     * {@link #adjustInventory} changes the count
      */
     public Book saveBook(Book book) {
-        return bookRepository.save(book);
+        if (book.getId() != null) {
+            withLiveInventory(book);
+        }
+        Book saved = bookRepository.save(book);
+        bookCache.invalidate(saved.getId());
+        eventPublisher.publishEvent(new BookSavedEvent(saved));
+        return saved;
     }
 
     /**
      * Delete a book by ID
+     * Publishes a {@link BookDeletedEvent} so in-memory catalog views can update
      */
     public void deleteBook(String id) {
         bookRepository.deleteById(id);
+        bookCache.invalidate(id);
+        eventPublisher.publishEvent(new BookDeletedEvent(id));
     }
 
+    /**
+     * Take copies of a book out of inventory
+     * The check and the decrement are a single atomic MongoDB update, so concurrent
+     * checkouts cannot oversell the book or overwrite each other's changes
+     * A hot book's copies are taken from its in-memory count instead
+     *
+     * @throws InsufficientInventoryException if fewer than quantity copies are in stock
+     * @throws ResourceNotFoundException if the book does not exist
+     */
     public void decreaseInventory(String bookId, Integer quantity) {
+        StripedInventoryCounter counter = hotSkuService.counterOf(bookId);
+        if (counter != null) {
+            if (!counter.tryTake(quantity)) {
+                // The book may have been deleted since its counter was looked up
+                Book book = getBookById(bookId);
+                if (book == null) {
+                    throw new ResourceNotFoundException("Book not found with id: " + bookId);
+                }
+                throw new InsufficientInventoryException(
+                        "Insufficient inventory for book: " + book.getTitle() +
+                                ". Available: " + counter.sum() +
+                                ", Requested: " + quantity
+                );
+            }
+            onRollback(() -> counter.add(quantity));
+            return;
+        }
+
+        Book updated = bookRepository.decrementInventory(bookId, quantity);
+        invalidateCachedBook(bookId);
+        if (updated != null) {
+            return;
+        }
+
+        // Nothing matched: find out why, for the error message
+        Book book = bookRepository.findById(bookId)
+                .orElseThrow(() -> new ResourceNotFoundException("Book not found with id: " + bookId));
+        throw new InsufficientInventoryException(
+                "Insufficient inventory for book: " + book.getTitle() +
+                        ". Available: " + book.getInventory() +
+                        ", Requested: " + quantity
+        );
+    }
+
+    /**
+     * Take copies of several books out of inventory with one conditional update per book
+     * Either every book has enough copies and all are taken, or none are
+     * Hot books are taken from their in-memory counts first, and put back if a stored book falls short
+     *
+     * @param quantitiesByBookId copies to take per book ID
+     * @param flushSequences     filled on success with the flush sequence of each hot book's take,
+     *                           which the order keeps so a restart knows whether a flush counted it
+     * @return null on success, otherwise the ID of the first book that was missing or had too few copies
+     */
+    public String decreaseInventories(Map<String, Integer> quantitiesByBookId, Map<String, Long> flushSequences) {
+        Map<String, Integer> stored = new LinkedHashMap<>();
+        Map<StripedInventoryCounter, Integer> taken = new LinkedHashMap<>();
+        Map<String, Long> sequences = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> line : quantitiesByBookId.entrySet()) {
+            StripedInventoryCounter counter = hotSkuService.counterOf(line.getKey());
+            if (counter == null) {
+                stored.put(line.getKey(), line.getValue());
+                continue;
+            }
+            long sequence = counter.take(line.getValue());
+            if (sequence < 0) {
+                taken.forEach(StripedInventoryCounter::add);
+                return line.getKey();
+            }
+            taken.put(counter, line.getValue());
+            sequences.put(line.getKey(), sequence);
+        }
+
+        String failedBookId = stored.isEmpty() ? null : bookRepository.decrementInventories(stored);
+        stored.keySet().forEach(this::invalidateCachedBook);
+        if (failedBookId != null) {
+            taken.forEach(StripedInventoryCounter::add);
+            return failedBookId;
+        }
+        taken.forEach((counter, quantity) -> onRollback(() -> counter.add(quantity)));
+        flushSequences.putAll(sequences);
+        return null;
+    }
+
+    /**
+     * Return copies of a book to inventory, e.g. when a checkout fails after taking them
+     */
+    public void increaseInventory(String bookId, Integer quantity) {
+        StripedInventoryCounter counter = hotSkuService.counterOf(bookId);
+        if (counter != null) {
+            counter.add(quantity);
+            onRollback(() -> counter.tryTake(quantity));
+            return;
+        }
+        bookRepository.incrementInventory(bookId, quantity);
+        invalidateCachedBook(bookId);
+    }
+
+    /**
+     * Add copies to or remove copies from a book's inventory, e.g. after a delivery or a stock count
+     * Works the same for hot books, whose in-memory count a save leaves alone
+     *
+     * @param delta copies to add, or to remove if negative
+     * @return the book with its inventory after the change
+     * @throws InsufficientInventoryException if fewer than -delta copies are in stock
+     * @throws ResourceNotFoundException if the book does not exist
+     */
+    public Book adjustInventory(String bookId, int delta) {
+        if (delta < 0) {
+            decreaseInventory(bookId, -delta);
+        } else if (delta > 0) {
+            increaseInventory(bookId, delta);
+        }
         Book book = getBookById(bookId);
-        book.setInventory(book.getInventory() - quantity);
-        bookRepository.save(book);
+        if (book == null) {
+            throw new ResourceNotFoundException("Book not found with id: " + bookId);
+        }
+        return book;
     }
 
     /**
-     * Search books with pagination support
-     * Returns a Page object containing books and pagination metadata
+     * Whether the book's inventory is counted in memory for a flash sale
+     */
+    public boolean isHotSku(String bookId) {
+        return hotSkuService.isHot(bookId);
+    }
+
+    /**
+     * Start counting a book's inventory in memory for a flash sale
+     *
+     * @throws ResourceNotFoundException if the book does not exist
+     */
+    public HotSku markHotSku(String bookId) {
+        return hotSkuService.markHot(bookId);
+    }
+
+    /**
+     * Write a hot book's in-memory count back and count it in MongoDB again
      */
-    public Page<Book> searchBooksPaginated(String author, String publisher, String genre,
-                                            String title, String sortBy, int page, int size) {
-        // Get all matching books first
-        List<Book> allBooks = searchBooks(author, publisher, genre, title, sortBy);
+    public void unmarkHotSku(String bookId) {
+        hotSkuService.unmarkHot(bookId);
+        invalidateCachedBook(bookId);
+    }
 
-        // Calculate pagination
-        int totalElements = allBooks.size();
-        int start = page * size;
-        int end = Math.min(start + size, totalElements);
+    /**
+     * In-memory counts are not part of a MongoDB transaction, so changes made to
+     * them inside one are undone by hand if it rolls back
+     */
+    private void onRollback(Runnable undo) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        undo.run();
+                    }
+                }
+            });
+        }
+    }
 
-        // Handle edge case where page is beyond available data
-        if (start >= totalElements) {
-            start = 0;
-            end = Math.min(size, totalElements);
+    /**
+     * Drops a book from the cache. Inside a transaction it is dropped again once the
+     * transaction ends, so a read made before the commit cannot stay cached afterwards
+     */
+    private void invalidateCachedBook(String bookId) {
+        bookCache.invalidate(bookId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    bookCache.invalidate(bookId);
+                }
+            });
         }
+    }
 
-        List<Book> pageContent = allBooks.subList(start, end);
-        Pageable pageable = PageRequest.of(page, size);
+    /**
+     * Search books with pagination support
+     * Returns a Page object containing books and pagination metadata
+     *
+     * Filtering, sorting, skip/limit and the total count are all done by MongoDB,
+     * so a page costs the same regardless of catalog size. A page past the end
+     * comes back empty rather than wrapping to the first page.
+     */
+    public Page<Book> searchBooksPaginated(BookSearchCriteria criteria, String sortBy, int page, int size) {
+        Pageable pageable = PageRequest.of(page, size, BookSort.fromKey(sortBy).toSort());
+        return bookRepository.searchBooks(criteria, pageable);
+    }
 
-        return new PageImpl<>(pageContent, pageable, totalElements);
+    /**
+     * Scroll through the catalog with a keyset cursor instead of a page number.
+     * Each call resumes right after the last book of the previous call, so page
+     * cost does not grow with how far the client has scrolled.
+     *
+     * @param after  cursor returned by the previous call, or null for the first page
+     * @param limit  the number of books to return
+     * @return the books plus the cursor for the next call (null when there are no more)
+     */
+    public BookScrollResponse scrollBooks(BookSearchCriteria criteria, String sortBy, String after, int limit) {
+        BookSort sort = BookSort.fromKey(sortBy);
+        BookCursor cursor = after == null ? null : BookCursor.decode(after, sort);
+
+        // Fetch one extra book to find out whether another page exists
+        List<Book> books = bookRepository.findBooksAfter(criteria, sort.getProperty(), sort.getDirection(),
+                cursor == null ? null : cursor.getTypedLastValue(),
+                cursor == null ? null : cursor.getLastId(),
+                limit + 1);
+
+        String nextCursor = null;
+        if (books.size() > limit) {
+            books = books.subList(0, limit);
+            nextCursor = BookCursor.after(sort, books.get(limit - 1)).encode();
+        }
+        return new BookScrollResponse(books, nextCursor);
     }
 }
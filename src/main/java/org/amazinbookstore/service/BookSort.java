@@ -0,0 +1,100 @@
+package org.amazinbookstore.service;
+
+import org.amazinbookstore.model.Book;
+import org.bson.types.Decimal128;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+
+/**
+ * Sort options for the catalog, keyed by the sortBy values accepted by the
+ * REST API and the home page.
+ *
+ * Every option breaks ties on the book id in the same direction as its main
+ * field. That gives each book a unique position (needed to resume a keyset
+ * cursor) and lets one ascending compound index per field serve both
+ * directions.
+ */
+public enum BookSort {
+    DEFAULT(null, null, Sort.Direction.ASC),
+    PRICE("price", "price", Sort.Direction.ASC),
+    PRICE_DESC("price_desc", "price", Sort.Direction.DESC),
+    TITLE("title", "title", Sort.Direction.ASC),
+    AUTHOR("author", "author", Sort.Direction.ASC),
+    YEAR("year", "publicationYear", Sort.Direction.ASC),
+    YEAR_DESC("year_desc", "publicationYear", Sort.Direction.DESC);
+
+    private final String key;
+    private final String property;
+    private final Sort.Direction direction;
+
+    BookSort(String key, String property, Sort.Direction direction) {
+        this.key = key;
+        this.property = property;
+        this.direction = direction;
+    }
+
+    /**
+     * Looks up a sort option by its sortBy key, ignoring case.
+     * Unknown or missing keys fall back to {@link #DEFAULT} (id order).
+     */
+    public static BookSort fromKey(String sortBy) {
+        if (sortBy == null) {
+            return DEFAULT;
+        }
+        for (BookSort sort : values()) {
+            if (sort.key != null && sort.key.equalsIgnoreCase(sortBy)) {
+                return sort;
+            }
+        }
+        return DEFAULT;
+    }
+
+    /**
+     * @return the Book property sorted on, or null when sorting on id alone
+     */
+    public String getProperty() {
+        return property;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * @return the MongoDB sort for this option, including the id tie-breaker
+     */
+    public Sort toSort() {
+        Sort idSort = Sort.by(direction, "id");
+        return property == null ? idSort : Sort.by(direction, property).and(idSort);
+    }
+
+    /**
+     * Reads this option's sort field from a book, as a string for use in a cursor.
+     */
+    String extractValue(Book book) {
+        Object value;
+        switch (this) {
+            case PRICE, PRICE_DESC -> value = book.getPrice();
+            case TITLE -> value = book.getTitle();
+            case AUTHOR -> value = book.getAuthor();
+            case YEAR, YEAR_DESC -> value = book.getPublicationYear();
+            default -> value = null;
+        }
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Turns a cursor value back into the type stored in MongoDB for this field.
+     */
+    Object parseValue(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        return switch (this) {
+            case PRICE, PRICE_DESC -> new Decimal128(new BigDecimal(raw));
+            case YEAR, YEAR_DESC -> Integer.valueOf(raw);
+            default -> raw;
+        };
+    }
+}
@@ -0,0 +1,222 @@
+package org.amazinbookstore.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.amazinbookstore.dto.BookSearchResult;
+import org.amazinbookstore.event.BookDeletedEvent;
+import org.amazinbookstore.event.BookSavedEvent;
+import org.amazinbookstore.model.Book;
+import org.amazinbookstore.repository.BookRepository;
+import org.amazinbookstore.search.FuzzyMatch;
+import org.amazinbookstore.search.InvertedIndex;
+import org.amazinbookstore.search.ScoredDocument;
+import org.amazinbookstore.search.Suggestion;
+import org.amazinbookstore.search.SuggestionIndex;
+import org.amazinbookstore.search.Tokenizer;
+import org.amazinbookstore.search.TrigramIndex;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Full-text search over the catalog, answered from in-memory indexes instead
+ * of regex scans of the books collection.
+ *
+ * The inverted index covers title, author, publisher, genre and description,
+ * with title and author matches weighted higher. A trigram index over titles
+ * and authors answers typo-tolerant ("did you mean") lookups, and a radix trie
+ * over titles, authors and publishers answers autocomplete. All are built
+ * once in the background at startup and then kept current from the book
+ * saved/deleted events published by {@link BookService}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CatalogSearchService {
+
+    static final int TITLE_WEIGHT = 3;
+    static final int AUTHOR_WEIGHT = 2;
+    static final int OTHER_FIELD_WEIGHT = 1;
+
+    // Same default threshold as PostgreSQL's pg_trgm
+    static final double MIN_FUZZY_SIMILARITY = 0.3;
+
+    private final BookRepository bookRepository;
+
+    private volatile Indexes indexes = new Indexes();
+
+    // While a rebuild runs, live updates go to the new indexes too so none are lost when they are swapped in
+    private volatile Indexes rebuilding;
+
+    /**
+     * Rebuilds the indexes from the books collection, streaming it with a cursor.
+     * Searches keep using the previous indexes until the new ones are complete.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuildIndex() {
+        Indexes fresh = new Indexes();
+        rebuilding = fresh;
+        try (Stream<Book> books = bookRepository.streamAllBy()) {
+            books.forEach(fresh::put);
+            indexes = fresh;
+            log.info("Catalog search index built with {} books", fresh.text.size());
+        } catch (DataAccessException e) {
+            log.warn("Could not build the catalog search index: {}", e.getMessage());
+        } finally {
+            rebuilding = null;
+        }
+    }
+
+    @EventListener
+    public void onBookSaved(BookSavedEvent event) {
+        applyUpdate(i -> i.put(event.getBook()));
+    }
+
+    @EventListener
+    public void onBookDeleted(BookDeletedEvent event) {
+        applyUpdate(i -> i.remove(event.getBookId()));
+    }
+
+    /**
+     * Searches the catalog, best BM25 match first.
+     * A book matches if it contains any of the query's words.
+     *
+     * @param query free-text query
+     * @param limit the maximum number of results
+     * @return matching books with their scores
+     */
+    public List<BookSearchResult> search(String query, int limit) {
+        List<ScoredDocument> hits = indexes.text.search(Tokenizer.tokenize(query), limit);
+        Map<String, Book> books = loadBooks(hits.stream().map(ScoredDocument::getKey).collect(Collectors.toList()));
+
+        // Keep the index's ranking; skip books deleted since they were indexed
+        List<BookSearchResult> results = new ArrayList<>(hits.size());
+        for (ScoredDocument hit : hits) {
+            Book book = books.get(hit.getKey());
+            if (book != null) {
+                results.add(new BookSearchResult(book, hit.getScore(), null));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Typo-tolerant search over titles and authors.
+     * Each result carries the title or author it matched, for "did you mean" hints,
+     * and its trigram similarity to the query as the score.
+     *
+     * @param query possibly misspelled title or author
+     * @param limit the maximum number of results
+     * @return similar books, most similar first
+     */
+    public List<BookSearchResult> fuzzySearch(String query, int limit) {
+        List<FuzzyMatch> matches = indexes.fuzzy.search(query, MIN_FUZZY_SIMILARITY, limit);
+        Map<String, Book> books = loadBooks(matches.stream().map(FuzzyMatch::getKey).collect(Collectors.toList()));
+
+        List<BookSearchResult> results = new ArrayList<>(matches.size());
+        for (FuzzyMatch match : matches) {
+            Book book = books.get(match.getKey());
+            if (book != null) {
+                results.add(new BookSearchResult(book, match.getSimilarity(), match.getText()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Autocompletes a title, author or publisher from memory, without a database round trip.
+     *
+     * @param prefix the text typed so far
+     * @param limit  the maximum number of completions
+     * @return completions shared by the most books first
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return indexes.suggestions.suggest(prefix, limit);
+    }
+
+    /**
+     * @return the number of books currently in the index
+     */
+    public int indexedBookCount() {
+        return indexes.text.size();
+    }
+
+    private Map<String, Book> loadBooks(List<String> ids) {
+        Map<String, Book> books = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Book book : bookRepository.findAllById(ids)) {
+                books.put(book.getId(), book);
+            }
+        }
+        return books;
+    }
+
+    private void applyUpdate(Consumer<Indexes> update) {
+        Indexes current = indexes;
+        update.accept(current);
+        Indexes pending = rebuilding;
+        if (pending != null && pending != current) {
+            update.accept(pending);
+        }
+    }
+
+    /**
+     * Weighted term frequencies for a book: each field's terms are counted
+     * {@code weight} times, a simple form of per-field boosting for BM25.
+     */
+    static Map<String, Integer> termFrequencies(Book book) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        addField(frequencies, book.getTitle(), TITLE_WEIGHT);
+        addField(frequencies, book.getAuthor(), AUTHOR_WEIGHT);
+        addField(frequencies, book.getPublisher(), OTHER_FIELD_WEIGHT);
+        addField(frequencies, book.getGenre(), OTHER_FIELD_WEIGHT);
+        addField(frequencies, book.getDescription(), OTHER_FIELD_WEIGHT);
+        return frequencies;
+    }
+
+    private static void addField(Map<String, Integer> frequencies, String text, int weight) {
+        for (String term : Tokenizer.tokenize(text)) {
+            frequencies.merge(term, weight, Integer::sum);
+        }
+    }
+
+    /**
+     * The search indexes, built and swapped together.
+     */
+    private static final class Indexes {
+
+        private final InvertedIndex text = new InvertedIndex();
+        private final TrigramIndex fuzzy = new TrigramIndex();
+        private final SuggestionIndex suggestions = new SuggestionIndex();
+
+        private void put(Book book) {
+            text.put(book.getId(), termFrequencies(book));
+            fuzzy.put(book.getId(), Arrays.asList(book.getTitle(), book.getAuthor()));
+
+            Map<String, String> suggestible = new LinkedHashMap<>();
+            suggestible.put("title", book.getTitle());
+            suggestible.put("author", book.getAuthor());
+            suggestible.put("publisher", book.getPublisher());
+            suggestions.put(book.getId(), suggestible);
+        }
+
+        private void remove(String bookId) {
+            text.remove(bookId);
+            fuzzy.remove(bookId);
+            suggestions.remove(bookId);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.amazinbookstore.service;
+
+import org.amazinbookstore.dto.CheckoutQueueStatus;
+import org.amazinbookstore.exception.CheckoutQueueFullException;
+import org.amazinbookstore.exception.InsufficientInventoryException;
+import org.amazinbookstore.model.Book;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Admission control for checkouts of flash-sale books.
+ *
+ * When a hot SKU goes on sale, every buyer checks out at once. Rather than let
+ * them all hit MongoDB together, each hot book has an {@link AdmissionQueue}
+ * that lets a few of its checkouts run at a time, in arrival order. Checkouts
+ * that cannot succeed, or would wait too long, are turned away early, which
+ * keeps the rest of the store responsive while a sale runs. Checkouts with no
+ * hot books in the cart are not queued.
+ *
+ * A waiting checkout holds a Tomcat request thread, so across every queue at
+ * most a quarter of {@code server.tomcat.threads.max} checkouts may wait; the
+ * rest are turned away with their queue position instead of parking threads
+ * the rest of the store needs.
+ */
+@Service
+public class CheckoutAdmissionService {
+
+    private final BookService bookService;
+    private final int maxConcurrent;
+    private final int maxWaiting;
+    private final Duration maxWait;
+    private final Semaphore waitSlots;
+
+    private final Map<String, AdmissionQueue> queues = new ConcurrentHashMap<>();
+
+    public CheckoutAdmissionService(BookService bookService,
+                                    @Value("${amazin.checkout-queue.max-concurrent:4}") int maxConcurrent,
+                                    @Value("${amazin.checkout-queue.max-waiting:40}") int maxWaiting,
+                                    @Value("${amazin.checkout-queue.max-wait:10s}") Duration maxWait,
+                                    @Value("${server.tomcat.threads.max:200}") int requestThreads) {
+        this.bookService = bookService;
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaiting = maxWaiting;
+        this.maxWait = maxWait;
+        this.waitSlots = new Semaphore(Math.max(1, requestThreads / 4));
+    }
+
+    /**
+     * Waits for a turn in the queue of every hot book being checked out.
+     * Queues are entered in book ID order, so two checkouts of the same hot
+     * books can never each hold a turn the other is waiting for.
+     *
+     * @param quantitiesByBookId copies being checked out, per book ID
+     * @return the admission, to be closed when the checkout ends
+     * @throws InsufficientInventoryException if the checkouts ahead already want every remaining copy of a book
+     * @throws CheckoutQueueFullException if a queue is full or no turn came in time
+     */
+    public Admission admit(Map<String, Integer> quantitiesByBookId) {
+        List<AdmissionQueue> entered = new ArrayList<>();
+        try {
+            for (Map.Entry<String, Integer> line : new TreeMap<>(quantitiesByBookId).entrySet()) {
+                if (!bookService.isHotSku(line.getKey())) {
+                    continue;
+                }
+                Book book = bookService.getBookById(line.getKey());
+                if (book == null) {
+                    // Checkout reports the missing book
+                    continue;
+                }
+                AdmissionQueue queue = queue(line.getKey());
+                queue.acquire(book.getTitle(), line.getValue(), book.getInventory(), maxWait);
+                entered.add(queue);
+            }
+        } catch (RuntimeException e) {
+            entered.forEach(AdmissionQueue::release);
+            throw e;
+        }
+        return () -> entered.forEach(AdmissionQueue::release);
+    }
+
+    /**
+     * How busy a book's checkout queue is.
+     *
+     * @param bookId the ID of the book
+     * @return the queue's status; all zero if the book has no queue
+     */
+    public CheckoutQueueStatus getStatus(String bookId) {
+        AdmissionQueue queue = queues.get(bookId);
+        Book book = bookService.getBookById(bookId);
+        return new CheckoutQueueStatus(bookId,
+                queue == null ? 0 : queue.active(),
+                queue == null ? 0 : queue.waiting(),
+                book == null ? 0 : book.getInventory());
+    }
+
+    private AdmissionQueue queue(String bookId) {
+        return queues.computeIfAbsent(bookId, id -> new AdmissionQueue(maxConcurrent, maxWaiting, waitSlots));
+    }
+
+    /**
+     * Turns in the queues a checkout was admitted to. Closing it lets the next checkouts in.
+     */
+    public interface Admission extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,106 @@
+package org.amazinbookstore.service;
+
+import lombok.RequiredArgsConstructor;
+import org.amazinbookstore.dto.CheckoutResult;
+import org.amazinbookstore.exception.CheckoutInProgressException;
+import org.amazinbookstore.exception.CheckoutRejectedException;
+import org.amazinbookstore.model.IdempotencyRecord;
+import org.amazinbookstore.model.Order;
+import org.amazinbookstore.repository.IdempotencyRecordRepository;
+import org.amazinbookstore.repository.OrderRepository;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Runs checkouts under a client-supplied idempotency key.
+ *
+ * The first request with a key records it, together with the ID its order
+ * will get, before checking out, and marks it completed once the order is
+ * placed. A retry with the same key gets that order back without running the
+ * checkout again. If the checkout is rejected before writing anything (a
+ * {@link CheckoutRejectedException}), the key is forgotten so the client can
+ * retry with it. Any other failure may have come after the order was placed,
+ * so the key is marked failed instead: a retry first looks for the order under
+ * the recorded ID, returns it if it exists, and otherwise runs the checkout
+ * again under the same ID. A checkout left in progress past the abandoned
+ * window is taken over the same way. An asynchronous checkout is recorded as
+ * soon as its pending order exists, so retries poll the same order.
+ */
+@Service
+@RequiredArgsConstructor
+public class CheckoutIdempotencyService {
+
+    // A checkout still "in progress" after this long was abandoned by an instance that stopped
+    private static final Duration ABANDONED_AFTER = Duration.ofMinutes(2);
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final OrderRepository orderRepository;
+    private final OrderService orderService;
+
+    /**
+     * Checks out the user's cart, unless a checkout with the same key already did.
+     *
+     * @param userId         the ID of the user checking out
+     * @param idempotencyKey the client's key for this checkout
+     * @param async          whether to start an asynchronous checkout, see {@link OrderService#submitOrder}
+     * @return the order, and whether it came from an earlier request
+     * @throws CheckoutInProgressException if a checkout with the same key is still running
+     */
+    public CheckoutResult checkout(String userId, String idempotencyKey, boolean async) {
+        String id = userId + ":" + idempotencyKey;
+        Instant now = Instant.now();
+        String orderId = new ObjectId().toHexString();
+        try {
+            idempotencyRecordRepository.insert(
+                    new IdempotencyRecord(id, IdempotencyRecord.Status.IN_PROGRESS, orderId, now));
+        } catch (DuplicateKeyException e) {
+            IdempotencyRecord existing = idempotencyRecordRepository.findById(id).orElse(null);
+            if (existing != null && existing.getStatus() == IdempotencyRecord.Status.COMPLETED) {
+                return new CheckoutResult(orderService.getOrderById(existing.getOrderId()), true);
+            }
+            // Whoever restarts a failed or abandoned checkout owns it
+            if (existing == null || idempotencyRecordRepository.restart(id, now.minus(ABANDONED_AFTER), now) == 0) {
+                throw new CheckoutInProgressException(
+                        "A checkout with this Idempotency-Key is already in progress");
+            }
+            // The earlier attempt may have placed its order before it failed or stopped
+            if (existing.getOrderId() != null) {
+                orderId = existing.getOrderId();
+                Order placed = orderRepository.findById(orderId).orElse(null);
+                if (placed != null) {
+                    complete(id, orderId, now);
+                    return new CheckoutResult(placed, true);
+                }
+            }
+        }
+
+        Order order;
+        try {
+            order = async ? orderService.submitOrder(userId, orderId) : orderService.createOrderFromCart(userId, orderId);
+        } catch (CheckoutRejectedException e) {
+            // Checkout turned the request down before writing anything
+            idempotencyRecordRepository.deleteById(id);
+            throw e;
+        } catch (RuntimeException e) {
+            // If even this fails, the key stays in progress and is taken over once abandoned
+            try {
+                idempotencyRecordRepository.save(
+                        new IdempotencyRecord(id, IdempotencyRecord.Status.FAILED, orderId, now));
+            } catch (RuntimeException recordFailure) {
+                e.addSuppressed(recordFailure);
+            }
+            throw e;
+        }
+        complete(id, order.getId(), now);
+        return new CheckoutResult(order, false);
+    }
+
+    private void complete(String id, String orderId, Instant startedAt) {
+        idempotencyRecordRepository.save(
+                new IdempotencyRecord(id, IdempotencyRecord.Status.COMPLETED, orderId, startedAt));
+    }
+}
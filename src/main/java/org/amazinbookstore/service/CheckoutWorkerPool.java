@@ -0,0 +1,122 @@
+package org.amazinbookstore.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The bounded pool of threads that run asynchronous checkouts.
+ *
+ * A fixed number of workers take checkouts from a bounded queue, so a burst
+ * of checkouts waits in the queue instead of holding request threads, and a
+ * burst larger than the queue is refused instead of exhausting memory. This is
+ * deliberately not an {@code Executor} bean, which would replace the executor
+ * Spring Boot provides for {@code @Async} methods.
+ *
+ * A checkout that hit a database failure can be queued again after a backoff
+ * that doubles with each attempt, up to a maximum number of attempts.
+ */
+@Slf4j
+@Component
+public class CheckoutWorkerPool implements DisposableBean {
+
+    private static final int MAX_BACKOFF_DOUBLINGS = 6;
+
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService retryTimer;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+
+    public CheckoutWorkerPool(@Value("${amazin.checkout.async.workers:8}") int workers,
+                              @Value("${amazin.checkout.async.queue-capacity:1000}") int queueCapacity,
+                              @Value("${amazin.checkout.async.max-attempts:5}") int maxAttempts,
+                              @Value("${amazin.checkout.async.retry-backoff:PT1S}") Duration retryBackoff) {
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = task -> {
+            Thread thread = new Thread(task, "checkout-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        this.retryTimer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "checkout-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a checkout.
+     *
+     * @param checkout the checkout to run
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public void submit(Runnable checkout) {
+        executor.execute(checkout);
+    }
+
+    /**
+     * Queues a checkout again once it has backed off from a failed attempt. If the
+     * queue is full when the backoff ends, it waits another backoff.
+     *
+     * @param checkout the checkout to run
+     * @param attempts the attempts it has made so far
+     * @return false, without queuing it, if the checkout has used up its attempts
+     */
+    public boolean retryLater(Runnable checkout, int attempts) {
+        if (attempts >= maxAttempts) {
+            return false;
+        }
+        Duration backoff = retryBackoff.multipliedBy(1L << Math.min(attempts - 1, MAX_BACKOFF_DOUBLINGS));
+        schedule(checkout, backoff);
+        return true;
+    }
+
+    private void schedule(Runnable checkout, Duration backoff) {
+        try {
+            retryTimer.schedule(() -> {
+                try {
+                    executor.execute(checkout);
+                } catch (RejectedExecutionException e) {
+                    schedule(checkout, backoff);
+                }
+            }, backoff.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.warn("Checkout retry dropped at shutdown; its order is resumed at the next startup");
+        }
+    }
+
+    /**
+     * Number of checkouts waiting for a worker.
+     */
+    public int queued() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Lets running and queued checkouts finish, for a while, on shutdown, dropping
+     * those waiting to retry. Orders left pending are resumed at the next startup.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        retryTimer.shutdownNow();
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("{} checkouts still queued at shutdown", executor.shutdownNow().size());
+        }
+    }
+}
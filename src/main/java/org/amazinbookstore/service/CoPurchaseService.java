@@ -0,0 +1,37 @@
+package org.amazinbookstore.service;
+
+import org.amazinbookstore.recommendation.CoPurchaseMatrix;
+import org.amazinbookstore.recommendation.RecommendationStrategy;
+import org.amazinbookstore.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps the {@link CoPurchaseMatrix} behind the co-purchase recommendation
+ * strategy up to date. Only built when {@code amazin.recommendations.strategy}
+ * is {@code co-purchase}.
+ */
+@Service
+public class CoPurchaseService extends PurchaseModelService<CoPurchaseMatrix> {
+
+    public CoPurchaseService(UserRepository userRepository,
+                             @Value("${amazin.recommendations.strategy:similar-users}") String strategy) {
+        super(userRepository, CoPurchaseMatrix::new, "co-purchase matrix",
+                RecommendationStrategy.fromKey(strategy) == RecommendationStrategy.CO_PURCHASE);
+    }
+
+    /**
+     * Finds the books most often bought by the same users as the given books.
+     *
+     * @param bookIds the reader's books, which are never recommended
+     * @param limit   the maximum number of books
+     * @return book ids, best first; empty until the matrix is built
+     */
+    public List<String> recommend(Collection<String> bookIds, int limit) {
+        CoPurchaseMatrix matrix = model();
+        return matrix == null ? List.of() : matrix.recommend(bookIds, limit);
+    }
+}
@@ -0,0 +1,241 @@
+package org.amazinbookstore.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.amazinbookstore.event.BookDeletedEvent;
+import org.amazinbookstore.event.BookSavedEvent;
+import org.amazinbookstore.exception.ResourceNotFoundException;
+import org.amazinbookstore.model.Book;
+import org.amazinbookstore.model.HotSku;
+import org.amazinbookstore.model.Order;
+import org.amazinbookstore.model.OrderItem;
+import org.amazinbookstore.repository.BookRepository;
+import org.amazinbookstore.repository.HotSkuRepository;
+import org.amazinbookstore.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory inventory for "hot" books during flash sales.
+ *
+ * A single book document can only take so many conditional updates per second.
+ * For books flagged as hot, stock is instead counted in a
+ * {@link StripedInventoryCounter} in this JVM, and the count is written back to
+ * the book (and to its {@link HotSku} record) every flush interval.
+ *
+ * If the application stops without flushing, the last flushed count is stale.
+ * Every take is numbered with the counter's flush sequence, which order items
+ * keep, and a flush reads its count with takes held off, so it knows exactly
+ * which takes the count includes. On startup each counter is rebuilt from the
+ * flushed count less the ordered copies taken with a later sequence. Sequences
+ * start from the clock, so they keep growing across restarts and across
+ * marking a book hot again. Counters live in one JVM, so hot mode assumes a
+ * single application instance.
+ */
+@Slf4j
+@Service
+public class HotSkuService {
+
+    private final HotSkuRepository hotSkuRepository;
+    private final BookRepository bookRepository;
+    private final OrderRepository orderRepository;
+    private final int stripes;
+
+    private final Map<String, StripedInventoryCounter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Integer> flushedCounts = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public HotSkuService(HotSkuRepository hotSkuRepository,
+                         BookRepository bookRepository,
+                         OrderRepository orderRepository,
+                         @Value("${amazin.hot-skus.stripes:0}") int stripes) {
+        this.hotSkuRepository = hotSkuRepository;
+        this.bookRepository = bookRepository;
+        this.orderRepository = orderRepository;
+        this.stripes = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Whether the book's inventory is counted in memory.
+     */
+    public boolean isHot(String bookId) {
+        ensureLoaded();
+        return counters.containsKey(bookId);
+    }
+
+    /**
+     * Copies of a hot book left, or {@code null} if the book is not hot.
+     */
+    public Integer available(String bookId) {
+        ensureLoaded();
+        StripedInventoryCounter counter = counters.get(bookId);
+        return counter == null ? null : counter.sum();
+    }
+
+    /**
+     * The in-memory count of a hot book, or {@code null} if the book is not hot.
+     * Callers take from and give back to the counter they got, so a book unmarked
+     * in between cannot make them fail half way.
+     */
+    StripedInventoryCounter counterOf(String bookId) {
+        ensureLoaded();
+        return counters.get(bookId);
+    }
+
+    /**
+     * Starts counting a book's inventory in memory, from its current inventory.
+     *
+     * @param bookId the ID of the book
+     * @return the book's hot SKU record
+     * @throws ResourceNotFoundException if the book does not exist
+     */
+    public synchronized HotSku markHot(String bookId) {
+        ensureLoaded();
+        StripedInventoryCounter existing = counters.get(bookId);
+        if (existing != null) {
+            return new HotSku(bookId, existing.sum(), Instant.now(), null);
+        }
+
+        int inventory = findBook(bookId).getInventory();
+        long sequence = System.currentTimeMillis();
+        HotSku hotSku = hotSkuRepository.save(new HotSku(bookId, inventory, Instant.now(), sequence - 1));
+        StripedInventoryCounter counter = new StripedInventoryCounter(stripes, inventory, sequence);
+        counters.put(bookId, counter);
+        flushedCounts.put(bookId, inventory);
+
+        // Decrements already in flight against the document land after the read above
+        int settled = findBook(bookId).getInventory();
+        if (settled != inventory) {
+            counter.add(settled - inventory);
+        }
+        return hotSku;
+    }
+
+    /**
+     * Writes a hot book's count back to the book and goes back to counting it in MongoDB.
+     *
+     * @param bookId the ID of the book
+     */
+    public synchronized void unmarkHot(String bookId) {
+        ensureLoaded();
+        StripedInventoryCounter counter = counters.remove(bookId);
+        if (counter == null) {
+            return;
+        }
+        bookRepository.setInventory(bookId, counter.sum());
+        hotSkuRepository.deleteById(bookId);
+        flushedCounts.remove(bookId);
+    }
+
+    /**
+     * Writes the count of every hot book that changed since the last flush back to MongoDB.
+     */
+    @Scheduled(fixedDelayString = "${amazin.hot-skus.flush-interval:PT1S}")
+    public synchronized void flush() {
+        if (!loaded) {
+            return;
+        }
+        for (Map.Entry<String, StripedInventoryCounter> entry : counters.entrySet()) {
+            String bookId = entry.getKey();
+            StripedInventoryCounter.Drained drained = entry.getValue().drain(System.currentTimeMillis());
+            int count = drained.count;
+            if (Integer.valueOf(count).equals(flushedCounts.get(bookId))) {
+                continue;
+            }
+            try {
+                hotSkuRepository.save(new HotSku(bookId, count, Instant.now(), drained.sequence));
+                bookRepository.setInventory(bookId, count);
+                flushedCounts.put(bookId, count);
+            } catch (DataAccessException e) {
+                log.warn("Could not flush inventory of hot book {}: {}", bookId, e.getMessage());
+                continue;
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the counters once the application is up, rather than on first use.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            ensureLoaded();
+        } catch (DataAccessException e) {
+            log.warn("Could not load hot books: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * A save never changes a hot book's count, but it overwrote the stored
+     * count with one that may already be stale, so the next flush writes it again.
+     */
+    @EventListener
+    public synchronized void onBookSaved(BookSavedEvent event) {
+        if (loaded && counters.containsKey(event.getBook().getId())) {
+            flushedCounts.remove(event.getBook().getId());
+        }
+    }
+
+    @EventListener
+    public synchronized void onBookDeleted(BookDeletedEvent event) {
+        if (loaded && counters.remove(event.getBookId()) != null) {
+            flushedCounts.remove(event.getBookId());
+            hotSkuRepository.deleteById(event.getBookId());
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            load();
+        }
+    }
+
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        for (HotSku hotSku : hotSkuRepository.findAll()) {
+            String bookId = hotSku.getBookId();
+            // Written before flushes were sequenced: no order item carries a sequence yet
+            long flushed = hotSku.getFlushSequence() == null ? 0 : hotSku.getFlushSequence();
+            long latest = flushed;
+            int sold = 0;
+            for (Order order : orderRepository.findHotItemsTakenAfter(bookId, flushed)) {
+                for (OrderItem item : order.getItems()) {
+                    Long taken = item.getHotFlushSequence();
+                    if (bookId.equals(item.getBookId()) && taken != null && taken > flushed) {
+                        sold += item.getQuantity();
+                        latest = Math.max(latest, taken);
+                    }
+                }
+            }
+            if (sold > hotSku.getInventory()) {
+                log.warn("Hot book {} has {} copies ordered after a flush of only {}", bookId, sold,
+                        hotSku.getInventory());
+            }
+            int count = Math.max(0, hotSku.getInventory() - sold);
+            long sequence = Math.max(System.currentTimeMillis(), latest + 1);
+            counters.put(bookId, new StripedInventoryCounter(stripes, count, sequence));
+            flushedCounts.put(bookId, hotSku.getInventory());
+            if (sold > 0) {
+                log.info("Rebuilt hot book {}: {} copies flushed, {} ordered since", bookId,
+                        hotSku.getInventory(), sold);
+            }
+        }
+        loaded = true;
+    }
+
+    private Book findBook(String bookId) {
+        return bookRepository.findById(bookId)
+                .orElseThrow(() -> new ResourceNotFoundException("Book not found with id: " + bookId));
+    }
+}
@@ -0,0 +1,42 @@
+package org.amazinbookstore.service;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The holds a checkout has claimed: the claim token, and how many copies of each
+ * book the user already holds. Handed back to {@link ReservationService} to
+ * consume the holds once the order is saved, or to restore them if it fails.
+ */
+public final class InventoryHolds {
+
+    private final String token;
+    private final Map<String, Integer> quantitiesByBookId;
+
+    InventoryHolds(String token, Map<String, Integer> quantitiesByBookId) {
+        this.token = token;
+        this.quantitiesByBookId = Collections.unmodifiableMap(quantitiesByBookId);
+    }
+
+    /**
+     * Holds for a checkout that claimed nothing.
+     */
+    public static InventoryHolds none() {
+        return new InventoryHolds(null, Map.of());
+    }
+
+    String getToken() {
+        return token;
+    }
+
+    /**
+     * Copies of the book already held for the user, zero if none.
+     */
+    public int heldQuantity(String bookId) {
+        return quantitiesByBookId.getOrDefault(bookId, 0);
+    }
+
+    public boolean isEmpty() {
+        return quantitiesByBookId.isEmpty();
+    }
+}
@@ -0,0 +1,64 @@
+package org.amazinbookstore.service;
+
+import org.amazinbookstore.exception.InvalidCursorException;
+import org.amazinbookstore.model.Order;
+import org.bson.Document;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Opaque keyset cursor for scrolling through order history.
+ *
+ * A cursor records the order date and id of the last order on the page.
+ * Clients treat it as an opaque base64url token and pass it back unchanged
+ * as {@code after}.
+ */
+final class OrderCursor {
+
+    private final LocalDateTime lastDate;
+    private final String lastId;
+
+    private OrderCursor(LocalDateTime lastDate, String lastId) {
+        this.lastDate = lastDate;
+        this.lastId = lastId;
+    }
+
+    /**
+     * Builds the cursor that resumes right after the given order.
+     */
+    static OrderCursor after(Order order) {
+        return new OrderCursor(order.getOrderDate(), order.getId());
+    }
+
+    /**
+     * Decodes a token issued by {@link #encode()}.
+     *
+     * @throws InvalidCursorException if the token is malformed
+     */
+    static OrderCursor decode(String token) {
+        try {
+            String json = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            Document document = Document.parse(json);
+            return new OrderCursor(LocalDateTime.parse(document.getString("d")),
+                    Objects.requireNonNull(document.getString("id")));
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+    }
+
+    String encode() {
+        String json = new Document("d", lastDate.toString()).append("id", lastId).toJson();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    LocalDateTime getLastDate() {
+        return lastDate;
+    }
+
+    String getLastId() {
+        return lastId;
+    }
+}
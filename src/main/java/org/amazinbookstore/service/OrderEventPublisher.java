@@ -0,0 +1,172 @@
+package org.amazinbookstore.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.amazinbookstore.event.OrderEventListener;
+import org.amazinbookstore.model.OrderEvent;
+import org.amazinbookstore.repository.OrderEventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delivers the events in the order outbox to every {@link OrderEventListener}.
+ *
+ * Pending events are read in batches, oldest first. Each listener is given the
+ * events it has not handled yet, and an event is marked published once every
+ * listener has handled it. When a listener throws on a batch, the batch is
+ * split in halves and each half delivered again, down to single events, so only
+ * the events that really fail are held back. A failed event is retried after a
+ * backoff that doubles with each failure for that listener; after
+ * {@code max-attempts} failures for one listener it is parked: logged and kept,
+ * but never marked published or delivered again.
+ *
+ * Publishing assumes a single application instance, like the hot-SKU counters.
+ */
+@Slf4j
+@Service
+public class OrderEventPublisher {
+
+    // Backoff stops doubling after this many failures
+    private static final int MAX_BACKOFF_DOUBLINGS = 10;
+
+    private final OrderEventRepository orderEventRepository;
+    private final List<OrderEventListener> listeners;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+
+    public OrderEventPublisher(OrderEventRepository orderEventRepository,
+                               List<OrderEventListener> listeners,
+                               @Value("${amazin.outbox.batch-size:100}") int batchSize,
+                               @Value("${amazin.outbox.max-attempts:5}") int maxAttempts,
+                               @Value("${amazin.outbox.retry-backoff:PT1S}") Duration retryBackoff) {
+        this.orderEventRepository = orderEventRepository;
+        this.listeners = listeners;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+    }
+
+    /**
+     * Publishes pending events until the outbox is empty or a delivery fails.
+     */
+    @Scheduled(fixedDelayString = "${amazin.outbox.publish-interval:PT1S}",
+            initialDelayString = "${amazin.outbox.publish-interval:PT1S}")
+    public void publishPending() {
+        try {
+            while (publishBatch()) {
+                // keep going while full batches were delivered
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not publish order events: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Delivers the oldest batch of pending events.
+     *
+     * @return whether there may be more events to publish straight away
+     */
+    boolean publishBatch() {
+        Instant now = Instant.now();
+        List<OrderEvent> batch = orderEventRepository.findDeliverable(now,
+                PageRequest.of(0, batchSize, Sort.by("createdAt", "id")));
+        if (batch.isEmpty()) {
+            return false;
+        }
+
+        // Events each listener could not handle, by listener name
+        Map<String, List<OrderEvent>> failed = new HashMap<>();
+        for (OrderEventListener listener : listeners) {
+            String name = nameOf(listener);
+            List<OrderEvent> undelivered = batch.stream()
+                    .filter(event -> !event.getDeliveredTo().contains(name))
+                    .toList();
+            List<OrderEvent> delivered = new ArrayList<>();
+            List<OrderEvent> failures = new ArrayList<>();
+            deliver(listener, undelivered, delivered, failures);
+            delivered.forEach(event -> event.getDeliveredTo().add(name));
+            if (!failures.isEmpty()) {
+                failed.put(name, failures);
+            }
+        }
+
+        List<String> published = new ArrayList<>();
+        for (OrderEvent event : batch) {
+            if (listeners.stream().allMatch(listener -> event.getDeliveredTo().contains(nameOf(listener)))) {
+                published.add(event.getId());
+            }
+        }
+        if (!published.isEmpty()) {
+            orderEventRepository.markPublished(published, now);
+        }
+        if (failed.isEmpty()) {
+            return batch.size() == batchSize;
+        }
+
+        // Remember who already has the held-back events, so a retry only goes to the listeners that failed
+        for (OrderEventListener listener : listeners) {
+            String name = nameOf(listener);
+            List<String> partly = batch.stream()
+                    .filter(event -> !published.contains(event.getId()) && event.getDeliveredTo().contains(name))
+                    .map(OrderEvent::getId)
+                    .toList();
+            if (!partly.isEmpty()) {
+                orderEventRepository.markDelivered(partly, name);
+            }
+        }
+        failed.forEach((name, events) -> events.forEach(event -> recordFailure(event, name, now)));
+        return false;
+    }
+
+    /**
+     * Delivers events to a listener, splitting a batch it fails on until the
+     * failing events are found on their own.
+     */
+    private void deliver(OrderEventListener listener, List<OrderEvent> events,
+                         List<OrderEvent> delivered, List<OrderEvent> failures) {
+        if (events.isEmpty()) {
+            return;
+        }
+        try {
+            listener.onOrderEvents(events);
+            delivered.addAll(events);
+        } catch (RuntimeException e) {
+            if (events.size() == 1) {
+                log.warn("Order event listener {} failed on event {}: {}", nameOf(listener),
+                        events.get(0).getId(), e.getMessage());
+                failures.add(events.get(0));
+                return;
+            }
+            int middle = events.size() / 2;
+            deliver(listener, events.subList(0, middle), delivered, failures);
+            deliver(listener, events.subList(middle, events.size()), delivered, failures);
+        }
+    }
+
+    private void recordFailure(OrderEvent event, String listener, Instant now) {
+        int attempts = event.getFailedAttempts().merge(listener, 1, Integer::sum);
+        if (attempts >= maxAttempts) {
+            log.error("Parking order event {} after {} failed deliveries to {}", event.getId(), attempts, listener);
+            orderEventRepository.park(event.getId(), event.getFailedAttempts(), now);
+            return;
+        }
+        Duration backoff = retryBackoff.multipliedBy(1L << Math.min(attempts - 1, MAX_BACKOFF_DOUBLINGS));
+        orderEventRepository.recordFailedDelivery(event.getId(), event.getFailedAttempts(), now.plus(backoff));
+    }
+
+    private static String nameOf(OrderEventListener listener) {
+        return ClassUtils.getUserClass(listener).getSimpleName();
+    }
+}
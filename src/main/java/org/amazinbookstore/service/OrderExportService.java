@@ -0,0 +1,145 @@
+package org.amazinbookstore.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.amazinbookstore.dto.OrderSearchCriteria;
+import org.amazinbookstore.model.Order;
+import org.amazinbookstore.model.OrderItem;
+import org.amazinbookstore.repository.OrderRepository;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes orders out for reporting, one at a time, as they are read from a
+ * MongoDB cursor. Nothing but the order being written is held in memory, so
+ * an export of any size runs in constant heap.
+ *
+ * NDJSON has one order per line, in the same JSON form as the orders API.
+ * CSV has one row per order item, repeating the order's columns, and a row
+ * with empty item columns for an order without items.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderExportService {
+
+    static final String CSV_HEADER =
+            "orderId,userId,orderDate,status,totalAmount,bookId,bookTitle,quantity,priceAtPurchase";
+
+    private final OrderRepository orderRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Export file formats.
+     */
+    public enum Format {
+        NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson"),
+        CSV(MediaType.parseMediaType("text/csv"), "csv");
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        Format(MediaType mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        /**
+         * Looks up a format by name, ignoring case. Unknown or missing names
+         * fall back to {@link #NDJSON}.
+         */
+        public static Format fromKey(String key) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(key)) {
+                    return format;
+                }
+            }
+            return NDJSON;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    /**
+     * Writes every order matching the criteria, oldest first, to the stream.
+     * The stream is flushed but not closed.
+     *
+     * @param criteria the filters to apply
+     * @param format   the output format
+     * @param out      where to write the export
+     * @throws IOException if writing fails, e.g. because the client went away
+     */
+    public void export(OrderSearchCriteria criteria, Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        try (Stream<Order> orders = orderRepository.streamOrders(criteria)) {
+            Iterator<Order> iterator = orders.iterator();
+            while (iterator.hasNext()) {
+                Order order = iterator.next();
+                if (format == Format.CSV) {
+                    writeCsv(order, writer);
+                } else {
+                    writer.write(objectMapper.writeValueAsString(order));
+                    writer.write('\n');
+                }
+            }
+        }
+        writer.flush();
+    }
+
+    private static void writeCsv(Order order, Writer writer) throws IOException {
+        String orderColumns = String.join(",",
+                csv(order.getId()),
+                csv(order.getUserId()),
+                csv(order.getOrderDate()),
+                csv(order.getStatus()),
+                csv(order.getTotalAmount()));
+
+        if (order.getItems() == null || order.getItems().isEmpty()) {
+            writer.write(orderColumns + ",,,,\n");
+            return;
+        }
+        for (OrderItem item : order.getItems()) {
+            writer.write(orderColumns);
+            writer.write(',');
+            writer.write(String.join(",",
+                    csv(item.getBookId()),
+                    csv(item.getBookTitle()),
+                    csv(item.getQuantity()),
+                    csv(item.getPriceAtPurchase() == null ? null : item.getPriceAtPurchase().toPlainString())));
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Formats one CSV field, quoting it when it contains a separator, quote or line break.
+     */
+    static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
@@ -1,128 +1,505 @@
 package org.amazinbookstore.service;
 
+import org.amazinbookstore.dto.BookBatchResult;
+import org.amazinbookstore.dto.OrderScrollResponse;
+import org.amazinbookstore.dto.OrderSearchCriteria;
+import org.amazinbookstore.exception.CheckoutQueueFullException;
+import org.amazinbookstore.exception.CheckoutRejectedException;
 import org.amazinbookstore.exception.InsufficientInventoryException;
 import org.amazinbookstore.exception.ResourceNotFoundException;
 import org.amazinbookstore.model.*;
+import org.amazinbookstore.repository.OrderEventRepository;
 import org.amazinbookstore.repository.OrderRepository;
 import org.amazinbookstore.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Service responsible for order creation, retrieval, and updates.
  *
  * Handles:
  *
- *     Converting a user's shopping cart into a confirmed order
+ *     Converting a user's shopping cart into a confirmed order, synchronously or
+ *     through a pending order confirmed by a checkout worker
  *     Validating inventory before order creation
+ *     Confirming the inventory holds taken when books were added to the cart
  *     Updating book inventory counts
  *     Maintaining user purchase history
+ *     Recording order events in the outbox, in the same transaction as the order
  *     Basic CRUD operations on orders
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class OrderService {
 
+    // tries of an idempotent step after the order is saved, when no transaction covers it
+    static final int AFTER_ORDER_ATTEMPTS = 3;
+    static final long AFTER_ORDER_BACKOFF_MILLIS = 50;
+
     private final OrderRepository orderRepository;
     private final ShoppingCartService shoppingCartService;
     private final BookService bookService;
     private final UserRepository userRepository;
+    private final TransactionRunner transactionRunner;
+    private final ReservationService reservationService;
+    private final CheckoutAdmissionService checkoutAdmissionService;
+    private final CheckoutWorkerPool checkoutWorkerPool;
+    private final OrderEventRepository orderEventRepository;
 
     /**
      * Creates an order based on the contents of a user's shopping cart.
      *
      * @param userId the ID of the user checking out
      * @return the saved {@link Order}
-     * @throws IllegalStateException if the cart is empty
-     * @throws InsufficientInventoryException if any requested quantity exceeds inventory
+     * @throws CheckoutRejectedException before anything is written, if the cart is empty, a book
+     *         in it no longer exists or is sold out, the user does not exist, or a flash-sale
+     *         book's checkout queue is full or too slow
      */
-    @Transactional
     public Order createOrderFromCart(String userId) {
-        // Get user's cart
-        ShoppingCart cart = shoppingCartService.getCartByUserId(userId);
+        return createOrderFromCart(userId, null);
+    }
+
+    /**
+     * Creates an order from the user's cart under an ID chosen in advance, so
+     * whoever chose it can later tell whether the order was placed.
+     *
+     * @param userId  the ID of the user checking out
+     * @param orderId the ID to give the order, or null to have one generated
+     * @return the saved {@link Order}
+     * @throws CheckoutRejectedException as for {@link #createOrderFromCart(String)}
+     */
+    public Order createOrderFromCart(String userId, String orderId) {
+        Order order = new Order();
+        order.setId(orderId);
+        return checkout(userId, order);
+    }
 
+    /**
+     * Starts an asynchronous checkout of the user's cart. A {@code PENDING} order
+     * holding a snapshot of the cart's lines and total is saved and returned
+     * straight away; a checkout worker then confirms exactly those lines, or
+     * cancels the order with a {@code failureReason} if the checkout fails. Changes
+     * made to the cart in the meantime are not part of the order.
+     *
+     * @param userId the ID of the user checking out
+     * @return the pending {@link Order}
+     * @throws CheckoutRejectedException if the cart is empty, a book in it no longer exists,
+     *         or too many checkouts are already waiting for a worker; no order is left behind
+     */
+    public Order submitOrder(String userId) {
+        return submitOrder(userId, null);
+    }
+
+    /**
+     * Starts an asynchronous checkout under an order ID chosen in advance.
+     *
+     * @param userId  the ID of the user checking out
+     * @param orderId the ID to give the pending order, or null to have one generated
+     * @return the pending {@link Order}
+     * @throws CheckoutRejectedException as for {@link #submitOrder(String)}
+     */
+    public Order submitOrder(String userId, String orderId) {
+        ShoppingCart cart = shoppingCartService.getCartByUserId(userId);
         if (cart.getItems().isEmpty()) {
-            throw new IllegalStateException("Cannot create order from empty cart");
-        }
-
-        // Validate inventory for all items
-        for (CartItem cartItem : cart.getItems()) {
-            Book book = bookService.getBookById(cartItem.getBookId());
-            if (book.getInventory() < cartItem.getQuantity()) {
-                throw new InsufficientInventoryException(
-                        "Insufficient inventory for book: " + book.getTitle() +
-                                ". Available: " + book.getInventory() +
-                                ", Requested: " + cartItem.getQuantity()
-                );
+            throw new CheckoutRejectedException(new IllegalStateException("Cannot create order from empty cart"));
+        }
+
+        Order pending = new Order();
+        pending.setId(orderId);
+        pending.setUserId(userId);
+        pending.setOrderDate(LocalDateTime.now());
+        pending.setStatus(Order.OrderStatus.PENDING);
+        pending.setItems(orderItems(cart.getItems(), loadCartBooks(cart)));
+        pending.setTotalAmount(totalOf(pending.getItems()));
+        Order saved = orderRepository.save(pending);
+
+        try {
+            checkoutWorkerPool.submit(() -> completePendingOrder(saved, 1));
+        } catch (RejectedExecutionException e) {
+            orderRepository.delete(saved);
+            throw new CheckoutRejectedException(new CheckoutQueueFullException(
+                    "Too many checkouts are in progress. Please try again shortly.", checkoutWorkerPool.queued() + 1));
+        }
+        return saved;
+    }
+
+    /**
+     * Queues the pending orders left over from before a restart.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePendingOrders() {
+        try {
+            List<Order> pending = orderRepository.findByStatus(Order.OrderStatus.PENDING);
+            for (Order order : pending) {
+                checkoutWorkerPool.submit(() -> completePendingOrder(order, 1));
+            }
+            if (!pending.isEmpty()) {
+                log.info("Resumed {} pending orders", pending.size());
             }
+        } catch (DataAccessException | RejectedExecutionException e) {
+            log.warn("Could not resume pending orders: {}", e.getMessage());
         }
+    }
 
-        // Create order
-        Order order = new Order();
-        order.setUserId(userId);
-        order.setOrderDate(LocalDateTime.now());
-        order.setStatus(Order.OrderStatus.CONFIRMED);
+    /**
+     * Runs the checkout for a pending order, confirming or cancelling it. A database
+     * failure does not cancel a checkout that may yet succeed: the checkout is queued
+     * again after a backoff, and the order is marked {@code FAILED} once it has used
+     * up its attempts. Either way the order keeps the lines and total it was
+     * submitted with.
+     *
+     * @param pending  the pending order
+     * @param attempt  which attempt this is, counting from 1
+     */
+    void completePendingOrder(Order pending, int attempt) {
+        List<OrderItem> snapshot = pending.getItems();
+        Double snapshotTotal = pending.getTotalAmount();
+        LocalDateTime submittedAt = pending.getOrderDate();
+        try {
+            checkout(pending.getUserId(), pending);
+        } catch (DataAccessException e) {
+            // The checkout was undone; undo its changes to this copy too
+            pending.setStatus(Order.OrderStatus.PENDING);
+            pending.setItems(snapshot);
+            pending.setTotalAmount(snapshotTotal);
+            pending.setOrderDate(submittedAt);
+            if (checkoutWorkerPool.retryLater(() -> completePendingOrder(pending, attempt + 1), attempt)) {
+                log.warn("Retrying order {} after a database failure (attempt {}): {}",
+                        pending.getId(), attempt, e.getMessage());
+            } else {
+                log.error("Giving up on order {} after {} attempts: {}", pending.getId(), attempt, e.getMessage());
+                finishPendingOrder(pending, Order.OrderStatus.FAILED, "Checkout could not be completed: " + e.getMessage());
+            }
+        } catch (RuntimeException e) {
+            log.info("Cancelling pending order {}: {}", pending.getId(), e.getMessage());
+            pending.setItems(snapshot);
+            pending.setTotalAmount(snapshotTotal);
+            pending.setOrderDate(submittedAt);
+            finishPendingOrder(pending, Order.OrderStatus.CANCELLED, e.getMessage());
+        }
+    }
 
-        List<OrderItem> orderItems = new ArrayList<>();
-        double totalAmount = 0.0;
+    /**
+     * Saves a pending order that will not be confirmed, keeping what it was submitted with.
+     * If that fails the order stays pending and is resumed at the next startup.
+     */
+    private void finishPendingOrder(Order pending, Order.OrderStatus status, String failureReason) {
+        pending.setStatus(status);
+        pending.setFailureReason(failureReason);
+        try {
+            transactionRunner.inTransaction(() -> {
+                Order finished = orderRepository.save(pending);
+                recordEvent(OrderEvent.Type.ORDER_STATUS_CHANGED, finished);
+                return finished;
+            });
+        } catch (DataAccessException e) {
+            log.error("Could not mark order {} {}: {}", pending.getId(), status, e.getMessage());
+        }
+    }
 
-        // Process each cart item
-        for (CartItem cartItem : cart.getItems()) {
-            Book book = bookService.getBookById(cartItem.getBookId());
+    private Order checkout(String userId, Order order) {
+        // A pending order buys the lines snapshotted when it was submitted, not the cart as it is now
+        List<CartItem> snapshot = order.getStatus() == Order.OrderStatus.PENDING
+                ? order.getItems().stream().map(item -> new CartItem(item.getBookId(), item.getQuantity())).toList()
+                : null;
 
-            // Create order item
-            OrderItem orderItem = new OrderItem();
-            orderItem.setBookId(book.getId());
-            orderItem.setBookTitle(book.getTitle());
-            orderItem.setQuantity(cartItem.getQuantity());
-            orderItem.setPriceAtPurchase(book.getPrice());
-            orderItems.add(orderItem);
+        // Wait for a turn on any flash-sale books before touching the database in earnest
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (CartItem item : snapshot != null ? snapshot : shoppingCartService.getCartByUserId(userId).getItems()) {
+            quantities.merge(item.getBookId(), item.getQuantity(), Integer::sum);
+        }
+
+        CheckoutAdmissionService.Admission admission;
+        try {
+            admission = checkoutAdmissionService.admit(quantities);
+        } catch (CheckoutQueueFullException e) {
+            throw new CheckoutRejectedException(e);
+        }
+        try (admission) {
+            // Inventory, order, purchase history and cart change together or not at all.
+            // The cart is read again inside, so a retried transaction sees it as committed.
+            return transactionRunner.inTransaction(() -> placeOrder(userId, order, snapshot));
+        }
+    }
 
-            // Calculate total
-            totalAmount += book.getPrice().doubleValue() * cartItem.getQuantity();
+    private Order placeOrder(String userId, Order order, List<CartItem> snapshot) {
+        // Get the lines of the user's cart, or of a pending order
+        List<CartItem> lines = snapshot != null ? snapshot : shoppingCartService.getCartByUserId(userId).getItems();
 
-            // Decrease inventory
-            bookService.decreaseInventory(book.getId(), cartItem.getQuantity());
+        if (lines.isEmpty()) {
+            throw new CheckoutRejectedException(new IllegalStateException("Cannot create order from empty cart"));
         }
 
-        order.setItems(orderItems);
-        order.setTotalAmount(totalAmount);
+        // Load every book being ordered with one lookup
+        Map<String, Book> booksById = loadBooks(lines);
+
+        // Check the buyer before anything is written
+        if (!userRepository.existsById(userId)) {
+            throw new CheckoutRejectedException(new ResourceNotFoundException("User not found with id: " + userId));
+        }
+
+        // Claim the user's live holds; their copies are already out of the books' inventory
+        InventoryHolds holds = reservationService.claimHolds(userId, booksById.keySet());
+
+        List<OrderItem> orderItems;
+        Map<String, Integer> taken = Map.of();
+        Order savedOrder = null;
+        OrderEvent createdEvent = null;
+        try {
+            // Validate inventory for all items
+            for (CartItem cartItem : lines) {
+                Book book = booksById.get(cartItem.getBookId());
+                int available = book.getInventory() + holds.heldQuantity(book.getId());
+                if (available < cartItem.getQuantity()) {
+                    throw new CheckoutRejectedException(new InsufficientInventoryException(
+                            "Insufficient inventory for book: " + book.getTitle() +
+                                    ". Available: " + available +
+                                    ", Requested: " + cartItem.getQuantity()
+                    ));
+                }
+            }
+
+            // Create order
+            order.setUserId(userId);
+            order.setOrderDate(LocalDateTime.now());
+            order.setStatus(Order.OrderStatus.CONFIRMED);
+
+            orderItems = orderItems(lines, booksById);
+
+            // Decrease inventory by whatever the holds do not cover; the check above may be stale
+            taken = takeInventory(orderItems, holds);
 
-        // Save order
-        Order savedOrder = orderRepository.save(order);
+            order.setItems(orderItems);
+            order.setTotalAmount(totalOf(orderItems));
+
+            // Save order, and tell whoever follows orders about it
+            savedOrder = orderRepository.save(order);
+            createdEvent = recordEvent(OrderEvent.Type.ORDER_CREATED, savedOrder);
+
+            // The held copies now belong to the order
+            reservationService.consumeHolds(holds);
+        } catch (RuntimeException e) {
+            // Undo the writes so far and hand the holds back on any failure before they are
+            // consumed; if even that fails, the claim lease runs out and the sweep reclaims them
+            undoCheckout(taken, snapshot == null ? savedOrder : null, createdEvent);
+            reservationService.restoreHolds(holds);
+            throw e;
+        }
+
+        // The order stands from here on. Without a transaction, a failed step below is
+        // retried and then logged rather than failing a checkout that has already sold
+        Map<String, Integer> heldBeyondOrder = heldBeyond(orderItems, holds);
+        afterOrder(savedOrder, "return copies held beyond the order", 1,
+                () -> heldBeyondOrder.forEach(bookService::increaseInventory));
 
         // Update user's purchase history
-        updateUserPurchaseHistory(userId, orderItems);
+        List<String> bookIds = List.copyOf(booksById.keySet());
+        afterOrder(savedOrder, "update the purchase history", AFTER_ORDER_ATTEMPTS,
+                () -> userRepository.addPurchasedBookIds(userId, bookIds));
 
-        // Clear the cart
-        shoppingCartService.clearCart(userId);
+        // Clear the cart; after a pending order, only the lines it bought, since the cart may have changed
+        afterOrder(savedOrder, "clear the cart", AFTER_ORDER_ATTEMPTS, () -> {
+            if (snapshot != null) {
+                shoppingCartService.removeItems(userId, bookIds);
+            } else {
+                shoppingCartService.clearCart(userId);
+            }
+        });
 
         return savedOrder;
     }
 
     /**
-     * Updates the list of purchased book IDs for a user after an order is completed.
+     * Undoes what a failed checkout had already written. Inside a transaction the
+     * rollback does this. A pending order is not deleted; completePendingOrder
+     * decides what becomes of it. A failure to undo is logged so the original
+     * error is the one reported.
+     */
+    private void undoCheckout(Map<String, Integer> taken, Order savedOrder, OrderEvent createdEvent) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return;
+        }
+        try {
+            if (createdEvent != null) {
+                orderEventRepository.delete(createdEvent);
+            }
+            if (savedOrder != null) {
+                orderRepository.delete(savedOrder);
+            }
+            taken.forEach(bookService::increaseInventory);
+        } catch (RuntimeException e) {
+            log.error("Could not undo a failed checkout (order {}, copies taken {}): {}",
+                    savedOrder == null ? null : savedOrder.getId(), taken, e.getMessage());
+        }
+    }
+
+    /**
+     * Runs a step that follows a saved order. Inside a transaction a failure rolls the
+     * whole checkout back, so it is thrown. Otherwise the order is already placed: the
+     * step is tried up to {@code attempts} times, which only idempotent steps may ask
+     * for, and a last failure is logged.
+     */
+    private void afterOrder(Order savedOrder, String step, int attempts, Runnable work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            work.run();
+            return;
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                work.run();
+                return;
+            } catch (DataAccessException e) {
+                if (attempt >= attempts) {
+                    log.error("Order {} was placed but could not {}: {}", savedOrder.getId(), step, e.getMessage());
+                    return;
+                }
+                log.info("Retrying to {} for order {} (attempt {} of {}): {}",
+                        step, savedOrder.getId(), attempt, attempts, e.getMessage());
+                try {
+                    Thread.sleep(AFTER_ORDER_BACKOFF_MILLIS * attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    log.error("Order {} was placed but could not {}: interrupted", savedOrder.getId(), step);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the order items for the given lines at the books' current prices.
+     */
+    private static List<OrderItem> orderItems(List<CartItem> lines, Map<String, Book> booksById) {
+        List<OrderItem> orderItems = new ArrayList<>();
+        for (CartItem line : lines) {
+            Book book = booksById.get(line.getBookId());
+            OrderItem orderItem = new OrderItem();
+            orderItem.setBookId(book.getId());
+            orderItem.setBookTitle(book.getTitle());
+            orderItem.setQuantity(line.getQuantity());
+            orderItem.setPriceAtPurchase(book.getPrice());
+            orderItems.add(orderItem);
+        }
+        return orderItems;
+    }
+
+    private static double totalOf(List<OrderItem> orderItems) {
+        double totalAmount = 0.0;
+        for (OrderItem item : orderItems) {
+            totalAmount += item.getPriceAtPurchase().doubleValue() * item.getQuantity();
+        }
+        return totalAmount;
+    }
+
+    /**
+     * Takes the ordered copies not already covered by holds out of all books,
+     * one conditional update per book. If any book has sold out since the
+     * order was validated, nothing is taken. Items of hot books are stamped
+     * with the flush sequence of their take.
      *
-     * @param userId     the user who placed the order
-     * @param orderItems the items included in the order
-     * @throws ResourceNotFoundException if the user does not exist
+     * @param orderItems the items being ordered
+     * @param holds      the holds claimed for the order
+     * @return the copies taken, by book ID
+     * @throws CheckoutRejectedException if a book no longer has enough copies; nothing is taken
      */
-    private void updateUserPurchaseHistory(String userId, List<OrderItem> orderItems) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+    private Map<String, Integer> takeInventory(List<OrderItem> orderItems, InventoryHolds holds) {
+        Map<String, Integer> quantities = quantitiesOf(orderItems);
+
+        Map<String, Integer> toTake = new LinkedHashMap<>();
+        quantities.forEach((bookId, quantity) -> {
+            int remaining = quantity - holds.heldQuantity(bookId);
+            if (remaining > 0) {
+                toTake.put(bookId, remaining);
+            }
+        });
 
+        Map<String, Long> flushSequences = new HashMap<>();
+        String soldOutBookId = bookService.decreaseInventories(toTake, flushSequences);
+        if (soldOutBookId != null) {
+            OrderItem item = orderItems.stream()
+                    .filter(i -> i.getBookId().equals(soldOutBookId))
+                    .findFirst()
+                    .orElseThrow();
+            // Re-read the book for the error message; it may have been deleted meanwhile
+            Book book = bookService.getBookById(soldOutBookId);
+            int available = (book == null ? 0 : book.getInventory()) + holds.heldQuantity(soldOutBookId);
+            throw new CheckoutRejectedException(new InsufficientInventoryException(
+                    "Insufficient inventory for book: " + item.getBookTitle() +
+                            ". Available: " + available +
+                            ", Requested: " + quantities.get(soldOutBookId)
+            ));
+        }
         for (OrderItem item : orderItems) {
-            if (!user.getPurchasedBookIds().contains(item.getBookId())) {
-                user.getPurchasedBookIds().add(item.getBookId());
+            item.setHotFlushSequence(flushSequences.get(item.getBookId()));
+        }
+        return toTake;
+    }
+
+    /**
+     * The copies held for the user beyond what the order buys, which go back into inventory.
+     */
+    private static Map<String, Integer> heldBeyond(List<OrderItem> orderItems, InventoryHolds holds) {
+        Map<String, Integer> beyond = new LinkedHashMap<>();
+        quantitiesOf(orderItems).forEach((bookId, quantity) -> {
+            int extra = holds.heldQuantity(bookId) - quantity;
+            if (extra > 0) {
+                beyond.put(bookId, extra);
             }
+        });
+        return beyond;
+    }
+
+    private static Map<String, Integer> quantitiesOf(List<OrderItem> orderItems) {
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (OrderItem item : orderItems) {
+            quantities.merge(item.getBookId(), item.getQuantity(), Integer::sum);
         }
+        return quantities;
+    }
 
-        userRepository.save(user);
+    private Map<String, Book> loadCartBooks(ShoppingCart cart) {
+        return loadBooks(cart.getItems());
+    }
+
+    /**
+     * Fetches the books for every line being checked out in a single batch.
+     *
+     * @param lines the cart lines being checked out
+     * @return the books, by ID
+     * @throws CheckoutRejectedException if a book no longer exists
+     */
+    private Map<String, Book> loadBooks(List<CartItem> lines) {
+        List<String> bookIds = lines.stream().map(CartItem::getBookId).toList();
+        BookBatchResult result = bookService.getBooksByIds(bookIds);
+        if (!result.getMissingIds().isEmpty()) {
+            throw new CheckoutRejectedException(
+                    new ResourceNotFoundException("Book not found with id: " + result.getMissingIds().get(0)));
+        }
+
+        Map<String, Book> booksById = new HashMap<>();
+        for (Book book : result.getBooks()) {
+            booksById.put(book.getId(), book);
+        }
+        return booksById;
     }
 
     /**
@@ -156,6 +533,50 @@ public class OrderService {
         return orderRepository.findAll();
     }
 
+    /**
+     * Retrieves one page of the orders matching the criteria, most recent first.
+     *
+     * Filtering, sorting, skip/limit and the total count are all done by MongoDB
+     * on an index. Skipping still walks the skipped orders, so deep pages get
+     * slower; {@link #scrollOrders} does not.
+     *
+     * @param criteria the filters to apply
+     * @param page     the zero-based page number
+     * @param size     the number of orders per page
+     * @return the page of orders
+     */
+    public Page<Order> getOrdersPaginated(OrderSearchCriteria criteria, int page, int size) {
+        return orderRepository.searchOrders(criteria, PageRequest.of(page, size));
+    }
+
+    /**
+     * Scrolls through the orders matching the criteria, most recent first, with a
+     * keyset cursor instead of a page number. Each call resumes right after the
+     * last order of the previous call, so page cost does not grow with how far
+     * the client has scrolled.
+     *
+     * @param criteria the filters to apply
+     * @param after    cursor returned by the previous call, or null for the first page
+     * @param limit    the number of orders to return
+     * @return the orders plus the cursor for the next call (null when there are no more)
+     */
+    public OrderScrollResponse scrollOrders(OrderSearchCriteria criteria, String after, int limit) {
+        OrderCursor cursor = after == null ? null : OrderCursor.decode(after);
+
+        // Fetch one extra order to find out whether another page exists
+        List<Order> orders = orderRepository.findOrdersAfter(criteria,
+                cursor == null ? null : cursor.getLastDate(),
+                cursor == null ? null : cursor.getLastId(),
+                limit + 1);
+
+        String nextCursor = null;
+        if (orders.size() > limit) {
+            orders = orders.subList(0, limit);
+            nextCursor = OrderCursor.after(orders.get(limit - 1)).encode();
+        }
+        return new OrderScrollResponse(orders, nextCursor);
+    }
+
     /**
      * Updates the status of an existing order.
      *
@@ -164,8 +585,32 @@ public class OrderService {
      * @return the updated order
      */
     public Order updateOrderStatus(String orderId, Order.OrderStatus status) {
-        Order order = getOrderById(orderId);
-        order.setStatus(status);
-        return orderRepository.save(order);
+        return transactionRunner.inTransaction(() -> {
+            Order order = getOrderById(orderId);
+            boolean changed = order.getStatus() != status;
+            order.setStatus(status);
+            Order savedOrder = orderRepository.save(order);
+            if (changed) {
+                recordEvent(OrderEvent.Type.ORDER_STATUS_CHANGED, savedOrder);
+            }
+            return savedOrder;
+        });
+    }
+
+    /**
+     * Adds an event about the order to the outbox, for
+     * {@link OrderEventPublisher} to deliver once the change is committed.
+     */
+    private OrderEvent recordEvent(OrderEvent.Type type, Order order) {
+        OrderEvent event = new OrderEvent();
+        event.setType(type);
+        event.setOrderId(order.getId());
+        event.setUserId(order.getUserId());
+        event.setStatus(order.getStatus());
+        if (type == OrderEvent.Type.ORDER_CREATED) {
+            event.setItems(new ArrayList<>(order.getItems()));
+        }
+        event.setCreatedAt(Instant.now());
+        return orderEventRepository.insert(event);
     }
 }
\ No newline at end of file
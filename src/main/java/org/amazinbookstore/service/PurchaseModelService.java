@@ -0,0 +1,124 @@
+package org.amazinbookstore.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.amazinbookstore.event.OrderEventListener;
+import org.amazinbookstore.model.OrderEvent;
+import org.amazinbookstore.model.OrderItem;
+import org.amazinbookstore.model.User;
+import org.amazinbookstore.recommendation.PurchaseModel;
+import org.amazinbookstore.repository.UserRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Async;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Keeps an in-memory {@link PurchaseModel} used for recommendations up to date.
+ *
+ * The model is built from every user's purchase history once the application
+ * is up, then updated from the order outbox as orders are placed, so it never
+ * has to rescan the users. A disabled model is never built, and stays not ready.
+ *
+ * @param <M> the kind of model
+ */
+@Slf4j
+public abstract class PurchaseModelService<M extends PurchaseModel> implements OrderEventListener {
+
+    private final UserRepository userRepository;
+    private final Supplier<M> modelFactory;
+    private final String name;
+    private final boolean enabled;
+
+    // null until the first build completes
+    private volatile M model;
+
+    // While a rebuild runs, new orders go to the new model too so none are lost when it is swapped in
+    private volatile M rebuilding;
+
+    protected PurchaseModelService(UserRepository userRepository, Supplier<M> modelFactory, String name,
+                                   boolean enabled) {
+        this.userRepository = userRepository;
+        this.modelFactory = modelFactory;
+        this.name = name;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Builds the model from the users collection, streaming it with a cursor.
+     * Lookups keep using the previous model until the new one is complete.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        M fresh = modelFactory.get();
+        rebuilding = fresh;
+        try (Stream<User> users = userRepository.streamAllBy()) {
+            users.forEach(user -> fresh.addPurchases(user.getId(), user.getPurchasedBookIds()));
+            model = fresh;
+            log.info("Built the {}", name);
+        } catch (DataAccessException e) {
+            log.warn("Could not build the {}: {}", name, e.getMessage());
+        } finally {
+            rebuilding = null;
+        }
+    }
+
+    /**
+     * Adds the books of newly created orders to their buyers' purchases.
+     * Other events do not change what anyone has bought.
+     */
+    @Override
+    public void onOrderEvents(List<OrderEvent> events) {
+        if (!enabled) {
+            return;
+        }
+        for (OrderEvent event : events) {
+            if (event.getType() != OrderEvent.Type.ORDER_CREATED) {
+                continue;
+            }
+            List<String> bookIds = event.getItems().stream().map(OrderItem::getBookId).toList();
+            M current = model;
+            M next = rebuilding;
+            if (current != null) {
+                current.addPurchases(event.getUserId(), bookIds);
+            }
+            if (next != null && next != current) {
+                next.addPurchases(event.getUserId(), bookIds);
+            }
+        }
+    }
+
+    /**
+     * Whether the model has been built and can answer lookups.
+     */
+    public boolean isReady() {
+        return model != null;
+    }
+
+    /**
+     * Finds the books bought by the most users.
+     *
+     * @param exclude books to leave out
+     * @param limit   the maximum number of books
+     * @return book ids, most bought first; empty until the model is built
+     */
+    public List<String> popular(Collection<String> exclude, int limit) {
+        M current = model;
+        return current == null ? List.of() : current.popular(exclude, limit);
+    }
+
+    /**
+     * @return the current model, or null until it is built
+     */
+    protected M model() {
+        return model;
+    }
+}
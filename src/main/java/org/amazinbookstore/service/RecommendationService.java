@@ -4,23 +4,57 @@ import org.amazinbookstore.dto.RecommendationResponse;
 import org.amazinbookstore.exception.ResourceNotFoundException;
 import org.amazinbookstore.model.Book;
 import org.amazinbookstore.model.User;
+import org.amazinbookstore.recommendation.NeighbourScorer;
+import org.amazinbookstore.recommendation.RecommendationStrategy;
 import org.amazinbookstore.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * Recommends books to a user, using the strategy set by
+ * {@code amazin.recommendations.strategy}: books bought by similar users
+ * (the default, see {@link SimilarUserService}), or books most often bought
+ * together with the user's own (see {@link CoPurchaseService}).
+ */
 @Service
-@RequiredArgsConstructor
 public class RecommendationService {
 
     private final UserRepository userRepository;
     private final BookService bookService;
+    private final SimilarUserService similarUserService;
+    private final CoPurchaseService coPurchaseService;
+    private final RecommendationStrategy strategy;
+    private final int neighbours;
+
+    public RecommendationService(UserRepository userRepository,
+                                 BookService bookService,
+                                 SimilarUserService similarUserService,
+                                 CoPurchaseService coPurchaseService,
+                                 @Value("${amazin.recommendations.strategy:similar-users}") String strategy,
+                                 @Value("${amazin.recommendations.neighbours:50}") int neighbours) {
+        this.userRepository = userRepository;
+        this.bookService = bookService;
+        this.similarUserService = similarUserService;
+        this.coPurchaseService = coPurchaseService;
+        this.strategy = RecommendationStrategy.fromKey(strategy);
+        this.neighbours = neighbours;
+    }
 
     /**
      * Get book recommendations for a user based on Jaccard similarity.
      * If no similar users are found, falls back to popular books.
+     *
+     * Only the {@code amazin.recommendations.neighbours} most similar users are
+     * kept, scored in parallel. Once the buyer index is built, only users who
+     * share a book with this one are scored, and nothing but this user is read
+     * from the database.
+     *
+     * With the co-purchase strategy, recommendations instead come from the
+     * co-purchase matrix once it is built, looked up from the user's own books
+     * without reading any other user.
      */
     public RecommendationResponse getRecommendations(String userId, int maxRecommendations) {
         User currentUser = userRepository.findById(userId)
@@ -28,6 +62,10 @@ public class RecommendationService {
 
         Set<String> currentUserBooks = new HashSet<>(currentUser.getPurchasedBookIds());
 
+        if (strategy == RecommendationStrategy.CO_PURCHASE && coPurchaseService.isReady()) {
+            return getCoPurchaseRecommendations(currentUserBooks, maxRecommendations);
+        }
+
         // if user has no purchases, just show popular books
         if (currentUserBooks.isEmpty()) {
             List<Book> popularBooks = getPopularBooks(maxRecommendations, currentUserBooks);
@@ -37,25 +75,15 @@ public class RecommendationService {
             return RecommendationResponse.fallbackToPopular(popularBooks);
         }
 
-        // try to find similar users
-        List<User> allUsers = userRepository.findAll();
-        Map<String, Double> userSimilarities = new HashMap<>();
-
-        for (User otherUser : allUsers) {
-            if (otherUser.getId().equals(userId) || otherUser.getPurchasedBookIds().isEmpty()) {
-                continue;
-            }
-
-            Set<String> otherUserBooks = new HashSet<>(otherUser.getPurchasedBookIds());
-            double similarity = calculateJaccardSimilarity(currentUserBooks, otherUserBooks);
-
-            if (similarity > 0) {
-                userSimilarities.put(otherUser.getId(), similarity);
-            }
-        }
+        // try to find similar users, most similar first, from the buyer index once it is built
+        Iterator<List<String>> similarUsersBooks = similarUserService.isReady()
+                ? similarUserService.mostSimilar(userId, currentUserBooks, neighbours).keySet().stream()
+                        .map(similarUserService::booksOf).iterator()
+                : scanForSimilarUsers(userId, currentUserBooks).stream()
+                        .map(User::getPurchasedBookIds).iterator();
 
         // no similar users found - fall back to popular books
-        if (userSimilarities.isEmpty()) {
+        if (!similarUsersBooks.hasNext()) {
             List<Book> popularBooks = getPopularBooks(maxRecommendations, currentUserBooks);
             if (popularBooks.isEmpty()) {
                 return RecommendationResponse.empty();
@@ -64,16 +92,9 @@ public class RecommendationService {
         }
 
         // we have similar users, get their books
-        List<Map.Entry<String, Double>> sortedUsers = userSimilarities.entrySet().stream()
-                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
-                .collect(Collectors.toList());
-
         Set<String> recommendedBookIds = new LinkedHashSet<>();
-        for (Map.Entry<String, Double> entry : sortedUsers) {
-            User similarUser = userRepository.findById(entry.getKey()).orElse(null);
-            if (similarUser == null) continue;
-
-            for (String bookId : similarUser.getPurchasedBookIds()) {
+        while (similarUsersBooks.hasNext()) {
+            for (String bookId : similarUsersBooks.next()) {
                 if (!currentUserBooks.contains(bookId)) {
                     recommendedBookIds.add(bookId);
                 }
@@ -98,11 +119,54 @@ public class RecommendationService {
         return RecommendationResponse.personalized(recommendations);
     }
 
+    /**
+     * Recommends the books most often bought with the user's books, falling back
+     * to the most bought books when there are none.
+     */
+    private RecommendationResponse getCoPurchaseRecommendations(Set<String> currentUserBooks, int maxRecommendations) {
+        List<Book> recommendations = currentUserBooks.isEmpty()
+                ? new ArrayList<>()
+                : fetchBooks(new LinkedHashSet<>(coPurchaseService.recommend(currentUserBooks, maxRecommendations)),
+                        maxRecommendations);
+        if (!recommendations.isEmpty()) {
+            return RecommendationResponse.personalized(recommendations);
+        }
+
+        List<Book> popularBooks = fetchBooks(
+                new LinkedHashSet<>(coPurchaseService.popular(currentUserBooks, maxRecommendations)), maxRecommendations);
+        if (popularBooks.isEmpty()) {
+            return RecommendationResponse.empty();
+        }
+        return RecommendationResponse.fallbackToPopular(popularBooks);
+    }
+
+    /**
+     * The most similar users by Jaccard similarity against every other user, for when
+     * the buyer index is not built. The users already loaded are returned, so their
+     * books need not be read again.
+     */
+    private List<User> scanForSimilarUsers(String userId, Set<String> currentUserBooks) {
+        List<User> otherUsers = userRepository.findAll().stream()
+                .filter(user -> !user.getId().equals(userId) && !user.getPurchasedBookIds().isEmpty())
+                .collect(Collectors.toList());
+
+        return NeighbourScorer.top(otherUsers.size(),
+                        i -> calculateJaccardSimilarity(currentUserBooks, otherUsers.get(i).getPurchasedBookIds()),
+                        Integer::valueOf, neighbours)
+                .keySet().stream()
+                .map(otherUsers::get)
+                .collect(Collectors.toList());
+    }
+
     /**
      * Get popular books based on how many users have purchased them.
      * Excludes books the user already owns.
      */
     private List<Book> getPopularBooks(int maxBooks, Set<String> excludeBookIds) {
+        if (similarUserService.isReady()) {
+            return fetchBooks(new LinkedHashSet<>(similarUserService.popular(excludeBookIds, maxBooks)), maxBooks);
+        }
+
         List<User> allUsers = userRepository.findAll();
 
         // count how many times each book was purchased
@@ -122,40 +186,33 @@ public class RecommendationService {
     }
 
     /**
-     * Fetch actual Book objects from a set of IDs.
+     * Fetch actual Book objects from a set of IDs in one batch, keeping their order.
      * Skips books that no longer exist.
      */
     private List<Book> fetchBooks(Set<String> bookIds, int maxBooks) {
-        List<Book> books = new ArrayList<>();
-        for (String bookId : bookIds) {
-            try {
-                Book book = bookService.getBookById(bookId);
-                if (book != null) {
-                    books.add(book);
-                    if (books.size() >= maxBooks) {
-                        break;
-                    }
-                }
-            } catch (ResourceNotFoundException e) {
-                // book was deleted, skip it
-            }
+        if (bookIds.isEmpty()) {
+            return new ArrayList<>();
         }
-        return books;
+        List<Book> books = bookService.getBooksByIds(bookIds).getBooks();
+        return new ArrayList<>(books.subList(0, Math.min(maxBooks, books.size())));
     }
 
     /**
-     * Jaccard similarity = |A ∩ B| / |A ∪ B|
+     * Jaccard similarity = |A ∩ B| / |A ∪ B| = |A ∩ B| / (|A| + |B| - |A ∩ B|)
+     *
+     * Purchase lists hold each book once, so the intersection is counted
+     * without copying either side into a new set.
      */
-    private double calculateJaccardSimilarity(Set<String> set1, Set<String> set2) {
-        if (set1.isEmpty() && set2.isEmpty()) {
+    private double calculateJaccardSimilarity(Set<String> books, List<String> otherBooks) {
+        int intersection = 0;
+        for (String bookId : otherBooks) {
+            if (books.contains(bookId)) {
+                intersection++;
+            }
+        }
+        if (intersection == 0) {
             return 0.0;
         }
-
-        Set<String> intersection = new HashSet<>(set1);
-        intersection.retainAll(set2);
-        Set<String> union = new HashSet<>(set1);
-        union.addAll(set2);
-
-        return (double) intersection.size() / union.size();
+        return (double) intersection / (books.size() + otherBooks.size() - intersection);
     }
 }
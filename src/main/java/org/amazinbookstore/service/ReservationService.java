@@ -0,0 +1,259 @@
+package org.amazinbookstore.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.amazinbookstore.exception.InsufficientInventoryException;
+import org.amazinbookstore.exception.ResourceNotFoundException;
+import org.amazinbookstore.model.Book;
+import org.amazinbookstore.model.InventoryReservation;
+import org.amazinbookstore.repository.InventoryReservationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Time-limited holds on stock for the books in users' carts.
+ *
+ * Taking a hold takes the copies out of the book's inventory straight away, so
+ * a shopper learns that a book has sold out when adding it to the cart rather
+ * than at checkout. Each change to the cart renews the hold; if the cart is
+ * left alone for longer than the hold duration, a background sweep puts the
+ * copies back. Checkout claims the user's live holds and only has to take from
+ * the shared inventory whatever the holds do not already cover. A claim only
+ * lasts for the claim lease, after which the sweep reclaims the hold as if it
+ * had expired, so a checkout that died mid-way cannot strand the copies. Books
+ * flagged as hot SKUs are checked for stock but not held.
+ */
+@Slf4j
+@Service
+public class ReservationService {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final InventoryReservationRepository reservationRepository;
+    private final BookService bookService;
+    private final TransactionRunner transactionRunner;
+    private final Duration holdDuration;
+    private final Duration claimLease;
+
+    public ReservationService(InventoryReservationRepository reservationRepository,
+                              BookService bookService,
+                              TransactionRunner transactionRunner,
+                              @Value("${amazin.reservations.hold-duration:15m}") Duration holdDuration,
+                              @Value("${amazin.reservations.claim-lease:5m}") Duration claimLease) {
+        this.reservationRepository = reservationRepository;
+        this.bookService = bookService;
+        this.transactionRunner = transactionRunner;
+        this.holdDuration = holdDuration;
+        this.claimLease = claimLease;
+    }
+
+    /**
+     * Sets the user's hold on a book to the given quantity and renews it.
+     * A quantity of zero releases the hold.
+     *
+     * @param userId   the ID of the user
+     * @param bookId   the ID of the book
+     * @param quantity the number of copies to hold
+     * @throws InsufficientInventoryException if there are not enough copies left to hold
+     * @throws ResourceNotFoundException if the book does not exist
+     */
+    public void hold(String userId, String bookId, int quantity) {
+        // Hot books are not held: every hold would be another write on the book, and
+        // their in-memory count already makes checkout cheap. Any earlier hold is released.
+        boolean hot = bookService.isHotSku(bookId);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                adjustHold(userId, bookId, hot ? 0 : Math.max(quantity, 0));
+                break;
+            } catch (OptimisticLockingFailureException | DuplicateKeyException e) {
+                // Another request changed the same hold; its inventory change stands, so start over
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+
+        if (hot && quantity > 0) {
+            Book book = bookService.getBookById(bookId);
+            if (book == null) {
+                throw new ResourceNotFoundException("Book not found with id: " + bookId);
+            }
+            if (book.getInventory() < quantity) {
+                throw new InsufficientInventoryException(
+                        "Insufficient inventory for book: " + book.getTitle() +
+                                ". Available: " + book.getInventory() +
+                                ", Requested: " + quantity
+                );
+            }
+        }
+    }
+
+    /**
+     * Releases the user's hold on a book, putting the copies back.
+     *
+     * @param userId the ID of the user
+     * @param bookId the ID of the book
+     */
+    public void release(String userId, String bookId) {
+        hold(userId, bookId, 0);
+    }
+
+    /**
+     * Releases every hold the user has.
+     *
+     * @param userId the ID of the user
+     */
+    public void releaseAll(String userId) {
+        for (InventoryReservation reservation : reservationRepository.findByUserId(userId)) {
+            release(userId, reservation.getBookId());
+        }
+    }
+
+    /**
+     * Claims the user's unexpired holds on the given books for a checkout. Once
+     * claimed, a hold can no longer expire, so its copies are guaranteed to the order
+     * for as long as the claim lease lasts.
+     *
+     * @param userId  the ID of the user checking out
+     * @param bookIds the books in the cart
+     * @return the claimed holds
+     */
+    public InventoryHolds claimHolds(String userId, Collection<String> bookIds) {
+        String token = UUID.randomUUID().toString();
+        reservationRepository.claimActive(userId, bookIds, token, Instant.now());
+
+        Map<String, Integer> quantities = new HashMap<>();
+        for (InventoryReservation reservation : reservationRepository.findByClaimedBy(token)) {
+            quantities.put(reservation.getBookId(), reservation.getQuantity());
+        }
+        return quantities.isEmpty() ? InventoryHolds.none() : new InventoryHolds(token, quantities);
+    }
+
+    /**
+     * Deletes claimed holds once their copies belong to a saved order.
+     *
+     * @param holds the holds claimed by the checkout
+     */
+    public void consumeHolds(InventoryHolds holds) {
+        if (!holds.isEmpty()) {
+            reservationRepository.deleteByClaimedBy(holds.getToken());
+        }
+    }
+
+    /**
+     * Hands claimed holds back after a failed checkout, so the user keeps them.
+     * Inside a transaction the rollback already does this.
+     *
+     * @param holds the holds claimed by the checkout
+     */
+    public void restoreHolds(InventoryHolds holds) {
+        if (!holds.isEmpty() && !TransactionSynchronizationManager.isActualTransactionActive()) {
+            reservationRepository.unclaim(holds.getToken());
+        }
+    }
+
+    /**
+     * Puts the copies of every expired hold, and of every hold whose claim lease
+     * has run out, back into inventory.
+     */
+    @Scheduled(fixedDelayString = "${amazin.reservations.sweep-interval:PT1M}",
+            initialDelayString = "${amazin.reservations.sweep-interval:PT1M}")
+    public void sweepExpiredHolds() {
+        try {
+            int reclaimed = 0;
+            while (transactionRunner.inTransaction(this::reclaimOneExpired)) {
+                reclaimed++;
+            }
+            if (reclaimed > 0) {
+                log.info("Reclaimed {} expired inventory holds", reclaimed);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not sweep expired inventory holds: {}", e.getMessage());
+        }
+    }
+
+    private boolean reclaimOneExpired() {
+        Instant now = Instant.now();
+        InventoryReservation expired = reservationRepository.removeExpired(now, now.minus(claimLease));
+        if (expired == null) {
+            return false;
+        }
+        bookService.increaseInventory(expired.getBookId(), expired.getQuantity());
+        return true;
+    }
+
+    private void adjustHold(String userId, String bookId, int quantity) {
+        Instant now = Instant.now();
+        InventoryReservation reservation = reservationRepository.findByUserIdAndBookId(userId, bookId)
+                .orElse(null);
+
+        if (reservation != null && isReclaimable(reservation, now)) {
+            // Expired or abandoned but not yet swept: reclaim it here, then start a fresh hold
+            String expiredId = reservation.getId();
+            if (transactionRunner.inTransaction(() -> reclaimExpired(expiredId, now))) {
+                reservation = null;
+            } else {
+                throw new OptimisticLockingFailureException("Hold on book " + bookId + " changed while expiring");
+            }
+        }
+
+        int held = reservation == null ? 0 : reservation.getQuantity();
+        int delta = quantity - held;
+        if (delta > 0) {
+            bookService.decreaseInventory(bookId, delta);
+        }
+
+        try {
+            if (quantity == 0) {
+                if (reservation != null) {
+                    reservationRepository.delete(reservation);
+                }
+            } else {
+                if (reservation == null) {
+                    reservation = new InventoryReservation();
+                    reservation.setUserId(userId);
+                    reservation.setBookId(bookId);
+                }
+                reservation.setQuantity(quantity);
+                reservation.setExpiresAt(now.plus(holdDuration));
+                reservationRepository.save(reservation);
+            }
+        } catch (RuntimeException e) {
+            if (delta > 0) {
+                bookService.increaseInventory(bookId, delta);
+            }
+            throw e;
+        }
+
+        if (delta < 0) {
+            bookService.increaseInventory(bookId, -delta);
+        }
+    }
+
+    private boolean isReclaimable(InventoryReservation reservation, Instant now) {
+        if (reservation.getClaimedBy() == null) {
+            return !reservation.getExpiresAt().isAfter(now);
+        }
+        return reservation.getClaimedAt() != null && !reservation.getClaimedAt().isAfter(now.minus(claimLease));
+    }
+
+    private boolean reclaimExpired(String reservationId, Instant now) {
+        InventoryReservation expired = reservationRepository.removeIfExpired(reservationId, now, now.minus(claimLease));
+        if (expired == null) {
+            return false;
+        }
+        bookService.increaseInventory(expired.getBookId(), expired.getQuantity());
+        return true;
+    }
+}
@@ -1,17 +1,22 @@
 package org.amazinbookstore.service;
 
 import org.amazinbookstore.exception.ResourceNotFoundException;
+import org.amazinbookstore.exception.InsufficientInventoryException;
+import org.amazinbookstore.model.CartItem;
 import org.amazinbookstore.model.ShoppingCart;
 import org.amazinbookstore.repository.ShoppingCartRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+
 @Service
 @RequiredArgsConstructor
 public class ShoppingCartService {
 
     private final ShoppingCartRepository shoppingCartRepository;
     private final BookService bookService;
+    private final ReservationService reservationService;
 
     /**
      * Retrieves the shopping cart associated with the given user ID.
@@ -40,17 +45,20 @@ public class ShoppingCartService {
     /**
      * Adds a book to the user's cart.
      * If the book already exists in the cart, its quantity is incremented.
+     * The copies are held for the user until checkout or until the hold expires.
      *
      * @param userId  the ID of the user whose cart is being updated
      * @param bookId  the ID of the book to add
      * @param quantity the quantity to add
      * @return the updated {@link ShoppingCart}
+     * @throws InsufficientInventoryException if there are not enough copies left to hold
      */
     public ShoppingCart addItemToCart(String userId, String bookId, Integer quantity) {
         // Verify book exists
         bookService.getBookById(bookId);
 
         ShoppingCart cart = getCartByUserId(userId);
+        reservationService.hold(userId, bookId, quantityInCart(cart, bookId) + quantity);
         cart.addItem(bookId, quantity);
         return shoppingCartRepository.save(cart);
     }
@@ -64,6 +72,7 @@ public class ShoppingCartService {
      */
     public ShoppingCart removeItemFromCart(String userId, String bookId) {
         ShoppingCart cart = getCartByUserId(userId);
+        reservationService.release(userId, bookId);
         cart.removeItem(bookId);
         return shoppingCartRepository.save(cart);
     }
@@ -71,29 +80,49 @@ public class ShoppingCartService {
     /**
      * Updates the quantity of a specific item in the user's cart.
      * Setting quantity to zero behaves as a remove operation.
+     * The user's hold on the book is resized to match.
      *
      * @param userId  the ID of the user whose cart is being updated
      * @param bookId  the ID of the book whose quantity is being modified
      * @param quantity the new quantity to set
      * @return the updated {@link ShoppingCart}
+     * @throws InsufficientInventoryException if there are not enough copies left to hold
      */
     public ShoppingCart updateItemQuantity(String userId, String bookId, Integer quantity) {
         ShoppingCart cart = getCartByUserId(userId);
+        if (quantityInCart(cart, bookId) > 0) {
+            reservationService.hold(userId, bookId, quantity);
+        }
         cart.updateItemQuantity(bookId, quantity);
         return shoppingCartRepository.save(cart);
     }
 
     /**
-     * Clears all items from the user's cart.
+     * Clears all items from the user's cart and releases any holds still on them.
      *
      * @param userId the ID of the user whose cart should be emptied
      */
     public void clearCart(String userId) {
         ShoppingCart cart = getCartByUserId(userId);
+        reservationService.releaseAll(userId);
         cart.clear();
         shoppingCartRepository.save(cart);
     }
 
+    /**
+     * Removes the given books from the user's cart, e.g. once an asynchronous
+     * checkout has ordered them, leaving anything added since in place.
+     * Their holds belong to the order, so none are released here.
+     *
+     * @param userId  the ID of the user whose cart is being modified
+     * @param bookIds the IDs of the books to remove
+     */
+    public void removeItems(String userId, Collection<String> bookIds) {
+        ShoppingCart cart = getCartByUserId(userId);
+        bookIds.forEach(cart::removeItem);
+        shoppingCartRepository.save(cart);
+    }
+
     /**
      * Retrieves a shopping cart based on its MongoDB document ID.
      *
@@ -105,4 +134,11 @@ public class ShoppingCartService {
         return shoppingCartRepository.findById(cartId)
                 .orElseThrow(() -> new ResourceNotFoundException("Cart not found with id: " + cartId));
     }
+
+    private static int quantityInCart(ShoppingCart cart, String bookId) {
+        return cart.getItems().stream()
+                .filter(item -> item.getBookId().equals(bookId))
+                .mapToInt(CartItem::getQuantity)
+                .sum();
+    }
 }
@@ -0,0 +1,62 @@
+package org.amazinbookstore.service;
+
+import org.amazinbookstore.recommendation.BuyerIndex;
+import org.amazinbookstore.recommendation.MinHashIndex;
+import org.amazinbookstore.recommendation.RecommendationStrategy;
+import org.amazinbookstore.recommendation.SimilarityModel;
+import org.amazinbookstore.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.List;
+
+/**
+ * Keeps the index behind the similar-users recommendation strategy up to date.
+ * Only built when {@code amazin.recommendations.strategy} is
+ * {@code similar-users}, the default.
+ *
+ * {@code amazin.recommendations.similar-users.index} picks the index: the
+ * exact {@link BuyerIndex}, or with {@code minhash} the approximate
+ * {@link MinHashIndex}, whose recall is tuned by
+ * {@code amazin.recommendations.minhash.bands} and {@code .rows}.
+ */
+@Service
+public class SimilarUserService extends PurchaseModelService<SimilarityModel> {
+
+    static final String MINHASH = "minhash";
+
+    public SimilarUserService(UserRepository userRepository,
+                              @Value("${amazin.recommendations.strategy:similar-users}") String strategy,
+                              @Value("${amazin.recommendations.similar-users.index:exact}") String index,
+                              @Value("${amazin.recommendations.minhash.bands:32}") int bands,
+                              @Value("${amazin.recommendations.minhash.rows:2}") int rows) {
+        super(userRepository,
+                MINHASH.equalsIgnoreCase(index) ? () -> new MinHashIndex(bands, rows) : BuyerIndex::new,
+                MINHASH.equalsIgnoreCase(index) ? "MinHash index" : "buyer index",
+                RecommendationStrategy.fromKey(strategy) == RecommendationStrategy.SIMILAR_USERS);
+    }
+
+    /**
+     * Finds the users most like a reader by Jaccard similarity, among all who share a
+     * book with them with the exact index, or most of the closest ones with MinHash.
+     *
+     * @param userId  the reader
+     * @param bookIds the reader's books
+     * @param limit   the maximum number of users
+     * @return similarity by user id, most similar first; empty until the index is built
+     */
+    public Map<String, Double> mostSimilar(String userId, Collection<String> bookIds, int limit) {
+        SimilarityModel index = model();
+        return index == null ? Map.of() : index.mostSimilar(userId, bookIds, limit);
+    }
+
+    /**
+     * @return the books the user has bought, in the order the index first saw them; empty until the index is built
+     */
+    public List<String> booksOf(String userId) {
+        SimilarityModel index = model();
+        return index == null ? List.of() : index.booksOf(userId);
+    }
+}
@@ -0,0 +1,169 @@
+package org.amazinbookstore.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An in-memory stock count for one book, split across several independently
+ * updated stripes so that concurrent buyers rarely contend on the same value.
+ *
+ * Each stripe sits on its own cache line. A take starts at a random stripe and
+ * drains stripes in turn until it has enough; if all stripes together cannot
+ * cover it, whatever it took is put back and the take fails. The total is never
+ * negative, though a take racing with another one that is putting copies back
+ * may fail while the count is very low.
+ *
+ * Takes made through {@link #take} are numbered with a flush sequence. A flush
+ * {@link #drain drains} the counter: it holds new takes off for as long as it
+ * takes to sum the stripes, so the count it reads includes exactly the takes
+ * numbered up to its sequence, and later takes get a higher one. Takes only
+ * ever touch a striped in-flight count and a volatile flag on top of the
+ * stripes themselves.
+ */
+final class StripedInventoryCounter {
+
+    // 16 ints = 64 bytes, one cache line per stripe
+    private static final int PADDING = 16;
+
+    private final AtomicIntegerArray cells;
+    private final int stripes;
+
+    // Takes under way, and whether a drain is holding new ones off
+    private final LongAdder inFlight = new LongAdder();
+    private volatile boolean draining;
+    private volatile long sequence;
+
+    StripedInventoryCounter(int stripes, int initial) {
+        this(stripes, initial, 0);
+    }
+
+    /**
+     * @param sequence the flush sequence of the first takes
+     */
+    StripedInventoryCounter(int stripes, int initial, long sequence) {
+        this.stripes = Math.max(1, stripes);
+        this.cells = new AtomicIntegerArray(this.stripes * PADDING);
+        int share = initial / this.stripes;
+        for (int i = 0; i < this.stripes; i++) {
+            cells.set(i * PADDING, share);
+        }
+        cells.addAndGet(0, initial - share * this.stripes);
+        this.sequence = sequence;
+    }
+
+    /**
+     * Takes quantity copies if that many are left.
+     *
+     * @return whether the copies were taken
+     */
+    boolean tryTake(int quantity) {
+        int start = ThreadLocalRandom.current().nextInt(stripes);
+        int remaining = quantity;
+        int[] taken = new int[stripes];
+
+        for (int i = 0; i < stripes && remaining > 0; i++) {
+            int stripe = (start + i) % stripes;
+            int index = stripe * PADDING;
+            while (remaining > 0) {
+                int current = cells.get(index);
+                int take = Math.min(current, remaining);
+                if (take <= 0) {
+                    break;
+                }
+                if (cells.compareAndSet(index, current, current - take)) {
+                    taken[stripe] += take;
+                    remaining -= take;
+                }
+            }
+        }
+
+        if (remaining > 0) {
+            for (int stripe = 0; stripe < stripes; stripe++) {
+                if (taken[stripe] > 0) {
+                    cells.addAndGet(stripe * PADDING, taken[stripe]);
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Takes quantity copies if that many are left, as {@link #tryTake} does,
+     * and tells which flush sequence the take belongs to.
+     *
+     * @return the sequence of the take, or -1 if the copies were not taken
+     */
+    long take(int quantity) {
+        while (true) {
+            inFlight.increment();
+            if (!draining) {
+                break;
+            }
+            inFlight.decrement();
+            while (draining) {
+                Thread.onSpinWait();
+            }
+        }
+        try {
+            return tryTake(quantity) ? sequence : -1;
+        } finally {
+            inFlight.decrement();
+        }
+    }
+
+    /**
+     * Reads the exact count with takes held off, then moves later takes on to a
+     * new sequence.
+     *
+     * @param next the sequence for later takes; the current one plus one if it is not higher
+     * @return the count, which includes every take numbered up to the returned sequence and none after
+     */
+    synchronized Drained drain(long next) {
+        draining = true;
+        try {
+            // Takes that got in before the flag finish; they are lock-free and short
+            while (inFlight.sum() != 0) {
+                Thread.onSpinWait();
+            }
+            Drained drained = new Drained(sum(), sequence);
+            sequence = Math.max(next, sequence + 1);
+            return drained;
+        } finally {
+            draining = false;
+        }
+    }
+
+    /**
+     * Puts copies back.
+     */
+    void add(int quantity) {
+        cells.addAndGet(ThreadLocalRandom.current().nextInt(stripes) * PADDING, quantity);
+    }
+
+    /**
+     * The number of copies left. Not an atomic snapshot while takes are in flight.
+     */
+    int sum() {
+        int sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    /**
+     * A count read by {@link #drain}, and the sequence of the last takes it includes.
+     */
+    static final class Drained {
+
+        final int count;
+        final long sequence;
+
+        private Drained(int count, long sequence) {
+            this.count = count;
+            this.sequence = sequence;
+        }
+    }
+}
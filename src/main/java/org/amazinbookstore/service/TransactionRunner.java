@@ -0,0 +1,84 @@
+package org.amazinbookstore.service;
+
+import com.mongodb.MongoException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs a unit of work in a MongoDB transaction, retrying it when the
+ * transaction fails with a transient error such as a write conflict between
+ * concurrent checkouts.
+ *
+ * The whole unit of work is re-run on each attempt, so it must read the
+ * state it depends on inside the supplier. Retries back off exponentially
+ * with jitter so colliding transactions spread out instead of colliding again.
+ *
+ * When transactions are disabled (see
+ * {@link org.amazinbookstore.config.MongoTransactionConfig}) the work runs
+ * directly, without a transaction.
+ */
+@Slf4j
+@Component
+public class TransactionRunner {
+
+    static final int MAX_ATTEMPTS = 5;
+    static final long BASE_BACKOFF_MILLIS = 10;
+    static final long MAX_BACKOFF_MILLIS = 500;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public TransactionRunner(@Nullable MongoTransactionManager transactionManager) {
+        this.transactionTemplate = transactionManager != null ? new TransactionTemplate(transactionManager) : null;
+    }
+
+    /**
+     * Runs the work in a transaction, retrying on transient transaction errors.
+     *
+     * @param work the unit of work; may run more than once
+     * @return the work's result
+     */
+    public <T> T inTransaction(Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate != null ? transactionTemplate.execute(status -> work.get()) : work.get();
+            } catch (RuntimeException e) {
+                if (attempt >= MAX_ATTEMPTS || !isTransient(e)) {
+                    throw e;
+                }
+                log.info("Retrying transaction after transient error (attempt {} of {}): {}",
+                        attempt, MAX_ATTEMPTS, e.getMessage());
+                backOff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Whether MongoDB labelled the failure as safe to retry as a whole transaction.
+     * Spring wraps driver exceptions, so the whole cause chain is checked.
+     */
+    static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongoError
+                    && mongoError.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void backOff(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << attempt);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying transaction", e);
+        }
+    }
+}
@@ -1,6 +1,9 @@
 // user ID from localStorage or use default
 const DEFAULT_USER_ID = localStorage.getItem("userId") || "default-user";
 
+// times a checkout is retried after a network failure
+const CHECKOUT_RETRIES = 2;
+
 // Create book function
 function createBook(formData) {
   fetch("/api/books", {
@@ -306,12 +309,24 @@ function processCheckout(event) {
   // Close modal
   closeCheckoutModal();
 
-  // Call backend checkout API
+  // Call backend checkout API. Retries reuse the same Idempotency-Key, so a retry
+  // after a lost response returns the first order instead of placing a second one
   const url = `/api/orders/checkout/${DEFAULT_USER_ID}`;
+  const idempotencyKey = crypto.randomUUID();
+
+  const postCheckout = (retriesLeft) =>
+    fetch(url, {
+      method: "POST",
+      headers: { "Idempotency-Key": idempotencyKey },
+    }).catch((error) => {
+      // Network failure or timeout: the order may or may not have been placed
+      if (retriesLeft > 0) {
+        return postCheckout(retriesLeft - 1);
+      }
+      throw error;
+    });
 
-  fetch(url, {
-    method: "POST",
-  })
+  postCheckout(CHECKOUT_RETRIES)
     .then((response) => {
       if (response.ok) {
         return response.json();
@@ -472,3 +487,45 @@ function decreaseQty() {
     }
   }
 }
+
+// ======= Search Autocomplete (Browse Page) =======
+
+// Fill the search box's datalist from /api/books/suggest as the user types
+function initSearchSuggestions() {
+  const input = document.getElementById("search-input");
+  const list = document.getElementById("search-suggestions");
+  if (!input || !list) {
+    return;
+  }
+
+  let latest = 0;
+  input.addEventListener("input", function () {
+    const query = input.value.trim();
+    const request = ++latest;
+    if (query.length === 0) {
+      list.innerHTML = "";
+      return;
+    }
+
+    fetch(`/api/books/suggest?q=${encodeURIComponent(query)}`)
+      .then((response) => response.json())
+      .then((suggestions) => {
+        // ignore responses that arrive after a newer keystroke's
+        if (request !== latest) {
+          return;
+        }
+        list.innerHTML = "";
+        suggestions.forEach((suggestion) => {
+          const option = document.createElement("option");
+          option.value = suggestion.text;
+          option.label = suggestion.field;
+          list.appendChild(option);
+        });
+      })
+      .catch((error) => console.error("Error:", error));
+  });
+}
+
+document.addEventListener("DOMContentLoaded", function () {
+  initSearchSuggestions();
+});
@@ -0,0 +1,80 @@
+package org.amazinbookstore.config;
+
+import org.amazinbookstore.dto.BookSearchCriteria;
+import org.amazinbookstore.model.Book;
+import org.amazinbookstore.repository.BookRepository;
+import org.amazinbookstore.repository.MongoIntegrationTest;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for BookPriceMigration.
+ * Tests that string prices written by older versions become numbers MongoDB can filter and sort.
+ */
+class BookPriceMigrationTest extends MongoIntegrationTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    /**
+     * Tests that string prices are converted, a second run does nothing, and unparseable prices stay.
+     */
+    @Test
+    void migrate_ConvertsStringPrices() {
+        insertRaw("old-cheap", "9.50");
+        insertRaw("old-dear", "120.00");
+        insertRaw("garbled", "ten dollars");
+        Book saved = new Book("New", "Author", "Publisher", "978-0000000001", new BigDecimal("30.00"));
+        bookRepository.save(saved);
+
+        BookPriceMigration migration = new BookPriceMigration(mongoTemplate);
+
+        assertEquals(2, migration.migrate());
+        assertEquals(0, migration.migrate());
+        assertEquals(0, ((Decimal128) rawPrice("old-cheap")).bigDecimalValue().compareTo(new BigDecimal("9.5")));
+        assertEquals("ten dollars", rawPrice("garbled"));
+    }
+
+    /**
+     * Tests that converted books are found by numeric price filters and sort among the new ones.
+     */
+    @Test
+    void migrate_ConvertedBooksFilterAndSortWithNewOnes() {
+        insertRaw("old-cheap", "9.50");
+        insertRaw("old-dear", "120.00");
+        Book saved = new Book("New", "Author", "Publisher", "978-0000000001", new BigDecimal("30.00"));
+        bookRepository.save(saved);
+
+        new BookPriceMigration(mongoTemplate).migrate();
+
+        BookSearchCriteria criteria = new BookSearchCriteria();
+        criteria.setMinPrice(new BigDecimal("5"));
+        criteria.setMaxPrice(new BigDecimal("50"));
+        List<Book> found = bookRepository.searchBooks(criteria, Sort.by("price"));
+        assertEquals(List.of("old-cheap", "New"), found.stream().map(Book::getTitle).toList());
+
+        List<Book> all = bookRepository.findAll(Sort.by(Sort.Direction.DESC, "price"));
+        assertEquals(List.of("old-dear", "New", "old-cheap"), all.stream().map(Book::getTitle).toList());
+    }
+
+    private void insertRaw(String title, String price) {
+        mongoTemplate.getCollection("books").insertOne(new Document("title", title)
+                .append("author", "Author")
+                .append("publisher", "Publisher")
+                .append("isbn", "978-" + title)
+                .append("price", price)
+                .append("inventory", 1));
+    }
+
+    private Object rawPrice(String title) {
+        return mongoTemplate.getCollection("books").find(new Document("title", title)).first().get("price");
+    }
+}
@@ -1,7 +1,15 @@
 package org.amazinbookstore.controller;
 
+import org.amazinbookstore.dto.BookBatchResult;
+import org.amazinbookstore.dto.BookFacets;
+import org.amazinbookstore.dto.BookScrollResponse;
+import org.amazinbookstore.dto.BookSearchCriteria;
+import org.amazinbookstore.dto.BookSearchResult;
 import org.amazinbookstore.model.Book;
+import org.amazinbookstore.search.Suggestion;
+import org.amazinbookstore.service.BookFacetService;
 import org.amazinbookstore.service.BookService;
+import org.amazinbookstore.service.CatalogSearchService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
@@ -21,6 +29,8 @@ import static org.mockito.Mockito.*;
 class BookControllerTest {
 
     private BookService bookService;
+    private CatalogSearchService catalogSearchService;
+    private BookFacetService bookFacetService;
     private BookController bookController;
     private Book book1;
     private Book book2;
@@ -32,7 +42,9 @@ class BookControllerTest {
     @BeforeEach
     void setUp() {
         bookService = mock(BookService.class);
-        bookController = new BookController(bookService);
+        catalogSearchService = mock(CatalogSearchService.class);
+        bookFacetService = mock(BookFacetService.class);
+        bookController = new BookController(bookService, catalogSearchService, bookFacetService);
 
         book1 = new Book("The Great Gatsby", "F. Scott Fitzgerald", "Scribner", "978-0743273565", new BigDecimal("15.99"));
         book1.setId("1");
@@ -47,15 +59,16 @@ class BookControllerTest {
      */
     @Test
     void testSearchBooks_NoFilters() {
-        when(bookService.searchBooks(null, null, null, null, null))
+        BookSearchCriteria criteria = new BookSearchCriteria();
+        when(bookService.searchBooks(criteria, null))
                 .thenReturn(Arrays.asList(book1, book2));
 
-        ResponseEntity<List<Book>> response = bookController.searchBooks(null, null, null, null, null);
+        ResponseEntity<List<Book>> response = bookController.searchBooks(criteria, null);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
         assertEquals(2, response.getBody().size());
-        verify(bookService, times(1)).searchBooks(null, null, null, null, null);
+        verify(bookService, times(1)).searchBooks(criteria, null);
     }
 
     /**
@@ -64,10 +77,11 @@ class BookControllerTest {
      */
     @Test
     void testSearchBooks_WithAuthorFilter() {
-        when(bookService.searchBooks("Orwell", null, null, null, null))
+        BookSearchCriteria criteria = BookSearchCriteria.of("Orwell", null, null, null);
+        when(bookService.searchBooks(criteria, null))
                 .thenReturn(Arrays.asList(book2));
 
-        ResponseEntity<List<Book>> response = bookController.searchBooks("Orwell", null, null, null, null);
+        ResponseEntity<List<Book>> response = bookController.searchBooks(criteria, null);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
@@ -81,10 +95,11 @@ class BookControllerTest {
      */
     @Test
     void testSearchBooks_WithSort() {
-        when(bookService.searchBooks(null, null, null, null, "price"))
+        BookSearchCriteria criteria = new BookSearchCriteria();
+        when(bookService.searchBooks(criteria, "price"))
                 .thenReturn(Arrays.asList(book2, book1));
 
-        ResponseEntity<List<Book>> response = bookController.searchBooks(null, null, null, null, "price");
+        ResponseEntity<List<Book>> response = bookController.searchBooks(criteria, "price");
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
@@ -92,6 +107,24 @@ class BookControllerTest {
         assertTrue(response.getBody().get(0).getPrice().compareTo(response.getBody().get(1).getPrice()) <= 0);
     }
 
+    /**
+     * Tests cursor-based scrolling.
+     * Should pass the cursor through and clamp oversized limits.
+     */
+    @Test
+    void testScrollBooks_ClampsLimit() {
+        BookScrollResponse page = new BookScrollResponse(Arrays.asList(book2), "next");
+        BookSearchCriteria criteria = new BookSearchCriteria();
+        when(bookService.scrollBooks(criteria, "price", "cursor", 100)).thenReturn(page);
+
+        ResponseEntity<BookScrollResponse> response = bookController.scrollBooks(criteria, "price", "cursor", 5000);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals("next", response.getBody().getNextCursor());
+        verify(bookService, times(1)).scrollBooks(criteria, "price", "cursor", 100);
+    }
+
     /**
      * Tests retrieving a book by ID when the book exists.
      * Should return OK status and the correct book.
@@ -170,6 +203,20 @@ class BookControllerTest {
         verify(bookService, times(0)).saveBook(any(Book.class));
     }
 
+    /**
+     * Tests adjusting a book's inventory.
+     * Should return OK status and the book with its new inventory.
+     */
+    @Test
+    void testAdjustInventory() {
+        when(bookService.adjustInventory("1", -2)).thenReturn(book1);
+
+        ResponseEntity<Book> response = bookController.adjustInventory("1", -2);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(book1, response.getBody());
+    }
+
     /**
      * Tests deleting an existing book successfully.
      * Should return NO_CONTENT status and delete the book.
@@ -200,4 +247,80 @@ class BookControllerTest {
         verify(bookService, times(1)).getBookById("999");
         verify(bookService, times(0)).deleteBook("999");
     }
+
+    /**
+     * Tests full-text search.
+     * Should return the ranked results and clamp the requested limit.
+     */
+    @Test
+    void testFullTextSearch() {
+        List<BookSearchResult> results = List.of(new BookSearchResult(book2, 2.5, null));
+        when(catalogSearchService.search("orwell", 100)).thenReturn(results);
+
+        ResponseEntity<List<BookSearchResult>> response = bookController.fullTextSearch("orwell", false, 500);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(results, response.getBody());
+        verify(catalogSearchService).search("orwell", 100);
+    }
+
+    /**
+     * Tests fuzzy search.
+     * Should use the typo-tolerant lookup instead of full-text search.
+     */
+    @Test
+    void testFullTextSearch_Fuzzy() {
+        List<BookSearchResult> results = List.of(new BookSearchResult(book2, 0.6, "George Orwell"));
+        when(catalogSearchService.fuzzySearch("orwel", 10)).thenReturn(results);
+
+        ResponseEntity<List<BookSearchResult>> response = bookController.fullTextSearch("orwel", true, 10);
+
+        assertEquals(results, response.getBody());
+        verify(catalogSearchService, never()).search(anyString(), anyInt());
+    }
+
+    /**
+     * Tests autocomplete suggestions.
+     * Should clamp the requested limit.
+     */
+    @Test
+    void testSuggest() {
+        List<Suggestion> suggestions = List.of(new Suggestion("George Orwell", "author", 2));
+        when(catalogSearchService.suggest("orw", 20)).thenReturn(suggestions);
+
+        ResponseEntity<List<Suggestion>> response = bookController.suggest("orw", 50);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(suggestions, response.getBody());
+    }
+
+    /**
+     * Tests getting facet counts for a filter combination.
+     */
+    @Test
+    void testGetFacets() {
+        BookSearchCriteria criteria = BookSearchCriteria.of(null, null, "Fiction", null);
+        BookFacets facets = new BookFacets();
+        facets.getPublishers().put("Scribner", 1L);
+        when(bookFacetService.getFacets(criteria)).thenReturn(facets);
+
+        ResponseEntity<BookFacets> response = bookController.getFacets(criteria);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(facets, response.getBody());
+    }
+
+    /**
+     * Tests batch lookup of books by ID.
+     */
+    @Test
+    void testGetBooksByIds() {
+        BookBatchResult result = new BookBatchResult(List.of(book2, book1), List.of("3"));
+        when(bookService.getBooksByIds(List.of("2", "1", "3"))).thenReturn(result);
+
+        ResponseEntity<BookBatchResult> response = bookController.getBooksByIds(List.of("2", "1", "3"));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(result, response.getBody());
+    }
 }
@@ -1,20 +1,35 @@
 package org.amazinbookstore.controller;
 
+import org.amazinbookstore.dto.CheckoutQueueStatus;
+import org.amazinbookstore.dto.CheckoutResult;
+import org.amazinbookstore.dto.OrderScrollResponse;
+import org.amazinbookstore.dto.OrderSearchCriteria;
+import org.amazinbookstore.exception.CheckoutRejectedException;
+import org.amazinbookstore.exception.GlobalExceptionHandler;
 import org.amazinbookstore.exception.InsufficientInventoryException;
 import org.amazinbookstore.exception.ResourceNotFoundException;
 import org.amazinbookstore.model.Order;
 import org.amazinbookstore.model.OrderItem;
+import org.amazinbookstore.service.CheckoutAdmissionService;
+import org.amazinbookstore.service.CheckoutIdempotencyService;
+import org.amazinbookstore.service.OrderExportService;
 import org.amazinbookstore.service.OrderService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -22,6 +37,9 @@ import static org.mockito.Mockito.*;
 class OrderControllerTest {
 
     private OrderService orderService;
+    private CheckoutAdmissionService checkoutAdmissionService;
+    private CheckoutIdempotencyService checkoutIdempotencyService;
+    private OrderExportService orderExportService;
     private OrderController orderController;
     private Order order1;
     private Order order2;
@@ -29,7 +47,11 @@ class OrderControllerTest {
     @BeforeEach
     void setUp() {
         orderService = mock(OrderService.class);
-        orderController = new OrderController(orderService);
+        checkoutAdmissionService = mock(CheckoutAdmissionService.class);
+        checkoutIdempotencyService = mock(CheckoutIdempotencyService.class);
+        orderExportService = mock(OrderExportService.class);
+        orderController = new OrderController(orderService, checkoutAdmissionService, checkoutIdempotencyService,
+                orderExportService);
 
         // Create an order with 2 items
         order1 = new Order();
@@ -74,7 +96,7 @@ class OrderControllerTest {
     void testCheckout_Success() {
         when(orderService.createOrderFromCart("user1")).thenReturn(order1);
 
-        ResponseEntity<Order> response = orderController.checkout("user1");
+        ResponseEntity<Order> response = orderController.checkout("user1", null, false);
 
         assertEquals(HttpStatus.CREATED, response.getStatusCode());
         assertNotNull(response.getBody());
@@ -88,20 +110,24 @@ class OrderControllerTest {
     @Test
     void testCheckout_EmptyCart() {
         when(orderService.createOrderFromCart("user1"))
-            .thenThrow(new IllegalStateException("Cannot create order from empty cart"));
+            .thenThrow(new CheckoutRejectedException(new IllegalStateException("Cannot create order from empty cart")));
 
-        assertThrows(IllegalStateException.class, () -> orderController.checkout("user1"));
+        assertThrows(CheckoutRejectedException.class, () -> orderController.checkout("user1", null, false));
     }
 
     @Test
     void testCheckout_InsufficientInventory() {
         when(orderService.createOrderFromCart("user1"))
-            .thenThrow(new InsufficientInventoryException("Insufficient inventory for book: The Great Gatsby"));
+            .thenThrow(new CheckoutRejectedException(
+                new InsufficientInventoryException("Insufficient inventory for book: The Great Gatsby")));
 
-        InsufficientInventoryException exception = assertThrows(InsufficientInventoryException.class,
-            () -> orderController.checkout("user1"));
+        CheckoutRejectedException exception = assertThrows(CheckoutRejectedException.class,
+            () -> orderController.checkout("user1", null, false));
 
         assertTrue(exception.getMessage().contains("Insufficient inventory"));
+        // answered as the wrapped reason
+        ResponseEntity<Map<String, Object>> response = new GlobalExceptionHandler().handleCheckoutRejectedException(exception);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
     }
 
     @Test
@@ -143,6 +169,50 @@ class OrderControllerTest {
         assertEquals("order1", response.getBody().get(1).getId());
     }
 
+    @Test
+    void testGetUserOrdersPage_FiltersToUserAndClampsSize() {
+        OrderSearchCriteria criteria = new OrderSearchCriteria();
+        criteria.setStatus(Order.OrderStatus.COMPLETED);
+        Page<Order> page = new PageImpl<>(List.of(order2));
+        when(orderService.getOrdersPaginated(criteria, 0, 100)).thenReturn(page);
+
+        ResponseEntity<Page<Order>> response = orderController.getUserOrdersPage("user1", criteria, 0, 5000);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(page, response.getBody());
+        assertEquals("user1", criteria.getUserId());
+    }
+
+    @Test
+    void testScrollAllOrders_PassesCursorThrough() {
+        OrderSearchCriteria criteria = new OrderSearchCriteria();
+        OrderScrollResponse scroll = new OrderScrollResponse(List.of(order2), "next");
+        when(orderService.scrollOrders(criteria, "cursor", 1)).thenReturn(scroll);
+
+        ResponseEntity<OrderScrollResponse> response = orderController.scrollAllOrders(criteria, "cursor", 0);
+
+        assertEquals("next", response.getBody().getNextCursor());
+        assertNull(criteria.getUserId());
+    }
+
+    @Test
+    void testExportOrders_StreamsCsvAttachment() throws Exception {
+        OrderSearchCriteria criteria = new OrderSearchCriteria();
+
+        ResponseEntity<StreamingResponseBody> response = orderController.exportOrders(criteria, "csv");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("text/csv", response.getHeaders().getContentType().toString());
+        assertEquals("attachment; filename=\"orders.csv\"",
+                response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+
+        // Nothing is read until the body is written out
+        verifyNoInteractions(orderExportService);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        verify(orderExportService).export(criteria, OrderExportService.Format.CSV, out);
+    }
+
     @Test
     void testGetUserOrders_EmptyList() {
         when(orderService.getOrdersByUserId("user999")).thenReturn(new ArrayList<>());
@@ -258,7 +328,7 @@ class OrderControllerTest {
     void testCheckout_VerifiesOrderDetails() {
         when(orderService.createOrderFromCart("user1")).thenReturn(order1);
 
-        ResponseEntity<Order> response = orderController.checkout("user1");
+        ResponseEntity<Order> response = orderController.checkout("user1", null, false);
 
         Order responseOrder = response.getBody();
         assertNotNull(responseOrder);
@@ -278,4 +348,42 @@ class OrderControllerTest {
         assertEquals(1, secondItem.getQuantity());
         assertEquals(new BigDecimal("12.99"), secondItem.getPriceAtPurchase());
     }
+
+    @Test
+    void testGetCheckoutQueueStatus() {
+        CheckoutQueueStatus status = new CheckoutQueueStatus("book1", 4, 120, 80);
+        when(checkoutAdmissionService.getStatus("book1")).thenReturn(status);
+
+        ResponseEntity<CheckoutQueueStatus> response = orderController.getCheckoutQueueStatus("book1");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(120, response.getBody().getWaiting());
+    }
+
+    @Test
+    void testCheckout_WithIdempotencyKey_ReplaysEarlierOrder() {
+        when(checkoutIdempotencyService.checkout("user1", "key-1", false)).thenReturn(new CheckoutResult(order1, true));
+
+        ResponseEntity<Order> response = orderController.checkout("user1", "key-1", false);
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals("order1", response.getBody().getId());
+        assertEquals("true", response.getHeaders().getFirst("Idempotent-Replayed"));
+        verify(orderService, never()).createOrderFromCart(any());
+    }
+
+    @Test
+    void testCheckout_Async_ReturnsAcceptedWithStatusUrl() {
+        Order pending = new Order();
+        pending.setId("order3");
+        pending.setStatus(Order.OrderStatus.PENDING);
+        when(orderService.submitOrder("user1")).thenReturn(pending);
+
+        ResponseEntity<Order> response = orderController.checkout("user1", null, true);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals("/api/orders/order3", response.getHeaders().getLocation().toString());
+        assertEquals(Order.OrderStatus.PENDING, response.getBody().getStatus());
+        verify(orderService, never()).createOrderFromCart(any());
+    }
 }
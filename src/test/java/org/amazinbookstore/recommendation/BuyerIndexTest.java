@@ -0,0 +1,110 @@
+package org.amazinbookstore.recommendation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BuyerIndex.
+ * Tests similarity from overlap counts and incremental purchases.
+ */
+class BuyerIndexTest {
+
+    private BuyerIndex index;
+
+    /**
+     * Four readers; "loner" shares nothing with anyone.
+     */
+    @BeforeEach
+    void setUp() {
+        index = new BuyerIndex();
+        index.addPurchases("reader", List.of("gatsby", "1984"));
+        index.addPurchases("twin", List.of("gatsby", "1984", "emma"));
+        index.addPurchases("partial", List.of("1984", "dune", "ulysses"));
+        index.addPurchases("loner", List.of("cookbook"));
+    }
+
+    /**
+     * Tests that similarities match Jaccard and leave out users with nothing in common and the reader.
+     */
+    @Test
+    void testMostSimilar_MatchesJaccardForSharingUsersOnly() {
+        Map<String, Double> similarities = index.mostSimilar("reader", List.of("gatsby", "1984"), 10);
+
+        assertEquals(Set.of("twin", "partial"), similarities.keySet());
+        assertEquals(2.0 / 3, similarities.get("twin"), 1e-9);
+        assertEquals(1.0 / 4, similarities.get("partial"), 1e-9);
+    }
+
+    /**
+     * Tests that the most similar users come first and only as many as asked for.
+     */
+    @Test
+    void testMostSimilar_OrderedAndLimited() {
+        Map<String, Double> mostSimilar = index.mostSimilar("reader", List.of("gatsby", "1984"), 1);
+
+        assertEquals(List.of("twin"), List.copyOf(mostSimilar.keySet()));
+        assertEquals(List.of("twin", "partial"),
+                List.copyOf(index.mostSimilar("reader", List.of("gatsby", "1984"), 5).keySet()));
+    }
+
+    /**
+     * Tests that the reader's books are taken from the argument, which may be newer than the index.
+     */
+    @Test
+    void testMostSimilar_UsesGivenBooks() {
+        Map<String, Double> similarities = index.mostSimilar("reader", List.of("cookbook"), 10);
+
+        assertEquals(Map.of("loner", 1.0), similarities);
+    }
+
+    /**
+     * Tests that purchases are added incrementally and repeats are ignored.
+     */
+    @Test
+    void testAddPurchases_IncrementalAndIdempotent() {
+        assertTrue(index.addPurchases("loner", List.of("gatsby")));
+        assertFalse(index.addPurchases("loner", List.of("gatsby")));
+
+        assertEquals(List.of("gatsby", "cookbook"), index.booksOf("loner"));
+        assertEquals(1.0 / 3, index.mostSimilar("reader", List.of("gatsby", "1984"), 10).get("loner"), 1e-9);
+        assertEquals(List.of("1984", "gatsby"), index.popular(Set.of(), 2));
+    }
+
+    /**
+     * Tests popular books by number of buyers, and unknown users.
+     */
+    @Test
+    void testPopularAndUnknownUser() {
+        assertEquals(List.of("1984", "gatsby", "cookbook"), index.popular(Set.of(), 3));
+        assertEquals(List.of("gatsby"), index.popular(Set.of("1984"), 1));
+        assertTrue(index.booksOf("nobody").isEmpty());
+    }
+
+    /**
+     * Tests that lookups running alongside purchases always score a whole set of books:
+     * twin shares both of the reader's books, so each score must be 2 / (twin's book count).
+     */
+    @Test
+    void testMostSimilar_ConsistentDuringPurchases() throws InterruptedException {
+        Thread buyer = new Thread(() -> {
+            for (int i = 0; i < 2000; i++) {
+                index.addPurchases("twin", List.of("book-" + i));
+            }
+        });
+        buyer.start();
+
+        while (buyer.isAlive()) {
+            double score = index.mostSimilar("reader", List.of("gatsby", "1984"), 10).get("twin");
+            double books = 2 / score;
+            assertEquals(Math.rint(books), books, 1e-9);
+        }
+        buyer.join();
+        assertEquals(2.0 / 2003, index.mostSimilar("reader", List.of("gatsby", "1984"), 10).get("twin"), 1e-12);
+    }
+}
@@ -0,0 +1,88 @@
+package org.amazinbookstore.recommendation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CoPurchaseMatrix.
+ * Tests incremental counting and the lookups built on it.
+ */
+class CoPurchaseMatrixTest {
+
+    private CoPurchaseMatrix matrix;
+
+    /**
+     * Three readers: two of them bought Gatsby with 1984, one bought 1984 with Dune.
+     */
+    @BeforeEach
+    void setUp() {
+        matrix = new CoPurchaseMatrix();
+        matrix.addPurchases("u1", List.of("gatsby", "1984"));
+        matrix.addPurchases("u2", List.of("gatsby", "1984", "emma"));
+        matrix.addPurchases("u3", List.of("1984", "dune"));
+    }
+
+    /**
+     * Tests that each pair is counted in both directions, and only for books bought together.
+     */
+    @Test
+    void testAddPurchases_CountsPairsBothWays() {
+        assertEquals(List.of("1984"), matrix.recommend(List.of("dune"), 10));
+        assertEquals(List.of("gatsby", "dune", "emma"), matrix.recommend(List.of("1984"), 10));
+    }
+
+    /**
+     * Tests that a later purchase is paired with everything the user already owns.
+     */
+    @Test
+    void testAddPurchases_LaterPurchasePairsWithOwnedBooks() {
+        assertTrue(matrix.addPurchases("u3", List.of("gatsby")));
+
+        assertEquals(List.of("1984", "gatsby"), matrix.recommend(List.of("dune"), 10));
+        assertEquals(List.of("1984", "dune", "emma"), matrix.recommend(List.of("gatsby"), 10));
+    }
+
+    /**
+     * Tests that adding books a user already owns changes nothing, so repeated events are harmless.
+     */
+    @Test
+    void testAddPurchases_RepeatIsIgnored() {
+        assertFalse(matrix.addPurchases("u1", List.of("gatsby", "1984")));
+
+        assertEquals(List.of("1984", "emma"), matrix.recommend(List.of("gatsby"), 10));
+        assertEquals(List.of("1984", "gatsby"), matrix.popular(Set.of(), 2));
+    }
+
+    /**
+     * Tests that candidates are ranked by how often they were bought with the reader's books.
+     */
+    @Test
+    void testRecommend_RanksByCountAndExcludesOwned() {
+        assertEquals(List.of("1984", "emma"), matrix.recommend(List.of("gatsby"), 10));
+        assertEquals(List.of("gatsby", "dune", "emma"), matrix.recommend(List.of("1984"), 10));
+        assertEquals(List.of("gatsby"), matrix.recommend(List.of("1984"), 1));
+        assertEquals(List.of("emma"), matrix.recommend(List.of("gatsby", "1984", "dune"), 10));
+    }
+
+    /**
+     * Tests that books nobody bought with anything give no recommendations.
+     */
+    @Test
+    void testRecommend_UnknownBook() {
+        assertTrue(matrix.recommend(List.of("ulysses"), 10).isEmpty());
+    }
+
+    /**
+     * Tests that popular books are ranked by number of buyers.
+     */
+    @Test
+    void testPopular_RanksByBuyers() {
+        assertEquals(List.of("1984", "gatsby", "dune", "emma"), matrix.popular(Set.of(), 10));
+        assertEquals(List.of("gatsby"), matrix.popular(Set.of("1984"), 1));
+    }
+}
@@ -0,0 +1,126 @@
+package org.amazinbookstore.recommendation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CompressedBitmap.
+ * Tests set operations on sparse and dense chunks against a TreeSet.
+ */
+class CompressedBitmapTest {
+
+    /**
+     * Tests adding, removing and iterating values across several chunks.
+     */
+    @Test
+    void testAddRemoveContains_AcrossChunks() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+
+        assertTrue(bitmap.add(70000));
+        assertTrue(bitmap.add(3));
+        assertTrue(bitmap.add(65535));
+        assertFalse(bitmap.add(3));
+
+        assertEquals(3, bitmap.cardinality());
+        assertTrue(bitmap.contains(65535));
+        assertFalse(bitmap.contains(65536));
+        assertEquals(List.of(3, 65535, 70000), values(bitmap));
+
+        assertTrue(bitmap.remove(65535));
+        assertFalse(bitmap.remove(65535));
+        assertEquals(List.of(3, 70000), values(bitmap));
+    }
+
+    /**
+     * Tests that a chunk turns into a bitmap past 4096 values and back again below it.
+     */
+    @Test
+    void testDenseChunk_ConvertsBothWays() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int value = 0; value < 5000; value++) {
+            bitmap.add(value * 2);
+        }
+        assertEquals(5000, bitmap.cardinality());
+        assertTrue(bitmap.contains(9998));
+        assertFalse(bitmap.contains(9999));
+
+        for (int value = 0; value < 1000; value++) {
+            bitmap.remove(value * 2);
+        }
+        assertEquals(4000, bitmap.cardinality());
+        assertFalse(bitmap.contains(0));
+        assertTrue(bitmap.contains(2000));
+        assertEquals(4000, values(bitmap).size());
+    }
+
+    /**
+     * Tests intersection sizes and unions of sparse and dense sets against a TreeSet.
+     */
+    @Test
+    void testAndCardinalityAndOr_MatchTreeSet() {
+        Random random = new Random(7);
+        int[][] sizes = {{10, 3000}, {3000, 3000}, {20000, 20000}, {20000, 10}, {3000, 20000}};
+        for (int[] size : sizes) {
+            TreeSet<Integer> expectedA = new TreeSet<>();
+            TreeSet<Integer> expectedB = new TreeSet<>();
+            CompressedBitmap a = new CompressedBitmap();
+            CompressedBitmap b = new CompressedBitmap();
+            for (int i = 0; i < size[0]; i++) {
+                int x = random.nextInt(200000);
+                expectedA.add(x);
+                a.add(x);
+            }
+            for (int i = 0; i < size[1]; i++) {
+                int y = random.nextInt(200000);
+                expectedB.add(y);
+                b.add(y);
+            }
+
+            TreeSet<Integer> both = new TreeSet<>(expectedA);
+            both.retainAll(expectedB);
+            assertEquals(both.size(), a.andCardinality(b));
+            assertEquals(both.size(), b.andCardinality(a));
+
+            expectedA.addAll(expectedB);
+            a.or(b);
+            assertEquals(expectedA.size(), a.cardinality());
+            assertEquals(new ArrayList<>(expectedA), values(a));
+        }
+    }
+
+    /**
+     * Tests that a copy keeps its values when the original changes, in sparse and dense chunks.
+     */
+    @Test
+    void testCopy_IsIndependentOfOriginal() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int value = 0; value < 5000; value++) {
+            bitmap.add(value * 2);
+        }
+        bitmap.add(70000);
+
+        CompressedBitmap copy = bitmap.copy();
+        bitmap.remove(0);
+        bitmap.remove(70000);
+        bitmap.add(80000);
+
+        assertEquals(5001, copy.cardinality());
+        assertTrue(copy.contains(0));
+        assertTrue(copy.contains(70000));
+        assertFalse(copy.contains(80000));
+        assertTrue(copy.add(90000));
+        assertFalse(bitmap.contains(90000));
+    }
+
+    private static List<Integer> values(CompressedBitmap bitmap) {
+        List<Integer> values = new ArrayList<>();
+        bitmap.forEach(values::add);
+        return values;
+    }
+}
@@ -0,0 +1,59 @@
+package org.amazinbookstore.recommendation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for NeighbourScorer.
+ * Tests the kept candidates and their order, on one thread and across the pool.
+ */
+class NeighbourScorerTest {
+
+    /**
+     * Tests that the best k of many candidates, scored in parallel, match a full sort.
+     */
+    @Test
+    void testTop_MatchesFullSortAcrossThePool() {
+        Random random = new Random(11);
+        int count = NeighbourScorer.LEAF_SIZE * 20;
+        double[] scores = new double[count];
+        for (int i = 0; i < count; i++) {
+            // Rounded so that many candidates tie
+            scores[i] = Math.round(random.nextDouble() * 1000) / 1000.0;
+        }
+
+        LinkedHashMap<Integer, Double> top = NeighbourScorer.top(count, i -> scores[i], Integer::valueOf, 50);
+
+        List<Integer> expected = IntStream.range(0, count).boxed()
+                .filter(i -> scores[i] > 0)
+                .sorted(Comparator.<Integer>comparingDouble(i -> scores[i]).reversed().thenComparing(i -> i))
+                .limit(50)
+                .collect(Collectors.toList());
+        assertEquals(expected, new ArrayList<>(top.keySet()));
+        assertEquals(scores[expected.get(0)], top.get(expected.get(0)));
+    }
+
+    /**
+     * Tests that candidates scoring zero are left out and ties go to the lower index.
+     */
+    @Test
+    void testTop_SkipsZeroAndBreaksTiesByIndex() {
+        double[] scores = {0.5, 0.0, 0.9, 0.5, 0.5};
+
+        LinkedHashMap<String, Double> top = NeighbourScorer.top(scores.length, i -> scores[i], i -> "u" + i, 3);
+
+        assertEquals(List.of("u2", "u0", "u3"), new ArrayList<>(top.keySet()));
+        assertEquals(List.of("u2", "u0", "u3", "u4"),
+                new ArrayList<>(NeighbourScorer.top(scores.length, i -> scores[i], i -> "u" + i, 10).keySet()));
+        assertTrue(NeighbourScorer.top(scores.length, i -> scores[i], i -> "u" + i, 0).isEmpty());
+    }
+}
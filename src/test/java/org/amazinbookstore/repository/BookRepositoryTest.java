@@ -0,0 +1,308 @@
+package org.amazinbookstore.repository;
+
+import org.amazinbookstore.dto.BookFacets;
+import org.amazinbookstore.dto.BookSearchCriteria;
+import org.amazinbookstore.model.Book;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for BookRepositoryCustomImpl.
+ * Tests that the generated queries select, order and update the right documents in MongoDB.
+ */
+class BookRepositoryTest extends MongoIntegrationTest {
+
+    private static final int PAGE_SIZE = 2;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    /**
+     * Tests that a title scroll visits every book once, in the collation's order,
+     * when titles differ only in case.
+     */
+    @Test
+    void findBooksAfter_TitleIgnoresCaseAndBreaksTiesOnId() {
+        book("banana", 1990, "12.00");
+        book("Apple", 2001, "8.00");
+        book("apple", 1985, "30.00");
+        book("APPLE", null, "15.50");
+        book("Cherry", 2010, "9.99");
+
+        for (Sort.Direction direction : Sort.Direction.values()) {
+            List<Book> scrolled = scroll("title", direction, Book::getTitle);
+
+            assertEquals(ids(sorted("title", direction)), ids(scrolled));
+            assertEquals(5, scrolled.size());
+        }
+        List<String> titles = titles(scroll("title", Sort.Direction.ASC, Book::getTitle));
+        assertEquals(List.of("banana", "Cherry"), titles.subList(3, 5));
+    }
+
+    /**
+     * Tests that books without a publication year come first when ascending and
+     * last when descending, and that a page can end on one of them.
+     */
+    @Test
+    void findBooksAfter_YearPutsMissingYearsAtTheEnds() {
+        book("A", 2001, "8.00");
+        book("B", null, "9.00");
+        book("C", 1990, "10.00");
+        book("D", null, "11.00");
+        book("E", 2001, "12.00");
+
+        List<Book> ascending = scroll("publicationYear", Sort.Direction.ASC, Book::getPublicationYear);
+        assertEquals(ids(sorted("publicationYear", Sort.Direction.ASC)), ids(ascending));
+        assertNull(ascending.get(0).getPublicationYear());
+        assertNull(ascending.get(1).getPublicationYear());
+        assertEquals(1990, ascending.get(2).getPublicationYear());
+
+        List<Book> descending = scroll("publicationYear", Sort.Direction.DESC, Book::getPublicationYear);
+        assertEquals(ids(sorted("publicationYear", Sort.Direction.DESC)), ids(descending));
+        assertEquals(2001, descending.get(0).getPublicationYear());
+        assertNull(descending.get(3).getPublicationYear());
+        assertNull(descending.get(4).getPublicationYear());
+    }
+
+    /**
+     * Tests that a price scroll compares Decimal128 positions numerically, including
+     * equal prices written with a different scale.
+     */
+    @Test
+    void findBooksAfter_PriceComparesDecimal128Numerically() {
+        book("A", 2001, "9.5");
+        book("B", 2002, "100.00");
+        book("C", 2003, "9.50");
+        book("D", 2004, "20.00");
+        book("E", 2005, "10.00");
+
+        Function<Book, Object> price = book -> new Decimal128(book.getPrice());
+        List<Book> ascending = scroll("price", Sort.Direction.ASC, price);
+        assertEquals(ids(sorted("price", Sort.Direction.ASC)), ids(ascending));
+        assertEquals(List.of("10.00", "20.00", "100.00"), ascending.subList(2, 5).stream()
+                .map(book -> book.getPrice().toPlainString()).toList());
+
+        List<Book> descending = scroll("price", Sort.Direction.DESC, price);
+        assertEquals(ids(sorted("price", Sort.Direction.DESC)), ids(descending));
+        assertEquals("B", descending.get(0).getTitle());
+    }
+
+    /**
+     * Tests that scrolling on id alone visits every book once.
+     */
+    @Test
+    void findBooksAfter_IdOnly() {
+        for (int i = 0; i < 5; i++) {
+            book("Book " + i, 2000 + i, "10.00");
+        }
+
+        List<Book> scrolled = scroll(null, Sort.Direction.ASC, book -> null);
+
+        assertEquals(ids(bookRepository.findAll(Sort.by("id"))), ids(scrolled));
+    }
+
+    /**
+     * Tests that price bounds are inclusive and compared as Decimal128, whatever
+     * the scale the bound or the stored price was written with.
+     */
+    @Test
+    void searchBooks_PriceBoundsAreInclusiveDecimals() {
+        book("A", 2001, "9.50");
+        book("B", 2002, "9.49");
+        book("C", 2003, "20");
+        book("D", 2004, "20.01");
+        book("E", 2005, "100.00");
+
+        BookSearchCriteria criteria = new BookSearchCriteria();
+        criteria.setMinPrice(new BigDecimal("9.5"));
+        criteria.setMaxPrice(new BigDecimal("20.00"));
+
+        assertEquals(List.of("A", "C"), titles(bookRepository.searchBooks(criteria, Sort.by("price"))));
+    }
+
+    /**
+     * Tests that every filter narrows the same query, and that a page counts all matches.
+     */
+    @Test
+    void searchBooks_CombinesFilters() {
+        Book match = book("The Hobbit", 1937, "12.00");
+        match.setGenre("Fantasy");
+        bookRepository.save(match);
+        Book tooDear = book("The Silmarillion", 1977, "40.00");
+        tooDear.setGenre("Fantasy");
+        bookRepository.save(tooDear);
+        Book wrongGenre = book("The Road", 2006, "15.00");
+        wrongGenre.setGenre("Fiction");
+        bookRepository.save(wrongGenre);
+        Book noYear = book("The Odyssey", null, "10.00");
+        noYear.setGenre("Fantasy");
+        bookRepository.save(noYear);
+
+        BookSearchCriteria criteria = new BookSearchCriteria();
+        criteria.setTitle("the ");
+        criteria.setGenre("fantasy");
+        criteria.setMaxPrice(new BigDecimal("30"));
+        criteria.setMinYear(1900);
+
+        assertEquals(List.of("The Hobbit"), titles(bookRepository.searchBooks(criteria, Sort.by("title"))));
+
+        criteria.setMaxPrice(null);
+        Page<Book> page = bookRepository.searchBooks(criteria, PageRequest.of(0, 1, Sort.by("price")));
+        assertEquals(2, page.getTotalElements());
+        assertEquals(List.of("The Hobbit"), titles(page.getContent()));
+    }
+
+    /**
+     * Tests that prices are counted in labelled bands, with the top band open-ended
+     * and prices that are not numbers left out.
+     */
+    @Test
+    void countFacets_LabelsPriceBands() {
+        book("A", 2001, "5.00");
+        book("B", 2002, "9.99");
+        book("C", 2003, "10.00");
+        book("D", 2004, "25.00");
+        book("E", 2005, "99.99");
+        book("F", 2006, "100.00");
+        book("G", 2007, "1500.00");
+        mongoTemplate.getCollection("books").insertOne(new Document("title", "H")
+                .append("publisher", "Publisher")
+                .append("price", "ten dollars"));
+
+        BookFacets facets = bookRepository.countFacets(null);
+
+        assertEquals(Map.of("0-10", 2L, "10-20", 1L, "20-30", 1L, "50-100", 1L, "100+", 2L),
+                facets.getPriceRanges());
+        assertEquals(Map.of("Publisher", 8L), facets.getPublishers());
+    }
+
+    /**
+     * Tests genre and decade counts over the books matching a filter, with books
+     * missing the field left out and decades listed chronologically.
+     */
+    @Test
+    void countFacets_CountsGenresAndDecadesOfMatchingBooks() {
+        saveWithGenre(book("A", 2009, "10.00"), "Fantasy");
+        saveWithGenre(book("B", 1937, "12.00"), "Fantasy");
+        saveWithGenre(book("C", 2000, "14.00"), "Fiction");
+        saveWithGenre(book("D", null, "16.00"), null);
+        saveWithGenre(book("E", 1977, "80.00"), "Fiction");
+
+        BookSearchCriteria criteria = new BookSearchCriteria();
+        criteria.setMaxPrice(new BigDecimal("20"));
+        BookFacets facets = bookRepository.countFacets(criteria);
+
+        assertEquals(Map.of("Fantasy", 2L, "Fiction", 1L), facets.getGenres());
+        assertEquals(List.of("1930s", "2000s"), List.copyOf(facets.getDecades().keySet()));
+        assertEquals(2L, facets.getDecades().get("2000s"));
+        assertEquals(Map.of("10-20", 4L), facets.getPriceRanges());
+    }
+
+    /**
+     * Tests that every line of a checkout is taken when all books have enough copies.
+     */
+    @Test
+    void decrementInventories_TakesEveryLine() {
+        Book first = book("A", 2001, "10.00");
+        Book second = book("B", 2002, "10.00");
+
+        assertNull(bookRepository.decrementInventories(Map.of(first.getId(), 10, second.getId(), 3)));
+
+        assertEquals(0, inventory(first));
+        assertEquals(7, inventory(second));
+    }
+
+    /**
+     * Tests that a line asking for more copies than are left matches nothing, and
+     * that the lines taken before it are given back.
+     */
+    @Test
+    void decrementInventories_ShortStockUndoesEarlierLines() {
+        Book first = book("A", 2001, "10.00");
+        Book second = book("B", 2002, "10.00");
+        Book third = book("C", 2003, "10.00");
+        second.setInventory(2);
+        bookRepository.save(second);
+        // Lines run in id order and ids grow with creation, so A is taken before B fails and C is never tried
+        String failed = bookRepository.decrementInventories(Map.of(
+                first.getId(), 4, second.getId(), 3, third.getId(), 1));
+
+        assertEquals(second.getId(), failed);
+        assertEquals(10, inventory(first));
+        assertEquals(2, inventory(second));
+        assertEquals(10, inventory(third));
+    }
+
+    /**
+     * Tests that a line for a book that does not exist fails the checkout without
+     * creating a document.
+     */
+    @Test
+    void decrementInventories_MissingBookInsertsNothing() {
+        Book book = book("A", 2001, "10.00");
+        // Sorts after the real book's id, so that line is taken and then undone
+        String missing = "ffffffffffffffffffffffff";
+
+        assertEquals(missing, bookRepository.decrementInventories(Map.of(book.getId(), 1, missing, 1)));
+
+        assertEquals(10, inventory(book));
+        assertEquals(1, bookRepository.count());
+    }
+
+    private Book book(String title, Integer year, String price) {
+        Book book = new Book(title, "Author", "Publisher", "978-" + title, new BigDecimal(price));
+        book.setPublicationYear(year);
+        book.setInventory(10);
+        return bookRepository.save(book);
+    }
+
+    private void saveWithGenre(Book book, String genre) {
+        book.setGenre(genre);
+        bookRepository.save(book);
+    }
+
+    private int inventory(Book book) {
+        return bookRepository.findById(book.getId()).orElseThrow().getInventory();
+    }
+
+    /**
+     * Reads every book a page at a time, each page starting after the last book of the one before.
+     */
+    private List<Book> scroll(String property, Sort.Direction direction, Function<Book, Object> sortValue) {
+        List<Book> books = new ArrayList<>();
+        List<Book> page = bookRepository.findBooksAfter(null, property, direction, null, null, PAGE_SIZE);
+        while (!page.isEmpty()) {
+            assertTrue(books.size() < 100, "scroll does not end");
+            books.addAll(page);
+            Book last = page.get(page.size() - 1);
+            page = bookRepository.findBooksAfter(null, property, direction,
+                    sortValue.apply(last), last.getId(), PAGE_SIZE);
+        }
+        return books;
+    }
+
+    private List<Book> sorted(String property, Sort.Direction direction) {
+        return bookRepository.findAll(Sort.by(direction, property).and(Sort.by(direction, "id")));
+    }
+
+    private static List<String> titles(List<Book> books) {
+        return books.stream().map(Book::getTitle).toList();
+    }
+
+    private static List<String> ids(List<Book> books) {
+        return books.stream().map(Book::getId).toList();
+    }
+}
@@ -0,0 +1,119 @@
+package org.amazinbookstore.repository;
+
+import org.amazinbookstore.model.InventoryReservation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for InventoryReservationRepositoryCustomImpl.
+ * Tests that claims and removals only take the holds their conditions allow in MongoDB.
+ */
+class InventoryReservationRepositoryTest extends MongoIntegrationTest {
+
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    private static final Instant LEASE_START = NOW.minus(Duration.ofMinutes(5));
+
+    @Autowired
+    private InventoryReservationRepository reservationRepository;
+
+    /**
+     * Tests that a checkout claims only the user's unclaimed, unexpired holds on the cart's books.
+     */
+    @Test
+    void claimActive_ClaimsOnlyLiveUnclaimedHoldsOfTheUser() {
+        InventoryReservation live = hold("user1", "book1", NOW.plusSeconds(60), null, null);
+        InventoryReservation notInCart = hold("user1", "book2", NOW.plusSeconds(60), null, null);
+        InventoryReservation expired = hold("user1", "book3", NOW, null, null);
+        InventoryReservation otherCheckout = hold("user1", "book4", NOW.plusSeconds(60), "other", NOW);
+        InventoryReservation otherUser = hold("user2", "book1", NOW.plusSeconds(60), null, null);
+
+        reservationRepository.claimActive("user1", List.of("book1", "book3", "book4"), "token", NOW);
+
+        assertEquals(List.of(live.getId()), ids(reservationRepository.findByClaimedBy("token")));
+        assertEquals(NOW, reload(live).getClaimedAt());
+        assertNull(reload(notInCart).getClaimedBy());
+        assertNull(reload(expired).getClaimedBy());
+        assertEquals("other", reload(otherCheckout).getClaimedBy());
+        assertNull(reload(otherUser).getClaimedBy());
+    }
+
+    /**
+     * Tests that claiming and unclaiming bump the version, so a copy read before
+     * either can no longer be saved over it.
+     */
+    @Test
+    void claimAndUnclaim_InvalidateStaleCopies() {
+        InventoryReservation stale = hold("user1", "book1", NOW.plusSeconds(60), null, null);
+
+        reservationRepository.claimActive("user1", List.of("book1"), "token", NOW);
+        assertThrows(OptimisticLockingFailureException.class, () -> reservationRepository.save(stale));
+
+        InventoryReservation claimed = reload(stale);
+        reservationRepository.unclaim("token");
+
+        InventoryReservation unclaimed = reload(stale);
+        assertNull(unclaimed.getClaimedBy());
+        assertNull(unclaimed.getClaimedAt());
+        assertTrue(reservationRepository.findByClaimedBy("token").isEmpty());
+        assertThrows(OptimisticLockingFailureException.class, () -> reservationRepository.save(claimed));
+    }
+
+    /**
+     * Tests that the sweeper removes unclaimed expired holds and claims whose lease
+     * has run out, and leaves live holds and live claims alone.
+     */
+    @Test
+    void removeExpired_HonoursExpiryAndClaimLease() {
+        InventoryReservation expired = hold("user1", "book1", NOW, null, null);
+        hold("user1", "book2", NOW.plusMillis(1), null, null);
+        hold("user1", "book3", NOW.minusSeconds(60), "live", LEASE_START.plusMillis(1));
+        InventoryReservation abandoned = hold("user1", "book4", NOW.plusSeconds(60), "dead", LEASE_START);
+
+        List<String> removed = List.of(
+                reservationRepository.removeExpired(NOW, LEASE_START).getId(),
+                reservationRepository.removeExpired(NOW, LEASE_START).getId());
+
+        assertEquals(List.of(abandoned.getId(), expired.getId()).stream().sorted().toList(),
+                removed.stream().sorted().toList());
+        assertNull(reservationRepository.removeExpired(NOW, LEASE_START));
+        assertEquals(2, reservationRepository.count());
+    }
+
+    /**
+     * Tests that a hold renewed or claimed since it was scheduled for removal survives.
+     */
+    @Test
+    void removeIfExpired_SkipsRenewedAndClaimedHolds() {
+        InventoryReservation expired = hold("user1", "book1", NOW.minusSeconds(1), null, null);
+        InventoryReservation renewed = hold("user1", "book2", NOW.plusSeconds(60), null, null);
+        InventoryReservation claimed = hold("user1", "book3", NOW.minusSeconds(1), "token", NOW);
+
+        assertNull(reservationRepository.removeIfExpired(renewed.getId(), NOW, LEASE_START));
+        assertNull(reservationRepository.removeIfExpired(claimed.getId(), NOW, LEASE_START));
+        assertEquals(expired.getId(), reservationRepository.removeIfExpired(expired.getId(), NOW, LEASE_START).getId());
+        assertNull(reservationRepository.removeIfExpired(expired.getId(), NOW, LEASE_START));
+        assertEquals(2, reservationRepository.count());
+    }
+
+    private InventoryReservation hold(String userId, String bookId, Instant expiresAt,
+                                      String claimedBy, Instant claimedAt) {
+        return reservationRepository.save(
+                new InventoryReservation(null, userId, bookId, 1, expiresAt, claimedBy, claimedAt, null));
+    }
+
+    private InventoryReservation reload(InventoryReservation reservation) {
+        return reservationRepository.findById(reservation.getId()).orElseThrow();
+    }
+
+    private static List<String> ids(List<InventoryReservation> reservations) {
+        return reservations.stream().map(InventoryReservation::getId).toList();
+    }
+}
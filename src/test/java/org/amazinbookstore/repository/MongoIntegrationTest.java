@@ -0,0 +1,125 @@
+package org.amazinbookstore.repository;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.flapdoodle.embed.mongo.commands.MongodArguments;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.config.Storage;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.transitions.Start;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.extension.ConditionEvaluationResult;
+import org.junit.jupiter.api.extension.ExecutionCondition;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.List;
+
+/**
+ * Base class for tests that run queries against a real MongoDB.
+ *
+ * Uses the server in the MONGODB_URI environment variable if it is set, and
+ * otherwise starts a single-node replica set with flapdoodle, once per test
+ * run, so multi-document transactions work as well. Flapdoodle downloads
+ * mongod on first use; where that is not possible and no URI is given, the
+ * tests are skipped rather than failed. Every collection is emptied before
+ * each test.
+ */
+@DataMongoTest
+@ExtendWith(MongoIntegrationTest.RequiresMongo.class)
+public abstract class MongoIntegrationTest {
+
+    private static final String REPLICA_SET = "rs0";
+
+    private static String uri;
+    private static boolean unavailable;
+
+    @Autowired
+    protected MongoTemplate mongoTemplate;
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", MongoIntegrationTest::uri);
+    }
+
+    @BeforeEach
+    void emptyCollections() {
+        for (String name : mongoTemplate.getCollectionNames()) {
+            mongoTemplate.getCollection(name).deleteMany(new Document());
+        }
+    }
+
+    /**
+     * @return the URI of the server the tests use, starting one if need be; null if there is none
+     */
+    protected static synchronized String uri() {
+        if (uri != null || unavailable) {
+            return uri;
+        }
+        String external = System.getenv("MONGODB_URI");
+        if (external != null && !external.isBlank()) {
+            uri = external;
+            return uri;
+        }
+        try {
+            uri = startReplicaSet();
+        } catch (RuntimeException e) {
+            String reason = String.valueOf(e.getMessage()).lines().findFirst().orElse("");
+            System.err.println("Skipping MongoDB tests, could not start an embedded replica set: " + reason);
+            unavailable = true;
+        }
+        return uri;
+    }
+
+    private static String startReplicaSet() {
+        TransitionWalker.ReachedState<RunningMongodProcess> running = Mongod.instance()
+                .withMongodArguments(Start.to(MongodArguments.class)
+                        .initializedWith(MongodArguments.defaults().withReplication(Storage.of(REPLICA_SET, 0))))
+                .start(Version.Main.V6_0);
+        Runtime.getRuntime().addShutdownHook(new Thread(running::close));
+
+        ServerAddress address = running.current().getServerAddress();
+        String host = address.getHost() + ":" + address.getPort();
+        try (MongoClient client = MongoClients.create("mongodb://" + host + "/?directConnection=true")) {
+            client.getDatabase("admin").runCommand(new Document("replSetInitiate", new Document("_id", REPLICA_SET)
+                    .append("members", List.of(new Document("_id", 0).append("host", host)))));
+            // Transactions need the node to have become primary
+            for (int attempt = 0; !isPrimary(client); attempt++) {
+                if (attempt == 100) {
+                    throw new IllegalStateException("Replica set did not elect a primary");
+                }
+                Thread.sleep(100);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        return "mongodb://" + host + "/amazin_bookstore_test?directConnection=true";
+    }
+
+    private static boolean isPrimary(MongoClient client) {
+        return client.getDatabase("admin").runCommand(new Document("hello", 1)).getBoolean("isWritablePrimary", false);
+    }
+
+    /**
+     * Skips the tests when there is no MongoDB to run them against, before Spring tries to connect.
+     */
+    static class RequiresMongo implements ExecutionCondition {
+
+        @Override
+        public ConditionEvaluationResult evaluateExecutionCondition(ExtensionContext context) {
+            return uri() != null
+                    ? ConditionEvaluationResult.enabled("MongoDB at " + uri())
+                    : ConditionEvaluationResult.disabled("No MongoDB: set MONGODB_URI, or allow flapdoodle to download mongod");
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.amazinbookstore.repository;
+
+import org.amazinbookstore.dto.OrderSearchCriteria;
+import org.amazinbookstore.model.Order;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for OrderRepositoryCustomImpl.
+ * Tests that the order history cursor visits every matching order once, newest first, in MongoDB.
+ */
+class OrderRepositoryTest extends MongoIntegrationTest {
+
+    private static final int PAGE_SIZE = 2;
+    private static final LocalDateTime NOON = LocalDateTime.of(2024, 11, 1, 12, 0);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    /**
+     * Tests that orders placed in the same second are told apart by id, so no page
+     * boundary skips or repeats one.
+     */
+    @Test
+    void findOrdersAfter_BreaksDateTiesOnId() {
+        order("00000000000000000000000b", "user1", NOON, Order.OrderStatus.CONFIRMED);
+        order("00000000000000000000000e", "user1", NOON, Order.OrderStatus.CONFIRMED);
+        order("00000000000000000000000a", "user1", NOON.plusSeconds(1), Order.OrderStatus.CONFIRMED);
+        order("00000000000000000000000d", "user1", NOON, Order.OrderStatus.CONFIRMED);
+        order("00000000000000000000000c", "user1", NOON.minusSeconds(1), Order.OrderStatus.CONFIRMED);
+
+        List<Order> scrolled = scroll(new OrderSearchCriteria());
+
+        assertEquals(List.of("00000000000000000000000a", "00000000000000000000000e", "00000000000000000000000d",
+                "00000000000000000000000b", "00000000000000000000000c"), ids(scrolled));
+        assertEquals(ids(orderRepository.findAll(OrderRepositoryCustomImpl.NEWEST_FIRST)), ids(scrolled));
+    }
+
+    /**
+     * Tests that the cursor keeps the filters on every page.
+     */
+    @Test
+    void findOrdersAfter_KeepsFiltersAcrossPages() {
+        for (int i = 0; i < 9; i++) {
+            order(null, i % 3 == 0 ? "user2" : "user1", NOON.plusSeconds(i / 2),
+                    i % 2 == 0 ? Order.OrderStatus.CONFIRMED : Order.OrderStatus.CANCELLED);
+        }
+        order(null, "user1", NOON.minusDays(2), Order.OrderStatus.CONFIRMED);
+
+        OrderSearchCriteria criteria = new OrderSearchCriteria("user1", Order.OrderStatus.CONFIRMED,
+                NOON.minusDays(1), null);
+        List<Order> scrolled = scroll(criteria);
+
+        assertEquals(3, scrolled.size());
+        assertTrue(scrolled.stream().allMatch(order -> order.getUserId().equals("user1")
+                && order.getStatus() == Order.OrderStatus.CONFIRMED && !order.getOrderDate().isBefore(NOON)));
+        assertTrue(scrolled.get(0).getOrderDate().isAfter(scrolled.get(1).getOrderDate()));
+        assertTrue(scrolled.get(1).getOrderDate().isAfter(scrolled.get(2).getOrderDate()));
+
+        Page<Order> page = orderRepository.searchOrders(criteria, PageRequest.of(0, PAGE_SIZE));
+        assertEquals(3, page.getTotalElements());
+        assertEquals(ids(scrolled).subList(0, PAGE_SIZE), ids(page.getContent()));
+    }
+
+    private void order(String id, String userId, LocalDateTime orderDate, Order.OrderStatus status) {
+        Order order = new Order();
+        order.setId(id);
+        order.setUserId(userId);
+        order.setOrderDate(orderDate);
+        order.setStatus(status);
+        order.setTotalAmount(10.0);
+        orderRepository.save(order);
+    }
+
+    /**
+     * Reads every matching order a page at a time, each page starting after the last order of the one before.
+     */
+    private List<Order> scroll(OrderSearchCriteria criteria) {
+        List<Order> orders = new ArrayList<>();
+        List<Order> page = orderRepository.findOrdersAfter(criteria, null, null, PAGE_SIZE);
+        while (!page.isEmpty()) {
+            assertTrue(orders.size() < 100, "scroll does not end");
+            orders.addAll(page);
+            Order last = page.get(page.size() - 1);
+            page = orderRepository.findOrdersAfter(criteria, last.getOrderDate(), last.getId(), PAGE_SIZE);
+        }
+        return orders;
+    }
+
+    private static List<String> ids(List<Order> orders) {
+        return orders.stream().map(Order::getId).toList();
+    }
+}
@@ -0,0 +1,102 @@
+package org.amazinbookstore.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for InvertedIndex and Tokenizer.
+ * Tests BM25 ranking and incremental updates of the index.
+ */
+class InvertedIndexTest {
+
+    private InvertedIndex index;
+
+    /**
+     * Sets up a small index of three documents before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        index = new InvertedIndex();
+        index.put("1", Map.of("animal", 3, "farm", 3, "orwell", 2));
+        index.put("2", Map.of("nineteen", 3, "eighty", 3, "four", 3, "orwell", 2));
+        index.put("3", Map.of("farm", 1, "cookbook", 3));
+    }
+
+    /**
+     * Tests that documents matching more and rarer query terms rank first.
+     */
+    @Test
+    void testSearch_RanksByRelevance() {
+        List<ScoredDocument> results = index.search(List.of("animal", "farm"), 10);
+
+        assertEquals(List.of("1", "3"), keys(results));
+        assertTrue(results.get(0).getScore() > results.get(1).getScore());
+    }
+
+    /**
+     * Tests that only the best results up to the limit are returned.
+     */
+    @Test
+    void testSearch_RespectsLimit() {
+        List<ScoredDocument> results = index.search(List.of("orwell", "farm"), 1);
+
+        assertEquals(List.of("1"), keys(results));
+    }
+
+    /**
+     * Tests that unknown terms and empty queries return nothing.
+     */
+    @Test
+    void testSearch_NoMatches() {
+        assertTrue(index.search(List.of("tolkien"), 10).isEmpty());
+        assertTrue(index.search(List.of(), 10).isEmpty());
+    }
+
+    /**
+     * Tests that putting an existing key replaces its terms.
+     */
+    @Test
+    void testPut_ReplacesDocument() {
+        index.put("3", Map.of("gardening", 3));
+
+        assertEquals(List.of("1"), keys(index.search(List.of("farm"), 10)));
+        assertEquals(List.of("3"), keys(index.search(List.of("gardening"), 10)));
+        assertEquals(3, index.size());
+    }
+
+    /**
+     * Tests that removed documents no longer match and their slot is reused.
+     */
+    @Test
+    void testRemove() {
+        index.remove("1");
+        index.remove("missing");
+
+        assertEquals(List.of("2"), keys(index.search(List.of("orwell"), 10)));
+        assertEquals(2, index.size());
+
+        index.put("4", Map.of("orwell", 1));
+        assertEquals(Set.of("2", "4"), Set.copyOf(keys(index.search(List.of("orwell"), 10))));
+    }
+
+    /**
+     * Tests that the tokenizer lowercases, strips accents and splits on punctuation.
+     */
+    @Test
+    void testTokenize() {
+        assertEquals(List.of("les", "miserables", "vol", "1"), Tokenizer.tokenize("Les Misérables: Vol. 1"));
+        assertTrue(Tokenizer.tokenize(null).isEmpty());
+        assertTrue(Tokenizer.tokenize("  ").isEmpty());
+    }
+
+    private static List<String> keys(List<ScoredDocument> results) {
+        return results.stream().map(ScoredDocument::getKey).collect(Collectors.toList());
+    }
+}
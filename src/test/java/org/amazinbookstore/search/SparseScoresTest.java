@@ -0,0 +1,56 @@
+package org.amazinbookstore.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SparseScores.
+ * Tests accumulation by id and first-scored order against a HashMap.
+ */
+class SparseScoresTest {
+
+    /**
+     * Tests that repeated ids add up and are reported once, in the order first scored.
+     */
+    @Test
+    void testAdd_AccumulatesInFirstScoredOrder() {
+        SparseScores scores = new SparseScores(4);
+        scores.add(1_000_000, 1.5);
+        scores.add(0, 2);
+        scores.add(1_000_000, 1);
+
+        assertEquals(2, scores.size());
+        assertEquals(1_000_000, scores.id(0));
+        assertEquals(2.5, scores.value(0));
+        assertEquals(0, scores.id(1));
+        assertEquals(2.0, scores.value(1));
+    }
+
+    /**
+     * Tests a full table of colliding ids against a HashMap.
+     */
+    @Test
+    void testAdd_MatchesHashMap() {
+        Random random = new Random(3);
+        int[] ids = new int[500];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = random.nextInt(200) * 1024;
+        }
+        SparseScores scores = new SparseScores(ids.length);
+        Map<Integer, Double> expected = new HashMap<>();
+        for (int id : ids) {
+            scores.add(id, 1);
+            expected.merge(id, 1.0, Double::sum);
+        }
+
+        assertEquals(expected.size(), scores.size());
+        for (int position = 0; position < scores.size(); position++) {
+            assertEquals(expected.get(scores.id(position)), scores.value(position));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.amazinbookstore.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SuggestionIndex.
+ * Tests prefix completion, ranking and incremental updates of the trie.
+ */
+class SuggestionIndexTest {
+
+    private SuggestionIndex index;
+
+    /**
+     * Sets up an index of three books before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        index = new SuggestionIndex();
+        index.put("1", book("Animal Farm", "George Orwell"));
+        index.put("2", book("1984", "George Orwell"));
+        index.put("3", book("Anna Karenina", "Leo Tolstoy"));
+    }
+
+    /**
+     * Tests that completions are ranked by the number of books sharing them.
+     */
+    @Test
+    void testSuggest_RanksByBookCount() {
+        index.put("4", book("Harry Potter", "J.K. Rowling"));
+        index.put("5", book("Harry Potter", "J.K. Rowling"));
+
+        List<Suggestion> suggestions = index.suggest("Har", 5);
+
+        assertEquals(1, suggestions.size());
+        assertEquals(new Suggestion("Harry Potter", "title", 2), suggestions.get(0));
+    }
+
+    /**
+     * Tests that completions match from the start of any word, ignoring case and accents.
+     */
+    @Test
+    void testSuggest_MatchesWordStarts() {
+        assertEquals(List.of(new Suggestion("George Orwell", "author", 2)), index.suggest("ORW", 5));
+        assertEquals(List.of("Animal Farm", "Anna Karenina"), texts(index.suggest("an", 5)));
+        assertEquals(List.of("Anna Karenina"), texts(index.suggest("Ánna k", 5)));
+        assertTrue(index.suggest("tolkien", 5).isEmpty());
+        assertTrue(index.suggest("  ", 5).isEmpty());
+    }
+
+    /**
+     * Tests that the limit is respected and the most shared completion comes first.
+     */
+    @Test
+    void testSuggest_Limit() {
+        List<Suggestion> suggestions = index.suggest("g", 1);
+
+        assertEquals(List.of("George Orwell"), texts(suggestions));
+    }
+
+    /**
+     * Tests that updating and removing books updates counts and prunes completions.
+     */
+    @Test
+    void testUpdatesAndRemoval() {
+        index.put("2", book("1984", "Eric Blair"));
+        assertEquals(1, index.suggest("orwell", 5).get(0).getBookCount());
+
+        index.remove("1");
+        assertTrue(index.suggest("orwell", 5).isEmpty());
+        assertTrue(index.suggest("farm", 5).isEmpty());
+        assertEquals(List.of("Anna Karenina"), texts(index.suggest("an", 5)));
+        assertEquals(List.of("Eric Blair"), texts(index.suggest("bl", 5)));
+    }
+
+    /**
+     * Tests the word-start keys a text is stored under.
+     */
+    @Test
+    void testPaths() {
+        assertEquals(List.of("george orwell", "orwell"), SuggestionIndex.paths("george orwell"));
+    }
+
+    private static Map<String, String> book(String title, String author) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("title", title);
+        fields.put("author", author);
+        return fields;
+    }
+
+    private static List<String> texts(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::getText).toList();
+    }
+}
@@ -0,0 +1,84 @@
+package org.amazinbookstore.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TrigramIndex.
+ * Tests typo-tolerant matching of titles and authors.
+ */
+class TrigramIndexTest {
+
+    private TrigramIndex index;
+
+    /**
+     * Sets up an index of three books before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        index = new TrigramIndex();
+        index.put("1", List.of("Animal Farm", "George Orwell"));
+        index.put("2", List.of("1984", "George Orwell"));
+        index.put("3", Arrays.asList("The Hobbit", null));
+    }
+
+    /**
+     * Tests that a misspelled author finds every book by that author.
+     */
+    @Test
+    void testSearch_MisspelledAuthor() {
+        List<FuzzyMatch> matches = index.search("Georg Orwel", 0.3, 10);
+
+        assertEquals(2, matches.size());
+        assertEquals("George Orwell", matches.get(0).getText());
+        assertTrue(matches.get(0).getSimilarity() > 0.3);
+    }
+
+    /**
+     * Tests that a single misspelled word matches the whole title it belongs to.
+     */
+    @Test
+    void testSearch_MisspelledWord() {
+        List<FuzzyMatch> matches = index.search("hobit", 0.3, 10);
+
+        assertEquals(1, matches.size());
+        assertEquals("3", matches.get(0).getKey());
+        assertEquals("The Hobbit", matches.get(0).getText());
+    }
+
+    /**
+     * Tests that an exact match scores 1 and dissimilar text is filtered out.
+     */
+    @Test
+    void testSearch_Similarity() {
+        assertEquals(1.0, index.search("animal farm", 0.3, 10).get(0).getSimilarity());
+        assertTrue(index.search("tolkien", 0.3, 10).isEmpty());
+    }
+
+    /**
+     * Tests that shared texts stay indexed until their last book is removed.
+     */
+    @Test
+    void testRemove_SharedText() {
+        index.remove("1");
+        assertEquals(List.of("2"), index.search("orwell", 0.3, 10).stream().map(FuzzyMatch::getKey).toList());
+
+        index.remove("2");
+        assertTrue(index.search("orwell", 0.3, 10).isEmpty());
+        assertEquals(1, index.size());
+    }
+
+    /**
+     * Tests trigram extraction with pg_trgm style padding.
+     */
+    @Test
+    void testTrigrams() {
+        assertEquals(Set.of("  c", " ca", "cat", "at "), TrigramIndex.trigrams("cat"));
+    }
+}
@@ -0,0 +1,120 @@
+package org.amazinbookstore.service;
+
+import org.amazinbookstore.exception.CheckoutQueueFullException;
+import org.amazinbookstore.exception.InsufficientInventoryException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionQueueTest {
+
+    private static final Duration LONG_WAIT = Duration.ofSeconds(10);
+
+    @Test
+    void admitsUpToMaxConcurrentStraightAway() {
+        AdmissionQueue queue = new AdmissionQueue(2, 10, new Semaphore(100));
+
+        queue.acquire("Dune", 1, 100, Duration.ZERO);
+        queue.acquire("Dune", 1, 100, Duration.ZERO);
+
+        assertEquals(2, queue.active());
+        queue.release();
+        assertEquals(1, queue.active());
+    }
+
+    @Test
+    void timesOutWithQueuePosition() {
+        AdmissionQueue queue = new AdmissionQueue(1, 10, new Semaphore(100));
+        queue.acquire("Dune", 1, 100, Duration.ZERO);
+
+        CheckoutQueueFullException exception = assertThrows(CheckoutQueueFullException.class,
+                () -> queue.acquire("Dune", 1, 100, Duration.ofMillis(20)));
+
+        assertEquals(1, exception.getQueuePosition());
+        assertEquals(0, queue.waiting());
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() {
+        AdmissionQueue queue = new AdmissionQueue(1, 0, new Semaphore(100));
+        queue.acquire("Dune", 1, 100, Duration.ZERO);
+
+        assertThrows(CheckoutQueueFullException.class, () -> queue.acquire("Dune", 1, 100, LONG_WAIT));
+    }
+
+    @Test
+    void rejectsWhenSharedWaitSlotsAreTaken() throws Exception {
+        Semaphore waitSlots = new Semaphore(1);
+        AdmissionQueue dune = new AdmissionQueue(1, 10, waitSlots);
+        AdmissionQueue emma = new AdmissionQueue(1, 10, waitSlots);
+        dune.acquire("Dune", 1, 100, Duration.ZERO);
+        emma.acquire("Emma", 1, 100, Duration.ZERO);
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> dune.acquire("Dune", 1, 100, LONG_WAIT));
+        awaitWaiting(dune, 1);
+
+        // the one wait slot is taken by Dune's queue, so Emma's cannot park another thread
+        CheckoutQueueFullException exception = assertThrows(CheckoutQueueFullException.class,
+                () -> emma.acquire("Emma", 1, 100, LONG_WAIT));
+        assertEquals(1, exception.getQueuePosition());
+
+        dune.release();
+        waiting.get(5, TimeUnit.SECONDS);
+        assertEquals(1, waitSlots.availablePermits());
+    }
+
+    @Test
+    void rejectsEarlyWhenCheckoutsAheadWantEveryCopy() throws Exception {
+        AdmissionQueue queue = new AdmissionQueue(1, 10, new Semaphore(100));
+        queue.acquire("Dune", 1, 3, Duration.ZERO);
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> queue.acquire("Dune", 2, 3, LONG_WAIT));
+        awaitWaiting(queue, 1);
+
+        InsufficientInventoryException exception = assertThrows(InsufficientInventoryException.class,
+                () -> queue.acquire("Dune", 2, 3, LONG_WAIT));
+        assertTrue(exception.getMessage().contains("Dune"));
+
+        queue.release();
+        waiting.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void admitsInArrivalOrder() throws Exception {
+        AdmissionQueue queue = new AdmissionQueue(1, 10, new Semaphore(100));
+        queue.acquire("Dune", 1, 100, Duration.ZERO);
+        List<String> admitted = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> {
+            queue.acquire("Dune", 1, 100, LONG_WAIT);
+            admitted.add("first");
+            queue.release();
+        });
+        awaitWaiting(queue, 1);
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> {
+            queue.acquire("Dune", 1, 100, LONG_WAIT);
+            admitted.add("second");
+            queue.release();
+        });
+        awaitWaiting(queue, 2);
+
+        queue.release();
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("first", "second"), admitted);
+        assertEquals(0, queue.active());
+    }
+
+    private static void awaitWaiting(AdmissionQueue queue, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queue.waiting() < count) {
+            assertTrue(System.nanoTime() < deadline, "checkout never joined the queue");
+            Thread.sleep(1);
+        }
+    }
+}
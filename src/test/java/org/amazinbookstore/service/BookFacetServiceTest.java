@@ -0,0 +1,79 @@
+package org.amazinbookstore.service;
+
+import org.amazinbookstore.dto.BookFacets;
+import org.amazinbookstore.dto.BookSearchCriteria;
+import org.amazinbookstore.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for BookFacetService.
+ * Tests caching of facet counts and cache invalidation on catalog changes.
+ */
+@ExtendWith(MockitoExtension.class)
+class BookFacetServiceTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @InjectMocks
+    private BookFacetService bookFacetService;
+
+    private BookFacets facets;
+
+    /**
+     * Sets up sample facet counts before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        facets = new BookFacets();
+        facets.getGenres().put("Fiction", 2L);
+    }
+
+    /**
+     * Tests that repeated requests for equivalent filters are served from the cache.
+     */
+    @Test
+    void testGetFacets_CachesEquivalentCriteria() {
+        when(bookRepository.countFacets(any())).thenReturn(facets);
+
+        BookFacets first = bookFacetService.getFacets(BookSearchCriteria.of(null, null, "Fiction", " "));
+        BookFacets second = bookFacetService.getFacets(BookSearchCriteria.of(null, "", " fiction", null));
+
+        assertSame(facets, first);
+        assertSame(facets, second);
+        verify(bookRepository, times(1)).countFacets(BookSearchCriteria.of(null, null, "fiction", null));
+    }
+
+    /**
+     * Tests that a null criteria counts the whole catalog.
+     */
+    @Test
+    void testGetFacets_NullCriteria() {
+        when(bookRepository.countFacets(new BookSearchCriteria())).thenReturn(facets);
+
+        assertSame(facets, bookFacetService.getFacets(null));
+    }
+
+    /**
+     * Tests that a catalog change clears the cached counts.
+     */
+    @Test
+    void testOnCatalogChanged_InvalidatesCache() {
+        when(bookRepository.countFacets(any())).thenReturn(facets);
+
+        bookFacetService.getFacets(new BookSearchCriteria());
+        bookFacetService.onCatalogChanged();
+        bookFacetService.getFacets(new BookSearchCriteria());
+
+        verify(bookRepository, times(2)).countFacets(any());
+    }
+}
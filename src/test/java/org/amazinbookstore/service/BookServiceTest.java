@@ -1,18 +1,39 @@
 package org.amazinbookstore.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.amazinbookstore.dto.BookBatchResult;
+import org.amazinbookstore.dto.BookScrollResponse;
+import org.amazinbookstore.dto.BookSearchCriteria;
+import org.amazinbookstore.event.BookDeletedEvent;
+import org.amazinbookstore.event.BookSavedEvent;
+import org.amazinbookstore.exception.InsufficientInventoryException;
+import org.amazinbookstore.exception.InvalidCursorException;
+import org.amazinbookstore.exception.ResourceNotFoundException;
 import org.amazinbookstore.model.Book;
 import org.amazinbookstore.repository.BookRepository;
+import org.bson.types.Decimal128;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.unit.DataSize;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -27,6 +48,15 @@ class BookServiceTest {
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private BookCache bookCache = new BookCache(DataSize.ofMegabytes(1), new SimpleMeterRegistry());
+
+    @Mock
+    private HotSkuService hotSkuService;
+
     @InjectMocks
     private BookService bookService;
 
@@ -58,65 +88,37 @@ class BookServiceTest {
 
     /**
      * Tests searching for books by author.
-     * Should return books matching the author name with case-insensitive partial matching.
+     * Should pass the author filter to the repository with the default id sort.
      */
     @Test
     void testSearchBooks_WithAuthor() {
-        when(bookRepository.findByAuthorContainingIgnoreCase("Orwell"))
+        BookSearchCriteria criteria = BookSearchCriteria.of("Orwell", null, null, null);
+        when(bookRepository.searchBooks(criteria, Sort.by("id")))
                 .thenReturn(Arrays.asList(book2));
 
-        List<Book> result = bookService.searchBooks("Orwell", null, null, null, null);
+        List<Book> result = bookService.searchBooks(criteria, null);
 
         assertEquals(1, result.size());
         assertEquals("1984", result.get(0).getTitle());
-        verify(bookRepository, times(1)).findByAuthorContainingIgnoreCase("Orwell");
-    }
-
-    /**
-     * Tests searching for books by publisher.
-     * Should return books matching the publisher name with case-insensitive partial matching.
-     */
-    @Test
-    void testSearchBooks_WithPublisher() {
-        when(bookRepository.findByPublisherContainingIgnoreCase("Harper"))
-                .thenReturn(Arrays.asList(book3));
-
-        List<Book> result = bookService.searchBooks(null, "Harper", null, null, null);
-
-        assertEquals(1, result.size());
-        assertEquals("To Kill a Mockingbird", result.get(0).getTitle());
-        verify(bookRepository, times(1)).findByPublisherContainingIgnoreCase("Harper");
+        verify(bookRepository, times(1)).searchBooks(criteria, Sort.by("id"));
     }
 
     /**
-     * Tests searching for books by genre.
-     * Should return all books matching the genre with case-insensitive partial matching.
+     * Tests searching with several filters at once.
+     * All filters should reach the repository together in one call rather than only the first one.
      */
     @Test
-    void testSearchBooks_WithGenre() {
-        when(bookRepository.findByGenreContainingIgnoreCase("Fiction"))
-                .thenReturn(Arrays.asList(book1, book2, book3));
-
-        List<Book> result = bookService.searchBooks(null, null, "Fiction", null, null);
-
-        assertEquals(3, result.size());
-        verify(bookRepository, times(1)).findByGenreContainingIgnoreCase("Fiction");
-    }
-
-    /**
-     * Tests searching for books by both author and publisher.
-     * Should return books matching both criteria.
-     */
-    @Test
-    void testSearchBooks_WithAuthorAndPublisher() {
-        when(bookRepository.findByAuthorAndPublisher("Fitzgerald", "Scribner"))
+    void testSearchBooks_CombinedFilters() {
+        BookSearchCriteria criteria = new BookSearchCriteria(null, null, "Fiction", "the",
+                new BigDecimal("10"), new BigDecimal("20"), 1900, 1950);
+        when(bookRepository.searchBooks(criteria, Sort.by("title", "id")))
                 .thenReturn(Arrays.asList(book1));
 
-        List<Book> result = bookService.searchBooks("Fitzgerald", "Scribner", null, null, null);
+        List<Book> result = bookService.searchBooks(criteria, "title");
 
         assertEquals(1, result.size());
         assertEquals("The Great Gatsby", result.get(0).getTitle());
-        verify(bookRepository, times(1)).findByAuthorAndPublisher("Fitzgerald", "Scribner");
+        verify(bookRepository, times(1)).searchBooks(criteria, Sort.by("title", "id"));
     }
 
     /**
@@ -125,60 +127,46 @@ class BookServiceTest {
      */
     @Test
     void testSearchBooks_NoFilters() {
-        when(bookRepository.findAll()).thenReturn(Arrays.asList(book1, book2, book3));
+        BookSearchCriteria criteria = new BookSearchCriteria();
+        when(bookRepository.searchBooks(criteria, Sort.by("id"))).thenReturn(Arrays.asList(book1, book2, book3));
 
-        List<Book> result = bookService.searchBooks(null, null, null, null, null);
+        List<Book> result = bookService.searchBooks(criteria, null);
 
         assertEquals(3, result.size());
-        verify(bookRepository, times(1)).findAll();
+        verify(bookRepository, never()).findAll();
     }
 
     /**
      * Tests sorting books by price in ascending order.
-     * Should return books ordered from lowest to highest price.
+     * Should ask MongoDB for a price sort instead of sorting in memory.
      */
     @Test
     void testSearchBooks_SortByPrice() {
-        when(bookRepository.findAll()).thenReturn(Arrays.asList(book1, book2, book3));
+        BookSearchCriteria criteria = new BookSearchCriteria();
+        when(bookRepository.searchBooks(criteria, Sort.by("price", "id"))).thenReturn(Arrays.asList(book2, book1, book3));
 
-        List<Book> result = bookService.searchBooks(null, null, null, null, "price");
+        List<Book> result = bookService.searchBooks(criteria, "price");
 
         assertEquals(3, result.size());
         assertEquals(new BigDecimal("12.99"), result.get(0).getPrice());
-        assertEquals(new BigDecimal("15.99"), result.get(1).getPrice());
-        assertEquals(new BigDecimal("18.99"), result.get(2).getPrice());
+        verify(bookRepository, times(1)).searchBooks(criteria, Sort.by("price", "id"));
     }
 
     /**
      * Tests sorting books by price in descending order.
-     * Should return books ordered from highest to lowest price.
+     * Should ask MongoDB for a descending price sort with a descending id tie-breaker.
      */
     @Test
     void testSearchBooks_SortByPriceDesc() {
-        when(bookRepository.findAll()).thenReturn(Arrays.asList(book1, book2, book3));
+        BookSearchCriteria criteria = new BookSearchCriteria();
+        Sort expected = Sort.by(Sort.Direction.DESC, "price", "id");
+        when(bookRepository.searchBooks(criteria, expected)).thenReturn(Arrays.asList(book3, book1, book2));
 
-        List<Book> result = bookService.searchBooks(null, null, null, null, "price_desc");
+        List<Book> result = bookService.searchBooks(criteria, "price_desc");
 
         assertEquals(3, result.size());
         assertEquals(new BigDecimal("18.99"), result.get(0).getPrice());
-        assertEquals(new BigDecimal("15.99"), result.get(1).getPrice());
-        assertEquals(new BigDecimal("12.99"), result.get(2).getPrice());
-    }
-
-    /**
-     * Tests sorting books by title alphabetically.
-     * Should return books ordered alphabetically by title (case-insensitive).
-     */
-    @Test
-    void testSearchBooks_SortByTitle() {
-        when(bookRepository.findAll()).thenReturn(Arrays.asList(book1, book2, book3));
-
-        List<Book> result = bookService.searchBooks(null, null, null, null, "title");
-
-        assertEquals(3, result.size());
-        assertEquals("1984", result.get(0).getTitle());
-        assertEquals("The Great Gatsby", result.get(1).getTitle());
-        assertEquals("To Kill a Mockingbird", result.get(2).getTitle());
+        verify(bookRepository, times(1)).searchBooks(criteria, expected);
     }
 
     /**
@@ -224,6 +212,206 @@ class BookServiceTest {
         verify(bookRepository, times(1)).findById("999");
     }
 
+    /**
+     * Tests that repeated lookups are served from the cache, including for missing ids.
+     * Each caller should get its own copy of the book.
+     */
+    @Test
+    void testGetBookById_Cached() {
+        when(bookRepository.findById("1")).thenReturn(Optional.of(book1));
+        when(bookRepository.findById("999")).thenReturn(Optional.empty());
+
+        Book first = bookService.getBookById("1");
+        first.setTitle("Changed by caller");
+        Book second = bookService.getBookById("1");
+        bookService.getBookById("999");
+        bookService.getBookById("999");
+
+        assertEquals("The Great Gatsby", second.getTitle());
+        verify(bookRepository, times(1)).findById("1");
+        verify(bookRepository, times(1)).findById("999");
+        assertEquals(2, bookCache.stats().hitCount());
+        assertEquals(2, bookCache.stats().missCount());
+    }
+
+    /**
+     * Tests batch lookup of books by ID.
+     * Should load uncached books in one query, keep the requested order and report missing ids.
+     */
+    @Test
+    void testGetBooksByIds() {
+        when(bookRepository.findById("2")).thenReturn(Optional.of(book2));
+        when(bookRepository.findAllById(Set.of("3", "1", "999"))).thenReturn(List.of(book1, book3));
+
+        bookService.getBookById("2");
+        BookBatchResult result = bookService.getBooksByIds(Arrays.asList("3", "2", "999", "1", "3"));
+
+        assertEquals(List.of("3", "2", "1"), result.getBooks().stream().map(Book::getId).toList());
+        assertEquals(List.of("999"), result.getMissingIds());
+        verify(bookRepository, times(1)).findAllById(any());
+
+        // everything, including the missing id, is now cached
+        bookService.getBooksByIds(List.of("1", "999"));
+        verifyNoMoreInteractions(bookRepository);
+    }
+
+    /**
+     * Tests decreasing inventory with enough stock.
+     * Should use the atomic conditional update instead of saving the whole book.
+     */
+    @Test
+    void testDecreaseInventory() {
+        when(bookRepository.decrementInventory("1", 2)).thenReturn(book1);
+
+        bookService.decreaseInventory("1", 2);
+
+        verify(bookRepository).decrementInventory("1", 2);
+        verify(bookRepository, never()).save(any());
+        verify(bookCache).invalidate("1");
+    }
+
+    /**
+     * Tests decreasing inventory when another checkout took the last copies.
+     * Should report the current stock instead of overselling.
+     */
+    @Test
+    void testDecreaseInventory_Insufficient() {
+        book1.setInventory(1);
+        when(bookRepository.decrementInventory("1", 2)).thenReturn(null);
+        when(bookRepository.findById("1")).thenReturn(Optional.of(book1));
+
+        InsufficientInventoryException exception = assertThrows(InsufficientInventoryException.class,
+                () -> bookService.decreaseInventory("1", 2));
+
+        assertTrue(exception.getMessage().contains("Available: 1"));
+    }
+
+    /**
+     * Tests decreasing inventory of several books at once.
+     * Should pass the failing book back and invalidate every cached book.
+     */
+    @Test
+    void testDecreaseInventories() {
+        Map<String, Integer> quantities = Map.of("1", 2, "2", 1);
+        when(bookRepository.decrementInventories(quantities)).thenReturn("2");
+
+        assertEquals("2", bookService.decreaseInventories(quantities, new HashMap<>()));
+        verify(bookCache).invalidate("1");
+        verify(bookCache).invalidate("2");
+    }
+
+    /**
+     * Tests decreasing inventory of a hot book.
+     * Should take the copies from its in-memory count without writing the book.
+     */
+    @Test
+    void testDecreaseInventory_HotBook() {
+        StripedInventoryCounter counter = new StripedInventoryCounter(2, 5);
+        when(hotSkuService.counterOf("1")).thenReturn(counter);
+
+        bookService.decreaseInventory("1", 2);
+
+        assertEquals(3, counter.sum());
+        verifyNoInteractions(bookRepository);
+    }
+
+    /**
+     * Tests decreasing inventory of a hot book that has sold out.
+     */
+    @Test
+    void testDecreaseInventory_HotBookSoldOut() {
+        when(hotSkuService.counterOf("1")).thenReturn(new StripedInventoryCounter(2, 1));
+        when(hotSkuService.available("1")).thenReturn(1);
+        when(bookRepository.findById("1")).thenReturn(Optional.of(book1));
+
+        InsufficientInventoryException exception = assertThrows(InsufficientInventoryException.class,
+                () -> bookService.decreaseInventory("1", 2));
+
+        assertTrue(exception.getMessage().contains("Available: 1"));
+    }
+
+    /**
+     * Tests decreasing inventory of a hot book deleted while it sold out.
+     * Should report the book as missing rather than fail on it.
+     */
+    @Test
+    void testDecreaseInventory_HotBookDeleted() {
+        when(hotSkuService.counterOf("1")).thenReturn(new StripedInventoryCounter(2, 1));
+        when(bookRepository.findById("1")).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> bookService.decreaseInventory("1", 2));
+    }
+
+    /**
+     * Tests decreasing inventory of a hot and a stored book together.
+     * When the stored book sells out, the hot book's copies should be put back.
+     */
+    @Test
+    void testDecreaseInventories_HotAndStoredBooks() {
+        StripedInventoryCounter counter = new StripedInventoryCounter(2, 5);
+        when(hotSkuService.counterOf(anyString())).thenAnswer(invocation -> "1".equals(invocation.getArgument(0)) ? counter : null);
+        when(bookRepository.decrementInventories(Map.of("2", 1))).thenReturn("2");
+
+        assertEquals("2", bookService.decreaseInventories(Map.of("1", 2, "2", 1), new HashMap<>()));
+        assertEquals(5, counter.sum());
+    }
+
+    /**
+     * Tests that a successful take from a hot book reports the flush sequence it was taken in.
+     */
+    @Test
+    void testDecreaseInventories_HotBookReportsFlushSequence() {
+        StripedInventoryCounter counter = new StripedInventoryCounter(2, 5, 42);
+        when(hotSkuService.counterOf(anyString())).thenAnswer(invocation -> "1".equals(invocation.getArgument(0)) ? counter : null);
+        Map<String, Long> flushSequences = new HashMap<>();
+
+        assertNull(bookService.decreaseInventories(Map.of("1", 2, "2", 1), flushSequences));
+
+        assertEquals(Map.of("1", 42L), flushSequences);
+        assertEquals(3, counter.sum());
+    }
+
+    /**
+     * Tests that a hot book is read with its live in-memory count.
+     */
+    @Test
+    void testGetBookById_HotBookHasLiveInventory() {
+        book1.setInventory(50);
+        when(bookRepository.findById("1")).thenReturn(Optional.of(book1));
+        when(hotSkuService.available("1")).thenReturn(7);
+
+        assertEquals(7, bookService.getBookById("1").getInventory());
+    }
+
+    /**
+     * Tests decreasing inventory of a book that does not exist.
+     */
+    @Test
+    void testDecreaseInventory_BookNotFound() {
+        when(bookRepository.decrementInventory("999", 1)).thenReturn(null);
+        when(bookRepository.findById("999")).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> bookService.decreaseInventory("999", 1));
+    }
+
+    /**
+     * Tests that saving, deleting and decreasing inventory invalidate the cached book.
+     */
+    @Test
+    void testCacheInvalidation() {
+        when(bookRepository.findById("1")).thenReturn(Optional.of(book1));
+        when(bookRepository.save(book1)).thenReturn(book1);
+
+        bookService.getBookById("1");
+        bookService.saveBook(book1);
+        bookService.getBookById("1");
+        bookService.deleteBook("1");
+        bookService.getBookById("1");
+
+        verify(bookRepository, times(3)).findById("1");
+        verify(bookCache, times(2)).invalidate("1");
+    }
+
     /**
      * Tests saving a book to the repository.
      * Should persist the book and return the saved instance.
@@ -237,6 +425,40 @@ class BookServiceTest {
         assertNotNull(result);
         assertEquals("The Great Gatsby", result.getTitle());
         verify(bookRepository, times(1)).save(book1);
+        verify(eventPublisher).publishEvent(new BookSavedEvent(book1));
+    }
+
+    /**
+     * Tests saving a hot book after some of it sold, with only its price changed.
+     * Should store the live count rather than the inventory the editor read.
+     */
+    @Test
+    void testSaveBook_HotBookKeepsLiveCount() {
+        book1.setInventory(10);
+        book1.setPrice(new BigDecimal("12.99"));
+        when(hotSkuService.available("1")).thenReturn(7);
+        when(bookRepository.save(book1)).thenReturn(book1);
+
+        bookService.saveBook(book1);
+
+        verify(bookRepository).save(argThat(book -> book.getInventory() == 7));
+    }
+
+    /**
+     * Tests adjusting inventory up and down.
+     * Should take or add the copies and return the book as it now stands.
+     */
+    @Test
+    void testAdjustInventory() {
+        StripedInventoryCounter counter = new StripedInventoryCounter(2, 7);
+        when(hotSkuService.counterOf("1")).thenReturn(counter);
+        when(hotSkuService.available("1")).thenAnswer(invocation -> counter.sum());
+        when(bookRepository.findById("1")).thenReturn(Optional.of(book1));
+
+        assertEquals(12, bookService.adjustInventory("1", 5).getInventory());
+        assertEquals(9, bookService.adjustInventory("1", -3).getInventory());
+        assertThrows(InsufficientInventoryException.class, () -> bookService.adjustInventory("1", -10));
+        assertEquals(9, counter.sum());
     }
 
     /**
@@ -250,5 +472,136 @@ class BookServiceTest {
         bookService.deleteBook("1");
 
         verify(bookRepository, times(1)).deleteById("1");
+        verify(eventPublisher).publishEvent(new BookDeletedEvent("1"));
+    }
+
+    /**
+     * Tests paginated search without filters.
+     * Should push page, size and sort down to the repository instead of loading every book.
+     */
+    @Test
+    void testSearchBooksPaginated_NoFilters() {
+        BookSearchCriteria criteria = new BookSearchCriteria();
+        Pageable expected = PageRequest.of(1, 2, Sort.by("price", "id"));
+        when(bookRepository.searchBooks(criteria, expected))
+                .thenReturn(new PageImpl<>(Arrays.asList(book3), expected, 3));
+
+        Page<Book> result = bookService.searchBooksPaginated(criteria, "price", 1, 2);
+
+        assertEquals(1, result.getContent().size());
+        assertEquals(3, result.getTotalElements());
+        assertEquals(2, result.getTotalPages());
+        verify(bookRepository, times(1)).searchBooks(criteria, expected);
+        verify(bookRepository, never()).findAll();
+    }
+
+    /**
+     * Tests paginated search by title.
+     * Should pass the title filter and a descending year sort to the repository.
+     */
+    @Test
+    void testSearchBooksPaginated_WithTitle() {
+        BookSearchCriteria criteria = BookSearchCriteria.of(null, null, null, "the");
+        Pageable expected = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "publicationYear", "id"));
+        when(bookRepository.searchBooks(criteria, expected))
+                .thenReturn(new PageImpl<>(Arrays.asList(book1), expected, 1));
+
+        Page<Book> result = bookService.searchBooksPaginated(criteria, "year_desc", 0, 10);
+
+        assertEquals(1, result.getTotalElements());
+        assertEquals("The Great Gatsby", result.getContent().get(0).getTitle());
+    }
+
+    /**
+     * Tests sorting books by title alphabetically.
+     * Should ask MongoDB for a title sort with an id tie-breaker and keep the order it returns.
+     */
+    @Test
+    void testSearchBooks_SortByTitle() {
+        BookSearchCriteria criteria = new BookSearchCriteria();
+        when(bookRepository.searchBooks(criteria, Sort.by("title", "id"))).thenReturn(Arrays.asList(book2, book1, book3));
+
+        List<Book> result = bookService.searchBooks(criteria, "title");
+
+        assertEquals(3, result.size());
+        assertEquals("1984", result.get(0).getTitle());
+        assertEquals("The Great Gatsby", result.get(1).getTitle());
+        assertEquals("To Kill a Mockingbird", result.get(2).getTitle());
+    }
+
+    /**
+     * Tests scrolling by title.
+     * The next page should resume after the last title returned, tie-broken on its id.
+     */
+    @Test
+    void testScrollBooks_ByTitle() {
+        BookSearchCriteria criteria = BookSearchCriteria.of(null, null, "Fiction", null);
+        when(bookRepository.findBooksAfter(criteria, "title", Sort.Direction.ASC, null, null, 3))
+                .thenReturn(Arrays.asList(book2, book1, book3));
+
+        BookScrollResponse result = bookService.scrollBooks(criteria, "title", null, 2);
+
+        assertEquals(Arrays.asList(book2, book1), result.getBooks());
+
+        when(bookRepository.findBooksAfter(criteria, "title", Sort.Direction.ASC, book1.getTitle(), book1.getId(), 3))
+                .thenReturn(Arrays.asList(book3));
+
+        BookScrollResponse next = bookService.scrollBooks(criteria, "title", result.getNextCursor(), 2);
+
+        assertEquals(Arrays.asList(book3), next.getBooks());
+        assertNull(next.getNextCursor());
+    }
+
+    /**
+     * Tests the mapping from sortBy keys to MongoDB sorts.
+     * Every key should be tie-broken on id in the same direction, and unknown keys should fall back to id order.
+     */
+    @Test
+    void testBookSort_ToSort() {
+        assertEquals(Sort.by(Sort.Direction.DESC, "price", "id"), BookSort.fromKey("price_desc").toSort());
+        assertEquals(Sort.by("author", "id"), BookSort.fromKey("AUTHOR").toSort());
+        assertEquals(Sort.by("id"), BookSort.fromKey("unknown").toSort());
+        assertEquals(Sort.by("id"), BookSort.fromKey(null).toSort());
+    }
+
+    /**
+     * Tests the first page of a keyset scroll.
+     * Should ask the repository for one extra book and hand back a cursor pointing at the last book returned.
+     */
+    @Test
+    void testScrollBooks_FirstPage() {
+        BookSearchCriteria criteria = new BookSearchCriteria();
+        when(bookRepository.findBooksAfter(criteria, "price", Sort.Direction.ASC, null, null, 3))
+                .thenReturn(Arrays.asList(book2, book1, book3));
+
+        BookScrollResponse result = bookService.scrollBooks(criteria, "price", null, 2);
+
+        assertEquals(2, result.getBooks().size());
+        assertNotNull(result.getNextCursor());
+
+        when(bookRepository.findBooksAfter(criteria, "price", Sort.Direction.ASC,
+                new Decimal128(new BigDecimal("15.99")), "1", 3))
+                .thenReturn(Arrays.asList(book3));
+
+        BookScrollResponse next = bookService.scrollBooks(criteria, "price", result.getNextCursor(), 2);
+
+        assertEquals(1, next.getBooks().size());
+        assertEquals("To Kill a Mockingbird", next.getBooks().get(0).getTitle());
+        assertNull(next.getNextCursor());
+    }
+
+    /**
+     * Tests scrolling with a cursor issued for a different sort.
+     * Should be rejected instead of silently returning the wrong page.
+     */
+    @Test
+    void testScrollBooks_CursorForDifferentSort() {
+        String titleCursor = BookCursor.after(BookSort.TITLE, book1).encode();
+
+        assertThrows(InvalidCursorException.class,
+                () -> bookService.scrollBooks(null, "price", titleCursor, 2));
+        assertThrows(InvalidCursorException.class,
+                () -> bookService.scrollBooks(null, "price", "not-a-cursor", 2));
+        verifyNoInteractions(bookRepository);
     }
 }
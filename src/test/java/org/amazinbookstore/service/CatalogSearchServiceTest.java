@@ -0,0 +1,122 @@
+package org.amazinbookstore.service;
+
+import org.amazinbookstore.dto.BookSearchResult;
+import org.amazinbookstore.event.BookDeletedEvent;
+import org.amazinbookstore.event.BookSavedEvent;
+import org.amazinbookstore.model.Book;
+import org.amazinbookstore.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for CatalogSearchService.
+ * Tests index building, incremental updates and both search modes.
+ */
+@ExtendWith(MockitoExtension.class)
+class CatalogSearchServiceTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @InjectMocks
+    private CatalogSearchService catalogSearchService;
+
+    private Book book1;
+    private Book book2;
+
+    /**
+     * Sets up two sample books before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        book1 = new Book("Animal Farm", "George Orwell", "Secker & Warburg", "978-0451526342", new BigDecimal("9.99"));
+        book1.setId("1");
+        book1.setGenre("Satire");
+
+        book2 = new Book("The Farm Cookbook", "Jane Doe", "Penguin", "978-0000000000", new BigDecimal("24.99"));
+        book2.setId("2");
+        book2.setGenre("Cooking");
+    }
+
+    /**
+     * Tests that a rebuild indexes every book and search ranks title matches first.
+     */
+    @Test
+    void testRebuildIndex_AndSearch() {
+        when(bookRepository.streamAllBy()).thenReturn(Stream.of(book1, book2));
+        when(bookRepository.findAllById(anyList())).thenReturn(List.of(book2, book1));
+
+        catalogSearchService.rebuildIndex();
+        List<BookSearchResult> results = catalogSearchService.search("animal farm", 10);
+
+        assertEquals(2, catalogSearchService.indexedBookCount());
+        assertEquals(List.of(book1, book2), results.stream().map(BookSearchResult::getBook).toList());
+        assertTrue(results.get(0).getScore() > results.get(1).getScore());
+    }
+
+    /**
+     * Tests that saved and deleted books are reflected without a rebuild.
+     */
+    @Test
+    void testIncrementalUpdates() {
+        when(bookRepository.findAllById(List.of("1"))).thenReturn(List.of(book1));
+
+        catalogSearchService.onBookSaved(new BookSavedEvent(book1));
+        catalogSearchService.onBookSaved(new BookSavedEvent(book2));
+        catalogSearchService.onBookDeleted(new BookDeletedEvent("2"));
+
+        List<BookSearchResult> results = catalogSearchService.search("farm", 10);
+        assertEquals(1, results.size());
+        assertEquals(book1, results.get(0).getBook());
+    }
+
+    /**
+     * Tests fuzzy search with a misspelled author.
+     * Should return the book and the author it matched.
+     */
+    @Test
+    void testFuzzySearch() {
+        when(bookRepository.findAllById(List.of("1"))).thenReturn(List.of(book1));
+        catalogSearchService.onBookSaved(new BookSavedEvent(book1));
+        catalogSearchService.onBookSaved(new BookSavedEvent(book2));
+
+        List<BookSearchResult> results = catalogSearchService.fuzzySearch("orwel", 10);
+
+        assertEquals(1, results.size());
+        assertEquals(book1, results.get(0).getBook());
+        assertEquals("George Orwell", results.get(0).getMatchedText());
+    }
+
+    /**
+     * Tests autocomplete from the in-memory trie.
+     * Should not touch the database.
+     */
+    @Test
+    void testSuggest() {
+        catalogSearchService.onBookSaved(new BookSavedEvent(book1));
+
+        assertEquals("Animal Farm", catalogSearchService.suggest("anim", 5).get(0).getText());
+        verifyNoInteractions(bookRepository);
+    }
+
+    /**
+     * Tests that an empty index returns no results without querying the database.
+     */
+    @Test
+    void testSearch_EmptyIndex() {
+        assertTrue(catalogSearchService.search("farm", 10).isEmpty());
+        verify(bookRepository, never()).findAllById(anyList());
+    }
+}
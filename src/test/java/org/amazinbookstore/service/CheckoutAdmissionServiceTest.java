@@ -0,0 +1,79 @@
+package org.amazinbookstore.service;
+
+import org.amazinbookstore.dto.CheckoutQueueStatus;
+import org.amazinbookstore.exception.CheckoutQueueFullException;
+import org.amazinbookstore.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CheckoutAdmissionServiceTest {
+
+    @Mock
+    private BookService bookService;
+
+    private CheckoutAdmissionService admissionService;
+    private Book hotBook;
+
+    @BeforeEach
+    void setUp() {
+        admissionService = new CheckoutAdmissionService(bookService, 1, 10, Duration.ofMillis(20), 200);
+
+        hotBook = new Book("Dune", "Frank Herbert", "Ace", "978-0441172719", new BigDecimal("9.99"));
+        hotBook.setId("hot");
+        hotBook.setInventory(50);
+    }
+
+    @Test
+    void admit_BooksNotOnSale_AreNotQueued() {
+        when(bookService.isHotSku("book1")).thenReturn(false);
+
+        admissionService.admit(Map.of("book1", 2)).close();
+
+        verify(bookService, never()).getBookById(any());
+    }
+
+    @Test
+    void admit_HotBook_HoldsATurnUntilClosed() {
+        when(bookService.isHotSku("hot")).thenReturn(true);
+        when(bookService.getBookById("hot")).thenReturn(hotBook);
+
+        CheckoutAdmissionService.Admission admission = admissionService.admit(Map.of("hot", 1));
+        assertEquals(1, admissionService.getStatus("hot").getActive());
+
+        // the only turn is taken, so the next checkout times out in the queue
+        assertThrows(CheckoutQueueFullException.class, () -> admissionService.admit(Map.of("hot", 1)));
+
+        admission.close();
+        CheckoutQueueStatus status = admissionService.getStatus("hot");
+        assertEquals(0, status.getActive());
+        assertEquals(50, status.getRemainingInventory());
+        admissionService.admit(Map.of("hot", 1)).close();
+    }
+
+    @Test
+    void admit_FailureInLaterQueue_ReleasesEarlierTurns() {
+        Book otherHotBook = new Book("Emma", "Jane Austen", "Penguin", "978-0141439587", new BigDecimal("7.99"));
+        otherHotBook.setId("hot2");
+        otherHotBook.setInventory(50);
+        when(bookService.isHotSku(anyString())).thenReturn(true);
+        when(bookService.getBookById("hot")).thenReturn(hotBook);
+        when(bookService.getBookById("hot2")).thenReturn(otherHotBook);
+
+        CheckoutAdmissionService.Admission holder = admissionService.admit(Map.of("hot2", 1));
+        assertThrows(CheckoutQueueFullException.class, () -> admissionService.admit(Map.of("hot", 1, "hot2", 1)));
+
+        assertEquals(0, admissionService.getStatus("hot").getActive());
+        holder.close();
+    }
+}
@@ -0,0 +1,196 @@
+package org.amazinbookstore.service;
+
+import org.amazinbookstore.dto.CheckoutResult;
+import org.amazinbookstore.exception.CheckoutInProgressException;
+import org.amazinbookstore.exception.CheckoutRejectedException;
+import org.amazinbookstore.exception.InsufficientInventoryException;
+import org.amazinbookstore.exception.ResourceNotFoundException;
+import org.amazinbookstore.model.IdempotencyRecord;
+import org.amazinbookstore.model.Order;
+import org.amazinbookstore.repository.IdempotencyRecordRepository;
+import org.amazinbookstore.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CheckoutIdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private OrderService orderService;
+
+    @InjectMocks
+    private CheckoutIdempotencyService checkoutIdempotencyService;
+
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        order = new Order();
+        order.setId("order1");
+        order.setUserId("user1");
+    }
+
+    @Test
+    void checkout_FirstRequest_ChecksOutAndRecordsOrder() {
+        when(orderService.createOrderFromCart(eq("user1"), anyString())).thenReturn(order);
+
+        CheckoutResult result = checkoutIdempotencyService.checkout("user1", "key-1", false);
+
+        assertSame(order, result.getOrder());
+        assertFalse(result.isReplayed());
+        // the order's ID is chosen and recorded before checking out
+        verify(idempotencyRecordRepository).insert(argThat((IdempotencyRecord r) ->
+                r.getId().equals("user1:key-1") && r.getStatus() == IdempotencyRecord.Status.IN_PROGRESS
+                        && r.getOrderId() != null));
+        verify(idempotencyRecordRepository).save(argThat(r ->
+                r.getStatus() == IdempotencyRecord.Status.COMPLETED && r.getOrderId().equals("order1")));
+    }
+
+    @Test
+    void checkout_Retry_ReturnsFirstOrderWithoutCheckingOut() {
+        when(idempotencyRecordRepository.insert(any(IdempotencyRecord.class)))
+                .thenThrow(new DuplicateKeyException("duplicate"));
+        when(idempotencyRecordRepository.findById("user1:key-1")).thenReturn(Optional.of(
+                new IdempotencyRecord("user1:key-1", IdempotencyRecord.Status.COMPLETED, "order1", Instant.now())));
+        when(orderService.getOrderById("order1")).thenReturn(order);
+
+        CheckoutResult result = checkoutIdempotencyService.checkout("user1", "key-1", false);
+
+        assertSame(order, result.getOrder());
+        assertTrue(result.isReplayed());
+        verify(orderService, never()).createOrderFromCart(any(), any());
+    }
+
+    @Test
+    void checkout_RetryWhileFirstIsRunning_Conflicts() {
+        when(idempotencyRecordRepository.insert(any(IdempotencyRecord.class)))
+                .thenThrow(new DuplicateKeyException("duplicate"));
+        when(idempotencyRecordRepository.findById("user1:key-1")).thenReturn(Optional.of(
+                new IdempotencyRecord("user1:key-1", IdempotencyRecord.Status.IN_PROGRESS, "order1", Instant.now())));
+        when(idempotencyRecordRepository.restart(eq("user1:key-1"), any(), any())).thenReturn(0L);
+
+        assertThrows(CheckoutInProgressException.class,
+                () -> checkoutIdempotencyService.checkout("user1", "key-1", false));
+        verify(orderService, never()).createOrderFromCart(any(), any());
+        verify(orderRepository, never()).findById(any());
+    }
+
+    @Test
+    void checkout_AbandonedCheckout_IsRunAgainUnderSameOrderId() {
+        when(idempotencyRecordRepository.insert(any(IdempotencyRecord.class)))
+                .thenThrow(new DuplicateKeyException("duplicate"));
+        when(idempotencyRecordRepository.findById("user1:key-1")).thenReturn(Optional.of(
+                new IdempotencyRecord("user1:key-1", IdempotencyRecord.Status.IN_PROGRESS, "order1",
+                        Instant.now().minusSeconds(600))));
+        when(idempotencyRecordRepository.restart(eq("user1:key-1"), any(), any())).thenReturn(1L);
+        when(orderRepository.findById("order1")).thenReturn(Optional.empty());
+        when(orderService.createOrderFromCart("user1", "order1")).thenReturn(order);
+
+        CheckoutResult result = checkoutIdempotencyService.checkout("user1", "key-1", false);
+
+        assertFalse(result.isReplayed());
+    }
+
+    @Test
+    void checkout_Rejected_ForgetsKey() {
+        when(orderService.createOrderFromCart(eq("user1"), anyString())).thenThrow(new CheckoutRejectedException(
+                new InsufficientInventoryException("Insufficient inventory for book: Dune")));
+
+        assertThrows(CheckoutRejectedException.class,
+                () -> checkoutIdempotencyService.checkout("user1", "key-1", false));
+
+        verify(idempotencyRecordRepository).deleteById("user1:key-1");
+        verify(idempotencyRecordRepository, never()).save(any());
+    }
+
+    @Test
+    void checkout_FailureAfterWrites_MarksKeyFailedWithOrderId() {
+        // e.g. a lookup failing once the order was saved; a retry must not place a second order
+        when(orderService.createOrderFromCart(eq("user1"), anyString()))
+                .thenThrow(new ResourceNotFoundException("User not found with id: user1"));
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> checkoutIdempotencyService.checkout("user1", "key-1", false));
+
+        verify(idempotencyRecordRepository, never()).deleteById(any());
+        verify(idempotencyRecordRepository).save(argThat(r ->
+                r.getStatus() == IdempotencyRecord.Status.FAILED && r.getOrderId() != null));
+    }
+
+    @Test
+    void checkout_InfrastructureFailure_MarksKeyFailed() {
+        when(orderService.createOrderFromCart(eq("user1"), anyString()))
+                .thenThrow(new DataAccessResourceFailureException("unreachable"));
+
+        assertThrows(DataAccessResourceFailureException.class,
+                () -> checkoutIdempotencyService.checkout("user1", "key-1", false));
+
+        verify(idempotencyRecordRepository, never()).deleteById(any());
+        verify(idempotencyRecordRepository).save(argThat(r -> r.getStatus() == IdempotencyRecord.Status.FAILED));
+    }
+
+    @Test
+    void checkout_RetryAfterFailure_ReturnsOrderPlacedBeforeIt() {
+        when(idempotencyRecordRepository.insert(any(IdempotencyRecord.class)))
+                .thenThrow(new DuplicateKeyException("duplicate"));
+        when(idempotencyRecordRepository.findById("user1:key-1")).thenReturn(Optional.of(
+                new IdempotencyRecord("user1:key-1", IdempotencyRecord.Status.FAILED, "order1", Instant.now())));
+        when(idempotencyRecordRepository.restart(eq("user1:key-1"), any(), any())).thenReturn(1L);
+        when(orderRepository.findById("order1")).thenReturn(Optional.of(order));
+
+        CheckoutResult result = checkoutIdempotencyService.checkout("user1", "key-1", false);
+
+        assertSame(order, result.getOrder());
+        assertTrue(result.isReplayed());
+        verify(orderService, never()).createOrderFromCart(any(), any());
+        verify(idempotencyRecordRepository).save(argThat(r ->
+                r.getStatus() == IdempotencyRecord.Status.COMPLETED && r.getOrderId().equals("order1")));
+    }
+
+    @Test
+    void checkout_RetryAfterFailure_WithoutOrder_ChecksOutAgain() {
+        when(idempotencyRecordRepository.insert(any(IdempotencyRecord.class)))
+                .thenThrow(new DuplicateKeyException("duplicate"));
+        when(idempotencyRecordRepository.findById("user1:key-1")).thenReturn(Optional.of(
+                new IdempotencyRecord("user1:key-1", IdempotencyRecord.Status.FAILED, "order1", Instant.now())));
+        when(idempotencyRecordRepository.restart(eq("user1:key-1"), any(), any())).thenReturn(1L);
+        when(orderRepository.findById("order1")).thenReturn(Optional.empty());
+        when(orderService.createOrderFromCart("user1", "order1")).thenReturn(order);
+
+        CheckoutResult result = checkoutIdempotencyService.checkout("user1", "key-1", false);
+
+        assertSame(order, result.getOrder());
+        assertFalse(result.isReplayed());
+    }
+
+    @Test
+    void checkout_Async_RecordsPendingOrder() {
+        order.setStatus(Order.OrderStatus.PENDING);
+        when(orderService.submitOrder(eq("user1"), anyString())).thenReturn(order);
+
+        CheckoutResult result = checkoutIdempotencyService.checkout("user1", "key-1", true);
+
+        assertSame(order, result.getOrder());
+        verify(orderService, never()).createOrderFromCart(any(), any());
+        verify(idempotencyRecordRepository).save(argThat(r -> r.getOrderId().equals("order1")));
+    }
+}
@@ -0,0 +1,48 @@
+package org.amazinbookstore.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CheckoutWorkerPool.
+ * Tests retrying checkouts after a backoff, up to the maximum number of attempts.
+ */
+class CheckoutWorkerPoolTest {
+
+    private final CheckoutWorkerPool pool = new CheckoutWorkerPool(1, 10, 3, Duration.ofMillis(10));
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        pool.destroy();
+    }
+
+    /**
+     * Tests that a retried checkout runs on a worker once it has backed off.
+     */
+    @Test
+    void testRetryLater_RunsCheckoutAfterBackoff() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+
+        assertTrue(pool.retryLater(ran::countDown, 2));
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Tests that a checkout that has used up its attempts is not queued again.
+     */
+    @Test
+    void testRetryLater_GivesUpAfterMaxAttempts() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+
+        assertFalse(pool.retryLater(ran::countDown, 3));
+
+        assertFalse(ran.await(200, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,89 @@
+package org.amazinbookstore.service;
+
+import org.amazinbookstore.model.OrderEvent;
+import org.amazinbookstore.model.OrderItem;
+import org.amazinbookstore.model.User;
+import org.amazinbookstore.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CoPurchaseServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Test
+    void rebuild_BuildsMatrixFromPurchaseHistory() {
+        CoPurchaseService service = new CoPurchaseService(userRepository, "co-purchase");
+        when(userRepository.streamAllBy()).thenReturn(Stream.of(user("u1", "book1", "book2"), user("u2", "book1")));
+
+        assertFalse(service.isReady());
+        service.rebuild();
+
+        assertTrue(service.isReady());
+        assertEquals(List.of("book2"), service.recommend(Set.of("book1"), 5));
+        assertEquals(List.of("book1", "book2"), service.popular(Set.of(), 5));
+    }
+
+    @Test
+    void onOrderEvents_AddsNewOrdersOnly() {
+        CoPurchaseService service = new CoPurchaseService(userRepository, "co-purchase");
+        when(userRepository.streamAllBy()).thenReturn(Stream.of(user("u1", "book1")));
+        service.rebuild();
+
+        OrderEvent cancelled = event(OrderEvent.Type.ORDER_STATUS_CHANGED, "u1", "book3");
+        service.onOrderEvents(List.of(event(OrderEvent.Type.ORDER_CREATED, "u1", "book2"), cancelled));
+
+        assertEquals(List.of("book2"), service.recommend(Set.of("book1"), 5));
+    }
+
+    @Test
+    void rebuild_DatabaseDown_StaysNotReady() {
+        CoPurchaseService service = new CoPurchaseService(userRepository, "co-purchase");
+        when(userRepository.streamAllBy()).thenThrow(new DataAccessResourceFailureException("no server"));
+
+        service.rebuild();
+
+        assertFalse(service.isReady());
+        assertTrue(service.recommend(Set.of("book1"), 5).isEmpty());
+    }
+
+    @Test
+    void otherStrategy_NeverBuildsMatrix() {
+        CoPurchaseService service = new CoPurchaseService(userRepository, "similar-users");
+
+        service.rebuild();
+        service.onOrderEvents(List.of(event(OrderEvent.Type.ORDER_CREATED, "u1", "book2")));
+
+        assertFalse(service.isReady());
+        verifyNoInteractions(userRepository);
+    }
+
+    private static User user(String id, String... bookIds) {
+        User user = new User();
+        user.setId(id);
+        user.setPurchasedBookIds(new ArrayList<>(List.of(bookIds)));
+        return user;
+    }
+
+    private static OrderEvent event(OrderEvent.Type type, String userId, String bookId) {
+        OrderEvent event = new OrderEvent();
+        event.setType(type);
+        event.setUserId(userId);
+        event.setItems(List.of(new OrderItem(bookId, "Title", 1, BigDecimal.TEN)));
+        return event;
+    }
+}
@@ -0,0 +1,190 @@
+package org.amazinbookstore.service;
+
+import org.amazinbookstore.event.BookDeletedEvent;
+import org.amazinbookstore.event.BookSavedEvent;
+import org.amazinbookstore.exception.ResourceNotFoundException;
+import org.amazinbookstore.model.Book;
+import org.amazinbookstore.model.HotSku;
+import org.amazinbookstore.model.Order;
+import org.amazinbookstore.model.OrderItem;
+import org.amazinbookstore.repository.BookRepository;
+import org.amazinbookstore.repository.HotSkuRepository;
+import org.amazinbookstore.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HotSkuServiceTest {
+
+    @Mock
+    private HotSkuRepository hotSkuRepository;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    private HotSkuService hotSkuService;
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        hotSkuService = new HotSkuService(hotSkuRepository, bookRepository, orderRepository, 4);
+
+        book = new Book("Dune", "Frank Herbert", "Ace", "978-0441172719", new BigDecimal("9.99"));
+        book.setId("book1");
+        book.setInventory(100);
+    }
+
+    @Test
+    void markHot_CountsFromCurrentInventory() {
+        when(bookRepository.findById("book1")).thenReturn(Optional.of(book));
+        when(hotSkuRepository.save(any(HotSku.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        HotSku hotSku = hotSkuService.markHot("book1");
+
+        assertEquals(100, hotSku.getInventory());
+        assertTrue(hotSkuService.isHot("book1"));
+        assertTrue(hotSkuService.counterOf("book1").tryTake(30));
+        assertEquals(70, hotSkuService.available("book1"));
+        assertFalse(hotSkuService.isHot("book2"));
+        assertNull(hotSkuService.available("book2"));
+    }
+
+    @Test
+    void markHot_MissingBook_Throws() {
+        when(bookRepository.findById("book1")).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> hotSkuService.markHot("book1"));
+        assertFalse(hotSkuService.isHot("book1"));
+    }
+
+    @Test
+    void flush_WritesOnlyChangedCounts() {
+        markHot(100);
+
+        hotSkuService.flush();
+        verify(bookRepository, never()).setInventory(any(), anyInt());
+
+        hotSkuService.counterOf("book1").tryTake(5);
+        hotSkuService.flush();
+        hotSkuService.flush();
+
+        verify(bookRepository, times(1)).setInventory("book1", 95);
+        verify(hotSkuRepository).save(argThat(h -> h.getInventory() == 95));
+    }
+
+    @Test
+    void load_SubtractsOnlyCopiesTakenAfterLastFlush() {
+        Order taken = new Order();
+        taken.setItems(List.of(new OrderItem("book1", "Dune", 3, BigDecimal.TEN, 8L),
+                new OrderItem("book2", "Emma", 5, BigDecimal.TEN, 9L)));
+        // ordered within the flush's second, but the flush already counted it
+        Order counted = new Order();
+        counted.setItems(List.of(new OrderItem("book1", "Dune", 2, BigDecimal.TEN, 7L),
+                new OrderItem("book1", "Dune", 4, BigDecimal.TEN, 8L)));
+        when(hotSkuRepository.findAll()).thenReturn(List.of(new HotSku("book1", 40, Instant.now(), 7L)));
+        when(orderRepository.findHotItemsTakenAfter("book1", 7L)).thenReturn(List.of(taken, counted));
+
+        assertEquals(33, hotSkuService.available("book1"));
+        // takes after the restart are numbered above every take before it
+        assertTrue(hotSkuService.counterOf("book1").take(1) > 8);
+    }
+
+    @Test
+    void flush_RecordsSequenceOfTakesItCounted() {
+        markHot(100);
+        long sequence = hotSkuService.counterOf("book1").take(5);
+
+        hotSkuService.flush();
+
+        verify(hotSkuRepository).save(argThat(h -> h.getInventory() == 95 && h.getFlushSequence() == sequence));
+        assertTrue(hotSkuService.counterOf("book1").take(1) > sequence);
+    }
+
+    @Test
+    void unmarkHot_WritesCountBack() {
+        markHot(100);
+        hotSkuService.counterOf("book1").tryTake(10);
+
+        hotSkuService.unmarkHot("book1");
+
+        verify(bookRepository).setInventory("book1", 90);
+        verify(hotSkuRepository).deleteById("book1");
+        assertFalse(hotSkuService.isHot("book1"));
+    }
+
+    @Test
+    void onBookSaved_PriceEditAfterSales_LeavesCountAlone() {
+        markHot(100);
+        hotSkuService.counterOf("book1").tryTake(10);
+        hotSkuService.flush();
+
+        // the editor read the book before the sales, and only changed its price
+        book.setPrice(new BigDecimal("4.99"));
+        hotSkuService.onBookSaved(new BookSavedEvent(book));
+
+        assertEquals(90, hotSkuService.available("book1"));
+        // the save overwrote the stored count, so it is written again
+        hotSkuService.flush();
+        verify(bookRepository, times(2)).setInventory("book1", 90);
+    }
+
+    @Test
+    void flush_FailedBook_DoesNotStopOthers() {
+        markHot(100);
+        Book other = new Book("Emma", "Jane Austen", "Penguin", "978-0141439587", new BigDecimal("7.99"));
+        other.setId("book2");
+        other.setInventory(50);
+        when(bookRepository.findById("book2")).thenReturn(Optional.of(other));
+        hotSkuService.markHot("book2");
+        hotSkuService.counterOf("book1").tryTake(1);
+        hotSkuService.counterOf("book2").tryTake(1);
+        doAnswer(invocation -> {
+            if ("book1".equals(invocation.getArgument(0))) {
+                throw new DataAccessResourceFailureException("unreachable");
+            }
+            return null;
+        }).when(bookRepository).setInventory(anyString(), anyInt());
+
+        hotSkuService.flush();
+
+        verify(bookRepository).setInventory("book2", 49);
+    }
+
+    @Test
+    void onBookDeleted_DropsCounter() {
+        markHot(100);
+
+        hotSkuService.onBookDeleted(new BookDeletedEvent("book1"));
+
+        assertFalse(hotSkuService.isHot("book1"));
+        verify(hotSkuRepository).deleteById("book1");
+    }
+
+    @Test
+    void counterOf_NotHot_IsNull() {
+        assertNull(hotSkuService.counterOf("book1"));
+    }
+
+    private void markHot(int inventory) {
+        book.setInventory(inventory);
+        when(bookRepository.findById("book1")).thenReturn(Optional.of(book));
+        hotSkuService.markHot("book1");
+    }
+}
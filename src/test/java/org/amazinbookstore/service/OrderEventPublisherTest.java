@@ -0,0 +1,174 @@
+package org.amazinbookstore.service;
+
+import org.amazinbookstore.event.OrderEventListener;
+import org.amazinbookstore.model.OrderEvent;
+import org.amazinbookstore.repository.OrderEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderEventPublisherTest {
+
+    @Mock
+    private OrderEventRepository orderEventRepository;
+
+    private FirstListener firstListener;
+    private SecondListener secondListener;
+    private OrderEventPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        firstListener = new FirstListener();
+        secondListener = new SecondListener();
+        publisher = new OrderEventPublisher(orderEventRepository, List.of(firstListener, secondListener), 2, 3,
+                Duration.ofSeconds(1));
+    }
+
+    @Test
+    void publishPending_DeliversBatchesToEveryListenerUntilEmpty() {
+        List<OrderEvent> full = List.of(event("e1"), event("e2"));
+        List<OrderEvent> last = List.of(event("e3"));
+        when(orderEventRepository.findDeliverable(any(), any(Pageable.class))).thenReturn(full, last);
+
+        publisher.publishPending();
+
+        assertEquals(List.of(full, last), firstListener.received);
+        assertEquals(List.of(full, last), secondListener.received);
+        verify(orderEventRepository).markPublished(eq(List.of("e1", "e2")), any());
+        verify(orderEventRepository).markPublished(eq(List.of("e3")), any());
+        // A short batch means the outbox is drained
+        verify(orderEventRepository, times(2)).findDeliverable(any(), any(Pageable.class));
+    }
+
+    @Test
+    void publishPending_NothingPending() {
+        when(orderEventRepository.findDeliverable(any(), any(Pageable.class))).thenReturn(List.of());
+
+        publisher.publishPending();
+
+        assertTrue(firstListener.received.isEmpty());
+        verify(orderEventRepository, never()).markPublished(any(), any());
+    }
+
+    @Test
+    void publishBatch_ListenerFails_IsolatesFailingEvent() {
+        OrderEvent good = event("e1");
+        OrderEvent bad = event("e2");
+        List<OrderEvent> batch = List.of(good, bad);
+        when(orderEventRepository.findDeliverable(any(), any(Pageable.class))).thenReturn(batch);
+        firstListener.failOn = bad;
+
+        assertFalse(publisher.publishBatch());
+
+        // The batch is split, so the good event still reaches the failing listener and is published
+        assertEquals(List.of(List.of(good)), firstListener.received);
+        verify(orderEventRepository).markPublished(eq(List.of("e1")), any());
+        // The other listener has the bad event already, and will not see it again
+        assertEquals(List.of(batch), secondListener.received);
+        verify(orderEventRepository).markDelivered(List.of("e2"), "SecondListener");
+        ArgumentCaptor<Instant> retryAt = ArgumentCaptor.forClass(Instant.class);
+        verify(orderEventRepository).recordFailedDelivery(eq("e2"), eq(Map.of("FirstListener", 1)), retryAt.capture());
+        assertTrue(retryAt.getValue().isAfter(Instant.now()));
+        verify(orderEventRepository, never()).park(any(), any(), any());
+    }
+
+    @Test
+    void publishBatch_RetriedEvent_GoesOnlyToListenersStillMissingIt() {
+        OrderEvent retried = event("e1");
+        retried.getDeliveredTo().add("SecondListener");
+        retried.getFailedAttempts().put("FirstListener", 1);
+        when(orderEventRepository.findDeliverable(any(), any(Pageable.class))).thenReturn(List.of(retried));
+
+        publisher.publishBatch();
+
+        assertEquals(List.of(List.of(retried)), firstListener.received);
+        assertTrue(secondListener.received.isEmpty());
+        verify(orderEventRepository).markPublished(eq(List.of("e1")), any());
+    }
+
+    @Test
+    void publishBatch_BackoffDoublesWithEachFailure() {
+        OrderEvent event = event("e1");
+        event.getFailedAttempts().put("SecondListener", 1);
+        when(orderEventRepository.findDeliverable(any(), any(Pageable.class))).thenReturn(List.of(event));
+        secondListener.failOn = event;
+
+        Instant before = Instant.now();
+        publisher.publishBatch();
+
+        ArgumentCaptor<Instant> retryAt = ArgumentCaptor.forClass(Instant.class);
+        verify(orderEventRepository).recordFailedDelivery(eq("e1"), eq(Map.of("SecondListener", 2)), retryAt.capture());
+        assertFalse(retryAt.getValue().isBefore(before.plusSeconds(2)));
+    }
+
+    @Test
+    void publishBatch_ListenerKeepsFailing_ParksEventWithoutPublishingIt() {
+        OrderEvent exhausted = event("e1");
+        exhausted.getFailedAttempts().put("SecondListener", 2);
+        when(orderEventRepository.findDeliverable(any(), any(Pageable.class))).thenReturn(List.of(exhausted));
+        secondListener.failOn = exhausted;
+
+        publisher.publishBatch();
+
+        verify(orderEventRepository).park(eq("e1"), eq(Map.of("SecondListener", 3)), any());
+        verify(orderEventRepository).markDelivered(List.of("e1"), "FirstListener");
+        verify(orderEventRepository, never()).markPublished(any(), any());
+    }
+
+    @Test
+    void publishPending_DatabaseDown_GivesUpQuietly() {
+        when(orderEventRepository.findDeliverable(any(), any(Pageable.class)))
+                .thenThrow(new DataAccessResourceFailureException("no server"));
+
+        assertDoesNotThrow(() -> publisher.publishPending());
+
+        assertTrue(firstListener.received.isEmpty());
+    }
+
+    private static OrderEvent event(String id) {
+        OrderEvent event = new OrderEvent();
+        event.setId(id);
+        event.setType(OrderEvent.Type.ORDER_CREATED);
+        return event;
+    }
+
+    /**
+     * Records the batches it handles, and throws on any batch holding {@code failOn}.
+     * Listeners are told apart by class name, so each test listener has its own type.
+     */
+    private abstract static class RecordingListener implements OrderEventListener {
+
+        final List<List<OrderEvent>> received = new ArrayList<>();
+        OrderEvent failOn;
+
+        @Override
+        public void onOrderEvents(List<OrderEvent> events) {
+            if (events.contains(failOn)) {
+                throw new IllegalStateException("down");
+            }
+            received.add(List.copyOf(events));
+        }
+    }
+
+    private static class FirstListener extends RecordingListener {
+    }
+
+    private static class SecondListener extends RecordingListener {
+    }
+}
@@ -0,0 +1,108 @@
+package org.amazinbookstore.service;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.amazinbookstore.dto.OrderSearchCriteria;
+import org.amazinbookstore.model.Order;
+import org.amazinbookstore.model.OrderItem;
+import org.amazinbookstore.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderExportServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    private OrderExportService orderExportService;
+
+    private OrderSearchCriteria criteria;
+    private Order order;
+    private Order cancelled;
+
+    @BeforeEach
+    void setUp() {
+        // Configured like the application's ObjectMapper, which writes dates as ISO strings
+        orderExportService = new OrderExportService(orderRepository, Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build());
+        criteria = new OrderSearchCriteria();
+
+        order = new Order();
+        order.setId("order1");
+        order.setUserId("user1");
+        order.setOrderDate(LocalDateTime.of(2024, 11, 1, 9, 30));
+        order.setStatus(Order.OrderStatus.CONFIRMED);
+        order.setTotalAmount(44.97);
+        order.setItems(List.of(
+                new OrderItem("book1", "Gatsby, The", 2, new BigDecimal("15.99")),
+                new OrderItem("book2", "1984", 1, new BigDecimal("12.99"))));
+
+        cancelled = new Order();
+        cancelled.setId("order2");
+        cancelled.setUserId("user2");
+        cancelled.setOrderDate(LocalDateTime.of(2024, 11, 2, 10, 0));
+        cancelled.setStatus(Order.OrderStatus.CANCELLED);
+    }
+
+    @Test
+    void export_Ndjson_OneOrderPerLineAndClosesCursor() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        when(orderRepository.streamOrders(criteria))
+                .thenReturn(Stream.of(order, cancelled).onClose(() -> closed.set(true)));
+
+        String[] lines = export(OrderExportService.Format.NDJSON).split("\n");
+
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":\"order1\""));
+        assertTrue(lines[0].contains("\"orderDate\":\"2024-11-01T09:30:00\""));
+        assertTrue(lines[1].contains("\"status\":\"CANCELLED\""));
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void export_Csv_OneRowPerItemWithQuoting() throws Exception {
+        when(orderRepository.streamOrders(criteria)).thenReturn(Stream.of(order, cancelled));
+
+        String[] lines = export(OrderExportService.Format.CSV).split("\n");
+
+        assertEquals(OrderExportService.CSV_HEADER, lines[0]);
+        assertEquals("order1,user1,2024-11-01T09:30,CONFIRMED,44.97,book1,\"Gatsby, The\",2,15.99", lines[1]);
+        assertEquals("order1,user1,2024-11-01T09:30,CONFIRMED,44.97,book2,1984,1,12.99", lines[2]);
+        // An order without items still gets a row
+        assertEquals("order2,user2,2024-11-02T10:00,CANCELLED,,,,,", lines[3]);
+    }
+
+    @Test
+    void csv_EscapesQuotes() {
+        assertEquals("\"say \"\"hi\"\"\"", OrderExportService.csv("say \"hi\""));
+        assertEquals("", OrderExportService.csv(null));
+    }
+
+    @Test
+    void format_FromKey() {
+        assertEquals(OrderExportService.Format.CSV, OrderExportService.Format.fromKey("csv"));
+        assertEquals(OrderExportService.Format.NDJSON, OrderExportService.Format.fromKey(null));
+        assertEquals(OrderExportService.Format.NDJSON, OrderExportService.Format.fromKey("xml"));
+    }
+
+    private String export(OrderExportService.Format format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        orderExportService.export(criteria, format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
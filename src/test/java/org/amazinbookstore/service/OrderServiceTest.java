@@ -1,8 +1,15 @@
 package org.amazinbookstore.service;
 
+import org.amazinbookstore.dto.BookBatchResult;
+import org.amazinbookstore.dto.OrderScrollResponse;
+import org.amazinbookstore.dto.OrderSearchCriteria;
+import org.amazinbookstore.exception.CheckoutQueueFullException;
+import org.amazinbookstore.exception.CheckoutRejectedException;
 import org.amazinbookstore.exception.InsufficientInventoryException;
+import org.amazinbookstore.exception.InvalidCursorException;
 import org.amazinbookstore.exception.ResourceNotFoundException;
 import org.amazinbookstore.model.*;
+import org.amazinbookstore.repository.OrderEventRepository;
 import org.amazinbookstore.repository.OrderRepository;
 import org.amazinbookstore.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,14 +17,19 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -38,13 +50,27 @@ class OrderServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Spy
+    private TransactionRunner transactionRunner = new TransactionRunner(null);
+
+    @Mock
+    private ReservationService reservationService;
+
+    @Mock
+    private CheckoutAdmissionService checkoutAdmissionService;
+
+    @Mock
+    private CheckoutWorkerPool checkoutWorkerPool;
+
+    @Mock
+    private OrderEventRepository orderEventRepository;
+
     @InjectMocks
     private OrderService orderService;
 
     private Book book1;
     private Book book2;
     private ShoppingCart cart;
-    private User user;
     private Order order;
 
     @BeforeEach
@@ -69,12 +95,6 @@ class OrderServiceTest {
         item2.setQuantity(1);
         cart.setItems(Arrays.asList(item1, item2));
 
-        // Create test user with empty purchase history
-        user = new User();
-        user.setId("user1");
-        user.setUsername("testuser");
-        user.setPurchasedBookIds(new ArrayList<>());
-
         // Create a sample order
         order = new Order();
         order.setId("order1");
@@ -82,18 +102,47 @@ class OrderServiceTest {
         order.setOrderDate(LocalDateTime.now());
         order.setStatus(Order.OrderStatus.CONFIRMED);
         order.setTotalAmount(44.97);
+
+        // By default the user exists and holds nothing
+        lenient().when(userRepository.existsById("user1")).thenReturn(true);
+        lenient().when(reservationService.claimHolds(anyString(), anyCollection())).thenReturn(InventoryHolds.none());
+    }
+
+    @Test
+    void testCreateOrderFromCart_HotBookItemKeepsFlushSequence() {
+        when(shoppingCartService.getCartByUserId("user1")).thenReturn(cart);
+        stubBooks(book1, book2);
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        doAnswer(invocation -> {
+            Map<String, Long> flushSequences = invocation.getArgument(1);
+            flushSequences.put("book1", 42L);
+            return null;
+        }).when(bookService).decreaseInventories(any(), any());
+
+        Order result = orderService.createOrderFromCart("user1");
+
+        assertEquals(42L, result.getItems().get(0).getHotFlushSequence());
+        assertNull(result.getItems().get(1).getHotFlushSequence());
+    }
+
+    @Test
+    void testCreateOrderFromCart_UsesChosenOrderId() {
+        when(shoppingCartService.getCartByUserId("user1")).thenReturn(cart);
+        stubBooks(book1, book2);
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Order result = orderService.createOrderFromCart("user1", "chosen-id");
+
+        assertEquals("chosen-id", result.getId());
+        assertEquals(Order.OrderStatus.CONFIRMED, result.getStatus());
     }
 
     @Test
     void testCreateOrderFromCart_Success() {
         when(shoppingCartService.getCartByUserId("user1")).thenReturn(cart);
-        when(bookService.getBookById("book1")).thenReturn(book1);
-        when(bookService.getBookById("book2")).thenReturn(book2);
-        when(userRepository.findById("user1")).thenReturn(Optional.of(user));
+        stubBooks(book1, book2);
         when(orderRepository.save(any(Order.class))).thenReturn(order);
-        doNothing().when(bookService).decreaseInventory(anyString(), anyInt());
         doNothing().when(shoppingCartService).clearCart("user1");
-        when(userRepository.save(any(User.class))).thenReturn(user);
 
         Order result = orderService.createOrderFromCart("user1");
 
@@ -102,15 +151,57 @@ class OrderServiceTest {
         assertEquals("user1", result.getUserId());
         assertEquals(Order.OrderStatus.CONFIRMED, result.getStatus());
 
-        // Make sure inventory was decreased for both books
-        verify(bookService).decreaseInventory("book1", 2);
-        verify(bookService).decreaseInventory("book2", 1);
+        // Make sure inventory was decreased for both books, in one batch
+        verify(bookService).decreaseInventories(eq(Map.of("book1", 2, "book2", 1)), any());
 
         // Cart should be cleared after order creation
         verify(shoppingCartService).clearCart("user1");
 
         // User purchase history should be updated
-        verify(userRepository).save(user);
+        verify(userRepository).addPurchasedBookIds(eq("user1"), argThat(ids -> ids.containsAll(List.of("book1", "book2"))));
+
+        // Listeners should hear about the new order
+        verify(orderEventRepository).insert(argThat((OrderEvent e) ->
+            e.getType() == OrderEvent.Type.ORDER_CREATED && "order1".equals(e.getOrderId())));
+    }
+
+    @Test
+    void testCreateOrderFromCart_RunsInTransaction() {
+        when(shoppingCartService.getCartByUserId("user1")).thenReturn(cart);
+        stubBooks(book1, book2);
+        when(orderRepository.save(any(Order.class))).thenReturn(order);
+
+        orderService.createOrderFromCart("user1");
+
+        verify(transactionRunner).inTransaction(any());
+    }
+
+    @Test
+    void testCreateOrderFromCart_WaitsForAdmissionAndReleasesIt() {
+        CheckoutAdmissionService.Admission admission = mock(CheckoutAdmissionService.Admission.class);
+        when(shoppingCartService.getCartByUserId("user1")).thenReturn(cart);
+        when(checkoutAdmissionService.admit(Map.of("book1", 2, "book2", 1))).thenReturn(admission);
+        stubBooks(book1, book2);
+        when(orderRepository.save(any(Order.class))).thenReturn(order);
+
+        orderService.createOrderFromCart("user1");
+
+        verify(admission).close();
+    }
+
+    @Test
+    void testCreateOrderFromCart_QueueFull() {
+        when(shoppingCartService.getCartByUserId("user1")).thenReturn(cart);
+        when(checkoutAdmissionService.admit(any()))
+                .thenThrow(new CheckoutQueueFullException("The checkout queue for 1984 is full", 501));
+
+        CheckoutRejectedException e = assertThrows(CheckoutRejectedException.class,
+            () -> orderService.createOrderFromCart("user1"));
+
+        assertInstanceOf(CheckoutQueueFullException.class, e.getReason());
+
+        verify(bookService, never()).decreaseInventories(any(), any());
+        verify(orderRepository, never()).save(any(Order.class));
     }
 
     @Test
@@ -120,9 +211,10 @@ class OrderServiceTest {
         emptyCart.setItems(new ArrayList<>());
         when(shoppingCartService.getCartByUserId("user1")).thenReturn(emptyCart);
 
-        IllegalStateException exception = assertThrows(IllegalStateException.class,
+        CheckoutRejectedException exception = assertThrows(CheckoutRejectedException.class,
             () -> orderService.createOrderFromCart("user1"));
 
+        assertInstanceOf(IllegalStateException.class, exception.getReason());
         assertEquals("Cannot create order from empty cart", exception.getMessage());
 
         // Shouldn't try to save an order from empty cart
@@ -134,11 +226,12 @@ class OrderServiceTest {
         // Set book1 to have only 1 in stock, but cart wants 2
         book1.setInventory(1);
         when(shoppingCartService.getCartByUserId("user1")).thenReturn(cart);
-        when(bookService.getBookById("book1")).thenReturn(book1);
+        stubBooks(book1, book2);
 
-        InsufficientInventoryException exception = assertThrows(InsufficientInventoryException.class,
+        CheckoutRejectedException exception = assertThrows(CheckoutRejectedException.class,
             () -> orderService.createOrderFromCart("user1"));
 
+        assertInstanceOf(InsufficientInventoryException.class, exception.getReason());
         assertTrue(exception.getMessage().contains("Insufficient inventory"));
         assertTrue(exception.getMessage().contains("The Great Gatsby"));
 
@@ -146,14 +239,98 @@ class OrderServiceTest {
         verify(orderRepository, never()).save(any(Order.class));
     }
 
+    @Test
+    void testCreateOrderFromCart_SoldOutDuringCheckout() {
+        // book2 passes the initial check but sells out before its inventory is taken
+        when(shoppingCartService.getCartByUserId("user1")).thenReturn(cart);
+        stubBooks(book1, book2);
+        when(bookService.decreaseInventories(eq(Map.of("book1", 2, "book2", 1)), any())).thenReturn("book2");
+        Book soldOut = new Book("1984", "George Orwell", "Signet Classic", "978-0451524935", new BigDecimal("12.99"));
+        soldOut.setId("book2");
+        soldOut.setInventory(0);
+        when(bookService.getBookById("book2")).thenReturn(soldOut);
+
+        CheckoutRejectedException exception = assertThrows(CheckoutRejectedException.class,
+            () -> orderService.createOrderFromCart("user1"));
+
+        // nothing is saved and the cart is kept
+        assertInstanceOf(InsufficientInventoryException.class, exception.getReason());
+        assertTrue(exception.getMessage().contains("1984"));
+        assertTrue(exception.getMessage().contains("Available: 0"));
+        verify(orderRepository, never()).save(any(Order.class));
+        verify(shoppingCartService, never()).clearCart(anyString());
+        verify(reservationService).restoreHolds(any());
+        verify(reservationService, never()).consumeHolds(any());
+    }
+
+    @Test
+    void testCreateOrderFromCart_UsesHeldCopies() {
+        // book1's copies were held when it was added to the cart, and none are left in stock
+        book1.setInventory(0);
+        InventoryHolds holds = new InventoryHolds("token", Map.of("book1", 2));
+        when(shoppingCartService.getCartByUserId("user1")).thenReturn(cart);
+        stubBooks(book1, book2);
+        when(reservationService.claimHolds(eq("user1"), anyCollection())).thenReturn(holds);
+        when(orderRepository.save(any(Order.class))).thenReturn(order);
+
+        orderService.createOrderFromCart("user1");
+
+        // only the unheld book is taken from the shared inventory
+        verify(bookService).decreaseInventories(eq(Map.of("book2", 1)), any());
+        verify(reservationService).consumeHolds(holds);
+    }
+
+    @Test
+    void testCreateOrderFromCart_SaveFails_RestoresHolds() {
+        InventoryHolds holds = new InventoryHolds("token", Map.of("book1", 2));
+        when(shoppingCartService.getCartByUserId("user1")).thenReturn(cart);
+        stubBooks(book1, book2);
+        when(reservationService.claimHolds(eq("user1"), anyCollection())).thenReturn(holds);
+        when(orderRepository.save(any(Order.class))).thenThrow(new DataAccessResourceFailureException("unreachable"));
+
+        assertThrows(DataAccessResourceFailureException.class, () -> orderService.createOrderFromCart("user1"));
+
+        // the claimed holds go back to the user instead of waiting out the claim lease,
+        // and the copies taken from stock go back too
+        verify(reservationService).restoreHolds(holds);
+        verify(bookService).increaseInventory("book2", 1);
+        verify(reservationService, never()).consumeHolds(any());
+        verify(shoppingCartService, never()).clearCart(anyString());
+    }
+
+    @Test
+    void testCreateOrderFromCart_ReturnsCopiesHeldBeyondOrder() {
+        InventoryHolds holds = new InventoryHolds("token", Map.of("book1", 3));
+        when(shoppingCartService.getCartByUserId("user1")).thenReturn(cart);
+        stubBooks(book1, book2);
+        when(reservationService.claimHolds(eq("user1"), anyCollection())).thenReturn(holds);
+        when(orderRepository.save(any(Order.class))).thenReturn(order);
+
+        orderService.createOrderFromCart("user1");
+
+        verify(bookService).decreaseInventories(eq(Map.of("book2", 1)), any());
+        verify(bookService).increaseInventory("book1", 1);
+    }
+
+    @Test
+    void testCreateOrderFromCart_BookDeleted() {
+        // book2 was deleted after it was added to the cart
+        when(shoppingCartService.getCartByUserId("user1")).thenReturn(cart);
+        stubBooks(book1);
+
+        CheckoutRejectedException exception = assertThrows(CheckoutRejectedException.class,
+            () -> orderService.createOrderFromCart("user1"));
+
+        assertInstanceOf(ResourceNotFoundException.class, exception.getReason());
+        assertTrue(exception.getMessage().contains("book2"));
+        verify(bookService, never()).decreaseInventories(any(), any());
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
     @Test
     void testCreateOrderFromCart_CalculatesTotalCorrectly() {
         when(shoppingCartService.getCartByUserId("user1")).thenReturn(cart);
-        when(bookService.getBookById("book1")).thenReturn(book1);
-        when(bookService.getBookById("book2")).thenReturn(book2);
-        when(userRepository.findById("user1")).thenReturn(Optional.of(user));
-        when(userRepository.save(any(User.class))).thenReturn(user);
-        doNothing().when(bookService).decreaseInventory(anyString(), anyInt());
+        stubBooks(book1, book2);
         doNothing().when(shoppingCartService).clearCart("user1");
 
         // Capture the order that gets saved to check the total
@@ -173,35 +350,235 @@ class OrderServiceTest {
     @Test
     void testCreateOrderFromCart_UpdatesUserPurchaseHistory() {
         when(shoppingCartService.getCartByUserId("user1")).thenReturn(cart);
-        when(bookService.getBookById("book1")).thenReturn(book1);
-        when(bookService.getBookById("book2")).thenReturn(book2);
-        when(userRepository.findById("user1")).thenReturn(Optional.of(user));
+        stubBooks(book1, book2);
         when(orderRepository.save(any(Order.class))).thenReturn(order);
-        when(userRepository.save(any(User.class))).thenReturn(user);
-        doNothing().when(bookService).decreaseInventory(anyString(), anyInt());
         doNothing().when(shoppingCartService).clearCart("user1");
 
         orderService.createOrderFromCart("user1");
 
         // User should now have both books in their purchase history
-        verify(userRepository).save(argThat(u ->
-            u.getPurchasedBookIds().contains("book1") &&
-            u.getPurchasedBookIds().contains("book2")
+        verify(userRepository).addPurchasedBookIds(eq("user1"), argThat(ids ->
+            ids.size() == 2 && ids.containsAll(List.of("book1", "book2"))
         ));
     }
 
     @Test
     void testCreateOrderFromCart_UserNotFound() {
         when(shoppingCartService.getCartByUserId("user1")).thenReturn(cart);
-        when(bookService.getBookById("book1")).thenReturn(book1);
-        when(bookService.getBookById("book2")).thenReturn(book2);
-        when(userRepository.findById("user1")).thenReturn(Optional.empty());
-        when(orderRepository.save(any(Order.class))).thenReturn(order);
-        doNothing().when(bookService).decreaseInventory(anyString(), anyInt());
+        stubBooks(book1, book2);
+        when(userRepository.existsById("user1")).thenReturn(false);
 
-        // Should fail when trying to update purchase history
-        assertThrows(ResourceNotFoundException.class,
+        CheckoutRejectedException exception = assertThrows(CheckoutRejectedException.class,
             () -> orderService.createOrderFromCart("user1"));
+
+        // The user is checked before anything is written
+        assertInstanceOf(ResourceNotFoundException.class, exception.getReason());
+        verify(bookService, never()).decreaseInventories(any(), any());
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    @Test
+    void testCreateOrderFromCart_EventFails_UndoesOrderAndInventory() {
+        when(shoppingCartService.getCartByUserId("user1")).thenReturn(cart);
+        stubBooks(book1, book2);
+        when(orderRepository.save(any(Order.class))).thenReturn(order);
+        when(orderEventRepository.insert(any(OrderEvent.class))).thenThrow(new DataAccessResourceFailureException("unreachable"));
+
+        assertThrows(DataAccessResourceFailureException.class, () -> orderService.createOrderFromCart("user1"));
+
+        // Without a transaction the order and the copies it took are undone by hand
+        verify(orderRepository).delete(order);
+        verify(bookService).increaseInventory("book1", 2);
+        verify(bookService).increaseInventory("book2", 1);
+        verify(userRepository, never()).addPurchasedBookIds(any(), any());
+        verify(shoppingCartService, never()).clearCart(anyString());
+    }
+
+    @Test
+    void testCreateOrderFromCart_PurchaseHistoryFails_RetriesAndKeepsOrder() {
+        when(shoppingCartService.getCartByUserId("user1")).thenReturn(cart);
+        stubBooks(book1, book2);
+        when(orderRepository.save(any(Order.class))).thenReturn(order);
+        when(userRepository.addPurchasedBookIds(eq("user1"), anyCollection()))
+                .thenThrow(new DataAccessResourceFailureException("unreachable"))
+                .thenReturn(1L);
+
+        Order result = orderService.createOrderFromCart("user1");
+
+        // The order is placed; the history update is idempotent, so it is simply retried
+        assertEquals("order1", result.getId());
+        verify(userRepository, times(2)).addPurchasedBookIds(eq("user1"), anyCollection());
+        verify(orderRepository, never()).delete(any(Order.class));
+        verify(bookService, never()).increaseInventory(anyString(), anyInt());
+        verify(shoppingCartService).clearCart("user1");
+    }
+
+    @Test
+    void testCreateOrderFromCart_CartClearKeepsFailing_OrderStillPlaced() {
+        when(shoppingCartService.getCartByUserId("user1")).thenReturn(cart);
+        stubBooks(book1, book2);
+        when(orderRepository.save(any(Order.class))).thenReturn(order);
+        doThrow(new DataAccessResourceFailureException("unreachable")).when(shoppingCartService).clearCart("user1");
+
+        Order result = orderService.createOrderFromCart("user1");
+
+        assertEquals("order1", result.getId());
+        verify(shoppingCartService, times(OrderService.AFTER_ORDER_ATTEMPTS)).clearCart("user1");
+        verify(orderRepository, never()).delete(any(Order.class));
+    }
+
+    @Test
+    void testSubmitOrder_SavesPendingOrderAndQueuesCheckout() {
+        when(shoppingCartService.getCartByUserId("user1")).thenReturn(cart);
+        stubBooks(book1, book2);
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Order result = orderService.submitOrder("user1");
+
+        assertEquals(Order.OrderStatus.PENDING, result.getStatus());
+        assertEquals("user1", result.getUserId());
+        // The cart's lines and total are snapshotted onto the pending order
+        assertEquals(2, result.getItems().size());
+        assertEquals(15.99 * 2 + 12.99, result.getTotalAmount(), 0.001);
+        verify(checkoutWorkerPool).submit(any(Runnable.class));
+        // Nothing is taken from inventory until a worker runs the checkout
+        verify(bookService, never()).decreaseInventories(any(), any());
+    }
+
+    @Test
+    void testSubmitOrder_EmptyCart() {
+        cart.setItems(new ArrayList<>());
+        when(shoppingCartService.getCartByUserId("user1")).thenReturn(cart);
+
+        CheckoutRejectedException e = assertThrows(CheckoutRejectedException.class, () -> orderService.submitOrder("user1"));
+
+        assertInstanceOf(IllegalStateException.class, e.getReason());
+
+        verify(orderRepository, never()).save(any());
+    }
+
+    @Test
+    void testSubmitOrder_QueueFull() {
+        when(shoppingCartService.getCartByUserId("user1")).thenReturn(cart);
+        stubBooks(book1, book2);
+        when(orderRepository.save(any(Order.class))).thenReturn(order);
+        doThrow(new RejectedExecutionException()).when(checkoutWorkerPool).submit(any(Runnable.class));
+        when(checkoutWorkerPool.queued()).thenReturn(1000);
+
+        CheckoutRejectedException e = assertThrows(CheckoutRejectedException.class,
+            () -> orderService.submitOrder("user1"));
+
+        assertEquals(1001, ((CheckoutQueueFullException) e.getReason()).getQueuePosition());
+        // The pending order is not left behind for the client to poll forever
+        verify(orderRepository).delete(order);
+    }
+
+    @Test
+    void testCompletePendingOrder_Confirms() {
+        Order pending = pendingOrder();
+        stubBooks(book1, book2);
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        orderService.completePendingOrder(pending, 1);
+
+        assertEquals(Order.OrderStatus.CONFIRMED, pending.getStatus());
+        assertEquals(2, pending.getItems().size());
+        assertNull(pending.getFailureReason());
+        verify(bookService).decreaseInventories(eq(Map.of("book1", 2, "book2", 1)), any());
+        // only the ordered lines leave the cart, which may have changed since
+        verify(shoppingCartService).removeItems(eq("user1"), argThat(ids -> ids.containsAll(List.of("book1", "book2"))));
+        verify(shoppingCartService, never()).clearCart(any());
+    }
+
+    @Test
+    void testCompletePendingOrder_BuysSnapshotNotCurrentCart() {
+        Order pending = pendingOrder();
+        stubBooks(book1, book2);
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        orderService.completePendingOrder(pending, 1);
+
+        // the cart is never read again, so edits made after submitting are not ordered
+        verify(shoppingCartService, never()).getCartByUserId(any());
+        verify(bookService).decreaseInventories(eq(Map.of("book1", 2, "book2", 1)), any());
+    }
+
+    @Test
+    void testCompletePendingOrder_DatabaseFailure_RetriesLater() {
+        Order pending = pendingOrder();
+        stubBooks(book1, book2);
+        when(orderRepository.save(any(Order.class))).thenThrow(new DataAccessResourceFailureException("unreachable"));
+        when(checkoutWorkerPool.retryLater(any(Runnable.class), eq(1))).thenReturn(true);
+
+        orderService.completePendingOrder(pending, 1);
+
+        assertEquals(Order.OrderStatus.PENDING, pending.getStatus());
+        assertNull(pending.getFailureReason());
+        assertEquals(2, pending.getItems().size());
+        verify(orderRepository, times(1)).save(any(Order.class));
+        verify(checkoutWorkerPool).retryLater(any(Runnable.class), eq(1));
+        // the copies taken for the failed attempt go back
+        verify(bookService).increaseInventory("book1", 2);
+        verify(bookService).increaseInventory("book2", 1);
+    }
+
+    @Test
+    void testCompletePendingOrder_DatabaseFailure_RetryRunsNextAttempt() {
+        Order pending = pendingOrder();
+        stubBooks(book1, book2);
+        when(orderRepository.save(any(Order.class)))
+                .thenThrow(new DataAccessResourceFailureException("unreachable"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return true;
+        }).when(checkoutWorkerPool).retryLater(any(Runnable.class), eq(1));
+
+        orderService.completePendingOrder(pending, 1);
+
+        assertEquals(Order.OrderStatus.CONFIRMED, pending.getStatus());
+        verify(bookService, times(2)).decreaseInventories(eq(Map.of("book1", 2, "book2", 1)), any());
+    }
+
+    @Test
+    void testCompletePendingOrder_DatabaseFailure_FailsAfterLastAttempt() {
+        Order pending = pendingOrder();
+        stubBooks(book1, book2);
+        when(orderRepository.save(any(Order.class)))
+                .thenThrow(new DataAccessResourceFailureException("unreachable"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(checkoutWorkerPool.retryLater(any(Runnable.class), eq(5))).thenReturn(false);
+
+        orderService.completePendingOrder(pending, 5);
+
+        // the order no longer waits on a checkout that will never run, and keeps what was submitted
+        assertEquals(Order.OrderStatus.FAILED, pending.getStatus());
+        assertTrue(pending.getFailureReason().contains("unreachable"));
+        assertEquals(2, pending.getItems().size());
+        assertEquals(15.99 * 2 + 12.99, pending.getTotalAmount(), 0.001);
+        verify(orderEventRepository).insert(argThat((OrderEvent e) ->
+            e.getType() == OrderEvent.Type.ORDER_STATUS_CHANGED && e.getStatus() == Order.OrderStatus.FAILED));
+    }
+
+    @Test
+    void testCompletePendingOrder_CancelsWithReason() {
+        Order pending = pendingOrder();
+        book1.setInventory(1);
+        stubBooks(book1, book2);
+        when(orderRepository.save(pending)).thenReturn(pending);
+
+        orderService.completePendingOrder(pending, 1);
+
+        assertEquals(Order.OrderStatus.CANCELLED, pending.getStatus());
+        assertNotNull(pending.getFailureReason());
+        // the cancelled order still shows what was ordered
+        assertEquals(2, pending.getItems().size());
+        assertEquals(15.99 * 2 + 12.99, pending.getTotalAmount(), 0.001);
+        verify(orderRepository).save(pending);
+        verify(orderEventRepository).insert(argThat((OrderEvent e) ->
+            e.getType() == OrderEvent.Type.ORDER_STATUS_CHANGED && e.getStatus() == Order.OrderStatus.CANCELLED));
+        verify(shoppingCartService, never()).clearCart(any());
+        verify(checkoutWorkerPool, never()).retryLater(any(), anyInt());
     }
 
     @Test
@@ -252,6 +629,36 @@ class OrderServiceTest {
         assertTrue(result.isEmpty());
     }
 
+    @Test
+    void testScrollOrders_FirstPageReturnsCursorToResumeFrom() {
+        OrderSearchCriteria criteria = new OrderSearchCriteria("user1", null, null, null);
+        Order older = new Order();
+        older.setId("order0");
+        older.setOrderDate(order.getOrderDate().minusDays(1));
+        when(orderRepository.findOrdersAfter(criteria, null, null, 2)).thenReturn(new ArrayList<>(List.of(order, older)));
+
+        OrderScrollResponse first = orderService.scrollOrders(criteria, null, 1);
+
+        assertEquals(List.of(order), first.getOrders());
+        assertNotNull(first.getNextCursor());
+
+        // The cursor resumes right after the last order returned
+        when(orderRepository.findOrdersAfter(criteria, order.getOrderDate(), "order1", 2)).thenReturn(List.of(older));
+
+        OrderScrollResponse second = orderService.scrollOrders(criteria, first.getNextCursor(), 1);
+
+        assertEquals(List.of(older), second.getOrders());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void testScrollOrders_MalformedCursor() {
+        assertThrows(InvalidCursorException.class,
+            () -> orderService.scrollOrders(new OrderSearchCriteria(), "not-a-cursor", 10));
+
+        verifyNoInteractions(orderRepository);
+    }
+
     @Test
     void testGetAllOrders() {
         Order order2 = new Order();
@@ -274,6 +681,8 @@ class OrderServiceTest {
 
         assertNotNull(result);
         assertEquals(Order.OrderStatus.COMPLETED, order.getStatus());
+        verify(orderEventRepository).insert(argThat((OrderEvent e) ->
+            e.getType() == OrderEvent.Type.ORDER_STATUS_CHANGED && e.getStatus() == Order.OrderStatus.COMPLETED));
     }
 
     @Test
@@ -287,6 +696,16 @@ class OrderServiceTest {
         verify(orderRepository, never()).save(any(Order.class));
     }
 
+    @Test
+    void testUpdateOrderStatus_SameStatus_RecordsNoEvent() {
+        when(orderRepository.findById("order1")).thenReturn(Optional.of(order));
+        when(orderRepository.save(any(Order.class))).thenReturn(order);
+
+        orderService.updateOrderStatus("order1", Order.OrderStatus.CONFIRMED);
+
+        verify(orderEventRepository, never()).insert(any(OrderEvent.class));
+    }
+
     @Test
     void testUpdateOrderStatus_AllStatuses() {
         when(orderRepository.findById("order1")).thenReturn(Optional.of(order));
@@ -307,5 +726,42 @@ class OrderServiceTest {
 
         // Should have saved once per status change
         verify(orderRepository, times(4)).save(order);
+
+        // Each update changed the status, so each was recorded in the outbox
+        verify(orderEventRepository, times(4)).insert(any(OrderEvent.class));
+    }
+
+    /**
+     * Stubs the batch book lookup to find only the given books.
+     */
+    /**
+     * A pending order whose snapshot holds the test cart's lines.
+     */
+    private Order pendingOrder() {
+        Order pending = new Order();
+        pending.setId("order2");
+        pending.setUserId("user1");
+        pending.setStatus(Order.OrderStatus.PENDING);
+        for (CartItem line : cart.getItems()) {
+            OrderItem item = new OrderItem();
+            item.setBookId(line.getBookId());
+            item.setQuantity(line.getQuantity());
+            pending.getItems().add(item);
+        }
+        pending.setTotalAmount(15.99 * 2 + 12.99);
+        return pending;
+    }
+
+    private void stubBooks(Book... books) {
+        when(bookService.getBooksByIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> ids = invocation.getArgument(0);
+            List<Book> found = new ArrayList<>();
+            List<String> missing = new ArrayList<>();
+            for (String id : ids) {
+                Arrays.stream(books).filter(b -> b.getId().equals(id)).findFirst()
+                        .ifPresentOrElse(found::add, () -> missing.add(id));
+            }
+            return new BookBatchResult(found, missing);
+        });
     }
 }
@@ -1,5 +1,6 @@
 package org.amazinbookstore.service;
 
+import org.amazinbookstore.dto.BookBatchResult;
 import org.amazinbookstore.dto.RecommendationResponse;
 import org.amazinbookstore.exception.ResourceNotFoundException;
 import org.amazinbookstore.model.Book;
@@ -8,14 +9,17 @@ import org.amazinbookstore.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -32,7 +36,12 @@ class RecommendationServiceTest {
     @Mock
     private BookService bookService;
 
-    @InjectMocks
+    @Mock
+    private SimilarUserService similarUserService;
+
+    @Mock
+    private CoPurchaseService coPurchaseService;
+
     private RecommendationService recommendationService;
 
     private User hasib;
@@ -45,6 +54,8 @@ class RecommendationServiceTest {
 
     @BeforeEach
     void setUp() {
+        recommendationService = new RecommendationService(userRepository, bookService, similarUserService, coPurchaseService, "similar-users", 50);
+
         // set up some books to work with
         book1 = new Book("The Great Gatsby", "F. Scott Fitzgerald", "Scribner", "978-0743273565", new BigDecimal("15.99"));
         book1.setId("book1");
@@ -82,14 +93,15 @@ class RecommendationServiceTest {
         // should recommend book3 to hasib since hajar bought similar books
         when(userRepository.findById("hasib")).thenReturn(Optional.of(hasib));
         when(userRepository.findAll()).thenReturn(Arrays.asList(hasib, hajar, yusuf));
-        when(userRepository.findById("hajar")).thenReturn(Optional.of(hajar));
-        when(bookService.getBookById("book3")).thenReturn(book3);
+        stubBooks(book3);
 
         RecommendationResponse response = recommendationService.getRecommendations("hasib", 5);
 
         assertEquals(1, response.getBooks().size());
         assertEquals("book3", response.getBooks().get(0).getId());
         assertFalse(response.isFallback());
+        // hajar's books come from the user already loaded by the scan
+        verify(userRepository, never()).findById("hajar");
     }
 
     @Test
@@ -101,10 +113,7 @@ class RecommendationServiceTest {
 
         when(userRepository.findById("newbie")).thenReturn(Optional.of(newUser));
         when(userRepository.findAll()).thenReturn(Arrays.asList(newUser, hajar, yusuf));
-        when(bookService.getBookById("book1")).thenReturn(book1);
-        when(bookService.getBookById("book2")).thenReturn(book2);
-        when(bookService.getBookById("book3")).thenReturn(book3);
-        when(bookService.getBookById("book4")).thenReturn(book4);
+        stubBooks(book1, book2, book3, book4);
 
         RecommendationResponse response = recommendationService.getRecommendations("newbie", 5);
 
@@ -124,10 +133,7 @@ class RecommendationServiceTest {
         // other users bought different stuff
         when(userRepository.findById("uniqueHasib")).thenReturn(Optional.of(uniqueHasib));
         when(userRepository.findAll()).thenReturn(Arrays.asList(uniqueHasib, hajar, yusuf));
-        when(bookService.getBookById("book1")).thenReturn(book1);
-        when(bookService.getBookById("book2")).thenReturn(book2);
-        when(bookService.getBookById("book3")).thenReturn(book3);
-        when(bookService.getBookById("book4")).thenReturn(book4);
+        stubBooks(book1, book2, book3, book4);
 
         RecommendationResponse response = recommendationService.getRecommendations("uniqueHasib", 5);
 
@@ -154,8 +160,7 @@ class RecommendationServiceTest {
 
         when(userRepository.findById("uniqueHasib")).thenReturn(Optional.of(uniqueHasib));
         when(userRepository.findAll()).thenReturn(Arrays.asList(uniqueHasib, buyer1, buyer2));
-        when(bookService.getBookById("book1")).thenReturn(book1);
-        when(bookService.getBookById("book4")).thenReturn(book4);
+        stubBooks(book1, book4);
 
         RecommendationResponse response = recommendationService.getRecommendations("uniqueHasib", 5);
 
@@ -183,8 +188,7 @@ class RecommendationServiceTest {
 
         when(userRepository.findById("hasib")).thenReturn(Optional.of(hasib));
         when(userRepository.findAll()).thenReturn(Arrays.asList(hasib, bookworm));
-        when(userRepository.findById("bookworm")).thenReturn(Optional.of(bookworm));
-        when(bookService.getBookById("book3")).thenReturn(book3);
+        stubBooks(book3);
 
         RecommendationResponse response = recommendationService.getRecommendations("hasib", 1);
 
@@ -196,8 +200,7 @@ class RecommendationServiceTest {
         // make sure we don't suggest books Hasib already has
         when(userRepository.findById("hasib")).thenReturn(Optional.of(hasib));
         when(userRepository.findAll()).thenReturn(Arrays.asList(hasib, hajar));
-        when(userRepository.findById("hajar")).thenReturn(Optional.of(hajar));
-        when(bookService.getBookById("book3")).thenReturn(book3);
+        stubBooks(book3);
 
         RecommendationResponse response = recommendationService.getRecommendations("hasib", 10);
 
@@ -213,9 +216,7 @@ class RecommendationServiceTest {
         // if similar user's books are all deleted, fall back to popular
         when(userRepository.findById("hasib")).thenReturn(Optional.of(hasib));
         when(userRepository.findAll()).thenReturn(Arrays.asList(hasib, hajar, yusuf));
-        when(userRepository.findById("hajar")).thenReturn(Optional.of(hajar));
-        when(bookService.getBookById("book3")).thenThrow(new ResourceNotFoundException("Book not found"));
-        when(bookService.getBookById("book4")).thenReturn(book4);
+        stubBooks(book4);
 
         RecommendationResponse response = recommendationService.getRecommendations("hasib", 5);
 
@@ -239,10 +240,7 @@ class RecommendationServiceTest {
 
         when(userRepository.findById("hasib")).thenReturn(Optional.of(hasib));
         when(userRepository.findAll()).thenReturn(Arrays.asList(hasib, hajarSuperFan, yusufCasual));
-        when(userRepository.findById("hajarSuperFan")).thenReturn(Optional.of(hajarSuperFan));
-        when(userRepository.findById("yusufCasual")).thenReturn(Optional.of(yusufCasual));
-        when(bookService.getBookById("book4")).thenReturn(book4);
-        when(bookService.getBookById("book3")).thenReturn(book3);
+        stubBooks(book4, book3);
 
         RecommendationResponse response = recommendationService.getRecommendations("hasib", 5);
 
@@ -253,6 +251,28 @@ class RecommendationServiceTest {
         assertFalse(response.isFallback());
     }
 
+    @Test
+    void shouldOnlyTakeBooksFromTheClosestNeighbours() {
+        recommendationService = new RecommendationService(userRepository, bookService, similarUserService, coPurchaseService, "similar-users", 1);
+        User hajarSuperFan = new User();
+        hajarSuperFan.setId("hajarSuperFan");
+        hajarSuperFan.setPurchasedBookIds(new ArrayList<>(Arrays.asList("book1", "book2", "book4")));
+
+        User yusufCasual = new User();
+        yusufCasual.setId("yusufCasual");
+        yusufCasual.setPurchasedBookIds(new ArrayList<>(Arrays.asList("book1", "book3")));
+
+        when(userRepository.findById("hasib")).thenReturn(Optional.of(hasib));
+        when(userRepository.findAll()).thenReturn(Arrays.asList(hasib, yusufCasual, hajarSuperFan));
+        stubBooks(book4, book3);
+
+        RecommendationResponse response = recommendationService.getRecommendations("hasib", 5);
+
+        // only the single most similar user is kept, so yusufCasual's book3 is not recommended
+        assertEquals(List.of(book4), response.getBooks());
+        assertFalse(response.isFallback());
+    }
+
     @Test
     void shouldFallbackWhenOnlyUserInSystem() {
         // Hasib is the only user - no one to compare with
@@ -274,8 +294,7 @@ class RecommendationServiceTest {
 
         when(userRepository.findById("hasib")).thenReturn(Optional.of(hasib));
         when(userRepository.findAll()).thenReturn(Arrays.asList(hasib, lurker, hajar));
-        when(userRepository.findById("hajar")).thenReturn(Optional.of(hajar));
-        when(bookService.getBookById("book3")).thenReturn(book3);
+        stubBooks(book3);
 
         RecommendationResponse response = recommendationService.getRecommendations("hasib", 5);
 
@@ -298,8 +317,7 @@ class RecommendationServiceTest {
 
         when(userRepository.findById("uniqueHasib")).thenReturn(Optional.of(uniqueHasib));
         when(userRepository.findAll()).thenReturn(Arrays.asList(uniqueHasib, buyer));
-        when(bookService.getBookById("book3")).thenReturn(book3);
-        when(bookService.getBookById("book4")).thenReturn(book4);
+        stubBooks(book3, book4);
 
         RecommendationResponse response = recommendationService.getRecommendations("uniqueHasib", 5);
 
@@ -309,4 +327,97 @@ class RecommendationServiceTest {
         }
         assertTrue(response.isFallback());
     }
+
+    @Test
+    void shouldScoreOnlyIndexedUsersSharingABook() {
+        when(userRepository.findById("hasib")).thenReturn(Optional.of(hasib));
+        when(similarUserService.isReady()).thenReturn(true);
+        when(similarUserService.mostSimilar("hasib", Set.of("book1", "book2"), 50)).thenReturn(Map.of("hajar", 2.0 / 3));
+        when(similarUserService.booksOf("hajar")).thenReturn(List.of("book1", "book2", "book3"));
+        stubBooks(book3);
+
+        RecommendationResponse response = recommendationService.getRecommendations("hasib", 5);
+
+        assertEquals(List.of(book3), response.getBooks());
+        assertFalse(response.isFallback());
+        // Neither the other users nor their purchases are read from the database
+        verify(userRepository, never()).findAll();
+        verify(userRepository, never()).findById("hajar");
+    }
+
+    @Test
+    void shouldFallbackToIndexedPopularBooksWhenNoOneShares() {
+        when(userRepository.findById("yusuf")).thenReturn(Optional.of(yusuf));
+        when(similarUserService.isReady()).thenReturn(true);
+        when(similarUserService.mostSimilar("yusuf", Set.of("book4"), 50)).thenReturn(Map.of());
+        when(similarUserService.popular(Set.of("book4"), 5)).thenReturn(List.of("book1"));
+        stubBooks(book1);
+
+        RecommendationResponse response = recommendationService.getRecommendations("yusuf", 5);
+
+        assertEquals(List.of(book1), response.getBooks());
+        assertTrue(response.isFallback());
+        verify(userRepository, never()).findAll();
+    }
+
+    @Test
+    void shouldRecommendFromCoPurchasesWithoutReadingOtherUsers() {
+        recommendationService = new RecommendationService(userRepository, bookService, similarUserService, coPurchaseService, "co-purchase", 50);
+        when(userRepository.findById("hasib")).thenReturn(Optional.of(hasib));
+        when(coPurchaseService.isReady()).thenReturn(true);
+        when(coPurchaseService.recommend(Set.of("book1", "book2"), 5)).thenReturn(List.of("book3"));
+        stubBooks(book3);
+
+        RecommendationResponse response = recommendationService.getRecommendations("hasib", 5);
+
+        assertEquals(List.of(book3), response.getBooks());
+        assertFalse(response.isFallback());
+        verify(userRepository, never()).findAll();
+    }
+
+    @Test
+    void shouldFallbackToMostBoughtWhenNothingBoughtTogether() {
+        recommendationService = new RecommendationService(userRepository, bookService, similarUserService, coPurchaseService, "co-purchase", 50);
+        when(userRepository.findById("yusuf")).thenReturn(Optional.of(yusuf));
+        when(coPurchaseService.isReady()).thenReturn(true);
+        when(coPurchaseService.recommend(Set.of("book4"), 5)).thenReturn(List.of());
+        when(coPurchaseService.popular(Set.of("book4"), 5)).thenReturn(List.of("book1", "book2"));
+        stubBooks(book1, book2);
+
+        RecommendationResponse response = recommendationService.getRecommendations("yusuf", 5);
+
+        assertEquals(List.of(book1, book2), response.getBooks());
+        assertTrue(response.isFallback());
+        verify(userRepository, never()).findAll();
+    }
+
+    @Test
+    void shouldUseSimilarUsersUntilCoPurchasesAreBuilt() {
+        recommendationService = new RecommendationService(userRepository, bookService, similarUserService, coPurchaseService, "co-purchase", 50);
+        when(userRepository.findById("hasib")).thenReturn(Optional.of(hasib));
+        when(coPurchaseService.isReady()).thenReturn(false);
+        when(userRepository.findAll()).thenReturn(Arrays.asList(hasib, hajar, yusuf));
+        stubBooks(book3);
+
+        RecommendationResponse response = recommendationService.getRecommendations("hasib", 5);
+
+        assertEquals(List.of(book3), response.getBooks());
+        verify(coPurchaseService, never()).recommend(any(), anyInt());
+    }
+
+    /**
+     * Stubs the batch book lookup to find only the given books.
+     */
+    private void stubBooks(Book... books) {
+        when(bookService.getBooksByIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> ids = invocation.getArgument(0);
+            List<Book> found = new ArrayList<>();
+            List<String> missing = new ArrayList<>();
+            for (String id : ids) {
+                Arrays.stream(books).filter(b -> b.getId().equals(id)).findFirst()
+                        .ifPresentOrElse(found::add, () -> missing.add(id));
+            }
+            return new BookBatchResult(found, missing);
+        });
+    }
 }
@@ -0,0 +1,216 @@
+package org.amazinbookstore.service;
+
+import org.amazinbookstore.exception.InsufficientInventoryException;
+import org.amazinbookstore.model.Book;
+import org.amazinbookstore.model.InventoryReservation;
+import org.amazinbookstore.repository.InventoryReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationServiceTest {
+
+    @Mock
+    private InventoryReservationRepository reservationRepository;
+
+    @Mock
+    private BookService bookService;
+
+    @Spy
+    private TransactionRunner transactionRunner = new TransactionRunner(null);
+
+    private ReservationService reservationService;
+
+    @BeforeEach
+    void setUp() {
+        reservationService = new ReservationService(reservationRepository, bookService, transactionRunner,
+                Duration.ofMinutes(15), Duration.ofMinutes(5));
+    }
+
+    @Test
+    void hold_NewHold_TakesInventoryAndSavesHold() {
+        when(reservationRepository.findByUserIdAndBookId("user1", "book1")).thenReturn(Optional.empty());
+
+        reservationService.hold("user1", "book1", 2);
+
+        verify(bookService).decreaseInventory("book1", 2);
+        ArgumentCaptor<InventoryReservation> saved = ArgumentCaptor.forClass(InventoryReservation.class);
+        verify(reservationRepository).save(saved.capture());
+        assertEquals("user1", saved.getValue().getUserId());
+        assertEquals(2, saved.getValue().getQuantity());
+        assertTrue(saved.getValue().getExpiresAt().isAfter(Instant.now().plus(Duration.ofMinutes(14))));
+    }
+
+    @Test
+    void hold_MoreCopies_TakesOnlyTheDifference() {
+        when(reservationRepository.findByUserIdAndBookId("user1", "book1"))
+                .thenReturn(Optional.of(reservation(2, Instant.now().plusSeconds(60))));
+
+        reservationService.hold("user1", "book1", 5);
+
+        verify(bookService).decreaseInventory("book1", 3);
+        verify(reservationRepository).save(argThat(r -> r.getQuantity() == 5));
+    }
+
+    @Test
+    void hold_FewerCopies_ReturnsTheDifference() {
+        when(reservationRepository.findByUserIdAndBookId("user1", "book1"))
+                .thenReturn(Optional.of(reservation(5, Instant.now().plusSeconds(60))));
+
+        reservationService.hold("user1", "book1", 1);
+
+        verify(bookService, never()).decreaseInventory(any(), any());
+        verify(bookService).increaseInventory("book1", 4);
+    }
+
+    @Test
+    void release_DeletesHoldAndReturnsCopies() {
+        InventoryReservation existing = reservation(2, Instant.now().plusSeconds(60));
+        when(reservationRepository.findByUserIdAndBookId("user1", "book1")).thenReturn(Optional.of(existing));
+
+        reservationService.release("user1", "book1");
+
+        verify(reservationRepository).delete(existing);
+        verify(bookService).increaseInventory("book1", 2);
+    }
+
+    @Test
+    void hold_SoldOut_SavesNothing() {
+        when(reservationRepository.findByUserIdAndBookId("user1", "book1")).thenReturn(Optional.empty());
+        doThrow(new InsufficientInventoryException("Insufficient inventory for book: Dune"))
+                .when(bookService).decreaseInventory("book1", 2);
+
+        assertThrows(InsufficientInventoryException.class, () -> reservationService.hold("user1", "book1", 2));
+
+        verify(reservationRepository, never()).save(any());
+    }
+
+    @Test
+    void hold_ExpiredHold_IsReclaimedBeforeHoldingAgain() {
+        InventoryReservation expired = reservation(2, Instant.now().minusSeconds(60));
+        when(reservationRepository.findByUserIdAndBookId("user1", "book1")).thenReturn(Optional.of(expired));
+        when(reservationRepository.removeIfExpired(eq("r1"), any(), any())).thenReturn(expired);
+
+        reservationService.hold("user1", "book1", 2);
+
+        // the expired copies go back, then a fresh hold takes them again
+        verify(bookService).increaseInventory("book1", 2);
+        verify(bookService).decreaseInventory("book1", 2);
+        verify(reservationRepository).save(argThat(r -> r.getId() == null && r.getQuantity() == 2));
+    }
+
+    @Test
+    void hold_AbandonedClaim_IsReclaimedOnceTheLeaseRunsOut() {
+        InventoryReservation abandoned = reservation(2, Instant.now().plusSeconds(60));
+        abandoned.setClaimedBy("dead-checkout");
+        abandoned.setClaimedAt(Instant.now().minus(Duration.ofMinutes(6)));
+        when(reservationRepository.findByUserIdAndBookId("user1", "book1")).thenReturn(Optional.of(abandoned));
+        when(reservationRepository.removeIfExpired(eq("r1"), any(), any())).thenReturn(abandoned);
+
+        reservationService.hold("user1", "book1", 1);
+
+        verify(bookService).increaseInventory("book1", 2);
+        verify(bookService).decreaseInventory("book1", 1);
+        verify(reservationRepository).save(argThat(r -> r.getId() == null && r.getClaimedBy() == null));
+    }
+
+    @Test
+    void claimHolds_ReturnsHeldQuantities() {
+        InventoryReservation held = reservation(2, Instant.now().plusSeconds(60));
+        when(reservationRepository.findByClaimedBy(any())).thenReturn(List.of(held));
+
+        InventoryHolds holds = reservationService.claimHolds("user1", Set.of("book1", "book2"));
+
+        verify(reservationRepository).claimActive(eq("user1"), eq(Set.of("book1", "book2")), any(), any());
+        assertEquals(2, holds.heldQuantity("book1"));
+        assertEquals(0, holds.heldQuantity("book2"));
+    }
+
+    @Test
+    void consumeAndRestoreHolds_WithNothingClaimed_DoNothing() {
+        reservationService.consumeHolds(InventoryHolds.none());
+        reservationService.restoreHolds(InventoryHolds.none());
+
+        verifyNoInteractions(reservationRepository);
+    }
+
+    @Test
+    void restoreHolds_UnclaimsHolds() {
+        reservationService.restoreHolds(new InventoryHolds("token", Map.of("book1", 2)));
+
+        verify(reservationRepository).unclaim("token");
+    }
+
+    @Test
+    void sweepExpiredHolds_ReturnsCopiesOfEveryExpiredHold() {
+        InventoryReservation first = reservation(2, Instant.now().minusSeconds(60));
+        InventoryReservation second = reservation(1, Instant.now().minusSeconds(60));
+        second.setBookId("book2");
+        when(reservationRepository.removeExpired(any(), any())).thenReturn(first, second, null);
+
+        reservationService.sweepExpiredHolds();
+
+        verify(bookService).increaseInventory("book1", 2);
+        verify(bookService).increaseInventory("book2", 1);
+    }
+
+    @Test
+    void sweepExpiredHolds_ReclaimsClaimsOlderThanTheLease() {
+        Instant before = Instant.now();
+        when(reservationRepository.removeExpired(any(), any())).thenReturn(null);
+
+        reservationService.sweepExpiredHolds();
+
+        ArgumentCaptor<Instant> now = ArgumentCaptor.forClass(Instant.class);
+        ArgumentCaptor<Instant> claimedBefore = ArgumentCaptor.forClass(Instant.class);
+        verify(reservationRepository).removeExpired(now.capture(), claimedBefore.capture());
+        assertFalse(now.getValue().isBefore(before));
+        assertEquals(Duration.ofMinutes(5), Duration.between(claimedBefore.getValue(), now.getValue()));
+    }
+
+    @Test
+    void sweepExpiredHolds_DatabaseDown_DoesNotThrow() {
+        when(reservationRepository.removeExpired(any(), any()))
+                .thenThrow(new DataAccessResourceFailureException("unreachable"));
+
+        assertDoesNotThrow(() -> reservationService.sweepExpiredHolds());
+        verifyNoInteractions(bookService);
+    }
+
+    @Test
+    void hold_HotBook_ChecksStockWithoutHolding() {
+        Book book = new Book("Dune", "Frank Herbert", "Ace", "978-0441172719", new BigDecimal("9.99"));
+        book.setInventory(1);
+        when(bookService.isHotSku("book1")).thenReturn(true);
+        when(reservationRepository.findByUserIdAndBookId("user1", "book1")).thenReturn(Optional.empty());
+        when(bookService.getBookById("book1")).thenReturn(book);
+
+        reservationService.hold("user1", "book1", 1);
+        assertThrows(InsufficientInventoryException.class, () -> reservationService.hold("user1", "book1", 2));
+
+        verify(bookService, never()).decreaseInventory(any(), any());
+        verify(reservationRepository, never()).save(any());
+    }
+
+    private static InventoryReservation reservation(int quantity, Instant expiresAt) {
+        return new InventoryReservation("r1", "user1", "book1", quantity, expiresAt, null, null, 0L);
+    }
+}
@@ -1,5 +1,6 @@
 package org.amazinbookstore.service;
 
+import org.amazinbookstore.exception.InsufficientInventoryException;
 import org.amazinbookstore.model.Book;
 import org.amazinbookstore.model.ShoppingCart;
 import org.amazinbookstore.repository.ShoppingCartRepository;
@@ -12,6 +13,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,6 +29,9 @@ class ShoppingCartServiceTest {
     @Mock
     private BookService bookService;
 
+    @Mock
+    private ReservationService reservationService;
+
     @InjectMocks
     private ShoppingCartService shoppingCartService;
 
@@ -150,6 +155,74 @@ class ShoppingCartServiceTest {
 
         // Ensure items list is actually empty
         assertTrue(testCart.getItems().isEmpty());
+
+        // Ensure the holds on the removed items were released
+        verify(reservationService).releaseAll("user1");
+    }
+
+    /**
+     * Ensures that removing ordered books leaves the rest of the cart and every hold alone.
+     */
+    @Test
+    void removeItems_ShouldKeepOtherItems() {
+        testCart.addItem("book1", 2);
+        testCart.addItem("book2", 1);
+        when(shoppingCartRepository.findByUserId("user1")).thenReturn(Optional.of(testCart));
+        when(shoppingCartRepository.save(any(ShoppingCart.class))).thenReturn(testCart);
+
+        shoppingCartService.removeItems("user1", List.of("book1"));
+
+        assertEquals(1, testCart.getItems().size());
+        assertEquals("book2", testCart.getItems().get(0).getBookId());
+        verifyNoInteractions(reservationService);
+    }
+
+    /**
+     * Ensures that adding more of a book already in the cart holds the combined quantity.
+     */
+    @Test
+    void addItemToCart_ShouldHoldCombinedQuantity() {
+        testCart.addItem("book1", 2);
+        when(bookService.getBookById("book1")).thenReturn(testBook);
+        when(shoppingCartRepository.findByUserId("user1")).thenReturn(Optional.of(testCart));
+        when(shoppingCartRepository.save(any(ShoppingCart.class))).thenReturn(testCart);
+
+        shoppingCartService.addItemToCart("user1", "book1", 3);
+
+        verify(reservationService).hold("user1", "book1", 5);
+        assertEquals(5, testCart.getItems().get(0).getQuantity());
+    }
+
+    /**
+     * Ensures that a book which cannot be held is not added to the cart.
+     */
+    @Test
+    void addItemToCart_WhenSoldOut_ShouldNotAddItem() {
+        when(bookService.getBookById("book1")).thenReturn(testBook);
+        when(shoppingCartRepository.findByUserId("user1")).thenReturn(Optional.of(testCart));
+        doThrow(new InsufficientInventoryException("Insufficient inventory for book: Test Book"))
+                .when(reservationService).hold("user1", "book1", 2);
+
+        assertThrows(InsufficientInventoryException.class,
+                () -> shoppingCartService.addItemToCart("user1", "book1", 2));
+
+        assertTrue(testCart.getItems().isEmpty());
+        verify(shoppingCartRepository, never()).save(any(ShoppingCart.class));
+    }
+
+    /**
+     * Ensures that changing an item's quantity resizes its hold.
+     */
+    @Test
+    void updateItemQuantity_ShouldResizeHold() {
+        testCart.addItem("book1", 2);
+        when(shoppingCartRepository.findByUserId("user1")).thenReturn(Optional.of(testCart));
+        when(shoppingCartRepository.save(any(ShoppingCart.class))).thenReturn(testCart);
+
+        shoppingCartService.updateItemQuantity("user1", "book1", 1);
+
+        verify(reservationService).hold("user1", "book1", 1);
+        assertEquals(1, testCart.getItems().get(0).getQuantity());
     }
 
 }
@@ -0,0 +1,54 @@
+package org.amazinbookstore.service;
+
+import org.amazinbookstore.model.User;
+import org.amazinbookstore.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SimilarUserServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Test
+    void rebuild_IndexesEveryUsersPurchases() {
+        SimilarUserService service = new SimilarUserService(userRepository, "similar-users", "exact", 32, 2);
+        when(userRepository.streamAllBy()).thenReturn(Stream.of(user("u1", "book1", "book2"), user("u2", "book2")));
+
+        assertTrue(service.mostSimilar("u1", Set.of("book1"), 10).isEmpty());
+        service.rebuild();
+
+        assertTrue(service.isReady());
+        assertEquals(Map.of("u2", 0.5), service.mostSimilar("u1", Set.of("book1", "book2"), 10));
+        assertEquals(List.of("book1", "book2"), service.booksOf("u1"));
+    }
+
+    @Test
+    void otherStrategy_NeverBuildsIndex() {
+        SimilarUserService service = new SimilarUserService(userRepository, "co-purchase", "exact", 32, 2);
+
+        service.rebuild();
+
+        assertFalse(service.isReady());
+        verifyNoInteractions(userRepository);
+    }
+
+    private static User user(String id, String... bookIds) {
+        User user = new User();
+        user.setId(id);
+        user.setPurchasedBookIds(new ArrayList<>(List.of(bookIds)));
+        return user;
+    }
+}
@@ -0,0 +1,127 @@
+package org.amazinbookstore.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedInventoryCounterTest {
+
+    @Test
+    void startsWithTheInitialCount() {
+        assertEquals(10, new StripedInventoryCounter(4, 10).sum());
+        assertEquals(3, new StripedInventoryCounter(8, 3).sum());
+    }
+
+    @Test
+    void takeDrainsAcrossStripes() {
+        StripedInventoryCounter counter = new StripedInventoryCounter(4, 10);
+
+        assertTrue(counter.tryTake(9));
+        assertEquals(1, counter.sum());
+        assertTrue(counter.tryTake(1));
+        assertEquals(0, counter.sum());
+    }
+
+    @Test
+    void takeOfMoreThanIsLeftTakesNothing() {
+        StripedInventoryCounter counter = new StripedInventoryCounter(4, 5);
+
+        assertFalse(counter.tryTake(6));
+        assertEquals(5, counter.sum());
+    }
+
+    @Test
+    void addPutsCopiesBack() {
+        StripedInventoryCounter counter = new StripedInventoryCounter(4, 0);
+
+        counter.add(3);
+
+        assertTrue(counter.tryTake(3));
+        assertFalse(counter.tryTake(1));
+    }
+
+    @Test
+    void drainCountsTakesUpToItsSequence() {
+        StripedInventoryCounter counter = new StripedInventoryCounter(4, 10, 5);
+
+        assertEquals(5, counter.take(3));
+        StripedInventoryCounter.Drained drained = counter.drain(100);
+        assertEquals(7, drained.count);
+        assertEquals(5, drained.sequence);
+
+        assertEquals(100, counter.take(1));
+        assertEquals(-1, counter.take(20));
+        // a clock behind the sequence still moves it on
+        assertEquals(100, counter.drain(50).sequence);
+        assertEquals(101, counter.take(1));
+    }
+
+    @Test
+    void concurrentDrainsCountExactlyTheTakesTheyCover() throws Exception {
+        StripedInventoryCounter counter = new StripedInventoryCounter(4, 100_000, 0);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<Long>>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(pool.submit(() -> {
+                    List<Long> sequences = new ArrayList<>();
+                    for (int i = 0; i < 10_000; i++) {
+                        sequences.add(counter.take(1));
+                    }
+                    return sequences;
+                }));
+            }
+            List<StripedInventoryCounter.Drained> drains = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                drains.add(counter.drain(0));
+                Thread.yield();
+            }
+
+            List<Long> sequences = new ArrayList<>();
+            for (Future<List<Long>> result : results) {
+                sequences.addAll(result.get());
+            }
+            for (StripedInventoryCounter.Drained drained : drains) {
+                long covered = sequences.stream().filter(sequence -> sequence <= drained.sequence).count();
+                assertEquals(100_000 - covered, drained.count);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void concurrentTakesNeverOversell() throws Exception {
+        StripedInventoryCounter counter = new StripedInventoryCounter(4, 1000);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(pool.submit(() -> {
+                    int taken = 0;
+                    for (int i = 0; i < 500; i++) {
+                        if (counter.tryTake(1)) {
+                            taken++;
+                        }
+                    }
+                    return taken;
+                }));
+            }
+
+            int total = 0;
+            for (Future<Integer> result : results) {
+                total += result.get();
+            }
+            assertEquals(1000, total);
+            assertEquals(0, counter.sum());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.amazinbookstore.service;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.amazinbookstore.config.MongoTransactionConfig;
+import org.amazinbookstore.repository.MongoIntegrationTest;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for TransactionRunner.
+ * Tests commit, rollback and retry of real MongoDB transactions on a replica set.
+ */
+@Import({MongoTransactionConfig.class, TransactionRunner.class})
+@TestPropertySource(properties = "amazin.mongodb.transactions=true")
+class TransactionRunnerIntegrationTest extends MongoIntegrationTest {
+
+    private static final String COLLECTION = "runner_test";
+
+    @Autowired
+    private TransactionRunner transactionRunner;
+
+    /**
+     * Tests that every write of the work is kept once it returns.
+     */
+    @Test
+    void testInTransaction_CommitsAllWrites() {
+        transactionRunner.inTransaction(() -> {
+            mongoTemplate.insert(new Document("_id", "a"), COLLECTION);
+            mongoTemplate.insert(new Document("_id", "b"), COLLECTION);
+            return null;
+        });
+
+        assertEquals(2, mongoTemplate.getCollection(COLLECTION).countDocuments());
+    }
+
+    /**
+     * Tests that writes made before the work fails are rolled back.
+     */
+    @Test
+    void testInTransaction_RollsBackOnFailure() {
+        mongoTemplate.insert(new Document("_id", "a").append("stock", 1), COLLECTION);
+
+        assertThrows(IllegalStateException.class, () -> transactionRunner.inTransaction(() -> {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is("a")), new Update().inc("stock", -1), COLLECTION);
+            mongoTemplate.insert(new Document("_id", "b"), COLLECTION);
+            throw new IllegalStateException("Cannot create order from empty cart");
+        }));
+
+        assertEquals(1, mongoTemplate.getCollection(COLLECTION).countDocuments());
+        assertEquals(1, stock("a"));
+    }
+
+    /**
+     * Tests that a write conflict with another writer is retried as a whole and then commits once.
+     */
+    @Test
+    void testInTransaction_RetriesWriteConflict() {
+        mongoTemplate.insert(new Document("_id", "a").append("stock", 10), COLLECTION);
+        mongoTemplate.insert(new Document("_id", "b").append("stock", 10), COLLECTION);
+        AtomicInteger attempts = new AtomicInteger();
+
+        try (MongoClient other = MongoClients.create(uri())) {
+            transactionRunner.inTransaction(() -> {
+                // The first write starts the transaction's snapshot
+                mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is("a")), new Update().inc("stock", -1), COLLECTION);
+                if (attempts.incrementAndGet() == 1) {
+                    // Someone else changes b after the snapshot, so writing b conflicts
+                    other.getDatabase(mongoTemplate.getDb().getName()).getCollection(COLLECTION)
+                            .updateOne(new Document("_id", "b"), new Document("$inc", new Document("stock", -5)));
+                }
+                mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is("b")), new Update().inc("stock", -1), COLLECTION);
+                return null;
+            });
+        }
+
+        assertEquals(2, attempts.get());
+        assertEquals(9, stock("a"));
+        assertEquals(4, stock("b"));
+    }
+
+    private int stock(String id) {
+        return mongoTemplate.getCollection(COLLECTION).find(new Document("_id", id)).first().getInteger("stock");
+    }
+}
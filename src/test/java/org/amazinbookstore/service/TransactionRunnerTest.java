@@ -0,0 +1,70 @@
+package org.amazinbookstore.service;
+
+import com.mongodb.MongoException;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TransactionRunner.
+ * Tests retrying of transient transaction errors.
+ */
+class TransactionRunnerTest {
+
+    private final TransactionRunner transactionRunner = new TransactionRunner(null);
+
+    /**
+     * Tests that work failing with a transient error is retried until it succeeds.
+     */
+    @Test
+    void testInTransaction_RetriesTransientErrors() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = transactionRunner.inTransaction(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new UncategorizedMongoDbException("Write conflict", transientError());
+            }
+            return "done";
+        });
+
+        assertEquals("done", result);
+        assertEquals(3, attempts.get());
+    }
+
+    /**
+     * Tests that other errors are not retried.
+     */
+    @Test
+    void testInTransaction_DoesNotRetryOtherErrors() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> transactionRunner.inTransaction(() -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("Cannot create order from empty cart");
+        }));
+        assertEquals(1, attempts.get());
+    }
+
+    /**
+     * Tests that retrying gives up after the maximum number of attempts.
+     */
+    @Test
+    void testInTransaction_GivesUp() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(MongoException.class, () -> transactionRunner.inTransaction(() -> {
+            attempts.incrementAndGet();
+            throw transientError();
+        }));
+        assertEquals(TransactionRunner.MAX_ATTEMPTS, attempts.get());
+    }
+
+    private static MongoException transientError() {
+        MongoException error = new MongoException(112, "WriteConflict");
+        error.addLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL);
+        return error;
+    }
+}